@@ -155,6 +155,33 @@ public class FileMessageStoreTest extends TestCaseBase {
 		assertEquals(2, store.getUnreadMessageCount());
 	}
 
+	@Test
+	public void getMessagesBefore() throws Exception {
+		File file = getTempFile();
+
+		// create a few messages and add them to the store
+		FileMessageStore store = new FileMessageStore(file, encryption);
+		store.addOrUpdateMessages(createMessage("1", State.saved, READ, 10.0));
+		store.addOrUpdateMessages(createMessage("2", State.saved, UNREAD, 20.0));
+		store.addOrUpdateMessages(createMessage("3", State.sent, READ, 30.0));
+		store.addOrUpdateMessages(createMessage("4", State.sending, READ, 40.0));
+
+		// reload store and page through the messages
+		store = new FileMessageStore(file, encryption);
+		addResult(store.getMessagesBefore(null, 2));
+		assertResult(
+			"{'nonce':'3','client_created_at':'30','state':'sent','read':'true'}",
+			"{'nonce':'4','client_created_at':'40','state':'sending','read':'true'}");
+
+		addResult(store.getMessagesBefore("3", 2));
+		assertResult(
+			"{'nonce':'1','client_created_at':'10','state':'saved','read':'true'}",
+			"{'nonce':'2','client_created_at':'20','state':'saved','read':'false'}");
+
+		assertEquals(0, store.getMessagesBefore("1", 2).size());
+		assertEquals(0, store.getMessagesBefore("unknown", 2).size());
+	}
+
 	@Test
 	public void deleteAllMessages() throws Exception {
 		File file = getTempFile();
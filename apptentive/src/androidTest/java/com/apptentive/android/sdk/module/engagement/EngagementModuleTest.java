@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.apptentive.android.sdk.Apptentive;
+import com.apptentive.android.sdk.ApptentiveHelper;
+import com.apptentive.android.sdk.ApptentiveInternal;
+import com.apptentive.android.sdk.TestCaseBase;
+import com.apptentive.android.sdk.conversation.Conversation;
+import com.apptentive.android.sdk.encryption.EncryptionFactory;
+import com.apptentive.android.sdk.util.RuntimeUtils;
+import com.apptentive.android.sdk.util.threading.MockDispatchQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class EngagementModuleTest extends TestCaseBase {
+	private static final String CIPHER_TRANSFORMATION = "AES/CBC/PKCS7Padding";
+	private static final String ENCRYPTION_KEY = "5C5361D08DA7AD6CD70ACEB572D387BB713A312DE8CE6128B8A42F62A7B381DB";
+
+	private static final String TARGETS = "{" +
+		"\"local#app#event1\":[{\"interaction_id\":\"a\",\"criteria\":{}}]," +
+		"\"local#app#event2\":[{\"interaction_id\":\"b\",\"criteria\":{\"person/name\":\"John\"}},{\"interaction_id\":\"c\",\"criteria\":{}}]," +
+		"\"local#app#event3\":[{\"interaction_id\":\"d\",\"criteria\":{\"person/name\":\"John\"}}]" +
+		"}";
+
+	private static final String INTERACTIONS = "[" +
+		"{\"id\":\"a\",\"type\":\"TextModal\",\"configuration\":{\"title\":\"A\"}}," +
+		"{\"id\":\"b\",\"type\":\"TextModal\",\"configuration\":{\"title\":\"B\"}}," +
+		"{\"id\":\"c\",\"type\":\"TextModal\",\"configuration\":{\"title\":\"C\"}}," +
+		"{\"id\":\"d\",\"type\":\"TextModal\",\"configuration\":{\"title\":\"D\"}}" +
+		"]";
+
+	private static final List<String> EVENTS = Arrays.asList("event1", "event2", "event3", "event4");
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+
+		// everything should run immediately
+		overrideMainQueue(true);
+		RuntimeUtils.overrideStaticFinalField(findHolderClass(ApptentiveHelper.class.getDeclaredClasses()), "CONVERSATION_QUEUE", new MockDispatchQueue(true));
+
+		ApptentiveInternal.setInstance(new ApptentiveInternal(InstrumentationRegistry.getTargetContext()));
+	}
+
+	@After
+	public void tearDown() {
+		super.tearDown();
+		ApptentiveInternal.setInstance(null);
+	}
+
+	//region Bulk queries
+
+	@Test
+	public void testApplicableInteractionIds() throws Exception {
+		Conversation conversation = createConversation();
+
+		Map<String, String> result = EngagementModule.getApplicableInteractionIds(conversation, "app", EVENTS, "local");
+		assertEquals(EVENTS.size(), result.size());
+		assertEquals("a", result.get("event1"));
+		assertEquals("c", result.get("event2"));
+		assertNull(result.get("event3"));
+		assertTrue(result.containsKey("event4"));
+		assertNull(result.get("event4"));
+	}
+
+	@Test
+	public void testApplicableInteractionIdsMatchSingleQueries() throws Exception {
+		Conversation conversation = createConversation();
+
+		// cached and shared results should not differ from the ones evaluated one by one
+		Map<String, String> result = EngagementModule.getApplicableInteractionIds(conversation, "app", EVENTS, "local");
+		for (String event : EVENTS) {
+			assertEquals(event, result.get(event) != null, EngagementModule.canShowInteraction(conversation, "app", event, "local"));
+		}
+
+		Conversation uncachedConversation = createConversation();
+		for (String event : EVENTS) {
+			assertEquals(event, result.get(event) != null, EngagementModule.canShowInteraction(uncachedConversation, "app", event, "local"));
+		}
+	}
+
+	@Test
+	public void testApplicableInteractionIdsAfterTargetsChange() throws Exception {
+		Conversation conversation = createConversation();
+		EngagementModule.getApplicableInteractionIds(conversation, "app", EVENTS, "local");
+
+		conversation.setTargets("{\"local#app#event3\":[{\"interaction_id\":\"d\",\"criteria\":{}}]}");
+
+		Map<String, String> result = EngagementModule.getApplicableInteractionIds(conversation, "app", EVENTS, "local");
+		assertNull(result.get("event1"));
+		assertNull(result.get("event2"));
+		assertEquals("d", result.get("event3"));
+		assertNull(result.get("event4"));
+	}
+
+	@Test
+	public void testQueryCanShowInteractionsWithoutConversation() {
+		ApptentiveInternal.setInstance(null);
+
+		final AtomicReference<Map<String, String>> resultRef = new AtomicReference<>();
+		Apptentive.queryCanShowInteractions(EVENTS, new Apptentive.InteractionsCallback() {
+			@Override
+			public void onFinish(Map<String, String> result) {
+				resultRef.set(result);
+			}
+		});
+
+		// every event is reported as having no interaction
+		Map<String, String> result = resultRef.get();
+		assertNotNull(result);
+		assertEquals(EVENTS.size(), result.size());
+		for (String event : EVENTS) {
+			assertTrue(event, result.containsKey(event));
+			assertNull(event, result.get(event));
+		}
+	}
+
+	//endregion
+
+	//region Helpers
+
+	private Conversation createConversation() throws Exception {
+		Conversation conversation = new Conversation(tempFolder.newFile(), tempFolder.newFile(), EncryptionFactory.createEncryption(ENCRYPTION_KEY, CIPHER_TRANSFORMATION), null);
+		conversation.setTargets(TARGETS);
+		conversation.setInteractions(INTERACTIONS);
+		return conversation;
+	}
+
+	private static Class<?> findHolderClass(Class<?>[] classes) {
+		for (Class<?> cls : classes) {
+			if (cls.getSimpleName().equals("Holder")) {
+				return cls;
+			}
+		}
+		return null;
+	}
+
+	//endregion
+}
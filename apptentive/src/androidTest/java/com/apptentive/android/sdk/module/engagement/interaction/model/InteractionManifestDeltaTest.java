@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.interaction.model;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class InteractionManifestDeltaTest {
+	private Targets targets;
+	private Interactions interactions;
+
+	@Before
+	public void setUp() throws JSONException {
+		InteractionManifest manifest = new InteractionManifest("{" +
+			"\"manifest_version\":\"1\"," +
+			"\"targets\":{" +
+			"\"local#app#launch\":[{\"interaction_id\":\"a\",\"criteria\":{}}]," +
+			"\"local#app#exit\":[{\"interaction_id\":\"b\",\"criteria\":{}}]" +
+			"}," +
+			"\"interactions\":[" +
+			"{\"id\":\"a\",\"type\":\"TextModal\",\"configuration\":{\"title\":\"A\"}}," +
+			"{\"id\":\"b\",\"type\":\"TextModal\",\"configuration\":{\"title\":\"B\"}}" +
+			"]}");
+		assertFalse(manifest.isDelta());
+		assertEquals("1", manifest.getManifestVersion());
+
+		targets = new Targets(manifest.getTargets().toString());
+		interactions = new Interactions(manifest.getInteractions().toString());
+	}
+
+	@Test
+	public void testApplyDelta() throws JSONException {
+		Interaction interactionA = interactions.getInteraction("a");
+		assertNotNull(interactionA);
+
+		InteractionManifest manifest = new InteractionManifest("{" +
+			"\"manifest_version\":\"2\"," +
+			"\"base_manifest_version\":\"1\"," +
+			"\"delta\":{" +
+			"\"targets\":{\"upsert\":{\"local#app#exit\":[{\"interaction_id\":\"c\",\"criteria\":{}}]},\"remove\":[\"local#app#launch\"]}," +
+			"\"interactions\":{\"upsert\":[{\"id\":\"c\",\"type\":\"TextModal\",\"configuration\":{\"title\":\"C\"}}],\"remove\":[\"b\"]}" +
+			"}}");
+		assertTrue(manifest.isDelta());
+
+		InteractionManifestDelta delta = manifest.getDelta();
+		assertEquals("2", delta.getManifestVersion());
+		assertEquals("1", delta.getBaseManifestVersion());
+		assertFalse(delta.isEmpty());
+
+		assertEquals(2, delta.applyTo(targets));
+		assertEquals(2, delta.applyTo(interactions));
+
+		assertEquals(Collections.singletonList("local#app#exit"), targets.getEventLabels());
+		assertNull(targets.optJSONArray("local#app#launch"));
+		assertEquals("c", targets.getJSONArray("local#app#exit").getJSONObject(0).getString("interaction_id"));
+
+		assertSame(interactionA, interactions.getInteraction("a")); // unchanged interactions stay parsed
+		assertNull(interactions.getInteraction("b"));
+		assertNotNull(interactions.getInteraction("c"));
+
+		// the stored strings round-trip
+		assertEquals(targets.toString(), new Targets(targets.toString()).toString());
+		assertNotNull(new Interactions(interactions.toString()).getInteraction("c"));
+	}
+
+	@Test
+	public void testEmptyDelta() throws JSONException {
+		InteractionManifest manifest = new InteractionManifest("{\"manifest_version\":\"2\",\"base_manifest_version\":\"1\",\"delta\":{}}");
+		InteractionManifestDelta delta = manifest.getDelta();
+		assertTrue(delta.isEmpty());
+		assertEquals(0, delta.applyTo(targets));
+		assertEquals(0, delta.applyTo(interactions));
+	}
+
+	@Test
+	public void testUnknownInteractionTypeRemovesInteraction() throws JSONException {
+		InteractionManifest manifest = new InteractionManifest("{" +
+			"\"manifest_version\":\"2\"," +
+			"\"base_manifest_version\":\"1\"," +
+			"\"delta\":{\"interactions\":{\"upsert\":[{\"id\":\"a\",\"type\":\"FutureInteraction\"}]}}" +
+			"}");
+		manifest.getDelta().applyTo(interactions);
+		assertNull(interactions.getInteraction("a"));
+		assertNotNull(interactions.getInteraction("b"));
+	}
+}
@@ -274,6 +274,98 @@ public class HttpRequestManagerTest extends TestCaseBase {
 		);
 	}
 
+	@Test
+	public void testCoalescedRequests() {
+		startRequest(new MockHttpRequest("1").setResponseData("data").allowCoalescing());
+		MockHttpRequest request2 = new MockHttpRequest("2").setResponseData("unused").allowCoalescing();
+		startRequest(request2);
+		dispatchRequests();
+
+		assertResult(
+			"finished: 2",
+			"finished: 1"
+		);
+		Assert.assertEquals("data", request2.getResponseData()); // only one network call was made
+	}
+
+	@Test
+	public void testCoalescedRequestsDifferentAuthorization() {
+		MockHttpRequest request1 = new MockHttpRequest("1").allowCoalescing();
+		request1.setRequestProperty("Authorization", "token1");
+		MockHttpRequest request2 = new MockHttpRequest("2").allowCoalescing();
+		request2.setRequestProperty("Authorization", "token2");
+
+		startRequest(request1);
+		startRequest(request2);
+		dispatchRequests();
+
+		assertResult(
+			"finished: 1",
+			"finished: 2"
+		);
+	}
+
+	@Test
+	public void testCoalescedRequestCancel() {
+		startRequest(new MockHttpRequest("1").allowCoalescing());
+		MockHttpRequest request2 = new MockHttpRequest("2").allowCoalescing();
+		startRequest(request2);
+
+		request2.cancel();
+		assertResult("cancelled: 2");
+
+		dispatchRequests();
+		assertResult("finished: 1");
+	}
+
+	@Test
+	public void testCoalescedPrimaryRequestCancel() {
+		MockHttpRequest request1 = new MockHttpRequest("1").setResponseData("data").allowCoalescing();
+		MockHttpRequest request2 = new MockHttpRequest("2").allowCoalescing();
+		startRequest(request1);
+		startRequest(request2);
+
+		// the network call continues for the second request
+		request1.cancel();
+		dispatchRequests();
+
+		assertResult(
+			"finished: 2",
+			"cancelled: 1"
+		);
+		Assert.assertEquals("data", request2.getResponseData());
+	}
+
+	@Test
+	public void testCoalescedRequestsCancelAll() {
+		MockHttpRequest request1 = new MockHttpRequest("1").allowCoalescing();
+		MockHttpRequest request2 = new MockHttpRequest("2").allowCoalescing();
+		startRequest(request1);
+		startRequest(request2);
+
+		request1.cancel();
+		request2.cancel();
+		dispatchRequests();
+
+		assertResult(
+			"cancelled: 2",
+			"cancelled: 1"
+		);
+	}
+
+	@Test
+	public void testFindRequest() {
+		HttpRequest request = new MockHttpRequest("1");
+		request.setTag("tag");
+		startRequest(request);
+
+		Assert.assertSame(request, requestManager.findRequest("tag"));
+		Assert.assertNull(requestManager.findRequest("other tag"));
+
+		dispatchRequests();
+		Assert.assertNull(requestManager.findRequest("tag"));
+	}
+
 	//region Helpers
 
 	private void startRequest(HttpRequest request) {
@@ -6,23 +6,46 @@
 
 package com.apptentive.android.sdk.storage;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
 import androidx.test.InstrumentationRegistry;
 import androidx.test.runner.AndroidJUnit4;
+import com.apptentive.android.sdk.Encryption;
+import com.apptentive.android.sdk.comm.ApptentiveHttpClient;
+import com.apptentive.android.sdk.encryption.EncryptionFactory;
+import com.apptentive.android.sdk.encryption.EncryptionHelper;
 import com.apptentive.android.sdk.model.*;
 import com.apptentive.android.sdk.module.messagecenter.model.MessageFactory;
+import com.apptentive.android.sdk.network.ConnectivityMonitor;
+import com.apptentive.android.sdk.network.HttpRequestMethod;
+import com.apptentive.android.sdk.network.NetworkPolicy;
+import com.apptentive.android.sdk.storage.ApptentiveDatabaseHelper.PayloadEntry;
+import com.apptentive.android.sdk.util.Constants;
+import com.apptentive.android.sdk.util.Util;
+import org.json.JSONObject;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.*;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
 public class ApptentiveDatabaseHelperTest {
+	private static final String CIPHER_TRANSFORMATION = "AES/CBC/PKCS7Padding";
+	private static final String ENCRYPTION_KEY = "5C5361D08DA7AD6CD70ACEB572D387BB713A312DE8CE6128B8A42F62A7B381DB";
 
 	@After
 	public void tearDown() throws Exception {
 		deleteDbFile(InstrumentationRegistry.getContext());
+		deletePayloadFiles(InstrumentationRegistry.getContext());
 	}
 
 	@Test
@@ -40,6 +63,148 @@ public class ApptentiveDatabaseHelperTest {
 		};
 	}
 
+	@Test
+	public void testMigrationFromVersion4() throws Exception {
+		final Context context = InstrumentationRegistry.getContext();
+		final Encryption encryption = EncryptionFactory.createEncryption(ENCRYPTION_KEY, CIPHER_TRANSFORMATION);
+		deleteDbFile(context);
+
+		// version 4 stored encrypted tokens in the payload rows (authenticated payloads had none)
+		SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(getDatabaseFile(context), null);
+		try {
+			db.execSQL(ApptentiveDatabaseHelper.SQL_CREATE_PAYLOAD_TABLE);
+			insertVersion4Payload(context, db, encryption, "anonymous-nonce", "local-1", EncryptionHelper.encrypt(encryption, "anonymous-token"), false);
+			insertVersion4Payload(context, db, encryption, "authenticated-nonce", "local-2", null, true);
+			db.setVersion(4);
+		} finally {
+			db.close();
+		}
+
+		ApptentiveDatabaseHelper helper = new ApptentiveDatabaseHelper(context, encryption, PayloadQueueLimits.DEFAULT);
+		try {
+			// anonymous payloads still get the original token
+			PayloadData anonymousPayload = helper.getOldestUnsentPayload();
+			assertNotNull(anonymousPayload);
+			assertEquals("anonymous-nonce", anonymousPayload.getNonce());
+			assertFalse(anonymousPayload.isAuthenticated());
+			assertEquals("anonymous-token", anonymousPayload.getAuthToken());
+			assertEquals("/conversations/conversation-id/events", anonymousPayload.getHttpRequestPath());
+			assertTrue(Arrays.equals(createPayloadBody("anonymous-nonce"), anonymousPayload.getData()));
+			helper.deletePayload(anonymousPayload.getNonce());
+
+			// authenticated payloads get no token
+			PayloadData authenticatedPayload = helper.getOldestUnsentPayload();
+			assertNotNull(authenticatedPayload);
+			assertEquals("authenticated-nonce", authenticatedPayload.getNonce());
+			assertTrue(authenticatedPayload.isAuthenticated());
+			assertNull(authenticatedPayload.getAuthToken());
+			assertTrue(Arrays.equals(createPayloadBody("authenticated-nonce"), authenticatedPayload.getData()));
+			helper.deletePayload(authenticatedPayload.getNonce());
+
+			assertNull(helper.getOldestUnsentPayload());
+		} finally {
+			helper.close();
+		}
+	}
+
+	@Test
+	public void testSkipDeferredLargePayload() throws Exception {
+		final Context context = InstrumentationRegistry.getContext();
+		final Encryption encryption = EncryptionFactory.createEncryption(ENCRYPTION_KEY, CIPHER_TRANSFORMATION);
+		deleteDbFile(context);
+
+		ApptentiveHttpClient httpClient = new ApptentiveHttpClient("key", "signature", "https://example.com");
+		httpClient.setLargePayloadNetworkPolicy(NetworkPolicy.UNMETERED);
+		MockConnectivityMonitor connectivityMonitor = new MockConnectivityMonitor();
+		PayloadNetworkFilter filter = new PayloadNetworkFilter(httpClient, connectivityMonitor);
+
+		ApptentiveDatabaseHelper helper = new ApptentiveDatabaseHelper(context, encryption, PayloadQueueLimits.DEFAULT);
+		try {
+			char[] chars = new char[1024 * 1024];
+			Arrays.fill(chars, 'x');
+			JSONObject largeData = new JSONObject();
+			largeData.put("attachment", new String(chars));
+			helper.addPayload(createEventPayload(new EventPayload("large", largeData)));
+			helper.addPayload(createEventPayload(new EventPayload("small", (JSONObject) null)));
+
+			// the large payload waits for an unmetered network: the small one queued after it is sent
+			connectivityMonitor.connectionUnmetered = false;
+			PayloadData smallPayload = helper.getOldestUnsentPayload(filter);
+			assertNotNull(smallPayload);
+			assertEquals(NetworkPolicy.ANY, httpClient.getNetworkPolicy(smallPayload));
+			helper.deletePayload(smallPayload.getNonce());
+			assertNull(helper.getOldestUnsentPayload(filter));
+
+			connectivityMonitor.connectionUnmetered = true;
+			PayloadData largePayload = helper.getOldestUnsentPayload(filter);
+			assertNotNull(largePayload);
+			assertEquals(NetworkPolicy.UNMETERED, httpClient.getNetworkPolicy(largePayload));
+		} finally {
+			helper.close();
+		}
+	}
+
+	private static Payload createEventPayload(EventPayload payload) {
+		payload.setConversationId("conversation-id");
+		payload.setToken("token");
+		payload.setLocalConversationIdentifier("local-1");
+		return payload;
+	}
+
+	private static class MockConnectivityMonitor extends ConnectivityMonitor {
+		boolean connectionUnmetered;
+
+		@Override
+		public boolean isConnected() {
+			return true;
+		}
+
+		@Override
+		public boolean isConnectionUnmetered() {
+			return connectionUnmetered;
+		}
+	}
+
+	private static void insertVersion4Payload(Context context, SQLiteDatabase db, Encryption encryption, String nonce, String localConversationId, byte[] authToken, boolean authenticated) throws Exception {
+		ContentValues values = new ContentValues();
+		values.put(PayloadEntry.COLUMN_PAYLOAD_TYPE.name, PayloadType.event.name());
+		values.put(PayloadEntry.COLUMN_IDENTIFIER.name, nonce);
+		values.put(PayloadEntry.COLUMN_CONTENT_TYPE.name, "application/json");
+		values.put(PayloadEntry.COLUMN_AUTH_TOKEN.name, authToken);
+		values.put(PayloadEntry.COLUMN_CONVERSATION_ID.name, "conversation-id");
+		values.put(PayloadEntry.COLUMN_REQUEST_METHOD.name, HttpRequestMethod.POST.name());
+		values.put(PayloadEntry.COLUMN_PATH.name, "/conversations/${conversationId}/events");
+		values.put(PayloadEntry.COLUMN_AUTHENTICATED.name, authenticated ? 1 : 0);
+		values.put(PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID.name, localConversationId);
+		db.insert(PayloadEntry.TABLE_NAME, null, values);
+
+		// only anonymous payload bodies are encrypted on write
+		File file = getPayloadBodyFile(context, nonce);
+		file.getParentFile().mkdirs();
+		if (authenticated) {
+			Util.writeAtomically(file, createPayloadBody(nonce));
+		} else {
+			EncryptionHelper.writeToEncryptedFile(encryption, file, createPayloadBody(nonce));
+		}
+	}
+
+	private static byte[] createPayloadBody(String nonce) throws UnsupportedEncodingException {
+		return ("{\"nonce\":\"" + nonce + "\"}").getBytes("UTF-8");
+	}
+
+	private static File getPayloadBodyFile(Context context, String nonce) {
+		return new File(new File(context.getFilesDir(), Constants.PAYLOAD_DATA_DIR), nonce + Constants.PAYLOAD_DATA_FILE_SUFFIX);
+	}
+
+	private static void deletePayloadFiles(Context context) {
+		File[] files = new File(context.getFilesDir(), Constants.PAYLOAD_DATA_DIR).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+	}
+
 	private static void replaceDbFile(Context context, String filename) throws IOException {
 		InputStream input = context.getAssets().open(filename);
 		try {
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.cache;
+
+import android.graphics.Bitmap;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.apptentive.android.sdk.TestCaseBase;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class ImageCacheTest extends TestCaseBase {
+	private static final String URI = "https://example.com/image.png";
+	private static final String OTHER_URI = "https://example.com/other.png";
+
+	private static final int THUMBNAIL_SIZE = 16;
+	private static final int MAX_MEMORY_SIZE = THUMBNAIL_SIZE * THUMBNAIL_SIZE * 4; // a single thumbnail
+	private static final long MAX_DISK_SIZE = 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testRemoveEvictedSizes() throws Exception {
+		File diskCacheDir = tempFolder.newFolder();
+		ImageCache cache = new ImageCache(MAX_MEMORY_SIZE, 0, diskCacheDir, MAX_DISK_SIZE);
+
+		ImageCache.Key key1 = new ImageCache.Key(URI, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+		ImageCache.Key key2 = new ImageCache.Key(URI, THUMBNAIL_SIZE / 2, THUMBNAIL_SIZE / 2);
+		ImageCache.Key otherKey = new ImageCache.Key(OTHER_URI, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+		put(cache, key1);
+		put(cache, key2);
+		put(cache, otherKey);
+
+		// the memory tier only fits one thumbnail: both sizes of the image are evicted
+		assertNull(cache.getFromMemory(key1));
+		assertNull(cache.getFromMemory(key2));
+
+		cache.remove(URI);
+		assertNull(cache.getFromDisk(key1));
+		assertNull(cache.getFromDisk(key2));
+		assertNotNull(cache.getFromDisk(otherKey));
+	}
+
+	@Test
+	public void testRemoveSizesStoredByEarlierProcess() throws Exception {
+		File diskCacheDir = tempFolder.newFolder();
+		ImageCache.Key key = new ImageCache.Key(URI, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+		put(new ImageCache(MAX_MEMORY_SIZE, 0, diskCacheDir, MAX_DISK_SIZE), key);
+
+		// a new cache instance has nothing in its memory tier
+		ImageCache cache = new ImageCache(MAX_MEMORY_SIZE, 0, diskCacheDir, MAX_DISK_SIZE);
+		assertNotNull(cache.getFromDisk(key));
+
+		cache.remove(URI);
+		assertNull(cache.getFromDisk(key));
+		assertEquals(0, diskCacheDir.listFiles().length);
+	}
+
+	private static void put(ImageCache cache, ImageCache.Key key) {
+		Bitmap bitmap = Bitmap.createBitmap(key.getWidth(), key.getHeight(), Bitmap.Config.ARGB_8888);
+		cache.putToDisk(key, bitmap);
+		cache.putToMemory(key, bitmap);
+	}
+}
@@ -33,6 +33,7 @@ import com.apptentive.android.sdk.module.engagement.EngagementModule;
 import com.apptentive.android.sdk.module.messagecenter.UnreadMessagesListener;
 import com.apptentive.android.sdk.module.rating.IRatingProvider;
 import com.apptentive.android.sdk.module.survey.OnSurveyFinishedListener;
+import com.apptentive.android.sdk.network.NetworkMetrics;
 import com.apptentive.android.sdk.util.Constants;
 import com.apptentive.android.sdk.util.ObjectUtils;
 import com.apptentive.android.sdk.util.StringUtils;
@@ -47,12 +48,16 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.apptentive.android.sdk.ApptentiveHelper.checkConversationQueue;
 import static com.apptentive.android.sdk.ApptentiveHelper.dispatchConversationTask;
 import static com.apptentive.android.sdk.ApptentiveHelper.dispatchOnConversationQueue;
 import static com.apptentive.android.sdk.ApptentiveLogTag.CONVERSATION;
+import static com.apptentive.android.sdk.ApptentiveLogTag.INTERACTIONS;
 import static com.apptentive.android.sdk.ApptentiveLogTag.MESSAGES;
 import static com.apptentive.android.sdk.ApptentiveLogTag.PUSH;
 import static com.apptentive.android.sdk.util.StringUtils.trim;
@@ -145,6 +150,23 @@ public class Apptentive {
 		ApptentiveActivityLifecycleCallbacks.register(application);
 	}
 
+	/**
+	 * Returns how long each stage of the SDK initialization took (in milliseconds). Stages which are
+	 * still running are not included. Useful for checking the SDK impact on the app startup time.
+	 */
+	public static Map<String, Long> getStartupTimings() {
+		return ApptentiveInternal.getStartupTimings();
+	}
+
+	/**
+	 * Returns the per-endpoint latency histograms, status codes, retries and traffic of the SDK
+	 * requests. Use {@link NetworkMetrics#setListener(NetworkMetrics.Listener)} to receive the
+	 * timing breakdown of each request as it finishes.
+	 */
+	public static NetworkMetrics getNetworkMetrics() {
+		return ApptentiveInternal.getNetworkMetrics();
+	}
+
 	//region Global Data Methods
 
 	/**
@@ -1388,6 +1410,48 @@ public class Apptentive {
 		}, "check if interaction can be shown");
 	}
 
+	/**
+	 * Bulk version of {@link #queryCanShowInteraction(String, BooleanCallback)}: checks multiple
+	 * events in a single pass and delivers the result on the main thread.
+	 *
+	 * @param events   A collection of event names to check.
+	 * @param callback A callback which receives a map of event name to the id of the Interaction
+	 *                 which would be displayed (or <code>null</code> if there's none).
+	 */
+	public static synchronized void queryCanShowInteractions(@NonNull final Collection<String> events, @NonNull final InteractionsCallback callback) {
+		if (events == null) {
+			throw new IllegalArgumentException("Events are null");
+		}
+		if (callback == null) {
+			throw new IllegalArgumentException("Callback is null");
+		}
+
+		// make a copy since the collection might be modified while the task is waiting in the queue
+		final List<String> eventsCopy = new ArrayList<>(events);
+		final Map<String, String> result = new HashMap<>();
+		BooleanCallback resultCallback = new BooleanCallback() {
+			@Override
+			public void onFinish(boolean succeed) {
+				// if the check fails - none of the interactions can be shown
+				if (!succeed) {
+					ApptentiveLog.w(INTERACTIONS, "Unable to check if interactions can be shown for events: %s", eventsCopy);
+					result.clear();
+					for (String event : eventsCopy) {
+						result.put(event, null);
+					}
+				}
+				callback.onFinish(result);
+			}
+		};
+		dispatchConversationTask(new ConversationDispatchTask(resultCallback, DispatchQueue.mainQueue()) {
+			@Override
+			protected boolean execute(Conversation conversation) {
+				result.putAll(EngagementModule.getApplicableInteractionIds(conversation, "app", eventsCopy, "local"));
+				return true;
+			}
+		}, "check if interactions can be shown");
+	}
+
 	/**
 	 * Sets an optional engagement callback.
 	 */
@@ -1878,6 +1942,17 @@ public class Apptentive {
 		void onFinish(boolean result);
 	}
 
+	/**
+	 * Receives the result of {@link #queryCanShowInteractions(Collection, InteractionsCallback)}.
+	 */
+	public interface InteractionsCallback {
+		/**
+		 * @param result map of event name to the id of the Interaction which can be displayed
+		 *               (<code>null</code> if there's none).
+		 */
+		void onFinish(Map<String, String> result);
+	}
+
 	public interface PendingIntentCallback {
 		void onPendingIntent(PendingIntent pendingIntent);
 	}
@@ -9,6 +9,8 @@ package com.apptentive.android.sdk;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.apptentive.android.sdk.storage.BackgroundFlushWindow;
+import com.apptentive.android.sdk.storage.PayloadQueueLimits;
 import com.apptentive.android.sdk.util.StringUtils;
 
 public class ApptentiveConfiguration {
@@ -21,6 +23,12 @@ public class ApptentiveConfiguration {
 	private boolean troubleshootingModeEnabled;
 	private Encryption encryption;
 	private boolean shouldCollectAndroidIdOnPreOreoTargets;
+	private boolean shouldDeferLargeUploadsToUnmeteredNetwork;
+	private int maxPendingPayloadCount = PayloadQueueLimits.DEFAULT_MAX_PAYLOAD_COUNT;
+	private long maxPendingPayloadBytes = PayloadQueueLimits.DEFAULT_MAX_PAYLOAD_BYTES;
+	private long maxPendingPayloadAgeMillis = PayloadQueueLimits.DEFAULT_MAX_PAYLOAD_AGE_MILLIS;
+	private long backgroundFlushDurationMillis = BackgroundFlushWindow.DEFAULT_DURATION_MILLIS;
+	private int backgroundFlushMaxPayloadCount = BackgroundFlushWindow.DEFAULT_MAX_PAYLOAD_COUNT;
 
 	public ApptentiveConfiguration(@NonNull String apptentiveKey, @NonNull String apptentiveSignature) {
 		if (StringUtils.isNullOrEmpty(apptentiveKey)) {
@@ -139,4 +147,67 @@ public class ApptentiveConfiguration {
 	public boolean shouldCollectAndroidIdOnPreOreoTargets() {
 		return shouldCollectAndroidIdOnPreOreoTargets;
 	}
+
+	/**
+	 * Overrides if large uploads (messages with attachments) should wait for an unmetered network
+	 * (<code>false</code> by default). Payloads queued after a large upload wait as well.
+	 */
+	public ApptentiveConfiguration setShouldDeferLargeUploadsToUnmeteredNetwork(boolean shouldDeferLargeUploadsToUnmeteredNetwork) {
+		this.shouldDeferLargeUploadsToUnmeteredNetwork = shouldDeferLargeUploadsToUnmeteredNetwork;
+		return this;
+	}
+
+	/**
+	 * Indicates if large uploads should wait for an unmetered network.
+	 */
+	public boolean shouldDeferLargeUploadsToUnmeteredNetwork() {
+		return shouldDeferLargeUploadsToUnmeteredNetwork;
+	}
+
+	/**
+	 * Overrides the limits of the queue of payloads waiting to be sent. When a limit is exceeded the
+	 * oldest events (then person and device updates) are dropped. Messages and survey responses are
+	 * never dropped.
+	 *
+	 * @param maxPayloadCount - maximum number of pending payloads
+	 * @param maxPayloadBytes - maximum total size of pending payloads
+	 * @param maxPayloadAgeMillis - maximum age of a pending payload
+	 */
+	public ApptentiveConfiguration setPendingPayloadLimits(int maxPayloadCount, long maxPayloadBytes, long maxPayloadAgeMillis) {
+		if (maxPayloadCount <= 0 || maxPayloadBytes <= 0 || maxPayloadAgeMillis <= 0) {
+			throw new IllegalArgumentException("Pending payload limits should be positive");
+		}
+		this.maxPendingPayloadCount = maxPayloadCount;
+		this.maxPendingPayloadBytes = maxPayloadBytes;
+		this.maxPendingPayloadAgeMillis = maxPayloadAgeMillis;
+		return this;
+	}
+
+	public PayloadQueueLimits getPendingPayloadLimits() {
+		return new PayloadQueueLimits(maxPendingPayloadCount, maxPendingPayloadBytes, maxPendingPayloadAgeMillis);
+	}
+
+	/**
+	 * Overrides how long (and how many) pending payloads are still sent after the app enters the
+	 * background. Pass <code>0</code> to stop sending as soon as the app enters the background.
+	 *
+	 * @param durationMillis - maximum duration of the background flush
+	 * @param maxPayloadCount - maximum number of payloads sent during the background flush
+	 */
+	public ApptentiveConfiguration setBackgroundFlushWindow(long durationMillis, int maxPayloadCount) {
+		if (durationMillis < 0 || maxPayloadCount < 0) {
+			throw new IllegalArgumentException("Background flush limits should not be negative");
+		}
+		this.backgroundFlushDurationMillis = durationMillis;
+		this.backgroundFlushMaxPayloadCount = maxPayloadCount;
+		return this;
+	}
+
+	public long getBackgroundFlushDurationMillis() {
+		return backgroundFlushDurationMillis;
+	}
+
+	public int getBackgroundFlushMaxPayloadCount() {
+		return backgroundFlushMaxPayloadCount;
+	}
 }
@@ -24,6 +24,7 @@ import com.apptentive.android.sdk.module.survey.OnSurveyFinishedListener;
 import com.apptentive.android.sdk.storage.AppRelease;
 import com.apptentive.android.sdk.storage.ApptentiveTaskManager;
 import com.apptentive.android.sdk.util.Nullsafe;
+import com.apptentive.android.sdk.util.threading.WorkScheduler;
 
 import java.util.Map;
 
@@ -35,6 +36,7 @@ public interface ApptentiveInstance extends Nullsafe {
 	void logout();
 
 	void updateApptentiveInteractionTheme(Context context, Resources.Theme theme);
+	void warmUpInteractionTheme();
 
 	void notifyInteractionUpdated(boolean successful); // TODO: remove this method and replace the call with a notification
 
@@ -53,6 +55,7 @@ public interface ApptentiveInstance extends Nullsafe {
 	@Nullable ConversationProxy getConversationProxy();
 	@Nullable AppRelease getAppRelease();
 	@Nullable ApptentiveTaskManager getApptentiveTaskManager();
+	@Nullable WorkScheduler getWorkScheduler();
 	@Nullable ApptentiveHttpClient getApptentiveHttpClient();
 	@Nullable SharedPreferences getGlobalSharedPrefs();
 
@@ -45,6 +45,11 @@ import com.apptentive.android.sdk.module.messagecenter.MessageManager;
 import com.apptentive.android.sdk.module.rating.IRatingProvider;
 import com.apptentive.android.sdk.module.rating.impl.GooglePlayRatingProvider;
 import com.apptentive.android.sdk.module.survey.OnSurveyFinishedListener;
+import com.apptentive.android.sdk.network.ConnectivityMonitor;
+import com.apptentive.android.sdk.network.HttpRequestManager;
+import com.apptentive.android.sdk.network.NetworkMetrics;
+import com.apptentive.android.sdk.network.NetworkPolicy;
+import com.apptentive.android.sdk.network.SystemConnectivityMonitor;
 import com.apptentive.android.sdk.notifications.ApptentiveNotification;
 import com.apptentive.android.sdk.notifications.ApptentiveNotificationCenter;
 import com.apptentive.android.sdk.notifications.ApptentiveNotificationObserver;
@@ -55,6 +60,9 @@ import com.apptentive.android.sdk.util.*;
 import com.apptentive.android.sdk.util.AdvertiserManager.AdvertisingIdClientInfo;
 import com.apptentive.android.sdk.util.threading.DispatchQueue;
 import com.apptentive.android.sdk.util.threading.DispatchTask;
+import com.apptentive.android.sdk.util.threading.StartupGraph;
+import com.apptentive.android.sdk.util.threading.SystemDeviceState;
+import com.apptentive.android.sdk.util.threading.WorkScheduler;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -65,6 +73,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import static com.apptentive.android.sdk.ApptentiveHelper.*;
@@ -79,6 +89,7 @@ import static com.apptentive.android.sdk.util.Constants.CONVERSATIONS_DIR;
  */
 public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotificationObserver {
 	private final ApptentiveTaskManager taskManager;
+	private final WorkScheduler workScheduler;
 
 	private final ApptentiveHttpClient apptentiveHttpClient;
 	private final ConversationManager conversationManager;
@@ -93,16 +104,20 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 	private final String apptentiveKey;
 	private final String apptentiveSignature;
 	private String serverUrl;
-	private String appPackageName;
+	private volatile String appPackageName;
 
 	// toolbar theme specified in R.attr.apptentiveToolbarTheme
 	private Resources.Theme apptentiveToolbarTheme;
 
 	// app default appcompat theme res id, if specified in app AndroidManifest
-	private int appDefaultAppCompatThemeId;
+	private volatile int appDefaultAppCompatThemeId;
+
+	// optional "ApptentiveThemeOverride" style res id from the host app (resolved lazily)
+	private volatile Integer themeOverrideResId;
 
 	private int statusBarColorDefault;
-	private String defaultAppDisplayName = "this app";
+	private volatile String defaultAppDisplayName = "this app";
+	private volatile boolean packageInfoLoaded;
 	// booleans to prevent starting multiple fetching asyncTasks simultaneously
 
 	private IRatingProvider ratingProvider;
@@ -120,6 +135,21 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 	private static final String PUSH_CONVERSATION_ID = "conversation_id";
 	private static final int LOG_HISTORY_SIZE = 2;
 
+	// startup stages
+	private static final String STAGE_ENCRYPTION_KEY = "encryption_key";
+	private static final String STAGE_ANDROID_ID = "android_id";
+	private static final String STAGE_CREATE_INSTANCE = "create_instance";
+	private static final String STAGE_PACKAGE_INFO = "package_info";
+	private static final String STAGE_CONVERSATION = "load_conversation";
+	private static final String STAGE_APPTIMIZE = "apptimize";
+	private static final long STAGE_TIMEOUT_MILLIS = 10000;
+
+	// traces SDK initialization (null until the SDK is registered)
+	private static volatile StartupGraph startupGraph;
+
+	// timing and traffic of the SDK requests (collected from the very first request)
+	private static final NetworkMetrics networkMetrics = new NetworkMetrics();
+
 	private enum PushAction {
 		pmc,       // Present Message Center.
 		unknown;   // Anything unknown will not be handled.
@@ -143,6 +173,7 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 	// for unit testing
 	public ApptentiveInternal(Context appContext) {
 		taskManager = null;
+		workScheduler = null;
 		globalSharedPrefs = null;
 		apptentiveKey = null;
 		apptentiveSignature = null;
@@ -152,7 +183,7 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 		appRelease = null;
 	}
 
-	private ApptentiveInternal(Application application, ApptentiveConfiguration configuration, @NonNull String androidID) {
+	private ApptentiveInternal(Application application, ApptentiveConfiguration configuration, @NonNull String androidID, @NonNull Encryption encryption) {
 		if (configuration == null) {
 			throw new IllegalArgumentException("Configuration is null");
 		}
@@ -165,19 +196,33 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 		this.apptentiveSignature = apptentiveSignature;
 		this.serverUrl = serverUrl;
 
-		boolean shouldEncryptStorage = configuration.shouldEncryptStorage();
-		Encryption encryption = SecurityManager.getEncryption(application.getApplicationContext(), configuration.getEncryption(), shouldEncryptStorage);
-
 		appContext = application.getApplicationContext();
 
 		globalSharedPrefs = application.getSharedPreferences(Constants.PREF_NAME, Context.MODE_PRIVATE);
 		apptentiveHttpClient = new ApptentiveHttpClient(apptentiveKey, apptentiveSignature, getEndpointBase(globalSharedPrefs));
+		apptentiveHttpClient.setLargePayloadNetworkPolicy(configuration.shouldDeferLargeUploadsToUnmeteredNetwork() ? NetworkPolicy.UNMETERED : NetworkPolicy.ANY);
+
+		// requests made while offline are parked until the connection is back
+		ConnectivityMonitor connectivityMonitor = new SystemConnectivityMonitor(appContext);
+		HttpRequestManager.sharedManager().setConnectivityMonitor(connectivityMonitor);
+		HttpRequestManager.sharedManager().setNetworkMetrics(networkMetrics);
+
+		// deferred work (polling, retries) shares wake-ups and waits for its constraints
+		SystemDeviceState deviceState = new SystemDeviceState(appContext, connectivityMonitor);
+		workScheduler = new WorkScheduler(deviceState, WorkScheduler.createExecutor(conversationQueue()), WorkScheduler.SYSTEM_CLOCK);
+		deviceState.setListener(new SystemDeviceState.Listener() {
+			@Override
+			public void onDeviceStateChanged(SystemDeviceState deviceState) {
+				workScheduler.onDeviceStateChanged();
+			}
+		});
 
 		DeviceManager deviceManager = new DeviceManager(androidID);
 		conversationManager = new ConversationManager(appContext, Util.getInternalDir(appContext, CONVERSATIONS_DIR, true), encryption, deviceManager);
 
 		appRelease = AppReleaseManager.generateCurrentAppRelease(application, this);
-		taskManager = new ApptentiveTaskManager(appContext, apptentiveHttpClient, encryption);
+		taskManager = new ApptentiveTaskManager(appContext, apptentiveHttpClient, connectivityMonitor, workScheduler, encryption, configuration.getPendingPayloadLimits(),
+			new BackgroundFlushWindow(configuration.getBackgroundFlushDurationMillis(), configuration.getBackgroundFlushMaxPayloadCount()));
 
 		ApptentiveNotificationCenter.defaultCenter()
 			.addObserver(NOTIFICATION_CONVERSATION_STATE_DID_CHANGE, this)
@@ -209,9 +254,10 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 	 *
 	 * @param application the context of the app that is creating the instance
 	 */
-	static void createInstance(@NonNull Application application, @NonNull ApptentiveConfiguration configuration) {
+	static void createInstance(@NonNull Application application, @NonNull final ApptentiveConfiguration configuration) {
 		final String apptentiveKey = configuration.getApptentiveKey();
 		final String apptentiveSignature = configuration.getApptentiveSignature();
+		final Context context = application.getApplicationContext();
 
 		// set log message sanitizing
 		ApptentiveLog.setShouldSanitizeLogMessages(configuration.shouldSanitizeLogMessages());
@@ -219,13 +265,13 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 		// set log level before we initialize log monitor since log monitor can override it as well
 		ApptentiveLog.overrideLogLevel(configuration.getLogLevel());
 
-		// troubleshooting mode
+		// troubleshooting mode (stays synchronous so early log messages and remote log level overrides are not lost)
 		if (configuration.isTroubleshootingModeEnabled()) {
 			// initialize log writer
-			ApptentiveLog.initializeLogWriter(application.getApplicationContext(), LOG_HISTORY_SIZE);
+			ApptentiveLog.initializeLogWriter(context, LOG_HISTORY_SIZE);
 
 			// try initializing log monitor
-			LogMonitor.startSession(application.getApplicationContext(), apptentiveKey, apptentiveSignature);
+			LogMonitor.startSession(context, apptentiveKey, apptentiveSignature);
 		} else {
 			ApptentiveLog.i(TROUBLESHOOT, "Troubleshooting is disabled in the app configuration");
 		}
@@ -234,10 +280,38 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 			if (sApptentiveInternal == null) {
 				ApptentiveLog.i("Registering Apptentive Android SDK %s", Constants.getApptentiveSdkVersion());
 				ApptentiveLog.v("ApptentiveKey=%s ApptentiveSignature=%s", apptentiveKey, apptentiveSignature);
+
+				// independent stages run concurrently off the calling thread
+				final StartupGraph graph = new StartupGraph();
+				final Executor backgroundExecutor = DispatchQueue.backgroundQueue().asExecutor();
+
+				// key store operations might be slow: storage components only wait for the key on the first use
+				final FutureTask<Encryption> encryptionTask = SecurityManager.createWarmUpTask(context, configuration.getEncryption(), configuration.shouldEncryptStorage());
+				graph.addStage(STAGE_ENCRYPTION_KEY, backgroundExecutor, encryptionTask);
+				graph.start();
+				startupGraph = graph;
+
 				// resolve Android ID
+				graph.begin(STAGE_ANDROID_ID);
 				boolean shouldGenerateRandomAndroidID = Build.VERSION.SDK_INT < Build.VERSION_CODES.O && !configuration.shouldCollectAndroidIdOnPreOreoTargets();
-				String androidID = resolveAndroidID(application.getApplicationContext(), shouldGenerateRandomAndroidID);
-				sApptentiveInternal = new ApptentiveInternal(application, configuration, androidID);
+				String androidID = resolveAndroidID(context, shouldGenerateRandomAndroidID);
+				graph.end(STAGE_ANDROID_ID);
+
+				Encryption encryption = SecurityManager.getDeferredEncryption(encryptionTask);
+
+				graph.begin(STAGE_CREATE_INSTANCE);
+				sApptentiveInternal = new ApptentiveInternal(application, configuration, androidID, encryption);
+				graph.end(STAGE_CREATE_INSTANCE);
+
+				// package info is only needed by UI: load it while the conversation is loading
+				final ApptentiveInternal instance = sApptentiveInternal;
+				graph.addStage(STAGE_PACKAGE_INFO, backgroundExecutor, new Runnable() {
+					@Override
+					public void run() {
+						instance.loadPackageInfo();
+					}
+				});
+
 				dispatchOnConversationQueue(new DispatchTask() {
 					@Override
 					protected void execute() {
@@ -252,6 +326,19 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 		}
 	}
 
+	/**
+	 * Returns durations (in milliseconds) of the SDK initialization stages finished so far or an empty
+	 * map if the SDK is not registered.
+	 */
+	public static Map<String, Long> getStartupTimings() {
+		StartupGraph graph = startupGraph;
+		return graph != null ? graph.getTimings() : new HashMap<String, Long>();
+	}
+
+	public static NetworkMetrics getNetworkMetrics() {
+		return networkMetrics;
+	}
+
 	/**
 	 * Retrieve the existing instance of the Apptentive class. If {@link Apptentive#register(Application)} is
 	 * not called prior to this, it will return null; Otherwise, it will return the singleton instance initialized.
@@ -350,6 +437,10 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 		return taskManager;
 	}
 
+	public WorkScheduler getWorkScheduler() {
+		return workScheduler;
+	}
+
 	public ConversationManager getConversationManager() {
 		return conversationManager;
 	}
@@ -457,6 +548,29 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 	 *                or application context
 	 */
 	public void updateApptentiveInteractionTheme(Context context, Resources.Theme interactionTheme) {
+		applyInteractionThemeLayers(context, interactionTheme);
+
+		// Step 5: Update status bar color
+		/* Obtain the default status bar color. When an Apptentive Modal interaction is shown,
+		 *  a translucent overlay would be applied on top of statusBarColorDefault
+		 */
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			int transparentColor = ContextCompat.getColor(context, android.R.color.transparent);
+			TypedArray a = interactionTheme.obtainStyledAttributes(new int[]{android.R.attr.statusBarColor});
+			try {
+				statusBarColorDefault = a.getColor(0, transparentColor);
+			} finally {
+				a.recycle();
+			}
+		}
+
+		// Step 6: Update toolbar overlay theme
+		int toolbarThemeId = Util.getResourceIdFromAttribute(interactionTheme, R.attr.apptentiveToolbarTheme);
+		apptentiveToolbarTheme.setTo(interactionTheme);
+		apptentiveToolbarTheme.applyStyle(toolbarThemeId, true);
+	}
+
+	private void applyInteractionThemeLayers(Context context, Resources.Theme interactionTheme) {
 		/* Step 1: Apply Apptentive default theme layer.
 		 * If host activity is an activity, the base theme already has Apptentive defaults applied, so skip Step 1.
 		 * If parent activity is NOT an activity, first apply Apptentive defaults.
@@ -476,30 +590,36 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 		interactionTheme.applyStyle(R.style.ApptentiveBaseFrameTheme, true);
 
 		// Step 4: Apply optional theme override specified in host app's style
-		int themeOverrideResId = context.getResources().getIdentifier("ApptentiveThemeOverride",
-			"style", getApplicationContext().getPackageName());
+		int themeOverrideResId = getThemeOverrideResId();
 		if (themeOverrideResId != 0) {
 			interactionTheme.applyStyle(themeOverrideResId, true);
 		}
+	}
 
-		// Step 5: Update status bar color
-		/* Obtain the default status bar color. When an Apptentive Modal interaction is shown,
-		 *  a translucent overlay would be applied on top of statusBarColorDefault
-		 */
-		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-			int transparentColor = ContextCompat.getColor(context, android.R.color.transparent);
-			TypedArray a = interactionTheme.obtainStyledAttributes(new int[]{android.R.attr.statusBarColor});
-			try {
-				statusBarColorDefault = a.getColor(0, transparentColor);
-			} finally {
-				a.recycle();
-			}
+	/**
+	 * Resolves the optional theme override specified in host app's style (only looked up once).
+	 */
+	private int getThemeOverrideResId() {
+		Integer resId = themeOverrideResId;
+		if (resId == null) {
+			resId = appContext.getResources().getIdentifier("ApptentiveThemeOverride", "style", appContext.getPackageName());
+			themeOverrideResId = resId;
 		}
+		return resId;
+	}
 
-		// Step 6: Update toolbar overlay theme
-		int toolbarThemeId = Util.getResourceIdFromAttribute(interactionTheme, R.attr.apptentiveToolbarTheme);
-		apptentiveToolbarTheme.setTo(interactionTheme);
-		apptentiveToolbarTheme.applyStyle(toolbarThemeId, true);
+	/**
+	 * Resolves the theme lookups which don't depend on the hosting activity ahead of time (the
+	 * theme itself is built from the activity theme and configuration when an interaction is shown).
+	 */
+	@Override
+	public void warmUpInteractionTheme() {
+		try {
+			getThemeOverrideResId();
+		} catch (Exception e) {
+			ApptentiveLog.e(e, "Exception while warming up interaction theme");
+			logException(e);
+		}
 	}
 
 	private boolean start() {
@@ -513,13 +633,42 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 		 * 3. An unreadMessageCountListener() is set up
 		 */
 
+		final StartupGraph graph = startupGraph;
+		graph.begin(STAGE_CONVERSATION);
 		boolean conversationLoaded = conversationManager.loadActiveConversation(getApplicationContext());
 		if (!conversationLoaded) {
 			ApptentiveLog.w(CONVERSATION, "There is no active conversation. The SDK will be disabled until a conversation becomes active.");
 		}
+		graph.end(STAGE_CONVERSATION);
+
+		// Try initialize Apptimize SDK support
+		graph.begin(STAGE_APPTIMIZE);
+		try {
+			tryInitializeApptimizeSDK();
+		} catch (Exception e) {
+			ApptentiveLog.e(e, "Unable to initialize Apptimize SDK support");
+			logException(e);
+			bRet = false;
+		}
+		graph.end(STAGE_APPTIMIZE);
 
+		// tasks dispatched after start() may rely on the package info
+		if (!graph.await(STAGE_PACKAGE_INFO, STAGE_TIMEOUT_MILLIS)) {
+			ApptentiveLog.w("Package info is not loaded after %d ms", STAGE_TIMEOUT_MILLIS);
+			bRet = false;
+		} else if (!packageInfoLoaded) {
+			bRet = false;
+		}
+
+		// theme state is only touched once the package info stage (app default theme) is done
 		apptentiveToolbarTheme = appContext.getResources().newTheme();
 
+		ApptentiveLog.v("Application Info:\n\tApptentive Key: %s\n\tApptentive Key: %s\n\tDebuggable APK: %b\n\tDefault locale: %s", apptentiveKey, apptentiveSignature, appRelease.isDebug(), Locale.getDefault());
+		ApptentiveLog.v("SDK startup took %d ms:\n%s", graph.getElapsedMillis(), graph.describe());
+		return bRet;
+	}
+
+	private void loadPackageInfo() {
 		try {
 			appPackageName = appContext.getPackageName();
 			PackageManager packageManager = appContext.getPackageManager();
@@ -542,17 +691,11 @@ public class ApptentiveInternal implements ApptentiveInstance, ApptentiveNotific
 				}
 			}
 
-			// Try initialize Apptimize SDK support
-			tryInitializeApptimizeSDK();
-
+			packageInfoLoaded = true;
 		} catch (Exception e) {
 			ApptentiveLog.e(e, "Unexpected error while reading application or package info.");
 			logException(e);
-			bRet = false;
 		}
-
-		ApptentiveLog.v("Application Info:\n\tApptentive Key: %s\n\tApptentive Key: %s\n\tDebuggable APK: %b\n\tDefault locale: %s", apptentiveKey, apptentiveSignature, appRelease.isDebug(), Locale.getDefault());
-		return bRet;
 	}
 
 	private void checkSendVersionChanges(Conversation conversation) {
@@ -133,6 +133,11 @@ public class ApptentiveNotifications {
 	 */
 	public static final String NOTIFICATION_LOG_MONITOR_STOPPED = "LOG_MONITOR_STOPPED";
 
+	/**
+	 * Sent when the background flush window (payloads sent after the app enters the background) closes.
+	 */
+	public static final String NOTIFICATION_BACKGROUND_FLUSH_DID_FINISH = "BACKGROUND_FLUSH_DID_FINISH"; // { reason: BackgroundFlushWindow.CloseReason, payloadCount: Integer, duration: Long }
+
 	// keys
 	public static final String NOTIFICATION_KEY_SUCCESSFUL = "successful";
 	public static final String NOTIFICATION_KEY_ACTIVITY = "activity";
@@ -148,4 +153,7 @@ public class ApptentiveNotifications {
 	public static final String NOTIFICATION_KEY_MESSAGE_STORE = "messageStore";
 	public static final String NOTIFICATION_KEY_INTERVAL = "interval";
 	public static final String NOTIFICATION_KEY_ADVERTISER_CLIENT_INFO = "clientInfo";
+	public static final String NOTIFICATION_KEY_REASON = "reason";
+	public static final String NOTIFICATION_KEY_PAYLOAD_COUNT = "payloadCount";
+	public static final String NOTIFICATION_KEY_DURATION = "duration";
 }
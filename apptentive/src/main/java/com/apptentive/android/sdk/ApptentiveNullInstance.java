@@ -22,6 +22,7 @@ import com.apptentive.android.sdk.module.rating.IRatingProvider;
 import com.apptentive.android.sdk.module.survey.OnSurveyFinishedListener;
 import com.apptentive.android.sdk.storage.AppRelease;
 import com.apptentive.android.sdk.storage.ApptentiveTaskManager;
+import com.apptentive.android.sdk.util.threading.WorkScheduler;
 
 import java.util.Map;
 
@@ -52,6 +53,11 @@ class ApptentiveNullInstance implements ApptentiveInstance {
 		failMethodCall("updateApptentiveInteractionTheme");
 	}
 
+	@Override
+	public void warmUpInteractionTheme() {
+		failMethodCall("warmUpInteractionTheme");
+	}
+
 	@Override
 	public void notifyInteractionUpdated(boolean successful) {
 		failMethodCall("notifyInteractionUpdated");
@@ -133,6 +139,13 @@ class ApptentiveNullInstance implements ApptentiveInstance {
 		return null;
 	}
 
+	@Nullable
+	@Override
+	public WorkScheduler getWorkScheduler() {
+		failMethodCall("getWorkScheduler");
+		return null;
+	}
+
 	@Nullable
 	@Override
 	public ApptentiveHttpClient getApptentiveHttpClient() {
@@ -12,6 +12,8 @@ import com.apptentive.android.sdk.network.HttpJsonRequest;
 import com.apptentive.android.sdk.network.HttpRequest;
 import com.apptentive.android.sdk.network.HttpRequestManager;
 import com.apptentive.android.sdk.network.HttpRequestMethod;
+import com.apptentive.android.sdk.network.HttpRequestPriority;
+import com.apptentive.android.sdk.network.NetworkPolicy;
 import com.apptentive.android.sdk.network.RawHttpRequest;
 import com.apptentive.android.sdk.storage.AppRelease;
 import com.apptentive.android.sdk.storage.AppReleaseManager;
@@ -38,6 +40,12 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 	private static final int DEFAULT_HTTP_CONNECT_TIMEOUT = 45000;
 	private static final int DEFAULT_HTTP_SOCKET_TIMEOUT = 45000;
 
+	/**
+	 * Payloads of this size or larger (usually messages with attachments) follow the large payload
+	 * network policy
+	 */
+	private static final int LARGE_PAYLOAD_SIZE = 1024 * 1024;
+
 	// Active API
 	private static final String ENDPOINT_CONVERSATION = "/conversation";
 	private static final String ENDPOINT_CONFIGURATION = "/conversations/%s/configuration";
@@ -51,6 +59,7 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 	private final String apptentiveSignature;
 	private final String serverURL;
 	private final String userAgentString;
+	private NetworkPolicy largePayloadNetworkPolicy = NetworkPolicy.ANY;
 
 	public ApptentiveHttpClient(String apptentiveKey, String apptentiveSignature, String serverURL) {
 		if (StringUtils.isNullOrEmpty(apptentiveKey)) {
@@ -75,6 +84,7 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 
 	public HttpJsonRequest createConversationTokenRequest(ConversationTokenRequest conversationTokenRequest, HttpRequest.Listener<HttpJsonRequest> listener) {
 		HttpJsonRequest request = createJsonRequest(ENDPOINT_CONVERSATION, conversationTokenRequest, HttpRequestMethod.POST);
+		request.setName(ENDPOINT_CONVERSATION);
 		request.addListener(listener);
 		return request;
 	}
@@ -85,12 +95,17 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 		}
 
 		HttpJsonRequest request = createJsonRequest(ENDPOINT_LEGACY_CONVERSATION, new JSONObject(), HttpRequestMethod.GET);
+		request.setName(ENDPOINT_LEGACY_CONVERSATION);
 		request.setRequestProperty("Authorization", "OAuth " + conversationToken);
 		request.addListener(listener);
 		return request;
 	}
 
-	public HttpJsonRequest createFetchInteractionsRequest(String conversationToken, String conversationId, HttpRequest.Listener<HttpJsonRequest> listener) {
+	/**
+	 * @param manifestVersion - version of the stored interaction manifest: the server responds with a delta
+	 *                        against it (<code>null</code> to fetch the full manifest)
+	 */
+	public HttpJsonRequest createFetchInteractionsRequest(String conversationToken, String conversationId, String manifestVersion, HttpRequest.Listener<HttpJsonRequest> listener) {
 		if (StringUtils.isNullOrEmpty(conversationToken)) {
 			throw new IllegalArgumentException("Conversation token is null or empty");
 		}
@@ -101,7 +116,11 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 
 		final String endPoint = StringUtils.format(ENDPOINT_INTERACTIONS, conversationId);
 		HttpJsonRequest request = createJsonRequest(endPoint, new JSONObject(), HttpRequestMethod.GET);
+		request.setName(ENDPOINT_INTERACTIONS);
 		request.setRequestProperty("Authorization", "Bearer " + conversationToken);
+		if (manifestVersion != null) {
+			request.setRequestProperty("APPTENTIVE-MANIFEST-VERSION", manifestVersion);
+		}
 		request.addListener(listener);
 		return request;
 	}
@@ -117,6 +136,7 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 
 		final String endPoint = String.format(ENDPOINT_MESSAGES, conversationId, count == null ? "" : count.toString(), afterId == null ? "" : afterId, beforeId == null ? "" : beforeId);
 		HttpJsonRequest request = createJsonRequest(endPoint, new JSONObject(), HttpRequestMethod.GET);
+		request.setName(stripQuery(ENDPOINT_MESSAGES));
 		request.setRequestProperty("Authorization", "Bearer " + conversationToken);
 		request.addListener(listener);
 		return request;
@@ -134,13 +154,16 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 			// Can't happen
 		}
 		String endPoint;
+		String name;
 		if (conversationId == null) {
 			endPoint = ENDPOINT_LOG_IN_TO_NEW_CONVERSATION;
-
+			name = ENDPOINT_LOG_IN_TO_NEW_CONVERSATION;
 		} else {
 			endPoint = StringUtils.format(ENDPOINT_LOG_IN_TO_EXISTING_CONVERSATION, conversationId);
+			name = ENDPOINT_LOG_IN_TO_EXISTING_CONVERSATION;
 		}
 		HttpJsonRequest request = createJsonRequest(endPoint, json, HttpRequestMethod.POST);
+		request.setName(name);
 		request.addListener(listener);
 		return request;
 	}
@@ -156,6 +179,7 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 
 		String endPoint = StringUtils.format(ENDPOINT_CONFIGURATION, conversationId);
 		HttpJsonRequest request = createJsonRequest(endPoint, new JSONObject(), HttpRequestMethod.GET);
+		request.setName(ENDPOINT_CONFIGURATION);
 		request.setRequestProperty("Authorization", "Bearer " + token);
 		request.addListener(listener);
 		return request;
@@ -177,6 +201,7 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 		}
 
 		HttpJsonRequest request = createJsonRequest(ENDPOINT_LOG_IN_TO_NEW_CONVERSATION, conversationTokenRequest, HttpRequestMethod.POST);
+		request.setName(ENDPOINT_LOG_IN_TO_NEW_CONVERSATION);
 		request.addListener(listener);
 		return request;
 	}
@@ -203,6 +228,11 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 		return request;
 	}
 
+	@Override
+	public NetworkPolicy getNetworkPolicy(PayloadData payload) {
+		return isLargePayload(payload) ? largePayloadNetworkPolicy : NetworkPolicy.ANY;
+	}
+
 	private HttpRequest createPayloadRequest(PayloadData payload) {
 		final String authToken = payload.getAuthToken();
 		final String httpPath = notNull(payload.getHttpRequestPath());
@@ -210,6 +240,7 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 		final String contentType = notNull(payload.getContentType());
 
 		HttpRequest request = createRawRequest(httpPath, payload.getData(), requestMethod, contentType);
+		request.setName("payload:" + payload.getType()); // metrics are grouped by the payload type
 
 		// Encrypted requests don't use an Auth token on the request. It's stored in the encrypted body.
 		if (!StringUtils.isNullOrEmpty(authToken)) {
@@ -220,9 +251,32 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 			request.setRequestProperty("APPTENTIVE-ENCRYPTED", Boolean.TRUE);
 		}
 
+		if (isLargePayload(payload)) {
+			request.setNetworkPolicy(largePayloadNetworkPolicy);
+			request.setPriority(HttpRequestPriority.LOW);
+		}
+
 		return request;
 	}
 
+	private static boolean isLargePayload(PayloadData payload) {
+		return payload.getData().length >= LARGE_PAYLOAD_SIZE;
+	}
+
+	//endregion
+
+	//region Getters/Setters
+
+	/**
+	 * Sets the network type large payloads are allowed to use.
+	 */
+	public void setLargePayloadNetworkPolicy(NetworkPolicy largePayloadNetworkPolicy) {
+		if (largePayloadNetworkPolicy == null) {
+			throw new IllegalArgumentException("Network policy is null");
+		}
+		this.largePayloadNetworkPolicy = largePayloadNetworkPolicy;
+	}
+
 	//endregion
 
 	//region Helpers
@@ -279,11 +333,20 @@ public class ApptentiveHttpClient implements PayloadRequestSender {
 		request.setRequestProperty("X-API-Version", String.valueOf(Constants.API_VERSION));
 		request.setConnectTimeout(DEFAULT_HTTP_CONNECT_TIMEOUT);
 		request.setReadTimeout(DEFAULT_HTTP_SOCKET_TIMEOUT);
+		request.setCoalescingAllowed(true); // overlapping GET requests (polling and UI) share a single call
 	}
 
 	private String createEndpointURL(String uri) {
 		return serverURL + uri;
 	}
 
+	/**
+	 * Returns the endpoint template without the query part (used as a request name for metrics)
+	 */
+	private static String stripQuery(String endpoint) {
+		int index = endpoint.indexOf('?');
+		return index != -1 ? endpoint.substring(0, index) : endpoint;
+	}
+
 	//endregion
 }
@@ -21,10 +21,14 @@ import com.apptentive.android.sdk.model.DevicePayload;
 import com.apptentive.android.sdk.model.EventPayload;
 import com.apptentive.android.sdk.model.Payload;
 import com.apptentive.android.sdk.model.PersonPayload;
+import com.apptentive.android.sdk.module.engagement.interaction.InteractionPrefetcher;
 import com.apptentive.android.sdk.module.engagement.interaction.model.Interaction;
 import com.apptentive.android.sdk.module.engagement.interaction.model.InteractionManifest;
+import com.apptentive.android.sdk.module.engagement.interaction.model.InteractionManifestDelta;
 import com.apptentive.android.sdk.module.engagement.interaction.model.Interactions;
 import com.apptentive.android.sdk.module.engagement.interaction.model.Targets;
+import com.apptentive.android.sdk.module.engagement.logic.EligibilityCache;
+import com.apptentive.android.sdk.module.engagement.logic.FieldManager;
 import com.apptentive.android.sdk.module.messagecenter.MessageManager;
 import com.apptentive.android.sdk.network.HttpJsonRequest;
 import com.apptentive.android.sdk.network.HttpRequest;
@@ -36,6 +40,7 @@ import com.apptentive.android.sdk.storage.DeviceDataChangedListener;
 import com.apptentive.android.sdk.storage.DevicePayloadDiff;
 import com.apptentive.android.sdk.storage.EncryptedFileSerializer;
 import com.apptentive.android.sdk.storage.EventData;
+import com.apptentive.android.sdk.storage.EventDataChangedListener;
 import com.apptentive.android.sdk.storage.FileSerializer;
 import com.apptentive.android.sdk.storage.IntegrationConfig;
 import com.apptentive.android.sdk.storage.IntegrationConfigItem;
@@ -45,6 +50,7 @@ import com.apptentive.android.sdk.storage.PersonManager;
 import com.apptentive.android.sdk.storage.Sdk;
 import com.apptentive.android.sdk.storage.SerializerException;
 import com.apptentive.android.sdk.storage.VersionHistory;
+import com.apptentive.android.sdk.storage.VersionHistoryChangedListener;
 import com.apptentive.android.sdk.util.Constants;
 import com.apptentive.android.sdk.util.Destroyable;
 import com.apptentive.android.sdk.util.RuntimeUtils;
@@ -55,6 +61,13 @@ import com.apptentive.android.sdk.util.threading.DispatchTask;
 import org.json.JSONException;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.apptentive.android.sdk.ApptentiveHelper.checkConversationQueue;
@@ -68,7 +81,7 @@ import static com.apptentive.android.sdk.debug.Assert.notNull;
 import static com.apptentive.android.sdk.ApptentiveLogTag.*;
 import static com.apptentive.android.sdk.conversation.ConversationState.*;
 
-public class Conversation implements DataChangedListener, Destroyable, DeviceDataChangedListener, PersonDataChangedListener {
+public class Conversation implements DataChangedListener, Destroyable, DeviceDataChangedListener, PersonDataChangedListener, EventDataChangedListener, VersionHistoryChangedListener {
 
 	private static final String TAG_FETCH_INTERACTIONS_REQUEST = "fetch_interactions";
 
@@ -124,6 +137,24 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	 */
 	private ConversationState prevState = ConversationState.UNDEFINED;
 
+	/**
+	 * Parsed targets (reused while the targets string stays the same so interaction criteria are
+	 * only compiled once)
+	 */
+	private Targets cachedTargets;
+	private String cachedTargetsString;
+
+	/**
+	 * Parsed interactions (reused while the interactions string stays the same)
+	 */
+	private Interactions cachedInteractions;
+	private String cachedInteractionsString;
+
+	/**
+	 * Cached results of interaction eligibility queries
+	 */
+	private final EligibilityCache eligibilityCache = new EligibilityCache();
+
 	private final MessageManager messageManager;
 
 	// we keep a reference to the message store in order to update encryption key (not the best solution but works for now)
@@ -175,6 +206,8 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 		conversationData.setDataChangedListener(this);
 		conversationData.setPersonDataListener(this);
 		conversationData.setDeviceDataListener(this);
+		conversationData.setEventDataListener(this);
+		conversationData.setVersionHistoryListener(this);
 	}
 
 	//region Payloads
@@ -209,15 +242,60 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	 * Returns an Interaction for <code>eventLabel</code> if there is one that can be displayed.
 	 */
 	public Interaction getApplicableInteraction(String eventLabel, boolean verbose) {
+		return getApplicableInteraction(eventLabel, createFieldManager(), verbose);
+	}
+
+	/**
+	 * Returns <code>true</code> if there is an Interaction for <code>eventLabel</code> which can be
+	 * displayed. Results are cached until any of the inputs used by the criteria change.
+	 */
+	public boolean canShowInteraction(String eventLabel) {
+		return getApplicableInteractionIds(Collections.singleton(eventLabel)).get(eventLabel) != null;
+	}
+
+	/**
+	 * Resolves applicable interactions for multiple event labels in a single pass. All the criteria
+	 * are evaluated against the same data snapshot and share the results of identical conditional
+	 * clauses.
+	 *
+	 * @return map of event label to the id of the interaction which can be displayed (<code>null</code> if none)
+	 */
+	public Map<String, String> getApplicableInteractionIds(Collection<String> eventLabels) {
+		Map<String, String> result = new HashMap<>();
+		double currentTime = Util.currentTimeSeconds();
+		FieldManager fieldManager = null;
+		for (String eventLabel : eventLabels) {
+			EligibilityCache.Entry cachedEntry = eligibilityCache.get(eventLabel, currentTime);
+			if (cachedEntry != null) {
+				result.put(eventLabel, cachedEntry.getInteractionId());
+				continue;
+			}
+
+			// lazily create a snapshot shared by all the remaining labels
+			if (fieldManager == null) {
+				fieldManager = createFieldManager();
+				fieldManager.setClauseResultSharingEnabled(true);
+			}
+
+			fieldManager.resetDependencies();
+			Interaction interaction = getApplicableInteraction(eventLabel, fieldManager, false);
+			String interactionId = interaction != null ? interaction.getId() : null;
+			eligibilityCache.put(eventLabel, interactionId, fieldManager.getDependencies(), fieldManager.getNextTimeBoundary());
+			result.put(eventLabel, interactionId);
+		}
+		return result;
+	}
+
+	private Interaction getApplicableInteraction(String eventLabel, FieldManager fieldManager, boolean verbose) {
 		String targetsString = getTargets();
 		if (targetsString != null) {
 			try {
-				Targets targets = new Targets(getTargets());
-				String interactionId = targets.getApplicableInteraction(eventLabel, verbose);
+				Targets targets = getCachedTargets(targetsString);
+				String interactionId = targets.getApplicableInteraction(eventLabel, fieldManager, verbose);
 				if (interactionId != null) {
 					String interactionsString = getInteractions();
 					if (interactionsString != null) {
-						Interactions interactions = new Interactions(interactionsString);
+						Interactions interactions = getCachedInteractions(interactionsString);
 						return interactions.getInteraction(interactionId);
 					}
 				}
@@ -229,7 +307,27 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 		return null;
 	}
 
-	public void fetchInteractions(Context context) {
+	private FieldManager createFieldManager() {
+		return new FieldManager(ApptentiveInternal.getInstance().getApplicationContext(), getVersionHistory(), getEventData(), getPerson(), getDevice(), getAppRelease());
+	}
+
+	private Targets getCachedTargets(String targetsString) throws JSONException {
+		if (cachedTargets == null || !StringUtils.equal(cachedTargetsString, targetsString)) {
+			cachedTargets = new Targets(targetsString);
+			cachedTargetsString = targetsString;
+		}
+		return cachedTargets;
+	}
+
+	private Interactions getCachedInteractions(String interactionsString) throws JSONException {
+		if (cachedInteractions == null || !StringUtils.equal(cachedInteractionsString, interactionsString)) {
+			cachedInteractions = new Interactions(interactionsString);
+			cachedInteractionsString = interactionsString;
+		}
+		return cachedInteractions;
+	}
+
+	public void fetchInteractions(final Context context) {
 		if (!isPollForInteractions()) {
 			ApptentiveLog.d(CONVERSATION, "Interaction polling is turned off. Skipping fetch.");
 			return;
@@ -239,7 +337,9 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 			ApptentiveHttpClient httpClient = ApptentiveInternal.getInstance().getApptentiveHttpClient();
 			HttpRequest existing = httpClient.findRequest(TAG_FETCH_INTERACTIONS_REQUEST);
 			if (existing == null) {
-				HttpJsonRequest request = httpClient.createFetchInteractionsRequest(getConversationToken(), getConversationId(), new HttpRequest.Listener<HttpJsonRequest>() {
+				// the server responds with the changes since the version we have (if any)
+				final String manifestVersion = getManifestVersion();
+				HttpJsonRequest request = httpClient.createFetchInteractionsRequest(getConversationToken(), getConversationId(), manifestVersion, new HttpRequest.Listener<HttpJsonRequest>() {
 					@Override
 					public void onFinish(HttpJsonRequest request) {
 						// Send a notification so other parts of the SDK can use this data for troubleshooting
@@ -255,13 +355,16 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 						setInteractionExpiration(Util.currentTimeSeconds() + cacheSeconds);
 						try {
 							InteractionManifest payload = new InteractionManifest(request.getResponseData());
-							Interactions interactions = payload.getInteractions();
-							Targets targets = payload.getTargets();
-							if (interactions != null && targets != null) {
-								setTargets(targets.toString());
-								setInteractions(interactions.toString());
-							} else {
-								ApptentiveLog.e(CONVERSATION, "Unable to save interactionManifest.");
+							if (!storeInteractionManifest(payload) && manifestVersion != null) {
+								// the delta can't be applied: start over with the full manifest
+								setManifestVersion(null);
+								setInteractionExpiration(0);
+								conversationQueue().dispatchAsync(new DispatchTask() {
+									@Override
+									protected void execute() {
+										fetchInteractions(context);
+									}
+								});
 							}
 						} catch (JSONException e) {
 							ApptentiveLog.e(CONVERSATION, e, "Invalid InteractionManifest received.");
@@ -331,21 +434,97 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	 */
 	public void storeInteractionManifest(String interactionManifest) {
 		try {
-			InteractionManifest payload = new InteractionManifest(interactionManifest);
-			Interactions interactions = payload.getInteractions();
-			Targets targets = payload.getTargets();
-			if (interactions != null && targets != null) {
-				setTargets(targets.toString());
-				setInteractions(interactions.toString());
-			} else {
-				ApptentiveLog.e(CONVERSATION, "Unable to save InteractionManifest.");
-			}
+			storeInteractionManifest(new InteractionManifest(interactionManifest));
 		} catch (JSONException e) {
 			ApptentiveLog.w(CONVERSATION, "Invalid InteractionManifest received.");
 			logException(e);
 		}
 	}
 
+	/**
+	 * Replaces the stored manifest with a full one or applies a delta to it.
+	 *
+	 * @return <code>false</code> if the manifest is a delta which can't be applied to the stored manifest
+	 */
+	private boolean storeInteractionManifest(InteractionManifest manifest) throws JSONException {
+		if (manifest.isDelta()) {
+			InteractionManifestDelta delta = manifest.getDelta();
+			return delta != null && applyInteractionManifestDelta(delta);
+		}
+
+		Interactions interactions = manifest.getInteractions();
+		Targets targets = manifest.getTargets();
+		if (interactions == null || targets == null) {
+			ApptentiveLog.e(CONVERSATION, "Unable to save InteractionManifest.");
+			return true;
+		}
+
+		setTargets(targets.toString());
+		setInteractions(interactions.toString());
+		setManifestVersion(manifest.getManifestVersion());
+		prefetchInteractions();
+		return true;
+	}
+
+	/**
+	 * Applies the changes in place: the parsed targets and interactions stay cached, so only the
+	 * changed invocations and interactions are compiled again.
+	 */
+	private boolean applyInteractionManifestDelta(InteractionManifestDelta delta) throws JSONException {
+		String targetsString = getTargets();
+		String interactionsString = getInteractions();
+		if (targetsString == null || interactionsString == null || !StringUtils.equal(getManifestVersion(), delta.getBaseManifestVersion())) {
+			ApptentiveLog.w(INTERACTIONS, "Unable to apply interaction manifest delta: base version '%s' doesn't match the stored version '%s'", delta.getBaseManifestVersion(), getManifestVersion());
+			return false;
+		}
+
+		if (delta.isEmpty()) {
+			ApptentiveLog.v(INTERACTIONS, "Interaction manifest is up to date");
+			setManifestVersion(delta.getManifestVersion());
+			return true;
+		}
+
+		Targets targets = getCachedTargets(targetsString);
+		Interactions interactions = getCachedInteractions(interactionsString);
+		int targetsChangeCount = delta.applyTo(targets);
+		int interactionsChangeCount = delta.applyTo(interactions);
+		ApptentiveLog.d(INTERACTIONS, "Applied interaction manifest delta: %d event label(s) and %d interaction(s) changed", targetsChangeCount, interactionsChangeCount);
+
+		// the cached objects are already up to date with the new strings
+		cachedTargetsString = targets.toString();
+		cachedInteractionsString = interactions.toString();
+		setTargets(cachedTargetsString);
+		setInteractions(cachedInteractionsString);
+		setManifestVersion(delta.getManifestVersion());
+		prefetchInteractions();
+		return true;
+	}
+
+	/**
+	 * Pre-parses interactions which can currently be shown and prepares their resources so they
+	 * display faster once engaged.
+	 */
+	private void prefetchInteractions() {
+		try {
+			String targetsString = getTargets();
+			String interactionsString = getInteractions();
+			if (targetsString == null || interactionsString == null) {
+				return;
+			}
+
+			Targets targets = getCachedTargets(targetsString);
+			Set<String> interactionIds = new HashSet<>(getApplicableInteractionIds(targets.getEventLabels()).values());
+			interactionIds.remove(null);
+
+			List<Interaction> interactions = getCachedInteractions(interactionsString).warmUp(interactionIds);
+			ApptentiveLog.v(INTERACTIONS, "Prefetching %d interaction(s)", interactions.size());
+			InteractionPrefetcher.prefetch(interactions);
+		} catch (Exception e) {
+			ApptentiveLog.e(INTERACTIONS, e, "Exception while prefetching interactions");
+			logException(e);
+		}
+	}
+
 	//endregion
 
 	//region Session
@@ -419,6 +598,7 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 				FileSerializer serializer = isAuthenticated() ? new EncryptedFileSerializer(legacyConversationDataFile, getEncryption()) :
 					                            new FileSerializer(legacyConversationDataFile);
 				conversationData = (ConversationData) serializer.deserialize();
+				eligibilityCache.clear();
 				ApptentiveLog.d(CONVERSATION, "Conversation data migrated (took %d ms)", System.currentTimeMillis() - start);
 				return true;
 			} finally {
@@ -451,16 +631,28 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 
 	@Override
 	public void onDeviceDataChanged() {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_DEVICE);
 		notifyDataChanged();
 		scheduleDeviceUpdate();
 	}
 
 	@Override
 	public void onPersonDataChanged() {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_PERSON);
 		notifyDataChanged();
 		schedulePersonUpdate();
 	}
 
+	@Override
+	public void onEventDataChanged() {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_EVENT_DATA);
+	}
+
+	@Override
+	public void onVersionHistoryChanged() {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_VERSION_HISTORY);
+	}
+
 	//endregion
 
 	//region Notifications
@@ -607,6 +799,7 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	}
 
 	public void setDevice(Device device) {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_DEVICE);
 		getConversationData().setDevice(device);
 	}
 
@@ -623,6 +816,7 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	}
 
 	public void setPerson(Person person) {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_PERSON);
 		getConversationData().setPerson(person);
 	}
 
@@ -647,6 +841,7 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	}
 
 	public void setAppRelease(AppRelease appRelease) {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_APP_RELEASE);
 		getConversationData().setAppRelease(appRelease);
 	}
 
@@ -655,6 +850,7 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	}
 
 	public void setEventData(EventData eventData) {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_EVENT_DATA);
 		getConversationData().setEventData(eventData);
 	}
 
@@ -671,6 +867,7 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	}
 
 	public void setVersionHistory(VersionHistory versionHistory) {
+		eligibilityCache.invalidate(FieldManager.DEPENDENCY_VERSION_HISTORY);
 		getConversationData().setVersionHistory(versionHistory);
 	}
 
@@ -711,6 +908,7 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	}
 
 	public void setTargets(String targets) {
+		eligibilityCache.clear();
 		getConversationData().setTargets(targets);
 	}
 
@@ -719,9 +917,18 @@ public class Conversation implements DataChangedListener, Destroyable, DeviceDat
 	}
 
 	public void setInteractions(String interactions) {
+		eligibilityCache.clear();
 		getConversationData().setInteractions(interactions);
 	}
 
+	public String getManifestVersion() {
+		return getConversationData().getManifestVersion();
+	}
+
+	public void setManifestVersion(String manifestVersion) {
+		getConversationData().setManifestVersion(manifestVersion);
+	}
+
 	public double getInteractionExpiration() {
 		return getConversationData().getInteractionExpiration();
 	}
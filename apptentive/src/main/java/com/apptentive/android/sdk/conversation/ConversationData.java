@@ -15,11 +15,13 @@ import com.apptentive.android.sdk.storage.DataChangedListener;
 import com.apptentive.android.sdk.storage.Device;
 import com.apptentive.android.sdk.storage.DeviceDataChangedListener;
 import com.apptentive.android.sdk.storage.EventData;
+import com.apptentive.android.sdk.storage.EventDataChangedListener;
 import com.apptentive.android.sdk.storage.Person;
 import com.apptentive.android.sdk.storage.PersonDataChangedListener;
 import com.apptentive.android.sdk.storage.Saveable;
 import com.apptentive.android.sdk.storage.Sdk;
 import com.apptentive.android.sdk.storage.VersionHistory;
+import com.apptentive.android.sdk.storage.VersionHistoryChangedListener;
 import com.apptentive.android.sdk.util.StringUtils;
 
 import java.util.UUID;
@@ -46,6 +48,7 @@ public class ConversationData implements Saveable, DataChangedListener, DeviceDa
 	private String targets;
 	private String interactions;
 	private double interactionExpiration;
+	private String manifestVersion;
 
 	public ConversationData() {
 		this.localIdentifier = UUID.randomUUID().toString();
@@ -62,6 +65,8 @@ public class ConversationData implements Saveable, DataChangedListener, DeviceDa
 	private transient DataChangedListener listener;
 	private transient PersonDataChangedListener personDataListener;
 	private transient DeviceDataChangedListener deviceDataListener;
+	private transient EventDataChangedListener eventDataListener;
+	private transient VersionHistoryChangedListener versionHistoryListener;
 
 	public void setPersonDataListener(PersonDataChangedListener personDataListener) {
 		this.personDataListener = personDataListener;
@@ -71,6 +76,14 @@ public class ConversationData implements Saveable, DataChangedListener, DeviceDa
 		this.deviceDataListener = deviceDataListener;
 	}
 
+	public void setEventDataListener(EventDataChangedListener eventDataListener) {
+		this.eventDataListener = eventDataListener;
+	}
+
+	public void setVersionHistoryListener(VersionHistoryChangedListener versionHistoryListener) {
+		this.versionHistoryListener = versionHistoryListener;
+	}
+
 	@Override
 	public void setDataChangedListener(DataChangedListener listener) {
 		this.listener = listener;
@@ -78,8 +91,32 @@ public class ConversationData implements Saveable, DataChangedListener, DeviceDa
 		device.setDeviceDataChangedListener(this);
 		person.setDataChangedListener(this);
 		person.setPersonDataChangedListener(this);
-		eventData.setDataChangedListener(this);
-		versionHistory.setDataChangedListener(this);
+		eventData.setDataChangedListener(createEventDataChangedListener());
+		versionHistory.setDataChangedListener(createVersionHistoryChangedListener());
+	}
+
+	private DataChangedListener createEventDataChangedListener() {
+		return new DataChangedListener() {
+			@Override
+			public void onDataChanged() {
+				ConversationData.this.onDataChanged();
+				if (eventDataListener != null) {
+					eventDataListener.onEventDataChanged();
+				}
+			}
+		};
+	}
+
+	private DataChangedListener createVersionHistoryChangedListener() {
+		return new DataChangedListener() {
+			@Override
+			public void onDataChanged() {
+				ConversationData.this.onDataChanged();
+				if (versionHistoryListener != null) {
+					versionHistoryListener.onVersionHistoryChanged();
+				}
+			}
+		};
 	}
 
 	@Override
@@ -210,7 +247,7 @@ public class ConversationData implements Saveable, DataChangedListener, DeviceDa
 
 	public void setEventData(EventData eventData) {
 		this.eventData = eventData;
-		this.eventData.setDataChangedListener(this);
+		this.eventData.setDataChangedListener(createEventDataChangedListener());
 		notifyDataChanged();
 	}
 
@@ -229,7 +266,7 @@ public class ConversationData implements Saveable, DataChangedListener, DeviceDa
 
 	public void setVersionHistory(VersionHistory versionHistory) {
 		this.versionHistory = versionHistory;
-		this.versionHistory.setDataChangedListener(this);
+		this.versionHistory.setDataChangedListener(createVersionHistoryChangedListener());
 		notifyDataChanged();
 	}
 
@@ -299,6 +336,20 @@ public class ConversationData implements Saveable, DataChangedListener, DeviceDa
 		}
 	}
 
+	/**
+	 * Version of the stored interaction manifest (used for fetching deltas)
+	 */
+	public String getManifestVersion() {
+		return manifestVersion;
+	}
+
+	public void setManifestVersion(String manifestVersion) {
+		if (!StringUtils.equal(this.manifestVersion, manifestVersion)) {
+			this.manifestVersion = manifestVersion;
+			notifyDataChanged();
+		}
+	}
+
 	public double getInteractionExpiration() {
 		return interactionExpiration;
 	}
@@ -48,7 +48,9 @@ import org.json.JSONObject;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.apptentive.android.sdk.ApptentiveHelper.checkConversationQueue;
 import static com.apptentive.android.sdk.ApptentiveHelper.conversationQueue;
@@ -90,6 +92,11 @@ public class ConversationManager {
 	 */
 	private final Encryption encryption;
 
+	/**
+	 * Encryption objects for logged-in conversations keyed by the hex payload key (conversation queue only)
+	 */
+	private final Map<String, Encryption> payloadEncryptionCache = new HashMap<>();
+
 	/**
 	 * Responsible for generating device payloads.
 	 */
@@ -1111,6 +1118,10 @@ public class ConversationManager {
 					// Post synchronously to ensure logout payload can be sent before destroying the logged in conversation.
 					ApptentiveNotificationCenter.defaultCenter().postNotification(NOTIFICATION_CONVERSATION_WILL_LOGOUT, ObjectUtils.toMap(NOTIFICATION_KEY_CONVERSATION, activeConversation));
 					activeConversation.destroy();
+					String payloadEncryptionKey = activeConversation.getPayloadEncryptionKey();
+					if (payloadEncryptionKey != null) {
+						payloadEncryptionCache.remove(payloadEncryptionKey);
+					}
 					activeConversation.setState(LOGGED_OUT);
 					handleConversationStateChange(activeConversation);
 					setActiveConversation(null);
@@ -1169,8 +1180,17 @@ public class ConversationManager {
 
 	//region Helpers
 
+	/**
+	 * Returns an encryption for the conversation key. Encryption objects are reused for the same key
+	 * so the key is only parsed once per login.
+	 */
 	private Encryption createPayloadEncryption(String payloadEncryptionKey) {
-		return EncryptionFactory.createEncryption(payloadEncryptionKey, PAYLOAD_ENCRYPTION_KEY_TRANSFORMATION);
+		Encryption encryption = payloadEncryptionCache.get(payloadEncryptionKey);
+		if (encryption == null) {
+			encryption = EncryptionFactory.createEncryption(payloadEncryptionKey, PAYLOAD_ENCRYPTION_KEY_TRANSFORMATION);
+			payloadEncryptionCache.put(payloadEncryptionKey, encryption);
+		}
+		return encryption;
 	}
 
 	/**
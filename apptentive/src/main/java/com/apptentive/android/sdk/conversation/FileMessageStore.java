@@ -114,32 +114,75 @@ class FileMessageStore implements MessageStore {
 
 		MessageEntry entry = findMessageEntry(apptentiveMessage);
 		if (entry != null) {
-			entry.id = apptentiveMessage.getId();
-			entry.clientCreatedAt = apptentiveMessage.getClientCreatedAt();
-			entry.nonce = apptentiveMessage.getNonce();
-			entry.state = apptentiveMessage.getState().name();
-			if (apptentiveMessage.isRead()) { // A apptentiveMessage can't be unread after being read.
-				entry.isRead = true;
+			updateMessageEntry(entry, apptentiveMessage);
+			writeToFile();
+		}
+	}
+
+	@Override
+	public synchronized void updateMessages(ApptentiveMessage... apptentiveMessages) {
+		fetchEntries();
+
+		boolean updated = false;
+		for (ApptentiveMessage apptentiveMessage : apptentiveMessages) {
+			MessageEntry entry = findMessageEntry(apptentiveMessage);
+			if (entry != null) {
+				updateMessageEntry(entry, apptentiveMessage);
+				updated = true;
 			}
-			entry.json = apptentiveMessage.getJsonObject().toString();
+		}
+
+		// the whole file is rewritten on each update: do it once for all the messages
+		if (updated) {
 			writeToFile();
 		}
 	}
 
+	private void updateMessageEntry(MessageEntry entry, ApptentiveMessage apptentiveMessage) {
+		entry.id = apptentiveMessage.getId();
+		entry.clientCreatedAt = apptentiveMessage.getClientCreatedAt();
+		entry.nonce = apptentiveMessage.getNonce();
+		entry.state = apptentiveMessage.getState().name();
+		if (apptentiveMessage.isRead()) { // A apptentiveMessage can't be unread after being read.
+			entry.isRead = true;
+		}
+		entry.json = apptentiveMessage.getJsonObject().toString();
+	}
+
 	@Override
 	public synchronized List<ApptentiveMessage> getAllMessages() throws Exception {
 		fetchEntries();
 
 		List<ApptentiveMessage> apptentiveMessages = new ArrayList<>();
 		for (MessageEntry entry : messageEntries) {
-			ApptentiveMessage apptentiveMessage = MessageFactory.fromJson(entry.json);
-			if (apptentiveMessage == null) {
-				ApptentiveLog.e(MESSAGES, "Error parsing Record json from database: %s", entry.json);
-				continue;
+			ApptentiveMessage apptentiveMessage = createMessage(entry);
+			if (apptentiveMessage != null) {
+				apptentiveMessages.add(apptentiveMessage);
+			}
+		}
+		return apptentiveMessages;
+	}
+
+	@Override
+	public synchronized List<ApptentiveMessage> getMessagesBefore(String nonce, int limit) throws Exception {
+		fetchEntries();
+
+		int end = messageEntries.size();
+		if (nonce != null) {
+			end = findMessageEntryIndex(nonce);
+			if (end == -1) {
+				return new ArrayList<>();
+			}
+		}
+
+		// only parse the entries which fall into the requested window
+		int start = Math.max(0, end - limit);
+		List<ApptentiveMessage> apptentiveMessages = new ArrayList<>(end - start);
+		for (int i = start; i < end; ++i) {
+			ApptentiveMessage apptentiveMessage = createMessage(messageEntries.get(i));
+			if (apptentiveMessage != null) {
+				apptentiveMessages.add(apptentiveMessage);
 			}
-			apptentiveMessage.setState(ApptentiveMessage.State.parse(entry.state));
-			apptentiveMessage.setRead(entry.isRead);
-			apptentiveMessages.add(apptentiveMessage);
 		}
 		return apptentiveMessages;
 	}
@@ -204,6 +247,17 @@ class FileMessageStore implements MessageStore {
 		return null;
 	}
 
+	private ApptentiveMessage createMessage(MessageEntry entry) {
+		ApptentiveMessage apptentiveMessage = MessageFactory.fromJson(entry.json);
+		if (apptentiveMessage == null) {
+			ApptentiveLog.e(MESSAGES, "Error parsing Record json from database: %s", entry.json);
+			return null;
+		}
+		apptentiveMessage.setState(ApptentiveMessage.State.parse(entry.state));
+		apptentiveMessage.setRead(entry.isRead);
+		return apptentiveMessage;
+	}
+
 	//endregion
 
 	//region File save/load
@@ -286,6 +340,15 @@ class FileMessageStore implements MessageStore {
 		return null;
 	}
 
+	private int findMessageEntryIndex(String nonce) {
+		for (int i = messageEntries.size() - 1; i >= 0; --i) {
+			if (StringUtils.equal(nonce, messageEntries.get(i).nonce)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	void updateEncryption(@NonNull Encryption encryption) {
 		if (encryption == null) {
 			throw new IllegalArgumentException("Encryption is null");
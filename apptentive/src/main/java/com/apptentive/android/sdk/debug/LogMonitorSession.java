@@ -15,6 +15,7 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 
 import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.module.engagement.EngagementModule;
 import com.apptentive.android.sdk.util.Constants;
 import com.apptentive.android.sdk.util.StringUtils;
 import com.apptentive.android.sdk.util.threading.DispatchQueue;
@@ -60,6 +61,9 @@ class LogMonitorSession {
 		oldLogLevel = ApptentiveLog.getLogLevel();
 		ApptentiveLog.overrideLogLevel(VERBOSE);
 
+		// record criteria evaluation details
+		EngagementModule.setCriteriaTracingEnabled(true);
+
 		// show debug notification
 		showDebugNotification(context);
 	}
@@ -69,6 +73,7 @@ class LogMonitorSession {
 		if (oldLogLevel != null) {
 			ApptentiveLog.overrideLogLevel(oldLogLevel);
 		}
+		EngagementModule.setCriteriaTracingEnabled(false);
 	}
 
 	private void showDebugNotification(final Context context) {
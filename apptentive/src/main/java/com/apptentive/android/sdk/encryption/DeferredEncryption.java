@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.encryption;
+
+import androidx.annotation.NonNull;
+
+import com.apptentive.android.sdk.Encryption;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Encryption which is backed by a key being resolved in the background: the first encrypt/decrypt
+ * call waits for the key to be ready, subsequent calls go straight to the resolved encryption.
+ */
+class DeferredEncryption implements Encryption {
+	private final Future<Encryption> future;
+	private volatile Encryption target;
+
+	DeferredEncryption(Future<Encryption> future) {
+		if (future == null) {
+			throw new IllegalArgumentException("Future is null");
+		}
+		this.future = future;
+	}
+
+	@Override
+	public @NonNull byte[] encrypt(@NonNull byte[] data) throws EncryptionException {
+		return getTarget().encrypt(data);
+	}
+
+	@Override
+	public @NonNull byte[] decrypt(@NonNull byte[] data) throws EncryptionException {
+		return getTarget().decrypt(data);
+	}
+
+	private Encryption getTarget() throws EncryptionException {
+		Encryption target = this.target;
+		if (target == null) {
+			try {
+				target = future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new EncryptionException("Interrupted while waiting for encryption key", e);
+			} catch (ExecutionException e) {
+				throw new EncryptionException("Unable to resolve encryption key", e.getCause());
+			}
+			this.target = target;
+		}
+		return target;
+	}
+}
@@ -14,6 +14,9 @@ import com.apptentive.android.sdk.encryption.resolvers.KeyResolverFactory;
 import com.apptentive.android.sdk.util.StringUtils;
 
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import static com.apptentive.android.sdk.ApptentiveLog.hideIfSanitized;
 import static com.apptentive.android.sdk.ApptentiveLogTag.SECURITY;
@@ -67,6 +70,38 @@ public final class SecurityManager {
 		return EncryptionFactory.createEncryption(masterKey);
 	}
 
+	/**
+	 * Creates a task which resolves the "master" encryption object (see {@link #getEncryption}).
+	 * KeyStore operations might take hundreds of milliseconds on some devices: the task should be
+	 * started on a background thread as early as possible.
+	 */
+	public static @NonNull FutureTask<Encryption> createWarmUpTask(final Context context, @Nullable final Encryption encryption, final boolean shouldEncryptStorage) {
+		if (context == null) {
+			throw new IllegalArgumentException("Context is null");
+		}
+
+		return new FutureTask<>(new Callable<Encryption>() {
+			@Override
+			public Encryption call() throws Exception {
+				try {
+					return getEncryption(context, encryption, shouldEncryptStorage);
+				} catch (Exception e) {
+					ApptentiveLog.e(SECURITY, e, "Unable to resolve master encryption key");
+					ErrorMetrics.logException(e);
+					throw e;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns an encryption object which waits for the master key only when it's used for the first
+	 * time so storage components can be created before the key is ready.
+	 */
+	public static @NonNull Encryption getDeferredEncryption(@NonNull Future<Encryption> masterEncryption) {
+		return new DeferredEncryption(masterEncryption);
+	}
+
 	public static void clear(Context context) {
 		SharedPreferences prefs = getPrefs(context);
 		prefs.edit().clear().apply();
@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Future;
 
@@ -129,6 +130,11 @@ public class CompoundMessage extends ApptentiveMessage implements MessageCenterU
 
 	private List<StoredFile> attachedFiles;
 
+	/**
+	 * Local paths of the attachments prepared before the message was sent (appended as is)
+	 */
+	private Set<String> preparedFilePaths;
+
 	public boolean setAssociatedImages(List<ImageItem> attachedImages) {
 
 		if (attachedImages == null || attachedImages.size() == 0) {
@@ -189,6 +195,17 @@ public class CompoundMessage extends ApptentiveMessage implements MessageCenterU
 		}
 	}
 
+	/**
+	 * Returns the files attached to the outgoing message (<code>null</code> if none)
+	 */
+	public List<StoredFile> getAttachedFiles() {
+		return attachedFiles;
+	}
+
+	public void setPreparedFilePaths(Set<String> preparedFilePaths) {
+		this.preparedFilePaths = preparedFilePaths;
+	}
+
 	public List<StoredFile> getAssociatedFiles() {
 		if (hasNoAttachments) {
 			return null;
@@ -207,18 +224,7 @@ public class CompoundMessage extends ApptentiveMessage implements MessageCenterU
 
 	public void deleteAssociatedFiles() {
 		try {
-			Future<List<StoredFile>> future = ApptentiveInternal.getInstance().getApptentiveTaskManager().getAssociatedFiles(getNonce());
-			List<StoredFile> associatedFiles = future.get();
-			// Delete local cached files
-			if (associatedFiles == null || associatedFiles.size() == 0) {
-				return;
-			}
-
-			for (StoredFile file : associatedFiles) {
-				File localFile = new File(file.getLocalFilePath());
-				localFile.delete();
-			}
-			// Delete records from db
+			// local files are only deleted once no other message refers to them
 			ApptentiveInternal.getInstance().getApptentiveTaskManager().deleteAssociatedFiles(getNonce());
 		} catch (Exception e) {
 			ApptentiveLog.e(MESSAGES, "Unable to delete associated files in worker thread");
@@ -341,7 +347,10 @@ public class CompoundMessage extends ApptentiveMessage implements MessageCenterU
 				attachmentBytes.write(attachmentEnvelope.toString().getBytes());
 
 				try {
-					if (Util.isMimeTypeImage(storedFile.getMimeType())) {
+					if (preparedFilePaths != null && preparedFilePaths.contains(storedFile.getLocalFilePath())) {
+						ApptentiveLog.v(PAYLOADS, "Appending prepared attachment.");
+						Util.appendFileToStream(new File(storedFile.getLocalFilePath()), attachmentBytes);
+					} else if (Util.isMimeTypeImage(storedFile.getMimeType())) {
 						ApptentiveLog.v(PAYLOADS, "Appending image attachment.");
 						ImageUtil.appendScaledDownImageToStream(storedFile.getSourceUriOrPath(), attachmentBytes);
 					} else {
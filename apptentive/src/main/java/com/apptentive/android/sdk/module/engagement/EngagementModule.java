@@ -23,6 +23,8 @@ import com.apptentive.android.sdk.module.metric.MetricModule;
 import com.apptentive.android.sdk.util.Util;
 import com.apptentive.android.sdk.util.threading.DispatchTask;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 import static com.apptentive.android.sdk.ApptentiveHelper.checkConversationQueue;
@@ -38,6 +40,11 @@ public class EngagementModule {
 	// this field gets overridden in unit tests (if renamed - update the test)
 	private static final InteractionLauncherFactory LAUNCHER_FACTORY = new DefaultInteractionLauncherFactory();
 
+	/**
+	 * Forces recording of criteria evaluation traces (turned on for troubleshooting sessions)
+	 */
+	private static volatile boolean criteriaTracingEnabled;
+
 	public static synchronized boolean engageInternal(Context context, Conversation conversation, String eventName) {
 		return engage(context, conversation, "com.apptentive", "app", null, eventName, null, null, (ExtendedData[]) null);
 	}
@@ -89,7 +96,7 @@ public class EngagementModule {
 	private static boolean doEngage(Conversation conversation, Context context, String eventLabel) {
 		checkConversationQueue();
 
-		Interaction interaction = conversation.getApplicableInteraction(eventLabel, true);
+		Interaction interaction = conversation.getApplicableInteraction(eventLabel, isCriteriaTracingEnabled());
 		if (interaction != null) {
 			String versionName = ApptentiveInternal.getInstance().getApplicationVersionName();
 			int versionCode = ApptentiveInternal.getInstance().getApplicationVersionCode();
@@ -169,10 +176,51 @@ public class EngagementModule {
 			throw new IllegalArgumentException("Conversation is null");
 		}
 
-		Interaction interaction = conversation.getApplicableInteraction(eventLabel, false);
-		return interaction != null;
+		return conversation.canShowInteraction(eventLabel);
+	}
+
+	/**
+	 * Resolves applicable interactions for multiple events in a single pass.
+	 *
+	 * @return map of event name to the id of the interaction which can be displayed (<code>null</code> if none)
+	 */
+	public static Map<String, String> getApplicableInteractionIds(Conversation conversation, String interaction, Collection<String> eventNames, String vendor) {
+		checkConversationQueue();
+
+		if (conversation == null) {
+			throw new IllegalArgumentException("Conversation is null");
+		}
+
+		Map<String, String> eventLabels = new HashMap<>();
+		for (String eventName : eventNames) {
+			eventLabels.put(generateEventLabel(vendor, interaction, eventName), eventName);
+		}
+
+		Map<String, String> interactionIds = conversation.getApplicableInteractionIds(eventLabels.keySet());
+
+		Map<String, String> result = new HashMap<>();
+		for (Map.Entry<String, String> entry : eventLabels.entrySet()) {
+			result.put(entry.getValue(), interactionIds.get(entry.getKey()));
+		}
+		return result;
+	}
+
+
+	//region Criteria Tracing
+
+	public static void setCriteriaTracingEnabled(boolean enabled) {
+		criteriaTracingEnabled = enabled;
+	}
+
+	/**
+	 * Returns <code>true</code> if criteria evaluation details should be recorded. Traces are only
+	 * recorded for troubleshooting sessions or if they can actually be seen in the debug log.
+	 */
+	private static boolean isCriteriaTracingEnabled() {
+		return criteriaTracingEnabled || ApptentiveLog.canLog(ApptentiveLog.Level.DEBUG);
 	}
 
+	//endregion
 
 	public static String generateEventLabel(String vendor, String interaction, String eventName) {
 		return String.format("%s#%s#%s", encodeEventLabelPart(vendor), encodeEventLabelPart(interaction), encodeEventLabelPart(eventName));
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.interaction;
+
+import com.apptentive.android.sdk.ApptentiveInstance;
+import com.apptentive.android.sdk.ApptentiveInternal;
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.module.engagement.interaction.model.Interaction;
+import com.apptentive.android.sdk.module.engagement.interaction.model.MessageCenterInteraction;
+import com.apptentive.android.sdk.module.messagecenter.model.MessageCenterGreeting;
+import com.apptentive.android.sdk.util.StringUtils;
+import com.apptentive.android.sdk.util.image.ImageUtil;
+import com.apptentive.android.sdk.util.threading.DispatchQueue;
+import com.apptentive.android.sdk.util.threading.DispatchQueueType;
+import com.apptentive.android.sdk.util.threading.DispatchTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.INTERACTIONS;
+import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
+
+/**
+ * Prepares resources of the interactions which are likely to be shown next (interaction theme
+ * lookups and remote images) so the first frame doesn't have to wait for them.
+ */
+public class InteractionPrefetcher {
+	private static final DispatchQueue PREFETCH_QUEUE = DispatchQueue.createBackgroundQueue("Apptentive Prefetch Queue", DispatchQueueType.Serial);
+
+	public static void prefetch(Collection<Interaction> interactions) {
+		final List<String> imageUrls = collectImageUrls(interactions);
+		PREFETCH_QUEUE.dispatchAsync(new DispatchTask() {
+			@Override
+			protected void execute() {
+				ApptentiveInstance instance = ApptentiveInternal.getInstance();
+				if (instance.isNull()) {
+					return;
+				}
+
+				instance.warmUpInteractionTheme();
+				prefetchImages(imageUrls);
+			}
+		});
+	}
+
+	private static void prefetchImages(List<String> imageUrls) {
+		// images are only downloaded on unmetered networks (see ImageUtil.prefetchRemoteImage)
+		for (String imageUrl : imageUrls) {
+			try {
+				ImageUtil.prefetchRemoteImage(imageUrl);
+			} catch (Exception e) {
+				ApptentiveLog.w(INTERACTIONS, e, "Unable to prefetch remote image: %s", imageUrl);
+				logException(e);
+			}
+		}
+	}
+
+	private static List<String> collectImageUrls(Collection<Interaction> interactions) {
+		List<String> imageUrls = new ArrayList<>();
+		for (Interaction interaction : interactions) {
+			if (interaction instanceof MessageCenterInteraction) {
+				MessageCenterGreeting greeting = ((MessageCenterInteraction) interaction).getGreeting();
+				if (greeting != null && !StringUtils.isNullOrEmpty(greeting.avatar)) {
+					imageUrls.add(greeting.avatar);
+				}
+			}
+		}
+		return imageUrls;
+	}
+}
@@ -37,6 +37,7 @@ import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.apptentive.android.sdk.Apptentive;
 import com.apptentive.android.sdk.ApptentiveInternal;
 import com.apptentive.android.sdk.ApptentiveLog;
@@ -78,6 +79,7 @@ import java.io.File;
 import java.lang.ref.WeakReference;
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -88,6 +90,7 @@ import static com.apptentive.android.sdk.ApptentiveHelper.dispatchConversationTa
 import static com.apptentive.android.sdk.debug.Assert.assertMainThread;
 import static com.apptentive.android.sdk.debug.Assert.assertNotNull;
 import static com.apptentive.android.sdk.ApptentiveLogTag.MESSAGES;
+import static com.apptentive.android.sdk.module.messagecenter.model.MessageCenterListItem.GREETING;
 import static com.apptentive.android.sdk.module.messagecenter.model.MessageCenterListItem.MESSAGE_COMPOSER;
 import static com.apptentive.android.sdk.module.messagecenter.model.MessageCenterListItem.MESSAGE_CONTEXT;
 import static com.apptentive.android.sdk.module.messagecenter.model.MessageCenterListItem.MESSAGE_OUTGOING;
@@ -119,6 +122,11 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 
 	private final static long DEFAULT_DELAYMILLIS = 200;
 
+	// Number of messages loaded at once: older pages are loaded when the list is scrolled up
+	private final static int MESSAGES_PAGE_SIZE = 50;
+	// Number of items left above the viewport when the next older page starts loading
+	private final static int MESSAGES_PAGE_PRELOAD_THRESHOLD = 10;
+
 	/* Fragment.getActivity() may return null if not attached.
 	 * hostingActivityRef is always set in onAttach()
 	 * Keeping a cached weak reference ensures it's safe to use
@@ -161,6 +169,11 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 	private int listViewSavedTopIndex = -1;
 	private int listViewSavedTopOffset;
 
+	// Paging state: nonce of the oldest loaded message in the stored order
+	private @Nullable String oldestLoadedMessageNonce;
+	private boolean hasOlderMessages;
+	private boolean loadingOlderMessages;
+
 	// FAB y-offset in pixels from the bottom edge
 	private int fabPaddingPixels;
 
@@ -261,7 +274,7 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 		dispatchConversationTask(new ConversationDispatchTask() {
 			@Override
 			protected boolean execute(Conversation conversation) {
-				final List<MessageCenterListItem> items = conversation.getMessageManager().getMessageCenterListItems();
+				final List<MessageCenterListItem> items = conversation.getMessageManager().getMessageCenterListItems(null, MESSAGES_PAGE_SIZE);
 				dispatchOnMainQueue(new DispatchTask() {
 					@Override
 					protected void execute() {
@@ -274,6 +287,32 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 		}, "prepare messages");
 	}
 
+	private void loadOlderMessages() {
+		if (!hasOlderMessages || loadingOlderMessages) {
+			return;
+		}
+
+		loadingOlderMessages = true;
+		final String beforeNonce = oldestLoadedMessageNonce;
+		dispatchConversationTask(new ConversationDispatchTask() {
+			@Override
+			protected boolean execute(Conversation conversation) {
+				final List<MessageCenterListItem> items = conversation.getMessageManager().getMessageCenterListItems(beforeNonce, MESSAGES_PAGE_SIZE);
+				dispatchOnMainQueue(new DispatchTask() {
+					@Override
+					protected void execute() {
+						loadingOlderMessages = false;
+						if (messageCenterRecyclerViewAdapter != null) { // the view might be detached by now
+							displayOlderMessages(items);
+						}
+					}
+				});
+
+				return true;
+			}
+		}, "load older messages");
+	}
+
 	@Override
 	public void onAttach(Context context) {
 		super.onAttach(context);
@@ -391,6 +430,10 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 	@Override
 	public void onPause() {
 		super.onPause();
+		// flush while the activity is still attached: the adapter is released in onDetach()
+		if (messageCenterRecyclerViewAdapter != null) {
+			messageCenterRecyclerViewAdapter.flushPendingReadStatusUpdates();
+		}
 		dispatchConversationTask(new ConversationDispatchTask() {
 			@Override
 			protected boolean execute(Conversation conversation) {
@@ -505,6 +548,15 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 		}
 
 		messageCenterRecyclerView.setAdapter(messageCenterRecyclerViewAdapter);
+		messageCenterRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+			@Override
+			public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+				// load the next page of older messages before the user reaches the top of the list
+				if (dy < 0 && ((MessageCenterRecyclerView) recyclerView).getFirstVisiblePosition() <= MESSAGES_PAGE_PRELOAD_THRESHOLD) {
+					loadOlderMessages();
+				}
+			}
+		});
 
 		// Calculate FAB y-offset
 		fabPaddingPixels = calculateFabPadding(rootView.getContext());
@@ -954,6 +1006,7 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 		if (messageCenterRecyclerViewAdapter != null) {
 			addExpectationStatusIfNeeded();
 		}
+		discardAttachments(new ArrayList<ImageItem>(pendingAttachments));
 		pendingAttachments.clear();
 		composerEditText.getText().clear();
 		composingViewSavedState = null;
@@ -962,6 +1015,19 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 		showProfileButton();
 	}
 
+	/**
+	 * Stops preparing attachments removed from the composer and deletes the prepared files.
+	 */
+	private void discardAttachments(final List<ImageItem> attachments) {
+		dispatchConversationTask(new ConversationDispatchTask() {
+			@Override
+			protected boolean execute(Conversation conversation) {
+				conversation.getMessageManager().getAttachmentPreprocessor().discard(attachments);
+				return true;
+			}
+		}, "discard attachments");
+	}
+
 	/* Guarded */
 	@Override
 	public void onFinishComposing() {
@@ -1174,10 +1240,13 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 	}
 
 	Set<String> dateStampsSeen = new HashSet<String>();
+	private DateFormat mediumDateFormat;
 
 	public void updateMessageSentStates() {
 		dateStampsSeen.clear();
 		MessageCenterUtil.CompoundMessageCommonInterface lastSent = null;
+		int lastSentPosition = -1;
+		int previousLastSentPosition = -1;
 		Set<String> uniqueNonce = new HashSet<String>();
 		int removedItems = 0;
 		ListIterator<MessageCenterListItem> listItemIterator = listItems.listIterator();
@@ -1214,7 +1283,11 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 				if (apptentiveMessage.isOutgoingMessage()) {
 					if (sentOrReceivedAt != null && sentOrReceivedAt > Double.MIN_VALUE) {
 						lastSent = (MessageCenterUtil.CompoundMessageCommonInterface) apptentiveMessage;
+						if (lastSent.isLastSent()) {
+							previousLastSentPosition = adapterMessagePosition;
+						}
 						lastSent.setLastSent(false);
+						lastSentPosition = adapterMessagePosition;
 					}
 
 				}
@@ -1224,12 +1297,24 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 		if (lastSent != null) {
 			lastSent.setLastSent(true);
 		}
+
+		// only rebind the messages which "last sent" status has changed
+		if (lastSentPosition != previousLastSentPosition) {
+			if (previousLastSentPosition != -1) {
+				messageCenterRecyclerViewAdapter.notifyItemChanged(previousLastSentPosition);
+			}
+			if (lastSentPosition != -1) {
+				messageCenterRecyclerViewAdapter.notifyItemChanged(lastSentPosition);
+			}
+		}
 	}
 
 	protected String createDatestamp(Double seconds) {
 		if (seconds != null && seconds > Double.MIN_VALUE) {
 			Date date = new Date(Math.round(seconds * 1000));
-			DateFormat mediumDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM);
+			if (mediumDateFormat == null) {
+				mediumDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM);
+			}
 			return mediumDateFormat.format(date);
 		}
 		return null;
@@ -1269,16 +1354,50 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 		updateMenuVisibility();
 	}
 
-	/*
-	 * Messages returned from the database was sorted on KEY_ID, which was generated by server
-	 * with seconds resolution. If messages were received by server within a second, messages may be out of order
-	 * This method uses insertion sort to re-sort the messages retrieved from the database
-	 */
 	private void prepareMessages(final List<MessageCenterListItem> originalItems) {
 		assertMainThread();
 
 		listItems.clear();
 		unsentMessagesCount = 0;
+		updatePagingState(originalItems);
+		listItems.addAll(sortMessages(originalItems));
+		messagingActionHandler.sendEmptyMessage(MSG_ADD_GREETING);
+	}
+
+	/**
+	 * Inserts a page of older messages above the loaded ones (but below the greeting) and only
+	 * notifies the adapter about the inserted range and the items which datestamps changed.
+	 */
+	private void displayOlderMessages(final List<MessageCenterListItem> originalItems) {
+		assertMainThread();
+
+		updatePagingState(originalItems);
+		if (originalItems.isEmpty()) {
+			return;
+		}
+
+		List<MessageCenterListItem> olderItems = sortMessages(originalItems);
+		int insertIndex = listItems.size() > 0 && listItems.get(0).getListItemType() == GREETING ? 1 : 0;
+		listItems.addAll(insertIndex, olderItems);
+		messageCenterRecyclerViewAdapter.notifyItemRangeInserted(insertIndex, olderItems.size());
+		updateMessageSentStates();
+	}
+
+	private void updatePagingState(List<MessageCenterListItem> page) {
+		// pages are returned in the stored order: the first item is the anchor for the next page
+		hasOlderMessages = page.size() >= MESSAGES_PAGE_SIZE;
+		if (page.size() > 0) {
+			oldestLoadedMessageNonce = ((ApptentiveMessage) page.get(0)).getNonce();
+		}
+	}
+
+	/*
+	 * Messages returned from the database was sorted on KEY_ID, which was generated by server
+	 * with seconds resolution. If messages were received by server within a second, messages may be out of order
+	 * This method uses insertion sort to re-sort the messages retrieved from the database
+	 */
+	private List<MessageCenterListItem> sortMessages(final List<MessageCenterListItem> originalItems) {
+		List<MessageCenterListItem> sortedItems = new ArrayList<>(originalItems.size());
 		// Loop through each message item retrieved from database
 		for (MessageCenterListItem item : originalItems) {
 			if (item instanceof ApptentiveMessage) {
@@ -1291,7 +1410,7 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 				/*
 				 * Find proper location to insert into the listItems list of the listview.
 				 */
-				ListIterator<MessageCenterListItem> listIterator = listItems.listIterator();
+				ListIterator<MessageCenterListItem> listIterator = sortedItems.listIterator();
 				ApptentiveMessage next = null;
 				while (listIterator.hasNext()) {
 					next = (ApptentiveMessage) listIterator.next();
@@ -1316,7 +1435,7 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 				}
 			}
 		}
-		messagingActionHandler.sendEmptyMessage(MSG_ADD_GREETING);
+		return sortedItems;
 	}
 
 	@Override
@@ -1433,7 +1552,8 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 					fragment.unsentMessagesCount--;
 					ApptentiveMessage apptentiveMessage = (ApptentiveMessage) msg.obj;
 
-					for (int i = 0; i < fragment.listItems.size(); i++) {
+					// recently sent messages are at the end of the list
+					for (int i = fragment.listItems.size() - 1; i >= 0; i--) {
 						MessageCenterListItem message = fragment.listItems.get(i);
 						if (message instanceof ApptentiveMessage) {
 							String nonce = ((ApptentiveMessage) message).getNonce();
@@ -1614,7 +1734,7 @@ public class MessageCenterFragment extends ApptentiveBaseFragment<MessageCenterI
 				}
 				case MSG_REMOVE_ATTACHMENT: {
 					int position = msg.arg1;
-					fragment.pendingAttachments.remove(position);
+					fragment.discardAttachments(Collections.singletonList(fragment.pendingAttachments.remove(position)));
 					fragment.messageCenterRecyclerViewAdapter.removeImageFromComposer(fragment.composer, position);
 					break;
 				}
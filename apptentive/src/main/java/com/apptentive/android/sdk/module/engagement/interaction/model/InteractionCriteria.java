@@ -9,9 +9,9 @@ package com.apptentive.android.sdk.module.engagement.interaction.model;
 import com.apptentive.android.sdk.ApptentiveLog;
 import com.apptentive.android.sdk.module.engagement.logic.Clause;
 import com.apptentive.android.sdk.module.engagement.logic.ClauseParser;
+import com.apptentive.android.sdk.module.engagement.logic.ClauseTraceRecorder;
+import com.apptentive.android.sdk.module.engagement.logic.ClauseTracer;
 import com.apptentive.android.sdk.module.engagement.logic.FieldManager;
-import com.apptentive.android.sdk.util.IndentBufferedPrinter;
-import com.apptentive.android.sdk.util.IndentPrinter;
 
 import org.json.JSONException;
 
@@ -24,24 +24,47 @@ import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
 public class InteractionCriteria {
 	private String json;
 
+	/**
+	 * Parsed (and compiled) criteria clause. Parsing happens only once and the clause is reused for
+	 * all the following evaluations.
+	 */
+	private Clause rootClause;
+	private boolean parsed;
+
 	public InteractionCriteria(String json) throws JSONException {
 		this.json = json;
 	}
 
+	private synchronized Clause getRootClause() throws JSONException {
+		if (!parsed) {
+			rootClause = ClauseParser.parse(json);
+			parsed = true;
+		}
+		return rootClause;
+	}
+
 	public boolean isMet(FieldManager fieldManager) {
 		return isMet(fieldManager, true);
 	}
 
 	public boolean isMet(FieldManager fieldManager, boolean verbose) {
+		return isMet(fieldManager, verbose ? new ClauseTraceRecorder() : ClauseTracer.NULL);
+	}
+
+	/**
+	 * Evaluates criteria and reports each evaluation step to the <code>tracer</code>. Trace details
+	 * are only logged if a {@link ClauseTraceRecorder} is used.
+	 */
+	public boolean isMet(FieldManager fieldManager, ClauseTracer tracer) {
+		boolean verbose = tracer instanceof ClauseTraceRecorder;
 		try {
-			Clause rootClause = ClauseParser.parse(json);
+			Clause rootClause = getRootClause();
 			boolean ret = false;
 			if (rootClause != null) {
-				IndentPrinter printer = verbose ? new IndentBufferedPrinter() : IndentPrinter.NULL;
-				ret = rootClause.evaluate(fieldManager, printer);
+				ret = rootClause.evaluate(fieldManager, tracer);
 				if (verbose) {
 					ApptentiveLog.i(INTERACTIONS, "Criteria evaluated => %b", ret);
-					ApptentiveLog.d(INTERACTIONS, "Criteria evaluation details:\n%s", printer);
+					ApptentiveLog.d(INTERACTIONS, "Criteria evaluation details:\n%s", tracer);
 				}
 			} else {
 				if (verbose) {
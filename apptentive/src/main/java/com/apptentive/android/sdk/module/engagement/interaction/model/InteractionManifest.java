@@ -16,6 +16,8 @@ import static com.apptentive.android.sdk.ApptentiveLogTag.INTERACTIONS;
 import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
 
 public class InteractionManifest extends JSONObject {
+	public static final String KEY_MANIFEST_VERSION = "manifest_version";
+	public static final String KEY_BASE_MANIFEST_VERSION = "base_manifest_version";
 
 	public InteractionManifest(String json) throws JSONException {
 		super(json);
@@ -51,6 +53,33 @@ public class InteractionManifest extends JSONObject {
 		return null;
 	}
 
+	/**
+	 * Returns the version of the manifest (or <code>null</code> if the server doesn't version it)
+	 */
+	public String getManifestVersion() {
+		return isNull(KEY_MANIFEST_VERSION) ? null : optString(KEY_MANIFEST_VERSION);
+	}
+
+	/**
+	 * Returns <code>true</code> if the manifest only contains changes since the version the SDK has
+	 */
+	public boolean isDelta() {
+		return !isNull(InteractionManifestDelta.KEY_NAME);
+	}
+
+	public InteractionManifestDelta getDelta() {
+		try {
+			if (isDelta()) {
+				String baseManifestVersion = isNull(KEY_BASE_MANIFEST_VERSION) ? null : getString(KEY_BASE_MANIFEST_VERSION);
+				return new InteractionManifestDelta(getManifestVersion(), baseManifestVersion, getJSONObject(InteractionManifestDelta.KEY_NAME));
+			}
+		} catch (JSONException e) {
+			ApptentiveLog.w(INTERACTIONS, e, "Unable to load delta from InteractionManifest.");
+			logException(e);
+		}
+		return null;
+	}
+
 	public Targets getTargets() {
 		try {
 			if (!isNull(Targets.KEY_NAME)) {
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.interaction.model;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.INTERACTIONS;
+
+/**
+ * Changes between two versions of the interaction manifest:
+ * <pre>
+ * "delta": {
+ *   "targets": {
+ *     "upsert": { "event_label": [invocations...] },
+ *     "remove": [ "event_label" ]
+ *   },
+ *   "interactions": {
+ *     "upsert": [ {interaction}... ],
+ *     "remove": [ "interaction_id" ]
+ *   }
+ * }
+ * </pre>
+ * Invocations are replaced per event label (added or changed), interactions are replaced per id.
+ */
+public class InteractionManifestDelta {
+	public static final String KEY_NAME = "delta";
+
+	private static final String KEY_UPSERT = "upsert";
+	private static final String KEY_REMOVE = "remove";
+
+	private final String manifestVersion;
+	private final String baseManifestVersion;
+	private final JSONObject targetsDelta;
+	private final JSONObject interactionsDelta;
+
+	InteractionManifestDelta(String manifestVersion, String baseManifestVersion, JSONObject delta) {
+		if (delta == null) {
+			throw new IllegalArgumentException("Delta is null");
+		}
+		this.manifestVersion = manifestVersion;
+		this.baseManifestVersion = baseManifestVersion;
+		this.targetsDelta = delta.optJSONObject(Targets.KEY_NAME);
+		this.interactionsDelta = delta.optJSONObject(Interactions.KEY_NAME);
+	}
+
+	//region Apply
+
+	/**
+	 * Adds, replaces and removes invocations in place (only the changed event labels are re-compiled).
+	 *
+	 * @return number of changed event labels
+	 */
+	public int applyTo(Targets targets) throws JSONException {
+		if (targetsDelta == null) {
+			return 0;
+		}
+
+		int changeCount = 0;
+		JSONArray removed = targetsDelta.optJSONArray(KEY_REMOVE);
+		if (removed != null) {
+			for (int i = 0; i < removed.length(); i++) {
+				targets.removeInvocations(removed.getString(i));
+				++changeCount;
+			}
+		}
+
+		JSONObject upserted = targetsDelta.optJSONObject(KEY_UPSERT);
+		if (upserted != null) {
+			Iterator<String> eventLabels = upserted.keys();
+			while (eventLabels.hasNext()) {
+				String eventLabel = eventLabels.next();
+				targets.putInvocations(eventLabel, upserted.getJSONArray(eventLabel));
+				++changeCount;
+			}
+		}
+		return changeCount;
+	}
+
+	/**
+	 * Adds, replaces and removes interactions in place (unchanged interactions stay parsed).
+	 *
+	 * @return number of changed interactions
+	 */
+	public int applyTo(Interactions interactions) throws JSONException {
+		if (interactionsDelta == null) {
+			return 0;
+		}
+
+		int changeCount = 0;
+		JSONArray removed = interactionsDelta.optJSONArray(KEY_REMOVE);
+		if (removed != null) {
+			for (int i = 0; i < removed.length(); i++) {
+				interactions.removeInteraction(removed.getString(i));
+				++changeCount;
+			}
+		}
+
+		JSONArray upserted = interactionsDelta.optJSONArray(KEY_UPSERT);
+		if (upserted != null) {
+			for (int i = 0; i < upserted.length(); i++) {
+				JSONObject interactionObject = upserted.getJSONObject(i);
+				Interaction interaction = Interaction.Factory.parseInteraction(interactionObject.toString());
+				if (interaction != null) {
+					interactions.putInteraction(interaction);
+				} else {
+					// Unknown Interaction type (probably for a future SDK version): drop it as the full manifest would
+					ApptentiveLog.w(INTERACTIONS, "Unable to parse interaction from manifest delta: %s", interactionObject.optString(Interaction.KEY_ID));
+					interactions.removeInteraction(interactionObject.optString(Interaction.KEY_ID));
+				}
+				++changeCount;
+			}
+		}
+		return changeCount;
+	}
+
+	//endregion
+
+	//region Getters
+
+	/**
+	 * Version of the manifest after the delta is applied
+	 */
+	public String getManifestVersion() {
+		return manifestVersion;
+	}
+
+	/**
+	 * Version of the manifest the delta should be applied to
+	 */
+	public String getBaseManifestVersion() {
+		return baseManifestVersion;
+	}
+
+	/**
+	 * Returns <code>true</code> if the delta doesn't change the targets or interactions (only the version)
+	 */
+	public boolean isEmpty() {
+		return isEmpty(targetsDelta) && isEmpty(interactionsDelta);
+	}
+
+	private static boolean isEmpty(JSONObject delta) {
+		if (delta == null) {
+			return true;
+		}
+		JSONArray removed = delta.optJSONArray(KEY_REMOVE);
+		if (removed != null && removed.length() > 0) {
+			return false;
+		}
+		JSONArray upsertedArray = delta.optJSONArray(KEY_UPSERT);
+		if (upsertedArray != null && upsertedArray.length() > 0) {
+			return false;
+		}
+		JSONObject upsertedObject = delta.optJSONObject(KEY_UPSERT);
+		return upsertedObject == null || upsertedObject.length() == 0;
+	}
+
+	//endregion
+}
@@ -12,8 +12,11 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static com.apptentive.android.sdk.ApptentiveLogTag.INTERACTIONS;
 import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
@@ -25,6 +28,11 @@ import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
 public class Interactions extends JSONObject {
 	public static final String KEY_NAME = "interactions";
 
+	/**
+	 * Parsed interaction definitions (each interaction is only parsed once)
+	 */
+	private final Map<String, Interaction> parsedInteractions = new HashMap<>();
+
 	public Interactions() throws JSONException {
 		super();
 	}
@@ -33,10 +41,19 @@ public class Interactions extends JSONObject {
 		super(json);
 	}
 
-	public Interaction getInteraction(String id) {
+	public synchronized Interaction getInteraction(String id) {
+		Interaction interaction = parsedInteractions.get(id);
+		if (interaction != null) {
+			return interaction;
+		}
+
 		try {
 			if (!isNull(id)) {
-				return Interaction.Factory.parseInteraction(getJSONObject(id).toString());
+				interaction = Interaction.Factory.parseInteraction(getJSONObject(id).toString());
+				if (interaction != null) {
+					parsedInteractions.put(id, interaction);
+				}
+				return interaction;
 			}
 		} catch (JSONException e) {
 			ApptentiveLog.w(INTERACTIONS, e, "Exception parsing interactions array.");
@@ -45,6 +62,36 @@ public class Interactions extends JSONObject {
 		return null;
 	}
 
+	/**
+	 * Adds or replaces an interaction (the rest of the parsed interactions are kept).
+	 */
+	public synchronized void putInteraction(Interaction interaction) throws JSONException {
+		String id = interaction.getId();
+		put(id, interaction);
+		parsedInteractions.put(id, interaction);
+	}
+
+	public synchronized void removeInteraction(String id) {
+		remove(id);
+		parsedInteractions.remove(id);
+	}
+
+	/**
+	 * Parses interaction definitions ahead of time so they are ready when engaged.
+	 *
+	 * @return list of successfully parsed interactions
+	 */
+	public List<Interaction> warmUp(Collection<String> ids) {
+		List<Interaction> ret = new ArrayList<>();
+		for (String id : ids) {
+			Interaction interaction = getInteraction(id);
+			if (interaction != null) {
+				ret.add(interaction);
+			}
+		}
+		return ret;
+	}
+
 	public List<Interaction> getInteractionList() {
 		List<Interaction> ret = new ArrayList<Interaction>();
 		Iterator<String> keys = keys();
@@ -21,6 +21,11 @@ public class Invocation extends JSONObject {
 	private static final String KEY_INTERACTION_ID = "interaction_id";
 	private static final String KEY_CRITERIA = "criteria";
 
+	/**
+	 * Lazily parsed criteria (reused between evaluations)
+	 */
+	private InteractionCriteria criteria;
+
 	public Invocation(String json) throws JSONException {
 		super(json);
 	}
@@ -38,9 +43,8 @@ public class Invocation extends JSONObject {
 
 	public boolean isCriteriaMet(FieldManager fieldManager, boolean verbose) {
 		try {
-			if (!isNull(KEY_CRITERIA)) {
-				JSONObject criteriaObject = getJSONObject(KEY_CRITERIA);
-				InteractionCriteria criteria = new InteractionCriteria(criteriaObject.toString());
+			InteractionCriteria criteria = getCriteria();
+			if (criteria != null) {
 				return criteria.isMet(fieldManager, verbose);
 			}
 		} catch (JSONException e) {
@@ -48,4 +52,12 @@ public class Invocation extends JSONObject {
 		}
 		return false;
 	}
+
+	private synchronized InteractionCriteria getCriteria() throws JSONException {
+		if (criteria == null && !isNull(KEY_CRITERIA)) {
+			JSONObject criteriaObject = getJSONObject(KEY_CRITERIA);
+			criteria = new InteractionCriteria(criteriaObject.toString());
+		}
+		return criteria;
+	}
 }
@@ -15,6 +15,12 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 import static com.apptentive.android.sdk.ApptentiveLogTag.INTERACTIONS;
 import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
 
@@ -25,31 +31,78 @@ public class Targets extends JSONObject {
 
 	public static final String KEY_NAME = "targets";
 
+	/**
+	 * Parsed invocations for each event label (criteria are compiled only once)
+	 */
+	private final Map<String, List<Invocation>> invocationsLookup = new HashMap<>();
+
 	public Targets(String json) throws JSONException {
 		super(json);
 	}
 
 	public String getApplicableInteraction(String eventLabel, boolean verbose) {
-		JSONArray invocations = optJSONArray(eventLabel);
-		if (invocations != null) {
-			for (int i = 0; i < invocations.length(); i++) {
-				JSONObject invocationObject = invocations.optJSONObject(i);
-				if (invocationObject != null) {
-					try {
-						Invocation invocation = new Invocation(invocationObject.toString());
-						Conversation conversation = ApptentiveInternal.getInstance().getConversation();
-						FieldManager fieldManager = new FieldManager(ApptentiveInternal.getInstance().getApplicationContext(), conversation.getVersionHistory(), conversation.getEventData(), conversation.getPerson(), conversation.getDevice(), conversation.getAppRelease());
-
-						if (invocation.isCriteriaMet(fieldManager, verbose)) {
-							return invocation.getInteractionId();
-						}
-					} catch (JSONException e) {
-						logException(e);
-					}
+		Conversation conversation = ApptentiveInternal.getInstance().getConversation();
+		FieldManager fieldManager = new FieldManager(ApptentiveInternal.getInstance().getApplicationContext(), conversation.getVersionHistory(), conversation.getEventData(), conversation.getPerson(), conversation.getDevice(), conversation.getAppRelease());
+		return getApplicableInteraction(eventLabel, fieldManager, verbose);
+	}
+
+	public String getApplicableInteraction(String eventLabel, FieldManager fieldManager, boolean verbose) {
+		List<Invocation> invocations = getInvocations(eventLabel);
+		if (invocations.size() > 0) {
+			for (Invocation invocation : invocations) {
+				if (invocation.isCriteriaMet(fieldManager, verbose)) {
+					return invocation.getInteractionId();
 				}
 			}
 		}
 		ApptentiveLog.v(INTERACTIONS, "No runnable Interactions for EventLabel: %s", eventLabel);
 		return null;
 	}
+
+	/**
+	 * Returns the list of event labels which have targeted interactions.
+	 */
+	public List<String> getEventLabels() {
+		List<String> eventLabels = new ArrayList<>();
+		Iterator<String> keys = keys();
+		while (keys.hasNext()) {
+			eventLabels.add(keys.next());
+		}
+		return eventLabels;
+	}
+
+	/**
+	 * Adds or replaces invocations for an event label (only this label is re-compiled).
+	 */
+	public synchronized void putInvocations(String eventLabel, JSONArray invocations) throws JSONException {
+		put(eventLabel, invocations);
+		invocationsLookup.remove(eventLabel);
+	}
+
+	public synchronized void removeInvocations(String eventLabel) {
+		remove(eventLabel);
+		invocationsLookup.remove(eventLabel);
+	}
+
+	private synchronized List<Invocation> getInvocations(String eventLabel) {
+		List<Invocation> invocations = invocationsLookup.get(eventLabel);
+		if (invocations == null) {
+			invocations = new ArrayList<>();
+			JSONArray invocationsArray = optJSONArray(eventLabel);
+			if (invocationsArray != null) {
+				for (int i = 0; i < invocationsArray.length(); i++) {
+					JSONObject invocationObject = invocationsArray.optJSONObject(i);
+					if (invocationObject != null) {
+						try {
+							invocations.add(new Invocation(invocationObject.toString()));
+						} catch (JSONException e) {
+							logException(e);
+						}
+					}
+				}
+			}
+			invocationsLookup.put(eventLabel, invocations);
+		}
+		return invocations;
+	}
 }
@@ -6,8 +6,6 @@
 
 package com.apptentive.android.sdk.module.engagement.logic;
 
-import com.apptentive.android.sdk.util.IndentPrinter;
-
 public interface Clause {
-	boolean evaluate(FieldManager fieldManager, IndentPrinter printer);
+	boolean evaluate(FieldManager fieldManager, ClauseTracer tracer);
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.logic;
+
+import com.apptentive.android.sdk.util.IndentBufferedPrinter;
+import com.apptentive.android.sdk.util.IndentPrinter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records criteria evaluation steps as structured entries (used for troubleshooting).
+ */
+public class ClauseTraceRecorder extends ClauseTracer {
+	private final List<Entry> entries = new ArrayList<>();
+	private int depth;
+
+	@Override
+	public void startLogicalClause(LogicalOperator operator, int childCount) {
+		// to compress the trace we 'inline' single $and operators
+		if (shouldRecordOperator(operator, childCount)) {
+			entries.add(new Entry(depth, operator));
+			depth++;
+		}
+	}
+
+	@Override
+	public void endLogicalClause(LogicalOperator operator, int childCount) {
+		if (shouldRecordOperator(operator, childCount)) {
+			depth--;
+		}
+	}
+
+	@Override
+	public void traceConditionalTest(FieldManager fieldManager, FieldAccessor field, ConditionalOperator operator, Comparable fieldValue, Comparable parameter, boolean result) {
+		String description = operator.description(field.getDescription(fieldManager), fieldValue, parameter);
+		entries.add(new Entry(depth, field.getQuery(), description, operator, fieldValue, parameter, result));
+	}
+
+	private boolean shouldRecordOperator(LogicalOperator operator, int childCount) {
+		return !LogicalOperator.$and.equals(operator) || childCount > 1;
+	}
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	@Override
+	public String toString() {
+		IndentPrinter printer = new IndentBufferedPrinter();
+		int currentDepth = 0;
+		for (Entry entry : entries) {
+			while (currentDepth < entry.depth) {
+				printer.startBlock();
+				currentDepth++;
+			}
+			while (currentDepth > entry.depth) {
+				printer.endBlock();
+				currentDepth--;
+			}
+			if (entry.logicalOperator != null) {
+				printer.print("- %s:", entry.logicalOperator.name());
+			} else {
+				printer.print("- %s => %b", entry.description, entry.result);
+			}
+		}
+		return printer.toString();
+	}
+
+	/**
+	 * Single evaluation step: either a logical operator or a conditional test.
+	 */
+	public static class Entry {
+		public final int depth;
+		public final LogicalOperator logicalOperator;
+		public final String query;
+		public final String description;
+		public final ConditionalOperator conditionalOperator;
+		public final Comparable fieldValue;
+		public final Comparable parameter;
+		public final boolean result;
+
+		Entry(int depth, LogicalOperator logicalOperator) {
+			this(depth, logicalOperator, null, null, null, null, null, false);
+		}
+
+		Entry(int depth, String query, String description, ConditionalOperator conditionalOperator, Comparable fieldValue, Comparable parameter, boolean result) {
+			this(depth, null, query, description, conditionalOperator, fieldValue, parameter, result);
+		}
+
+		private Entry(int depth, LogicalOperator logicalOperator, String query, String description, ConditionalOperator conditionalOperator, Comparable fieldValue, Comparable parameter, boolean result) {
+			this.depth = depth;
+			this.logicalOperator = logicalOperator;
+			this.query = query;
+			this.description = description;
+			this.conditionalOperator = conditionalOperator;
+			this.fieldValue = fieldValue;
+			this.parameter = parameter;
+			this.result = result;
+		}
+	}
+}
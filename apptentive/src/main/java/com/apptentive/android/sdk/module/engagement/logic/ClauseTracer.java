@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.logic;
+
+/**
+ * Receives criteria evaluation steps. Implementations must not do any work until they are
+ * actually called: clauses pass raw values only and descriptions are built by the tracer itself
+ * (if needed at all).
+ */
+public abstract class ClauseTracer {
+
+	/**
+	 * Called before the children of a logical clause are evaluated.
+	 */
+	public abstract void startLogicalClause(LogicalOperator operator, int childCount);
+
+	/**
+	 * Called after the children of a logical clause are evaluated.
+	 */
+	public abstract void endLogicalClause(LogicalOperator operator, int childCount);
+
+	/**
+	 * Called for each conditional test evaluated.
+	 */
+	public abstract void traceConditionalTest(FieldManager fieldManager, FieldAccessor field, ConditionalOperator operator, Comparable fieldValue, Comparable parameter, boolean result);
+
+	/**
+	 * No-op tracer (used when nobody is interested in the evaluation details).
+	 */
+	public static final ClauseTracer NULL = new ClauseTracer() {
+		@Override
+		public void startLogicalClause(LogicalOperator operator, int childCount) {
+		}
+
+		@Override
+		public void endLogicalClause(LogicalOperator operator, int childCount) {
+		}
+
+		@Override
+		public void traceConditionalTest(FieldManager fieldManager, FieldAccessor field, ConditionalOperator operator, Comparable fieldValue, Comparable parameter, boolean result) {
+		}
+	};
+}
@@ -7,11 +7,12 @@
 package com.apptentive.android.sdk.module.engagement.logic;
 
 
+import com.apptentive.android.sdk.Apptentive;
 import com.apptentive.android.sdk.ApptentiveLog;
-import com.apptentive.android.sdk.util.IndentPrinter;
 
 import org.json.JSONObject;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -26,10 +27,18 @@ public class ConditionalClause implements Clause {
 	private static final String KEY_COMPLEX_TYPE = "_type";
 
 	private final String fieldName;
+	private final FieldAccessor fieldAccessor;
 	private final List<ConditionalTest> conditionalTests;
 
+	/**
+	 * Structural key used for sharing results between identical clauses of different criteria
+	 * (<code>null</code> if the result can't be shared)
+	 */
+	private final String sharedResultKey;
+
 	public ConditionalClause(String field, Object inputValue) {
 		this.fieldName = field.trim();
+		this.fieldAccessor = FieldAccessor.compile(fieldName);
 
 		ApptentiveLog.v(INTERACTIONS, "    + ConditionalClause for query: \"%s\"", fieldName);
 		if (inputValue instanceof JSONObject && !isComplexType((JSONObject) inputValue)) {
@@ -38,6 +47,28 @@ public class ConditionalClause implements Clause {
 			conditionalTests = new ArrayList<>();
 			conditionalTests.add(new ConditionalTest(ConditionalOperator.$eq, ClauseParser.parseValue(inputValue)));
 		}
+		sharedResultKey = createSharedResultKey(fieldName, fieldAccessor, conditionalTests);
+	}
+
+	/**
+	 * Time-based clauses are never shared: their results also contribute time boundaries.
+	 */
+	private static String createSharedResultKey(String fieldName, FieldAccessor fieldAccessor, List<ConditionalTest> conditionalTests) {
+		if ((fieldAccessor.getDependencies() & FieldManager.DEPENDENCY_TIME) != 0) {
+			return null;
+		}
+
+		StringBuilder key = new StringBuilder(fieldName);
+		for (ConditionalTest test : conditionalTests) {
+			if (test.operator == ConditionalOperator.$before || test.operator == ConditionalOperator.$after) {
+				return null;
+			}
+			key.append('|').append(test.operator.name()).append(':');
+			if (test.parameter != null) {
+				key.append(test.parameter.getClass().getSimpleName()).append(':').append(test.parameter);
+			}
+		}
+		return key.toString();
 	}
 
 	private List<ConditionalTest> getConditions(JSONObject conditionObject) {
@@ -64,15 +95,52 @@ public class ConditionalClause implements Clause {
 	 * @return
 	 */
 	@Override
-	public boolean evaluate(FieldManager fieldManager, IndentPrinter printer) {
-		Comparable fieldValue = fieldManager.getValue(fieldName);
+	public boolean evaluate(FieldManager fieldManager, ClauseTracer tracer) {
+		fieldManager.addDependencies(fieldAccessor.getDependencies());
+
+		boolean canShareResult = sharedResultKey != null && tracer == ClauseTracer.NULL;
+		if (canShareResult) {
+			Boolean sharedResult = fieldManager.getSharedClauseResult(sharedResultKey);
+			if (sharedResult != null) {
+				return sharedResult;
+			}
+		}
+
+		boolean result = evaluateTests(fieldManager, tracer);
+		if (canShareResult) {
+			fieldManager.putSharedClauseResult(sharedResultKey, result);
+		}
+		return result;
+	}
+
+	private boolean evaluateTests(FieldManager fieldManager, ClauseTracer tracer) {
+		Comparable fieldValue = fieldAccessor.getValue(fieldManager);
 		for (ConditionalTest test : conditionalTests) {
 			boolean result = test.operator.apply(fieldValue, test.parameter);
-			printer.print("- %s => %b", test.operator.description(fieldManager.getDescription(fieldName), fieldValue, test.parameter), result);
+			trackTimeBoundary(fieldManager, test, fieldValue);
+			tracer.traceConditionalTest(fieldManager, fieldAccessor, test.operator, fieldValue, test.parameter, result);
 			if (!result) {
 				return false;
 			}
 		}
 		return true;
 	}
+
+	/**
+	 * Records the point in time when the result of a time-based test can flip (if any).
+	 */
+	private void trackTimeBoundary(FieldManager fieldManager, ConditionalTest test, Comparable fieldValue) {
+		if (test.operator == ConditionalOperator.$before || test.operator == ConditionalOperator.$after) {
+			// the field value is compared against the current time plus the offset
+			if (fieldValue instanceof Apptentive.DateTime && test.parameter instanceof BigDecimal) {
+				double offset = ((BigDecimal) test.parameter).doubleValue();
+				fieldManager.addTimeBoundary(((Apptentive.DateTime) fieldValue).getDateTime() - offset);
+			}
+		} else if ((fieldAccessor.getDependencies() & FieldManager.DEPENDENCY_TIME) != 0) {
+			// the current time is compared against a fixed date
+			if (test.parameter instanceof Apptentive.DateTime) {
+				fieldManager.addTimeBoundary(((Apptentive.DateTime) test.parameter).getDateTime());
+			}
+		}
+	}
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.logic;
+
+import androidx.annotation.Nullable;
+
+import com.apptentive.android.sdk.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Caches interaction eligibility results for event labels. Each entry remembers the inputs its
+ * criteria have read (see <code>FieldManager.DEPENDENCY_XXX</code>) and is only invalidated when one
+ * of those inputs changes or when the next time boundary of a time-based criteria is reached.
+ */
+public class EligibilityCache {
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * Returns a cached entry for the event label or <code>null</code> if there's no valid entry.
+	 *
+	 * @param currentTime - current time in seconds (used for time-based criteria)
+	 */
+	public synchronized @Nullable Entry get(String eventLabel, double currentTime) {
+		Entry entry = entries.get(eventLabel);
+		if (entry != null && currentTime >= entry.nextTimeBoundary) {
+			entries.remove(eventLabel);
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores evaluation result for the event label.
+	 *
+	 * @param interactionId    - id of the interaction which can be shown (<code>null</code> if none)
+	 * @param dependencies     - bit mask of inputs read while evaluating the criteria
+	 * @param nextTimeBoundary - the earliest point in time when the result can change
+	 */
+	public synchronized void put(String eventLabel, @Nullable String interactionId, int dependencies, double nextTimeBoundary) {
+		entries.put(eventLabel, new Entry(interactionId, dependencies, nextTimeBoundary));
+	}
+
+	/**
+	 * Removes all the entries which depend on any of the changed inputs.
+	 */
+	public synchronized void invalidate(int changedDependencies) {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if ((entry.dependencies & changedDependencies) != 0) {
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public static class Entry {
+		private final @Nullable String interactionId;
+		private final int dependencies;
+		private final double nextTimeBoundary;
+
+		Entry(@Nullable String interactionId, int dependencies, double nextTimeBoundary) {
+			this.interactionId = interactionId;
+			this.dependencies = dependencies;
+			this.nextTimeBoundary = nextTimeBoundary;
+		}
+
+		public @Nullable String getInteractionId() {
+			return interactionId;
+		}
+
+		public int getDependencies() {
+			return dependencies;
+		}
+
+		public double getNextTimeBoundary() {
+			return nextTimeBoundary;
+		}
+
+		@Override
+		public String toString() {
+			return StringUtils.format("interactionId=%s dependencies=%d nextTimeBoundary=%s", interactionId, dependencies, nextTimeBoundary);
+		}
+	}
+}
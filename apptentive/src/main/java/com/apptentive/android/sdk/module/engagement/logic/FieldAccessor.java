@@ -0,0 +1,622 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.logic;
+
+import com.apptentive.android.sdk.Apptentive;
+import com.apptentive.android.sdk.module.engagement.logic.FieldManager.QueryPart;
+import com.apptentive.android.sdk.storage.CustomData;
+import com.apptentive.android.sdk.storage.Device;
+import com.apptentive.android.sdk.storage.EventData;
+import com.apptentive.android.sdk.util.Constants;
+import com.apptentive.android.sdk.util.StringUtils;
+import com.apptentive.android.sdk.util.Util;
+
+import java.math.BigDecimal;
+
+/**
+ * Pre-resolved accessor for a single criteria field query (like "code_point/app#launch/invokes/total").
+ * Queries are compiled once when criteria are parsed so that evaluation doesn't need to split and
+ * parse the query string over and over again.
+ */
+public abstract class FieldAccessor {
+	private final String query;
+
+	/**
+	 * Bit mask of <code>FieldManager.DEPENDENCY_XXX</code> inputs this accessor reads
+	 */
+	private final int dependencies;
+
+	protected FieldAccessor(String query, int dependencies) {
+		this.query = query;
+		this.dependencies = dependencies;
+	}
+
+	/**
+	 * Returns the current value of the field (already normalized for comparison) or <code>null</code>
+	 * if the value is missing.
+	 */
+	public abstract Comparable getValue(FieldManager fieldManager);
+
+	/**
+	 * Returns a human readable description of the field (used for troubleshooting only).
+	 */
+	public abstract String getDescription(FieldManager fieldManager);
+
+	public String getQuery() {
+		return query;
+	}
+
+	public int getDependencies() {
+		return dependencies;
+	}
+
+	@Override
+	public String toString() {
+		return query;
+	}
+
+	//region Compilation
+
+	/**
+	 * Compiles a field query into an accessor. Tokens are only resolved when the accessor type needs
+	 * them: unknown or incomplete queries compile into an accessor which always resolves to
+	 * <code>null</code>.
+	 *
+	 * @throws IllegalArgumentException if the query is <code>null</code>
+	 */
+	public static FieldAccessor compile(String query) {
+		if (query == null) {
+			throw new IllegalArgumentException("Query is null");
+		}
+
+		query = query.trim();
+		String[] tokens = query.split("/");
+		QueryPart topLevelQuery = QueryPart.parse(tokens[0]);
+
+		switch (topLevelQuery) {
+			case application: {
+				QueryPart applicationQuery = QueryPart.parse(token(tokens, 1));
+				switch (applicationQuery) {
+					case version_code:
+					case debug:
+						return new PropertyAccessor(query, topLevelQuery, applicationQuery);
+					case version_name:
+						return new VersionAccessor(query, VersionAccessor.TYPE_APP_VERSION_NAME);
+				}
+				return new NullAccessor(query);
+			}
+			case sdk: {
+				QueryPart sdkQuery = QueryPart.parse(token(tokens, 1));
+				if (sdkQuery == QueryPart.version) {
+					return new VersionAccessor(query, VersionAccessor.TYPE_SDK_VERSION);
+				}
+				// unknown SDK queries always resolved to the current time
+				return new PropertyAccessor(query, QueryPart.current_time, QueryPart.other);
+			}
+			case current_time:
+				return new PropertyAccessor(query, topLevelQuery, QueryPart.other);
+			case is_update:
+			case time_at_install:
+				return new PropertyAccessor(query, topLevelQuery, QueryPart.parse(token(tokens, 1)));
+			case interactions:
+			case code_point: {
+				boolean interaction = topLevelQuery == QueryPart.interactions;
+				String key = token(tokens, 1);
+				if (key == null) {
+					break;
+				}
+				switch (QueryPart.parse(token(tokens, 2))) {
+					case invokes: {
+						QueryPart scope = QueryPart.parse(token(tokens, 3));
+						switch (scope) {
+							case total:
+							case version_code:
+							case version_name:
+								return new EventCountAccessor(query, interaction, key, scope);
+						}
+						break;
+					}
+					case last_invoked_at:
+						if (QueryPart.parse(token(tokens, 3)) == QueryPart.total) {
+							return new LastInvokedAccessor(query, interaction, key);
+						}
+						break;
+				}
+				return new NullAccessor(query);
+			}
+			case person: {
+				QueryPart subQuery = QueryPart.parse(token(tokens, 1));
+				switch (subQuery) {
+					case custom_data:
+						return createCustomDataAccessor(query, true, token(tokens, 2));
+					case name:
+					case email:
+						return new PropertyAccessor(query, topLevelQuery, subQuery);
+				}
+				return new NullAccessor(query);
+			}
+			case device: {
+				QueryPart subQuery = QueryPart.parse(token(tokens, 1));
+				switch (subQuery) {
+					case custom_data:
+						return createCustomDataAccessor(query, false, token(tokens, 2));
+					case os_version:
+						return new VersionAccessor(query, VersionAccessor.TYPE_OS_VERSION);
+					case other:
+						return new NullAccessor(query);
+				}
+				return new PropertyAccessor(query, topLevelQuery, subQuery);
+			}
+		}
+		return new NullAccessor(query);
+	}
+
+	private static FieldAccessor createCustomDataAccessor(String query, boolean person, String key) {
+		return key != null ? new CustomDataAccessor(query, person, key.trim()) : new NullAccessor(query);
+	}
+
+	/**
+	 * Returns the query token at the index or <code>null</code> if the query is too short.
+	 */
+	private static String token(String[] tokens, int index) {
+		return index < tokens.length ? tokens[index] : null;
+	}
+
+	private static Comparable toComparable(Object value) {
+		return (Comparable) ClauseParser.parseValue(value);
+	}
+
+	//endregion
+
+	//region Accessors
+
+	/**
+	 * Accessor for unknown (or not supported) queries: always resolves to <code>null</code>.
+	 */
+	private static class NullAccessor extends FieldAccessor {
+		NullAccessor(String query) {
+			super(query, 0);
+		}
+
+		@Override
+		public Comparable getValue(FieldManager fieldManager) {
+			return null;
+		}
+
+		@Override
+		public String getDescription(FieldManager fieldManager) {
+			return null;
+		}
+	}
+
+	/**
+	 * Number of invokes for an event or interaction (in total or for the current app version).
+	 */
+	static class EventCountAccessor extends FieldAccessor {
+		private final boolean interaction;
+		private final String key;
+		private final QueryPart scope;
+
+		EventCountAccessor(String query, boolean interaction, String key, QueryPart scope) {
+			super(query, FieldManager.DEPENDENCY_EVENT_DATA);
+			this.interaction = interaction;
+			this.key = key;
+			this.scope = scope;
+		}
+
+		@Override
+		public Comparable getValue(FieldManager fieldManager) {
+			EventData eventData = fieldManager.eventData;
+			Long count;
+			switch (scope) {
+				case version_code:
+					count = interaction ?
+						eventData.getInteractionCountForVersionCode(key, fieldManager.getAppVersionCode()) :
+						eventData.getEventCountForVersionCode(key, fieldManager.getAppVersionCode());
+					break;
+				case version_name:
+					count = interaction ?
+						eventData.getInteractionCountForVersionName(key, fieldManager.getAppVersionName()) :
+						eventData.getEventCountForVersionName(key, fieldManager.getAppVersionName());
+					break;
+				default:
+					count = interaction ?
+						eventData.getInteractionCountTotal(key) :
+						eventData.getEventCountTotal(key);
+					break;
+			}
+			return BigDecimal.valueOf(count);
+		}
+
+		@Override
+		public String getDescription(FieldManager fieldManager) {
+			String type = interaction ? "interaction" : "event";
+			switch (scope) {
+				case version_code:
+					return StringUtils.format("number of invokes for %s '%s' for version code '%d'", type, key, fieldManager.getAppVersionCode());
+				case version_name:
+					return StringUtils.format("number of invokes for %s '%s' for version name '%s'", type, key, fieldManager.getAppVersionName());
+				default:
+					return StringUtils.format("number of invokes for %s '%s'", type, key);
+			}
+		}
+	}
+
+	/**
+	 * Time of the last invoke for an event or interaction.
+	 */
+	static class LastInvokedAccessor extends FieldAccessor {
+		private final boolean interaction;
+		private final String key;
+
+		LastInvokedAccessor(String query, boolean interaction, String key) {
+			super(query, FieldManager.DEPENDENCY_EVENT_DATA);
+			this.interaction = interaction;
+			this.key = key;
+		}
+
+		@Override
+		public Comparable getValue(FieldManager fieldManager) {
+			Double lastInvoke = interaction ?
+				fieldManager.eventData.getTimeOfLastInteractionInvocation(key) :
+				fieldManager.eventData.getTimeOfLastEventInvocation(key);
+			return lastInvoke != null ? new Apptentive.DateTime(lastInvoke) : null;
+		}
+
+		@Override
+		public String getDescription(FieldManager fieldManager) {
+			return StringUtils.format("last time %s '%s' was invoked", interaction ? "interaction" : "event", key);
+		}
+	}
+
+	/**
+	 * Person or device custom data value.
+	 */
+	static class CustomDataAccessor extends FieldAccessor {
+		private final boolean person;
+		private final String key;
+
+		CustomDataAccessor(String query, boolean person, String key) {
+			super(query, person ? FieldManager.DEPENDENCY_PERSON : FieldManager.DEPENDENCY_DEVICE);
+			this.person = person;
+			this.key = key;
+		}
+
+		@Override
+		public Comparable getValue(FieldManager fieldManager) {
+			if (person ? fieldManager.person == null : fieldManager.device == null) {
+				return null;
+			}
+
+			CustomData customData = person ?
+				fieldManager.person.getCustomData() :
+				fieldManager.device.getCustomData();
+			if (customData == null) {
+				return null;
+			}
+
+			// fast path: most of the keys are stored trimmed
+			if (customData.containsKey(key)) {
+				return toComparable(customData.get(key));
+			}
+
+			// We didn't trim the keys when they were added, so we need to iterate over them, trim them, then compare in order to get values.
+			for (String customDataKey : customData.keySet()) {
+				if (customDataKey.trim().equals(key)) {
+					return toComparable(customData.get(customDataKey));
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public String getDescription(FieldManager fieldManager) {
+			return StringUtils.format(person ? "person_data['%s']" : "device_data['%s']", key);
+		}
+	}
+
+	/**
+	 * Version values (app version name, SDK version and device OS version).
+	 */
+	static class VersionAccessor extends FieldAccessor {
+		static final int TYPE_APP_VERSION_NAME = 0;
+		static final int TYPE_SDK_VERSION = 1;
+		static final int TYPE_OS_VERSION = 2;
+
+		private final int type;
+
+		VersionAccessor(String query, int type) {
+			super(query, resolveDependencies(type));
+			this.type = type;
+		}
+
+		private static int resolveDependencies(int type) {
+			switch (type) {
+				case TYPE_APP_VERSION_NAME:
+					return FieldManager.DEPENDENCY_APP_RELEASE;
+				case TYPE_OS_VERSION:
+					return FieldManager.DEPENDENCY_DEVICE;
+				default:
+					return 0; // SDK version never changes
+			}
+		}
+
+		@Override
+		public Comparable getValue(FieldManager fieldManager) {
+			String versionString;
+			switch (type) {
+				case TYPE_APP_VERSION_NAME:
+					versionString = fieldManager.appRelease.getVersionName();
+					break;
+				case TYPE_SDK_VERSION:
+					versionString = Constants.getApptentiveSdkVersion();
+					break;
+				default:
+					if (fieldManager.device == null) {
+						return null;
+					}
+					versionString = fieldManager.device.getOsVersion();
+					if (versionString == null) {
+						versionString = "0";
+					}
+					break;
+			}
+			Apptentive.Version version = new Apptentive.Version();
+			version.setVersion(versionString);
+			return version;
+		}
+
+		@Override
+		public String getDescription(FieldManager fieldManager) {
+			switch (type) {
+				case TYPE_APP_VERSION_NAME:
+					return "app version name";
+				case TYPE_SDK_VERSION:
+					return "SDK version";
+				default:
+					return "device OS version";
+			}
+		}
+	}
+
+	/**
+	 * All the other plain properties of application, person, device and version history.
+	 */
+	static class PropertyAccessor extends FieldAccessor {
+		private final QueryPart topLevelQuery;
+		private final QueryPart subQuery;
+
+		PropertyAccessor(String query, QueryPart topLevelQuery, QueryPart subQuery) {
+			super(query, resolveDependencies(topLevelQuery, subQuery));
+			this.topLevelQuery = topLevelQuery;
+			this.subQuery = subQuery;
+		}
+
+		private static int resolveDependencies(QueryPart topLevelQuery, QueryPart subQuery) {
+			switch (topLevelQuery) {
+				case application:
+					return FieldManager.DEPENDENCY_APP_RELEASE;
+				case current_time:
+					return FieldManager.DEPENDENCY_TIME;
+				case is_update:
+					return FieldManager.DEPENDENCY_VERSION_HISTORY;
+				case time_at_install:
+					switch (subQuery) {
+						case total:
+						case version_code:
+						case version_name:
+							return FieldManager.DEPENDENCY_VERSION_HISTORY;
+					}
+					return FieldManager.DEPENDENCY_TIME; // unknown queries resolve to the current time
+				case person:
+					return FieldManager.DEPENDENCY_PERSON;
+				case device:
+					return FieldManager.DEPENDENCY_DEVICE;
+			}
+			return 0;
+		}
+
+		@Override
+		public Comparable getValue(FieldManager fieldManager) {
+			return toComparable(getRawValue(fieldManager));
+		}
+
+		private Object getRawValue(FieldManager fieldManager) {
+			switch (topLevelQuery) {
+				case application:
+					switch (subQuery) {
+						case version_code:
+							return fieldManager.appRelease.getVersionCode();
+						case debug:
+							return fieldManager.appRelease.isDebug();
+					}
+					return null;
+				case current_time:
+					return new Apptentive.DateTime(Util.currentTimeSeconds());
+				case is_update:
+					switch (subQuery) {
+						case version_code:
+							return fieldManager.versionHistory.isUpdateForVersionCode();
+						case version_name:
+							return fieldManager.versionHistory.isUpdateForVersionName();
+					}
+					return false;
+				case time_at_install:
+					switch (subQuery) {
+						case total:
+							return fieldManager.versionHistory.getTimeAtInstallTotal();
+						case version_code:
+							return fieldManager.versionHistory.getTimeAtInstallForVersionCode(fieldManager.getAppVersionCode());
+						case version_name:
+							return fieldManager.versionHistory.getTimeAtInstallForVersionName(fieldManager.getAppVersionName());
+					}
+					return new Apptentive.DateTime(Util.currentTimeSeconds());
+				case person:
+					if (fieldManager.person == null) {
+						return null;
+					}
+					switch (subQuery) {
+						case name:
+							return fieldManager.person.getName();
+						case email:
+							return fieldManager.person.getEmail();
+					}
+					return null;
+				case device:
+					return fieldManager.device != null ? getDeviceValue(fieldManager.device) : null;
+			}
+			return null;
+		}
+
+		private Object getDeviceValue(Device device) {
+			switch (subQuery) {
+				case os_api_level:
+					return device.getOsApiLevel();
+				case board:
+					return device.getBoard();
+				case bootloader_version:
+					return device.getBootloaderVersion();
+				case brand:
+					return device.getBrand();
+				case build_id:
+					return device.getBuildId();
+				case build_type:
+					return device.getBuildType();
+				case carrier:
+					return device.getCarrier();
+				case cpu:
+					return device.getCpu();
+				case current_carrier:
+					return device.getCurrentCarrier();
+				case device:
+					return device.getDevice();
+				case hardware:
+					return null; // What is this key?
+				case locale_country_code:
+					return device.getLocaleCountryCode();
+				case locale_language_code:
+					return device.getLocaleLanguageCode();
+				case locale_raw:
+					return device.getLocaleRaw();
+				case manufacturer:
+					return device.getManufacturer();
+				case model:
+					return device.getModel();
+				case network_type:
+					return device.getNetworkType();
+				case os_name:
+					return device.getOsName();
+				case os_build:
+					return device.getOsBuild();
+				case product:
+					return device.getProduct();
+				case radio_version:
+					return device.getRadioVersion();
+				case uuid:
+					return device.getUuid();
+			}
+			return null;
+		}
+
+		@Override
+		public String getDescription(FieldManager fieldManager) {
+			switch (topLevelQuery) {
+				case application:
+					switch (subQuery) {
+						case version_code:
+							return "app version code";
+						case debug:
+							return "app debuggable";
+					}
+					return null;
+				case current_time:
+					return "current time";
+				case is_update:
+					switch (subQuery) {
+						case version_code:
+							return "app version code changed";
+						case version_name:
+							return "app version name changed";
+					}
+					return null;
+				case time_at_install:
+					switch (subQuery) {
+						case total:
+							return "time at install";
+						case version_code:
+							return StringUtils.format("time at install for version code '%d'", fieldManager.getAppVersionCode());
+						case version_name:
+							return StringUtils.format("time at install for version name '%s'", fieldManager.getAppVersionName());
+					}
+					return null;
+				case person:
+					switch (subQuery) {
+						case name:
+							return "person name";
+						case email:
+							return "person email";
+					}
+					return null;
+				case device:
+					return getDeviceDescription();
+			}
+			return null;
+		}
+
+		private String getDeviceDescription() {
+			switch (subQuery) {
+				case os_api_level:
+					return "device API level";
+				case board:
+					return "device board";
+				case bootloader_version:
+					return "device bootloader version";
+				case brand:
+					return "device brand";
+				case build_id:
+					return "device build id";
+				case build_type:
+					return "device build type";
+				case carrier:
+					return "device carrier";
+				case cpu:
+					return "device CPU";
+				case current_carrier:
+					return "device current carrier";
+				case device:
+					return "device";
+				case hardware:
+					return "device hardware";
+				case locale_country_code:
+					return "device country";
+				case locale_language_code:
+					return "device language";
+				case locale_raw:
+					return "device locale";
+				case manufacturer:
+					return "device manufacturer";
+				case model:
+					return "device model";
+				case network_type:
+					return "device network type";
+				case os_name:
+					return "device OS name";
+				case os_build:
+					return "device OS build";
+				case product:
+					return "device product";
+				case radio_version:
+					return "device radio version";
+				case uuid:
+					return "UUID";
+			}
+			return null;
+		}
+	}
+
+	//endregion
+}
@@ -8,7 +8,6 @@ package com.apptentive.android.sdk.module.engagement.logic;
 
 
 import com.apptentive.android.sdk.ApptentiveLog;
-import com.apptentive.android.sdk.util.IndentPrinter;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -57,26 +56,19 @@ public class LogicalClause implements Clause {
 	}
 
 	@Override
-	public boolean evaluate(FieldManager fieldManager, IndentPrinter printer) {
-		// to compress logs we 'inline' single $and operators
-		boolean printOperator = !LogicalOperator.$and.equals(operator) || children.size() > 1;
-		if (printOperator) {
-			printer.print("- %s:", operator.name());
-			printer.startBlock();
-		}
+	public boolean evaluate(FieldManager fieldManager, ClauseTracer tracer) {
+		tracer.startLogicalClause(operator, children.size());
 		try {
-			return evaluateOperator(fieldManager, printer);
+			return evaluateOperator(fieldManager, tracer);
 		} finally {
-			if (printOperator) {
-				printer.endBlock();
-			}
+			tracer.endLogicalClause(operator, children.size());
 		}
 	}
 
-	private boolean evaluateOperator(FieldManager fieldManager, IndentPrinter printer) {
+	private boolean evaluateOperator(FieldManager fieldManager, ClauseTracer tracer) {
 		if (operator == LogicalOperator.$and) {
 			for (Clause clause : children) {
-				boolean ret = clause.evaluate(fieldManager, printer);
+				boolean ret = clause.evaluate(fieldManager, tracer);
 				if (!ret) {
 					return false;
 				}
@@ -86,7 +78,7 @@ public class LogicalClause implements Clause {
 
 		if (operator == LogicalOperator.$or) {
 			for (Clause clause : children) {
-				boolean ret = clause.evaluate(fieldManager, printer);
+				boolean ret = clause.evaluate(fieldManager, tracer);
 				if (ret) {
 					return true;
 				}
@@ -99,7 +91,7 @@ public class LogicalClause implements Clause {
 				throw new IllegalArgumentException("$not condition must have exactly one child, has ." + children.size());
 			}
 			Clause clause = children.get(0);
-			boolean ret = clause.evaluate(fieldManager, printer);
+			boolean ret = clause.evaluate(fieldManager, tracer);
 			return !ret;
 		}
 
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.messagecenter;
+
+import android.content.Context;
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
+
+import com.apptentive.android.sdk.ApptentiveInternal;
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.model.StoredFile;
+import com.apptentive.android.sdk.storage.AttachmentStore;
+import com.apptentive.android.sdk.util.Util;
+import com.apptentive.android.sdk.util.image.ApptentiveAttachmentLoader;
+import com.apptentive.android.sdk.util.image.ImageItem;
+import com.apptentive.android.sdk.util.image.ImageUtil;
+import com.apptentive.android.sdk.util.threading.DispatchTask;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import static com.apptentive.android.sdk.ApptentiveHelper.dispatchOnConversationQueue;
+import static com.apptentive.android.sdk.ApptentiveLogTag.MESSAGES;
+import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
+
+/**
+ * Prepares outgoing attachments in the background as soon as they're added to the composer: images
+ * are scaled down and re-encoded, other files are copied. The result is moved into the
+ * {@link AttachmentStore} so sending the message only needs to append ready bytes to the payload and
+ * identical attachments share the same file. Each {@link MessageManager} owns its own instance.
+ */
+public class AttachmentPreprocessor {
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final String ATTACHMENTS_DIR = "apptentive-attachments";
+	private static final int MAX_THREADS = 2;
+
+	private final Executor executor;
+
+	/**
+	 * Pending tasks keyed by the local cache path
+	 */
+	private final Map<String, PrepareTask> pendingTasks = new HashMap<>();
+
+	/**
+	 * Paths of prepared files keyed by the local cache path (entries are removed once the
+	 * attachment is sent or discarded)
+	 */
+	private final Map<String, String> storedPaths = new HashMap<>();
+
+	/**
+	 * Tasks waiting for attachments to be prepared
+	 */
+	private final List<PendingCallback> pendingCallbacks = new ArrayList<>();
+
+	private AttachmentStore attachmentStore;
+
+	public AttachmentPreprocessor() {
+		executor = ApptentiveAttachmentLoader.createExecutor("Apptentive Attachment Preprocessor", MAX_THREADS);
+	}
+
+	//region Preparing
+
+	/**
+	 * Starts preparing attachments in the background (already prepared ones are skipped).
+	 */
+	public void prepare(Collection<ImageItem> attachments) {
+		for (ImageItem attachment : attachments) {
+			prepare(attachment);
+		}
+	}
+
+	private synchronized void prepare(ImageItem attachment) {
+		String sourcePath = attachment.originalPath;
+		String preparedPath = attachment.localCachePath;
+		if (TextUtils.isEmpty(sourcePath) || TextUtils.isEmpty(preparedPath)) {
+			return;
+		}
+
+		if (pendingTasks.containsKey(preparedPath) || storedPaths.containsKey(preparedPath)) {
+			return;
+		}
+
+		PrepareTask task = new PrepareTask(preparedPath, createPrepareCallable(sourcePath, preparedPath, attachment.mimeType));
+		pendingTasks.put(preparedPath, task);
+		executor.execute(task);
+	}
+
+	private Callable<Boolean> createPrepareCallable(final String sourcePath, final String preparedPath, final String mimeType) {
+		return new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return prepareFile(sourcePath, preparedPath, mimeType);
+			}
+		};
+	}
+
+	/**
+	 * Cancels preparing an attachment which was removed from the composer and deletes the result.
+	 */
+	public void discard(ImageItem attachment) {
+		if (TextUtils.isEmpty(attachment.localCachePath)) {
+			return;
+		}
+
+		String storedPath;
+		synchronized (this) {
+			PrepareTask task = pendingTasks.remove(attachment.localCachePath);
+			if (task != null) {
+				task.cancel(true);
+			}
+
+			storedPath = storedPaths.remove(attachment.localCachePath);
+		}
+		new File(attachment.localCachePath).delete();
+
+		if (storedPath != null) {
+			deleteStoredFile(storedPath);
+		}
+	}
+
+	/**
+	 * Discards every attachment of the list.
+	 */
+	public void discard(List<ImageItem> attachments) {
+		for (ImageItem attachment : attachments) {
+			discard(attachment);
+		}
+	}
+
+	//endregion
+
+	//region Sending
+
+	/**
+	 * Runs the task once none of the files are being prepared: right away if nothing is pending,
+	 * otherwise on the conversation queue after the last of them finishes. Nothing waits for the
+	 * preparation in the meantime.
+	 */
+	public void whenPrepared(@Nullable Collection<StoredFile> files, DispatchTask task) {
+		synchronized (this) {
+			Set<String> pendingPaths = new HashSet<>();
+			if (files != null) {
+				for (StoredFile file : files) {
+					if (pendingTasks.containsKey(file.getLocalFilePath())) {
+						pendingPaths.add(file.getLocalFilePath());
+					}
+				}
+			}
+
+			if (pendingPaths.size() > 0) {
+				ApptentiveLog.v(MESSAGES, "Waiting for %d attachment(s) to be prepared", pendingPaths.size());
+				pendingCallbacks.add(new PendingCallback(pendingPaths, task));
+				return;
+			}
+		}
+
+		task.run();
+	}
+
+	/**
+	 * Points the files of a message being sent to their prepared copies and stops tracking them.
+	 * Should be called once the files are not pending anymore (see {@link #whenPrepared}).
+	 *
+	 * @return local paths of the files which can be sent as is
+	 */
+	public Set<String> release(@Nullable Collection<StoredFile> files) {
+		Set<String> preparedPaths = new HashSet<>();
+		if (files == null) {
+			return preparedPaths;
+		}
+
+		for (StoredFile file : files) {
+			String localCachePath = file.getLocalFilePath();
+			String storedPath;
+			synchronized (this) {
+				storedPath = storedPaths.remove(localCachePath);
+			}
+			if (storedPath == null || !new File(storedPath).exists()) {
+				continue;
+			}
+
+			if (!storedPath.equals(localCachePath)) {
+				// the file records were added with the local cache path
+				ApptentiveInternal.getInstance().getApptentiveTaskManager().updateLocalFilePath(localCachePath, storedPath);
+				file.setLocalFilePath(storedPath);
+			}
+			preparedPaths.add(storedPath);
+		}
+		return preparedPaths;
+	}
+
+	private void onTaskFinished(PrepareTask task) {
+		List<DispatchTask> readyTasks = new ArrayList<>();
+		synchronized (this) {
+			if (pendingTasks.get(task.preparedPath) == task) {
+				pendingTasks.remove(task.preparedPath);
+			}
+
+			Iterator<PendingCallback> iterator = pendingCallbacks.iterator();
+			while (iterator.hasNext()) {
+				PendingCallback callback = iterator.next();
+				callback.pendingPaths.remove(task.preparedPath);
+				if (callback.pendingPaths.isEmpty()) {
+					iterator.remove();
+					readyTasks.add(callback.task);
+				}
+			}
+		}
+
+		for (DispatchTask readyTask : readyTasks) {
+			dispatchOnConversationQueue(readyTask);
+		}
+	}
+
+	//endregion
+
+	//region Files
+
+	private boolean prepareFile(String sourcePath, String preparedPath, String mimeType) {
+		ApptentiveLog.v(MESSAGES, "Preparing attachment: %s", sourcePath);
+
+		// write into a temporary file so a partial result is never sent
+		File tempFile = new File(preparedPath + TEMP_FILE_SUFFIX);
+		boolean succeed;
+		if (Util.isMimeTypeImage(mimeType)) {
+			succeed = ImageUtil.createScaledDownImageCacheFile(sourcePath, tempFile.getPath());
+		} else {
+			succeed = copyFile(new File(sourcePath), tempFile);
+		}
+
+		if (!succeed || Thread.currentThread().isInterrupted()) {
+			tempFile.delete();
+			return false;
+		}
+
+		AttachmentStore store = getAttachmentStore();
+		if (store == null) {
+			// no store: keep the file at the local cache path
+			File preparedFile = new File(preparedPath);
+			if (tempFile.renameTo(preparedFile)) {
+				if (putStoredPath(preparedPath, preparedPath)) {
+					return true;
+				}
+				preparedFile.delete();
+				return false;
+			}
+			tempFile.delete();
+			return false;
+		}
+
+		try {
+			File storedFile = store.put(tempFile);
+			if (!putStoredPath(preparedPath, storedFile.getPath())) {
+				deleteStoredFile(storedFile.getPath());
+				return false;
+			}
+			ApptentiveLog.v(MESSAGES, "Attachment prepared: %s", storedFile);
+			return true;
+		} catch (IOException e) {
+			ApptentiveLog.w(MESSAGES, e, "Unable to store attachment: %s", preparedPath);
+			logException(e);
+			tempFile.delete();
+			return false;
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the attachment was discarded while being prepared
+	 */
+	private synchronized boolean putStoredPath(String preparedPath, String storedPath) {
+		if (!pendingTasks.containsKey(preparedPath)) {
+			return false;
+		}
+		storedPaths.put(preparedPath, storedPath);
+		return true;
+	}
+
+	private void deleteStoredFile(String storedPath) {
+		synchronized (this) {
+			if (storedPaths.containsValue(storedPath)) {
+				return; // another attachment in the composer has the same content
+			}
+		}
+
+		// the same content might be attached to a message
+		ApptentiveInternal.getInstance().getApptentiveTaskManager().deleteFileIfUnreferenced(storedPath);
+	}
+
+	private synchronized @Nullable AttachmentStore getAttachmentStore() {
+		if (attachmentStore == null) {
+			Context context = ApptentiveInternal.getInstance().getApplicationContext();
+			File cacheDir = context != null ? Util.getDiskCacheDir(context) : null;
+			if (cacheDir != null) {
+				attachmentStore = new AttachmentStore(new File(cacheDir, ATTACHMENTS_DIR));
+			}
+		}
+		return attachmentStore;
+	}
+
+	private static boolean copyFile(File source, File destination) {
+		OutputStream output = null;
+		try {
+			output = new BufferedOutputStream(new FileOutputStream(destination));
+			Util.appendFileToStream(source, output);
+			return true;
+		} catch (IOException e) {
+			ApptentiveLog.w(MESSAGES, e, "Unable to copy attachment: %s", source);
+			logException(e);
+			return false;
+		} finally {
+			Util.ensureClosed(output);
+		}
+	}
+
+	//endregion
+
+	//region Helper classes
+
+	private class PrepareTask extends FutureTask<Boolean> {
+		final String preparedPath;
+
+		PrepareTask(String preparedPath, Callable<Boolean> callable) {
+			super(callable);
+			this.preparedPath = preparedPath;
+		}
+
+		@Override
+		protected void done() {
+			onTaskFinished(this);
+		}
+	}
+
+	private static class PendingCallback {
+		final Set<String> pendingPaths;
+		final DispatchTask task;
+
+		PendingCallback(Set<String> pendingPaths, DispatchTask task) {
+			this.pendingPaths = pendingPaths;
+			this.task = task;
+		}
+	}
+
+	//endregion
+}
@@ -93,6 +93,11 @@ public class MessageManager implements Destroyable, ApptentiveNotificationObserv
 	private final AtomicBoolean appInForeground = new AtomicBoolean(false); // TODO: get rid of that
 	private final MessagePollingWorker pollingWorker;
 
+	/**
+	 * Prepares outgoing attachments while the message is being composed
+	 */
+	private final AttachmentPreprocessor attachmentPreprocessor = new AttachmentPreprocessor();
+
 	private final MessageDispatchTask toastMessageNotifierTask = new MessageDispatchTask() {
 		@Override
 		protected void execute(CompoundMessage message) {
@@ -223,9 +228,56 @@ public class MessageManager implements Destroyable, ApptentiveNotificationObserv
 		return messagesToShow;
 	}
 
-	public void sendMessage(ApptentiveMessage apptentiveMessage) {
+	/**
+	 * Returns up to <code>limit</code> Message Center items stored right before the message with
+	 * the specified nonce (or the latest items if <code>beforeNonce</code> is <code>null</code>).
+	 * Only the requested window is loaded from the store so long conversations can be paged in.
+	 */
+	public List<MessageCenterListItem> getMessageCenterListItems(@Nullable String beforeNonce, int limit) {
+		List<MessageCenterListItem> messagesToShow = new ArrayList<>();
+		try {
+			String nonce = beforeNonce;
+			while (messagesToShow.size() < limit) {
+				List<ApptentiveMessage> messages = messageStore.getMessagesBefore(nonce, limit - messagesToShow.size());
+				if (messages.isEmpty()) {
+					break;
+				}
+
+				// Do not display hidden messages on Message Center (keep loading until the page is full)
+				List<MessageCenterListItem> page = new ArrayList<>(messages.size());
+				for (ApptentiveMessage message : messages) {
+					if (!message.isHidden()) {
+						page.add(message);
+					}
+				}
+				messagesToShow.addAll(0, page);
+				nonce = messages.get(0).getNonce();
+			}
+		} catch (Exception e) {
+			ApptentiveLog.e(MESSAGES, "Error getting messages in worker thread");
+			logException(e);
+		}
+
+		return messagesToShow;
+	}
+
+	public void sendMessage(final ApptentiveMessage apptentiveMessage) {
 		messageStore.addOrUpdateMessages(apptentiveMessage);
-		conversation.addPayload(apptentiveMessage);
+
+		if (!(apptentiveMessage instanceof CompoundMessage)) {
+			conversation.addPayload(apptentiveMessage);
+			return;
+		}
+
+		// the payload is only enqueued once its attachments are ready so the storage queue never waits for them
+		final CompoundMessage compoundMessage = (CompoundMessage) apptentiveMessage;
+		attachmentPreprocessor.whenPrepared(compoundMessage.getAttachedFiles(), new DispatchTask() {
+			@Override
+			protected void execute() {
+				compoundMessage.setPreparedFilePaths(attachmentPreprocessor.release(compoundMessage.getAttachedFiles()));
+				conversation.addPayload(compoundMessage);
+			}
+		});
 	}
 
 	public void addMessages(ApptentiveMessage[] messages) {
@@ -283,6 +335,10 @@ public class MessageManager implements Destroyable, ApptentiveNotificationObserv
 		messageStore.updateMessage(apptentiveMessage);
 	}
 
+	public void updateMessages(List<ApptentiveMessage> apptentiveMessages) {
+		messageStore.updateMessages(apptentiveMessages.toArray(new ApptentiveMessage[apptentiveMessages.size()]));
+	}
+
 	public List<ApptentiveMessage> parseMessages(JSONObject root) throws JSONException {
 		List<ApptentiveMessage> ret = new ArrayList<>();
 		if (!root.isNull("messages")) {
@@ -620,6 +676,10 @@ public class MessageManager implements Destroyable, ApptentiveNotificationObserv
 		return messageStore;
 	}
 
+	public AttachmentPreprocessor getAttachmentPreprocessor() {
+		return attachmentPreprocessor;
+	}
+
 	public interface MessageFetchListener {
 		void onFetchFinish(MessageManager messageManager, List<ApptentiveMessage> messages);
 	}
@@ -692,11 +752,22 @@ public class MessageManager implements Destroyable, ApptentiveNotificationObserv
 			notifyChanged();
 		}
 
+		@Override
+		public void updateMessages(ApptentiveMessage... messages) {
+			target.updateMessages(messages);
+			notifyChanged();
+		}
+
 		@Override
 		public List<ApptentiveMessage> getAllMessages() throws Exception {
 			return target.getAllMessages();
 		}
 
+		@Override
+		public List<ApptentiveMessage> getMessagesBefore(String nonce, int limit) throws Exception {
+			return target.getMessagesBefore(nonce, limit);
+		}
+
 		@Override
 		public String getLastReceivedMessageId() throws Exception {
 			return target.getLastReceivedMessageId();
@@ -7,25 +7,22 @@
 package com.apptentive.android.sdk.module.messagecenter;
 
 
-import androidx.annotation.NonNull;
-
 import com.apptentive.android.sdk.ApptentiveInternal;
 import com.apptentive.android.sdk.ApptentiveLog;
 import com.apptentive.android.sdk.conversation.Conversation;
 import com.apptentive.android.sdk.model.ApptentiveMessage;
 import com.apptentive.android.sdk.model.Configuration;
+import com.apptentive.android.sdk.network.NetworkPolicy;
 import com.apptentive.android.sdk.notifications.ApptentiveNotificationCenter;
 import com.apptentive.android.sdk.util.Destroyable;
-import com.apptentive.android.sdk.util.threading.DispatchTask;
+import com.apptentive.android.sdk.util.threading.WorkScheduler;
 
 import java.util.List;
 
-import static com.apptentive.android.sdk.ApptentiveHelper.dispatchOnConversationQueueOnce;
 import static com.apptentive.android.sdk.ApptentiveLogTag.MESSAGES;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_INTERVAL;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_MESSAGES_STOPPED_POLLING;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_MESSAGES_STARTED_POLLING;
-import static com.apptentive.android.sdk.debug.Assert.assertTrue;
 
 class MessagePollingWorker implements Destroyable, MessageManager.MessageFetchListener {
 
@@ -35,7 +32,7 @@ class MessagePollingWorker implements Destroyable, MessageManager.MessageFetchLi
 	private final Configuration conf;
 	private boolean messageCenterInForeground;
 
-	private DispatchTask messagePollingTask;
+	private boolean polling;
 
 	MessagePollingWorker(MessageManager messageManager) {
 		if (messageManager == null) {
@@ -62,7 +59,7 @@ class MessagePollingWorker implements Destroyable, MessageManager.MessageFetchLi
 		if (isPolling()) {
 			long pollingInterval = getPollingInterval();
 			ApptentiveLog.v(MESSAGES, "Scheduled polling messages in %d sec", pollingInterval / 1000);
-			dispatchOnConversationQueueOnce(messagePollingTask, pollingInterval);
+			schedulePolling(pollingInterval);
 		}
 	}
 
@@ -101,8 +98,8 @@ class MessagePollingWorker implements Destroyable, MessageManager.MessageFetchLi
 
 		if (!isPolling()) {
 			ApptentiveLog.v(MESSAGES, "Start polling messages (%s)", getLocalConversationIdentifier());
-			messagePollingTask = createPollingTask();
-			dispatchOnConversationQueueOnce(messagePollingTask, 0L);
+			polling = true;
+			schedulePolling(0L);
 			notifyStartPolling(getPollingInterval());
 		}
 	}
@@ -110,8 +107,11 @@ class MessagePollingWorker implements Destroyable, MessageManager.MessageFetchLi
 	void stopPolling() {
 		if (isPolling()) {
 			ApptentiveLog.v(MESSAGES, "Stop polling messages (%s)", getLocalConversationIdentifier());
-			messagePollingTask.cancel();
-			messagePollingTask = null;
+			polling = false;
+			WorkScheduler scheduler = ApptentiveInternal.getInstance().getWorkScheduler();
+			if (scheduler != null) {
+				scheduler.cancel(getPollingJobTag());
+			}
 			notifyStopPolling();
 		}
 	}
@@ -147,15 +147,38 @@ class MessagePollingWorker implements Destroyable, MessageManager.MessageFetchLi
 	}
 
 	private boolean isPolling() {
-		return messagePollingTask != null;
+		return polling;
+	}
+
+	//region Scheduling
+
+	/**
+	 * Polling is deferred work: the request may run up to 20% of the interval later so it can share
+	 * a wake-up with other SDK jobs, and it waits for the network instead of failing while offline.
+	 */
+	private void schedulePolling(long delayMillis) {
+		WorkScheduler scheduler = ApptentiveInternal.getInstance().getWorkScheduler();
+		if (scheduler == null) {
+			ApptentiveLog.w(MESSAGES, "Unable to schedule polling messages: work scheduler is missing");
+			return;
+		}
+
+		scheduler.schedule(new WorkScheduler.Job(getPollingJobTag(), createPollingWork())
+			.setDelay(delayMillis, delayMillis + delayMillis / 5)
+			.setRequiredNetwork(NetworkPolicy.ANY));
+	}
+
+	private String getPollingJobTag() {
+		return "message_polling:" + getLocalConversationIdentifier();
 	}
 
-	@NonNull
-	private DispatchTask createPollingTask() {
-		return new DispatchTask() { // TODO: convert to ConversationDispatchTask
+	private Runnable createPollingWork() {
+		return new Runnable() {
 			@Override
-			protected void execute() {
-				assertTrue(isPolling(), "Not polling messages");
+			public void run() {
+				if (!isPolling()) {
+					return; // polling was stopped while the job was waiting to run
+				}
 
 				if (ApptentiveInternal.canShowMessageCenterInternal(getConversation())) {
 					ApptentiveLog.d(MESSAGES, "Checking server for new messages...");
@@ -166,4 +189,6 @@ class MessagePollingWorker implements Destroyable, MessageManager.MessageFetchLi
 			}
 		};
 	}
-}
\ No newline at end of file
+
+	//endregion
+}
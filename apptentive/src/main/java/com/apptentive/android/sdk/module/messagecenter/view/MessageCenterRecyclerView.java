@@ -8,6 +8,7 @@ package com.apptentive.android.sdk.module.messagecenter.view;
 
 import android.content.Context;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import android.util.AttributeSet;
 
@@ -27,22 +28,32 @@ public class MessageCenterRecyclerView extends RecyclerView {
 	}
 
 
-
-
-
 	public int getFirstVisiblePosition() {
-		return 0; // TODO
+		LayoutManager layoutManager = getLayoutManager();
+		if (layoutManager instanceof LinearLayoutManager) {
+			return ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+		}
+		return NO_POSITION;
 	}
 
 	public int getLastVisiblePosition() {
-		return 0; // TODO
+		LayoutManager layoutManager = getLayoutManager();
+		if (layoutManager instanceof LinearLayoutManager) {
+			return ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+		}
+		return NO_POSITION;
 	}
 
 	public void setSelection(int selection) {
-		return; // TODO
+		setSelectionFromTop(selection, 0);
 	}
 
 	public void setSelectionFromTop(int selection, int top) {
-		return; // TODO
+		LayoutManager layoutManager = getLayoutManager();
+		if (layoutManager instanceof LinearLayoutManager) {
+			((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(selection, top);
+		} else {
+			scrollToPosition(selection);
+		}
 	}
 }
@@ -6,7 +6,8 @@
 
 package com.apptentive.android.sdk.module.messagecenter.view;
 
-import android.os.AsyncTask;
+import android.content.Context;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -22,6 +23,7 @@ import com.apptentive.android.sdk.conversation.ConversationDispatchTask;
 import com.apptentive.android.sdk.debug.ErrorMetrics;
 import com.apptentive.android.sdk.model.ApptentiveMessage;
 import com.apptentive.android.sdk.model.CompoundMessage;
+import com.apptentive.android.sdk.module.engagement.EngagementModule;
 import com.apptentive.android.sdk.module.engagement.interaction.fragment.MessageCenterFragment;
 import com.apptentive.android.sdk.module.engagement.interaction.model.Interaction;
 import com.apptentive.android.sdk.module.engagement.interaction.model.MessageCenterInteraction;
@@ -41,8 +43,12 @@ import com.apptentive.android.sdk.module.messagecenter.view.holder.MessageCompos
 import com.apptentive.android.sdk.module.messagecenter.view.holder.OutgoingCompoundMessageHolder;
 import com.apptentive.android.sdk.module.messagecenter.view.holder.StatusHolder;
 import com.apptentive.android.sdk.module.messagecenter.view.holder.WhoCardHolder;
+import com.apptentive.android.sdk.util.image.ApptentiveAttachmentLoader;
 import com.apptentive.android.sdk.util.image.ImageItem;
+import com.apptentive.android.sdk.util.threading.DispatchQueue;
+import com.apptentive.android.sdk.util.threading.DispatchTask;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -67,20 +73,65 @@ public class MessageCenterRecyclerViewAdapter extends RecyclerView.Adapter {
 	RecyclerView recyclerView;
 	Interaction interaction;
 	List<MessageCenterListItem> listItems;
-	// maps to prevent redundant asynctasks
+	// read receipts might be flushed after the fragment is detached from its activity
+	private final Context applicationContext;
+	// messages which became visible and are waiting to be marked as read
 	private ArrayList<ApptentiveMessage> messagesWithPendingReadStatusUpdate = new ArrayList<ApptentiveMessage>();
 
+	// messages which became visible within this window are marked as read together
+	private static final long READ_STATUS_UPDATE_DELAY_MILLIS = 500;
+
+	private DispatchTask readStatusUpdateTask = createReadStatusUpdateTask();
+
 	public MessageCenterRecyclerViewAdapter(MessageCenterFragment fragment, OnListviewItemActionListener listener, Interaction interaction, List<MessageCenterListItem> listItems) {
 		this.fragment = fragment;
 		this.listener = listener;
 		this.interaction = interaction;
 		this.listItems = listItems;
+		this.applicationContext = fragment.getActivity().getApplicationContext();
 	}
 
+	// attachment downloads for the rows on the screen go first
+	private final RecyclerView.OnScrollListener visibleRangeListener = new RecyclerView.OnScrollListener() {
+		@Override
+		public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+			updateVisibleRange();
+		}
+	};
+
 	@Override
 	public void onAttachedToRecyclerView(RecyclerView recyclerView) {
 		super.onAttachedToRecyclerView(recyclerView);
 		this.recyclerView = recyclerView;
+		recyclerView.addOnScrollListener(visibleRangeListener);
+	}
+
+	@Override
+	public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+		super.onDetachedFromRecyclerView(recyclerView);
+		recyclerView.removeOnScrollListener(visibleRangeListener);
+		flushPendingReadStatusUpdates();
+	}
+
+	/**
+	 * Immediately marks the messages waiting for the batch window as read so the read receipts for
+	 * the messages the user has already seen are not lost when Message Center goes away.
+	 */
+	public void flushPendingReadStatusUpdates() {
+		if (readStatusUpdateTask.isScheduled()) {
+			readStatusUpdateTask.cancel();
+			readStatusUpdateTask = createReadStatusUpdateTask(); // the cancelled one might still be in the queue
+		}
+		flushReadStatusUpdates();
+	}
+
+	private DispatchTask createReadStatusUpdateTask() {
+		return new DispatchTask() {
+			@Override
+			protected void execute() {
+				flushReadStatusUpdates();
+			}
+		};
 	}
 
 	@Override
@@ -133,6 +184,7 @@ public class MessageCenterRecyclerViewAdapter extends RecyclerView.Adapter {
 
 	@Override
 	public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+		updateVisibleRange();
 		try {
 			switch (getItemViewType(position)) {
 				case MESSAGE_COMPOSER: {
@@ -162,18 +214,18 @@ public class MessageCenterRecyclerViewAdapter extends RecyclerView.Adapter {
 				case MESSAGE_INCOMING: {
 					CompoundMessage compoundMessage = (CompoundMessage) listItems.get(position);
 					IncomingCompoundMessageHolder compoundHolder = (IncomingCompoundMessageHolder) holder;
-					compoundHolder.bindView(fragment, recyclerView, this, compoundMessage);
+					compoundHolder.bindView(fragment, recyclerView, this, compoundMessage, position);
 					// Mark as read
 					if (!compoundMessage.isRead() && !messagesWithPendingReadStatusUpdate.contains(compoundMessage)) {
 						messagesWithPendingReadStatusUpdate.add(compoundMessage);
-						startUpdateUnreadMessageTask(compoundMessage);
+						DispatchQueue.mainQueue().dispatchAsyncOnce(readStatusUpdateTask, READ_STATUS_UPDATE_DELAY_MILLIS);
 					}
 					break;
 				}
 				case MESSAGE_OUTGOING: {
 					CompoundMessage compoundMessage = (CompoundMessage) listItems.get(position);
 					OutgoingCompoundMessageHolder compoundHolder = (OutgoingCompoundMessageHolder) holder;
-					compoundHolder.bindView(fragment, recyclerView, this, compoundMessage);
+					compoundHolder.bindView(fragment, recyclerView, this, compoundMessage, position);
 					break;
 				}
 				case MESSAGE_AUTO: {
@@ -210,6 +262,13 @@ public class MessageCenterRecyclerViewAdapter extends RecyclerView.Adapter {
 		}
 	}
 
+	@Override
+	public void onViewRecycled(RecyclerView.ViewHolder holder) {
+		super.onViewRecycled(holder);
+		// off-screen items should not hold attachment download slots
+		ApptentiveAttachmentLoader.getInstance().cancelLoads(holder.itemView);
+	}
+
 	@Override
 	public int getItemCount() {
 		return listItems.size();
@@ -221,11 +280,28 @@ public class MessageCenterRecyclerViewAdapter extends RecyclerView.Adapter {
 		return message.getListItemType();
 	}
 
+	private void updateVisibleRange() {
+		RecyclerView.LayoutManager layoutManager = recyclerView != null ? recyclerView.getLayoutManager() : null;
+		if (layoutManager instanceof LinearLayoutManager) {
+			LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+			ApptentiveAttachmentLoader.getInstance().setVisibleRange(linearLayoutManager.findFirstVisibleItemPosition(), linearLayoutManager.findLastVisibleItemPosition());
+		}
+	}
+
 	public String getWhoCardAvatarFileName() {
 		return null; // TODO
 	}
 
 	public void addImagestoComposer(MessageComposerHolder composer, List<ImageItem> images) {
+		// get attachments ready for sending while the user is still typing
+		final List<ImageItem> attachments = new ArrayList<>(images);
+		dispatchConversationTask(new ConversationDispatchTask() {
+			@Override
+			protected boolean execute(Conversation conversation) {
+				conversation.getMessageManager().getAttachmentPreprocessor().prepare(attachments);
+				return true;
+			}
+		}, "prepare attachments");
 		composer.addImagesToImageAttachmentBand(images);
 		composer.setSendButtonState();
 	}
@@ -241,55 +317,49 @@ public class MessageCenterRecyclerViewAdapter extends RecyclerView.Adapter {
 		return listener;
 	}
 
-	private void startUpdateUnreadMessageTask(CompoundMessage message) {
-		UpdateUnreadMessageTask task = new UpdateUnreadMessageTask(message);
-		task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, message);
-	}
-
-	private class UpdateUnreadMessageTask extends AsyncTask<ApptentiveMessage, Void, Void> {
-		private ApptentiveMessage message;
-
-		public UpdateUnreadMessageTask(ApptentiveMessage message) {
-			this.message = message;
+	/**
+	 * Marks all the messages which became visible since the last call as read with a single store
+	 * update, a single "read" event and a single unread count notification.
+	 */
+	private void flushReadStatusUpdates() {
+		if (messagesWithPendingReadStatusUpdate.isEmpty()) {
+			return;
 		}
 
-		@Override
-		protected Void doInBackground(ApptentiveMessage... messages) {
-			final ApptentiveMessage message = messages[0];
-			message.setRead(true);
-			JSONObject data = new JSONObject();
-			try {
-				data.put("message_id", message.getId());
-				data.put("message_type", message.getMessageType().name());
-			} catch (JSONException e) {
-				logException(e);
-			}
-			fragment.engageInternal(MessageCenterInteraction.EVENT_NAME_READ, data.toString());
-
-			dispatchConversationTask(new ConversationDispatchTask() {
-				@Override
-				protected boolean execute(Conversation conversation) {
-					MessageManager mgr = conversation.getMessageManager();
-					if (mgr != null) {
-						mgr.updateMessage(message);
-						mgr.notifyHostUnreadMessagesListeners(mgr.getUnreadMessageCount());
-					}
-					return false;
-				}
-			}, "update message");
+		final List<ApptentiveMessage> messages = new ArrayList<>(messagesWithPendingReadStatusUpdate);
+		messagesWithPendingReadStatusUpdate.clear();
 
-			return null;
+		JSONArray messageIds = new JSONArray();
+		for (ApptentiveMessage message : messages) {
+			message.setRead(true);
+			messageIds.put(message.getId());
 		}
 
-		@Override
-		protected void onCancelled() {
-			messagesWithPendingReadStatusUpdate.remove(message);
+		// keep the single message keys for the latest message and list all the messages read
+		ApptentiveMessage latestMessage = messages.get(messages.size() - 1);
+		JSONObject data = new JSONObject();
+		try {
+			data.put("message_id", latestMessage.getId());
+			data.put("message_type", latestMessage.getMessageType().name());
+			data.put("message_ids", messageIds);
+		} catch (JSONException e) {
+			logException(e);
 		}
+		final String eventData = data.toString();
 
-		@Override
-		protected void onPostExecute(Void result) {
-			messagesWithPendingReadStatusUpdate.remove(message);
-		}
+		dispatchConversationTask(new ConversationDispatchTask() {
+			@Override
+			protected boolean execute(Conversation conversation) {
+				EngagementModule.engageInternal(applicationContext, conversation, interaction, MessageCenterInteraction.EVENT_NAME_READ, eventData);
+
+				MessageManager mgr = conversation.getMessageManager();
+				if (mgr != null) {
+					mgr.updateMessages(messages);
+					mgr.notifyHostUnreadMessagesListeners(mgr.getUnreadMessageCount());
+				}
+				return false;
+			}
+		}, "update messages");
 	}
 
 	private void logException(Exception e) {
@@ -49,9 +49,10 @@ public class IncomingCompoundMessageHolder extends MessageHolder {
 		imageBandView = (ApptentiveImageGridView) itemView.findViewById(R.id.grid);
 	}
 
-	public void bindView(MessageCenterFragment fragment, final RecyclerView parent, final MessageCenterRecyclerViewAdapter adapter, final CompoundMessage message) {
+	public void bindView(MessageCenterFragment fragment, final RecyclerView parent, final MessageCenterRecyclerViewAdapter adapter, final CompoundMessage message, int position) {
 		super.bindView(fragment, parent, message);
 		imageBandView.setupUi();
+		imageBandView.setListPosition(position);
 		ImageUtil.startDownloadAvatarTask(avatar, message.getSenderProfilePhoto());
 
 		int widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(parent.getWidth(), View.MeasureSpec.EXACTLY);
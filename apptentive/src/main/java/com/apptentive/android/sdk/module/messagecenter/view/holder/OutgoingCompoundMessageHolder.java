@@ -23,6 +23,7 @@ import com.apptentive.android.sdk.util.image.ApptentiveImageGridView;
 import com.apptentive.android.sdk.util.image.ImageItem;
 import com.apptentive.android.sdk.view.ApptentiveMaterialIndeterminateProgressBar;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -47,9 +48,10 @@ public class OutgoingCompoundMessageHolder extends MessageHolder {
 		status = (TextView) itemView.findViewById(R.id.status);
 	}
 
-	public void bindView(MessageCenterFragment fragment, final RecyclerView recyclerView, final MessageCenterRecyclerViewAdapter adapter, final CompoundMessage message) {
+	public void bindView(MessageCenterFragment fragment, final RecyclerView recyclerView, final MessageCenterRecyclerViewAdapter adapter, final CompoundMessage message, int position) {
 		super.bindView(fragment, recyclerView, message);
 		imageBandView.setupUi();
+		imageBandView.setListPosition(position);
 
 		messageBodyView.setText(message.getBody());
 /*
@@ -98,7 +100,10 @@ public class OutgoingCompoundMessageHolder extends MessageHolder {
 			imageBandView.setAdapterItemSize(imagebandWidth, itemView.getResources().getInteger(R.integer.apptentive_image_grid_default_column_number));
 			List<ImageItem> images = new ArrayList<ImageItem>();
 			for (StoredFile file : files) {
-				images.add(new ImageItem(file.getSourceUriOrPath(), file.getLocalFilePath(), file.getMimeType(), file.getCreationTime()));
+				// identical attachments share the stored file: use it as the image source so they share thumbnails too
+				String localFilePath = file.getLocalFilePath();
+				String source = localFilePath != null && new File(localFilePath).exists() ? localFilePath : file.getSourceUriOrPath();
+				images.add(new ImageItem(source, localFilePath, file.getMimeType(), file.getCreationTime()));
 			}
 			imageBandView.setData(images);
 			imageBandView.setListener(new ApptentiveImageGridView.ImageItemClickedListener() {
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks the state of the network connection and notifies listeners when it changes.
+ */
+public abstract class ConnectivityMonitor {
+	private final List<Listener> listeners = new ArrayList<>();
+
+	/**
+	 * Returns <code>true</code> if there's an active network connection
+	 */
+	public abstract boolean isConnected();
+
+	/**
+	 * Returns <code>true</code> if there's an active network connection which is not metered
+	 */
+	public abstract boolean isConnectionUnmetered();
+
+	/**
+	 * Returns <code>true</code> if a request with the specified policy can use the current connection
+	 */
+	public boolean isSatisfied(NetworkPolicy policy) {
+		return policy == NetworkPolicy.UNMETERED ? isConnectionUnmetered() : isConnected();
+	}
+
+	//region Listeners
+
+	public synchronized void addListener(Listener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener is null");
+		}
+		if (!listeners.contains(listener)) {
+			listeners.add(listener);
+		}
+	}
+
+	public synchronized void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Should be called by subclasses when the connection state changes.
+	 */
+	protected void notifyConnectivityChanged() {
+		List<Listener> temp;
+		synchronized (this) {
+			temp = new ArrayList<>(listeners);
+		}
+		for (Listener listener : temp) {
+			listener.onConnectivityChanged(this);
+		}
+	}
+
+	//endregion
+
+	//region Listener
+
+	public interface Listener {
+		void onConnectivityChanged(ConnectivityMonitor monitor);
+	}
+
+	//endregion
+}
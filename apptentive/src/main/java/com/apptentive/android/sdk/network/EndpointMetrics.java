@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregated traffic and latency of the requests sent to a single endpoint. Not thread-safe: use
+ * {@link NetworkMetrics#getSnapshot()} to get a copy which can be safely read.
+ */
+public class EndpointMetrics {
+	private final String endpoint;
+	private long requestCount;
+	private long failureCount;
+	private long cancelledCount;
+	private long coalescedCount;
+	private long retryCount;
+	private long bytesSent;
+	private long bytesReceived;
+	private final Map<Integer, Long> responseCodeCounts;
+	private final LatencyHistogram totalTime;
+	private final LatencyHistogram queueWaitTime;
+	private final LatencyHistogram connectTime;
+	private final LatencyHistogram timeToFirstByte;
+
+	EndpointMetrics(String endpoint) {
+		this.endpoint = endpoint;
+		this.responseCodeCounts = new TreeMap<>();
+		this.totalTime = new LatencyHistogram();
+		this.queueWaitTime = new LatencyHistogram();
+		this.connectTime = new LatencyHistogram();
+		this.timeToFirstByte = new LatencyHistogram();
+	}
+
+	private EndpointMetrics(EndpointMetrics other) {
+		endpoint = other.endpoint;
+		requestCount = other.requestCount;
+		failureCount = other.failureCount;
+		cancelledCount = other.cancelledCount;
+		coalescedCount = other.coalescedCount;
+		retryCount = other.retryCount;
+		bytesSent = other.bytesSent;
+		bytesReceived = other.bytesReceived;
+		responseCodeCounts = new TreeMap<>(other.responseCodeCounts);
+		totalTime = other.totalTime.copy();
+		queueWaitTime = other.queueWaitTime.copy();
+		connectTime = other.connectTime.copy();
+		timeToFirstByte = other.timeToFirstByte.copy();
+	}
+
+	void record(HttpRequestTiming timing) {
+		++requestCount;
+		if (timing.isCancelled()) {
+			++cancelledCount;
+		} else if (!timing.isSuccessful()) {
+			++failureCount;
+		}
+
+		retryCount += timing.getRetryCount();
+		bytesSent += timing.getBytesSent();
+		bytesReceived += timing.getBytesReceived();
+
+		Long responseCodeCount = responseCodeCounts.get(timing.getResponseCode());
+		responseCodeCounts.put(timing.getResponseCode(), responseCodeCount != null ? responseCodeCount + 1 : 1L);
+
+		totalTime.record(timing.getTotalMillis());
+
+		// coalesced requests had no network call of their own
+		if (timing.isCoalesced()) {
+			++coalescedCount;
+		} else if (!timing.isCancelled()) {
+			queueWaitTime.record(timing.getQueueWaitMillis());
+			connectTime.record(timing.getConnectMillis());
+			timeToFirstByte.record(timing.getTimeToFirstByteMillis());
+		}
+	}
+
+	EndpointMetrics copy() {
+		return new EndpointMetrics(this);
+	}
+
+	//region Getters
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public long getRequestCount() {
+		return requestCount;
+	}
+
+	public long getFailureCount() {
+		return failureCount;
+	}
+
+	public long getCancelledCount() {
+		return cancelledCount;
+	}
+
+	/**
+	 * Number of requests served by an identical in-flight request
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount;
+	}
+
+	public long getRetryCount() {
+		return retryCount;
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * Number of responses for each HTTP status code (-1 for connection errors)
+	 */
+	public Map<Integer, Long> getResponseCodeCounts() {
+		return Collections.unmodifiableMap(responseCodeCounts);
+	}
+
+	public LatencyHistogram getTotalTime() {
+		return totalTime;
+	}
+
+	public LatencyHistogram getQueueWaitTime() {
+		return queueWaitTime;
+	}
+
+	public LatencyHistogram getConnectTime() {
+		return connectTime;
+	}
+
+	public LatencyHistogram getTimeToFirstByte() {
+		return timeToFirstByte;
+	}
+
+	//endregion
+}
@@ -12,6 +12,8 @@ import com.apptentive.android.sdk.Apptentive;
 import com.apptentive.android.sdk.ApptentiveLog;
 import com.apptentive.android.sdk.debug.ErrorMetrics;
 import com.apptentive.android.sdk.util.Constants;
+import com.apptentive.android.sdk.util.CountingInputStream;
+import com.apptentive.android.sdk.util.CountingOutputStream;
 import com.apptentive.android.sdk.util.StringUtils;
 import com.apptentive.android.sdk.util.Util;
 import com.apptentive.android.sdk.util.threading.DispatchQueue;
@@ -30,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
 import static com.apptentive.android.sdk.ApptentiveLog.Level.VERBOSE;
@@ -122,11 +125,32 @@ public class HttpRequest {
 	 */
 	private boolean cancelled;
 
+	/**
+	 * Flag indicating that the request was cancelled but its network call still runs for the
+	 * coalesced requests waiting for the response
+	 */
+	private boolean abandoned;
+
+	/**
+	 * Flag indicating if identical requests may share a single network call
+	 */
+	private boolean coalescingAllowed;
+
 	/**
 	 * Error message for the failed request
 	 */
 	private String errorMessage;
 
+	/**
+	 * Order in which the request is released when the network becomes available
+	 */
+	private HttpRequestPriority priority = HttpRequestPriority.NORMAL;
+
+	/**
+	 * Network type the request is allowed to use
+	 */
+	private NetworkPolicy networkPolicy = NetworkPolicy.ANY;
+
 	/**
 	 * Retry policy for this request
 	 */
@@ -142,6 +166,35 @@ public class HttpRequest {
 	 */
 	boolean retrying;
 
+	/**
+	 * Timestamps (nanoseconds) for the network metrics: request start, first attempt and finish
+	 */
+	private long startNanos;
+	private long firstSendNanos;
+	private long finishNanos;
+
+	/**
+	 * Durations (nanoseconds) of the last attempt for the network metrics
+	 */
+	private long connectNanos;
+	private long timeToFirstByteNanos;
+
+	/**
+	 * Body bytes sent and received by all the attempts
+	 */
+	private long bytesSent;
+	private long bytesReceived;
+
+	/**
+	 * How many times the request was sent
+	 */
+	private int attemptCount;
+
+	/**
+	 * Flag indicating that the response was copied from an identical request
+	 */
+	private boolean coalesced;
+
 	@SuppressWarnings("rawtypes")
 	private List<Listener> listeners;
 
@@ -176,7 +229,7 @@ public class HttpRequest {
 	@SuppressWarnings("unchecked")
 	private void finishRequest() {
 		try {
-			if (isSuccessful()) {
+			if (isSuccessful() && !isAbandoned()) {
 				for (Listener listener : listeners) {
 					try {
 						listener.onFinish(this);
@@ -185,7 +238,7 @@ public class HttpRequest {
 						logException(e);
 					}
 				}
-			} else if (isCancelled()) {
+			} else if (isCancelled() || isAbandoned()) {
 				for (Listener listener : listeners) {
 					try {
 						listener.onCancel(this);
@@ -231,13 +284,15 @@ public class HttpRequest {
 	void dispatchSync(DispatchQueue networkQueue) {
 		long requestStartTime = System.currentTimeMillis();
 
+		++attemptCount;
+		if (firstSendNanos == 0) {
+			firstSendNanos = System.nanoTime();
+		}
+		connectNanos = 0;
+		timeToFirstByteNanos = 0;
+
 		try {
 			sendRequestSync();
-		} catch (NetworkUnavailableException e) {
-			responseCode = -1; // indicates failure
-			errorMessage = e.getMessage();
-			ApptentiveLog.w(NETWORK, e.getMessage());
-			ApptentiveLog.w(NETWORK, "Cancelled? %b", isCancelled());
 		} catch (Exception e) {
 			responseCode = -1; // indicates failure
 			errorMessage = e.getMessage();
@@ -256,6 +311,18 @@ public class HttpRequest {
 			return;
 		}
 
+		finishNanos = System.nanoTime();
+
+		// identical requests waiting for this one receive the same response
+		requestManager.finishCoalescedRequests(this);
+
+		dispatchFinish();
+	}
+
+	/**
+	 * Notifies listeners on the callback queue (if any)
+	 */
+	void dispatchFinish() {
 		// use custom callback queue (if any)
 		if (callbackQueue != null) {
 			callbackQueue.dispatchAsync(new DispatchTask() {
@@ -282,43 +349,52 @@ public class HttpRequest {
 			}
 			retrying = false;
 
+			// cancelled while waiting for the network
+			if (isCancelled()) {
+				return;
+			}
+
 			connection = openConnection(url);
 			connection.setRequestMethod(method.toString());
 			connection.setConnectTimeout(connectTimeout);
 			connection.setReadTimeout(readTimeout);
 
-			if (!isNetworkConnectionPresent()) {
-				ApptentiveLog.d(NETWORK, "No network connection present. Request will fail.");
-				throw new NetworkUnavailableException("The network is not currently active.");
-			}
-
-			if (isCancelled()) {
-				return;
-			}
-
 			if (requestProperties != null && requestProperties.size() > 0) {
 				setupRequestProperties(connection, requestProperties);
 			}
 
+			byte[] requestData = null;
 			if (!HttpRequestMethod.GET.equals(method)) {
 				connection.setDoInput(true);
 				connection.setDoOutput(true);
 				connection.setUseCaches(false);
 
-				byte[] requestData = createRequestData();
-				if (requestData != null && requestData.length > 0) {
-					OutputStream outputStream = null;
-					try {
-						outputStream = connection.getOutputStream();
-						outputStream.write(requestData);
-					} finally {
-						Util.ensureClosed(outputStream);
+				requestData = createRequestData();
+			}
+
+			// connect explicitly so the connection time can be measured
+			long connectStartNanos = System.nanoTime();
+			connection.connect();
+			long connectedNanos = System.nanoTime();
+			connectNanos = connectedNanos - connectStartNanos;
+
+			if (requestData != null && requestData.length > 0) {
+				CountingOutputStream outputStream = null;
+				try {
+					outputStream = new CountingOutputStream(connection.getOutputStream());
+					outputStream.write(requestData);
+					outputStream.flush();
+				} finally {
+					Util.ensureClosed(outputStream);
+					if (outputStream != null) {
+						bytesSent += outputStream.getBytesWritten();
 					}
 				}
 			}
 
 			// send request
 			responseCode = connection.getResponseCode();
+			timeToFirstByteNanos = System.nanoTime() - connectedNanos;
 			ApptentiveLog.d(NETWORK, "Response %s: %d %s", url, responseCode, connection.getResponseMessage());
 
 			if (isCancelled()) {
@@ -358,10 +434,6 @@ public class HttpRequest {
 		}
 	}
 
-	protected boolean isNetworkConnectionPresent() {
-		return Util.isNetworkConnectionPresent();
-	}
-
 	//region Retry
 
 	private final DispatchTask retryDispatchTask = new DispatchTask() {
@@ -436,11 +508,14 @@ public class HttpRequest {
 		return false;
 	}
 
-	private static String readResponse(InputStream is, boolean gzipped) throws IOException {
+	private String readResponse(InputStream is, boolean gzipped) throws IOException {
 		if (is == null) {
 			return null;
 		}
 
+		// count the bytes which came over the network (before decompressing)
+		CountingInputStream countingStream = new CountingInputStream(is);
+		is = countingStream;
 		try {
 			if (gzipped) {
 				is = new GZIPInputStream(is);
@@ -448,6 +523,7 @@ public class HttpRequest {
 			return Util.readStringFromInputStream(is, "UTF-8");
 		} finally {
 			Util.ensureClosed(is);
+			bytesReceived += countingStream.getBytesRead();
 		}
 	}
 
@@ -465,10 +541,109 @@ public class HttpRequest {
 	/**
 	 * Marks request as cancelled
 	 */
-	public synchronized void cancel() {
+	public void cancel() {
+		// request manager decides if the network call should be cancelled as well
+		if (requestManager != null) {
+			requestManager.cancelRequest(this);
+		} else {
+			setCancelled();
+		}
+	}
+
+	synchronized void setCancelled() {
 		cancelled = true;
 	}
 
+	synchronized boolean isAbandoned() {
+		return abandoned;
+	}
+
+	synchronized void setAbandoned() {
+		abandoned = true;
+	}
+
+	//endregion
+
+	//region Coalescing
+
+	/**
+	 * Returns a key identifying identical requests which can share a single network call or
+	 * <code>null</code> if the request can't be coalesced (only idempotent GET requests can).
+	 */
+	String getCoalescingKey() {
+		if (!coalescingAllowed || !HttpRequestMethod.GET.equals(method)) {
+			return null;
+		}
+
+		Object authorization = requestProperties != null ? requestProperties.get("Authorization") : null;
+		return method + " " + urlString + " " + authorization;
+	}
+
+	/**
+	 * Takes the response of an identical request which performed the network call.
+	 */
+	void copyResponse(HttpRequest request) {
+		coalesced = true;
+		finishNanos = System.nanoTime();
+		responseCode = request.responseCode;
+		responseData = request.responseData;
+		responseHeaders = request.responseHeaders;
+		errorMessage = request.errorMessage;
+
+		if (isSuccessful()) {
+			try {
+				handleResponse(responseData);
+			} catch (Exception e) {
+				responseCode = -1; // indicates failure
+				errorMessage = e.getMessage();
+				ApptentiveLog.e(NETWORK, "Unable to handle coalesced response: %s", this);
+			}
+		}
+	}
+
+	//endregion
+
+	//region Metrics
+
+	/**
+	 * Marks the start of the request (for the network metrics)
+	 */
+	void markStarted() {
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Returns the timing breakdown and traffic of the request (should be called when it finishes)
+	 */
+	HttpRequestTiming getTiming() {
+		long endNanos = finishNanos != 0 ? finishNanos : System.nanoTime(); // finished without a network call
+		long queueWaitNanos = (firstSendNanos != 0 ? firstSendNanos : endNanos) - startNanos;
+		boolean cancelled = isCancelled() || isAbandoned();
+
+		return new HttpRequestTiming(getEndpointName(), method.name(), responseCode, isSuccessful() && !cancelled, cancelled, coalesced,
+			Math.max(0, attemptCount - 1),
+			TimeUnit.NANOSECONDS.toMillis(queueWaitNanos),
+			TimeUnit.NANOSECONDS.toMillis(connectNanos),
+			TimeUnit.NANOSECONDS.toMillis(timeToFirstByteNanos),
+			TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos),
+			bytesSent, bytesReceived);
+	}
+
+	/**
+	 * Returns the request name (endpoint template) or the URL path if the name is not set
+	 */
+	private String getEndpointName() {
+		if (name != null) {
+			return name;
+		}
+
+		try {
+			return new URL(urlString).getPath();
+		} catch (Exception e) {
+			return urlString;
+		}
+	}
+
 	//endregion
 
 	//region HTTP request properties
@@ -587,10 +762,43 @@ public class HttpRequest {
 		return tag;
 	}
 
+	public HttpRequestPriority getPriority() {
+		return priority;
+	}
+
+	public void setPriority(HttpRequestPriority priority) {
+		if (priority == null) {
+			throw new IllegalArgumentException("Priority is null");
+		}
+		this.priority = priority;
+	}
+
+	public NetworkPolicy getNetworkPolicy() {
+		return networkPolicy;
+	}
+
+	public void setNetworkPolicy(NetworkPolicy networkPolicy) {
+		if (networkPolicy == null) {
+			throw new IllegalArgumentException("Network policy is null");
+		}
+		this.networkPolicy = networkPolicy;
+	}
+
 	public void setTag(String tag) {
 		this.tag = tag;
 	}
 
+	public boolean isCoalescingAllowed() {
+		return coalescingAllowed;
+	}
+
+	/**
+	 * Allows an identical GET request which is already in-flight to serve this request.
+	 */
+	public void setCoalescingAllowed(boolean coalescingAllowed) {
+		this.coalescingAllowed = coalescingAllowed;
+	}
+
 	public void addListener(Listener<?> listener) {
 		if (listener == null) {
 			throw new IllegalArgumentException("Listener is null");
@@ -702,10 +910,4 @@ public class HttpRequest {
 	}
 
 	//endregion
-
-	public static class NetworkUnavailableException extends IOException {
-		public NetworkUnavailableException(String message) {
-			super(message);
-		}
-	}
 }
@@ -1,13 +1,18 @@
 package com.apptentive.android.sdk.network;
 
-import com.apptentive.android.sdk.util.StringUtils;
+import com.apptentive.android.sdk.ApptentiveLog;
 import com.apptentive.android.sdk.util.threading.DispatchQueue;
 import com.apptentive.android.sdk.util.threading.DispatchQueueType;
 import com.apptentive.android.sdk.util.threading.DispatchTask;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static com.apptentive.android.sdk.ApptentiveLogTag.NETWORK;
 import static com.apptentive.android.sdk.debug.Assert.*;
 
 /**
@@ -15,15 +20,35 @@ import static com.apptentive.android.sdk.debug.Assert.*;
  */
 public class HttpRequestManager {
 	/**
-	 * List of active requests (started but not yet finished)
+	 * Set of active requests (started but not yet finished)
 	 */
-	private List<HttpRequest> activeRequests;
+	private final Set<HttpRequest> activeRequests;
+
+	/**
+	 * Active requests indexed by tag
+	 */
+	private final Map<String, List<HttpRequest>> requestsByTag;
+
+	/**
+	 * In-flight coalesced executions indexed by the coalescing key
+	 */
+	private final Map<String, CoalescedExecution> executionsByKey;
+
+	/**
+	 * In-flight coalesced executions indexed by every request sharing them
+	 */
+	private final Map<HttpRequest, CoalescedExecution> executionsByRequest;
 
 	/**
 	 * Dispatch queue for blocking network operations
 	 */
 	private final DispatchQueue networkQueue;
 
+	/**
+	 * Holds back requests while the network is unavailable
+	 */
+	private final NetworkScheduler<HttpRequest> networkScheduler;
+
 	private Listener listener;
 	private HttpRequest.Injector requestInjector;
 
@@ -38,7 +63,16 @@ public class HttpRequestManager {
 			throw new IllegalArgumentException("Network queue is null");
 		}
 		this.networkQueue = networkQueue;
-		this.activeRequests = new ArrayList<>();
+		this.activeRequests = new LinkedHashSet<>();
+		this.requestsByTag = new HashMap<>();
+		this.executionsByKey = new HashMap<>();
+		this.executionsByRequest = new HashMap<>();
+		this.networkScheduler = new NetworkScheduler<>(new NetworkScheduler.Dispatcher<HttpRequest>() {
+			@Override
+			public void dispatch(HttpRequest request) {
+				dispatchRequestAsync(request);
+			}
+		});
 	}
 
 	//region Requests
@@ -55,17 +89,85 @@ public class HttpRequestManager {
 			request.setInjector(requestInjector);
 		}
 
+		request.markStarted();
 		registerRequest(request);
-		dispatchRequest(request);
+		if (!coalesceRequest(request)) {
+			dispatchRequest(request);
+		}
 		notifyRequestStarted(request);
 
 		return request;
 	}
 
 	/**
-	 * Handles request synchronously
+	 * Dispatches request on the network queue as soon as the network connection allows
+	 */
+	void dispatchRequest(HttpRequest request) {
+		if (!networkScheduler.schedule(request, request.getPriority(), request.getNetworkPolicy())) {
+			ApptentiveLog.d(NETWORK, "Network is not available: request is parked until the connection is restored: %s", request.getName());
+		}
+	}
+
+	/**
+	 * Cancels the request. A request sharing a coalesced execution only leaves it: the network call is
+	 * cancelled when the last request leaves.
 	 */
-	void dispatchRequest(final HttpRequest request) {
+	void cancelRequest(HttpRequest request) {
+		HttpRequest networkRequest = request;
+		boolean finishRequest = false;
+
+		synchronized (this) {
+			CoalescedExecution execution = executionsByRequest.get(request);
+			if (execution != null) {
+				if (request == execution.primaryRequest) {
+					execution.primaryCancelled = true;
+				} else {
+					executionsByRequest.remove(request);
+					execution.requests.remove(request);
+					finishRequest = true; // it doesn't wait for the network call anymore
+				}
+
+				if (execution.hasSubscribers()) {
+					networkRequest = null; // other requests still wait for the response
+					if (request == execution.primaryRequest) {
+						// the network call keeps running for the attached requests: only drop the primary's own callbacks
+						request.setAbandoned();
+						return;
+					}
+				} else {
+					executionsByKey.remove(execution.key);
+					executionsByRequest.remove(execution.primaryRequest);
+					networkRequest = execution.primaryRequest;
+				}
+			}
+		}
+
+		if (request != networkRequest) {
+			request.setCancelled();
+			if (finishRequest) {
+				request.dispatchFinish();
+			}
+		}
+
+		if (networkRequest != null) {
+			networkRequest.setCancelled();
+			releaseParkedRequest(networkRequest);
+		}
+	}
+
+	/**
+	 * Releases a parked request so it can finish (used when the request is cancelled)
+	 */
+	private void releaseParkedRequest(HttpRequest request) {
+		if (networkScheduler.remove(request)) {
+			dispatchRequestAsync(request);
+		}
+	}
+
+	/**
+	 * Schedules the request on the network queue
+	 */
+	private void dispatchRequestAsync(final HttpRequest request) {
 		networkQueue.dispatchAsync(new DispatchTask() {
 			@Override
 			protected void execute() {
@@ -93,6 +195,16 @@ public class HttpRequestManager {
 	synchronized void registerRequest(HttpRequest request) {
 		assertTrue(this == request.requestManager);
 		activeRequests.add(request);
+
+		String tag = request.getTag();
+		if (tag != null) {
+			List<HttpRequest> requests = requestsByTag.get(tag);
+			if (requests == null) {
+				requests = new ArrayList<>(1);
+				requestsByTag.put(tag, requests);
+			}
+			requests.add(request);
+		}
 	}
 
 	/**
@@ -103,6 +215,14 @@ public class HttpRequestManager {
 		boolean removed = activeRequests.remove(request);
 		assertTrue(removed, "Attempted to unregister missing request: %s", request);
 
+		String tag = request.getTag();
+		if (tag != null) {
+			List<HttpRequest> requests = requestsByTag.get(tag);
+			if (requests != null && requests.remove(request) && requests.isEmpty()) {
+				requestsByTag.remove(tag);
+			}
+		}
+
 		if (removed) {
 			notifyRequestFinished(request);
 		}
@@ -112,12 +232,62 @@ public class HttpRequestManager {
 	 * Returns a request with a specified tag or <code>null</code> is not found
 	 */
 	public synchronized HttpRequest findRequest(String tag) {
-		for (HttpRequest request : activeRequests) {
-			if (StringUtils.equal(request.getTag(), tag)) {
-				return request;
+		List<HttpRequest> requests = requestsByTag.get(tag);
+		return requests != null ? requests.get(0) : null;
+	}
+
+	//endregion
+
+	//region Coalescing
+
+	/**
+	 * Attaches the request to an identical in-flight request (if any) so they share a single network
+	 * call.
+	 *
+	 * @return <code>true</code> if the request was attached and should not be dispatched
+	 */
+	private synchronized boolean coalesceRequest(HttpRequest request) {
+		String key = request.getCoalescingKey();
+		if (key == null) {
+			return false;
+		}
+
+		CoalescedExecution execution = executionsByKey.get(key);
+		if (execution == null) {
+			execution = new CoalescedExecution(key, request);
+			executionsByKey.put(key, execution);
+			executionsByRequest.put(request, execution);
+			return false;
+		}
+
+		ApptentiveLog.v(NETWORK, "Request '%s' is attached to the in-flight request '%s'", request.getName(), execution.primaryRequest.getName());
+		execution.requests.add(request);
+		executionsByRequest.put(request, execution);
+		return true;
+	}
+
+	/**
+	 * Called when the network call of a request is done: requests sharing it receive the response.
+	 */
+	void finishCoalescedRequests(HttpRequest primaryRequest) {
+		List<HttpRequest> requests;
+		synchronized (this) {
+			CoalescedExecution execution = executionsByRequest.remove(primaryRequest);
+			if (execution == null || execution.primaryRequest != primaryRequest) {
+				return;
+			}
+
+			executionsByKey.remove(execution.key);
+			for (HttpRequest request : execution.requests) {
+				executionsByRequest.remove(request);
 			}
+			requests = execution.requests;
+		}
+
+		for (HttpRequest request : requests) {
+			request.copyResponse(primaryRequest);
+			request.dispatchFinish();
 		}
-		return null;
 	}
 
 	//endregion
@@ -158,10 +328,63 @@ public class HttpRequestManager {
 		this.listener = listener;
 	}
 
+	/**
+	 * Collects the metrics of every finished request (replaces the current listener)
+	 */
+	public void setNetworkMetrics(NetworkMetrics networkMetrics) {
+		setListener(networkMetrics != null ? networkMetrics.getRequestListener() : null);
+	}
+
 	public void setRequestInjector(HttpRequest.Injector requestInjector) {
 		this.requestInjector = requestInjector;
 	}
 
+	/**
+	 * Sets the source of the connection state (<code>null</code> - consider the device always online)
+	 */
+	public void setConnectivityMonitor(ConnectivityMonitor connectivityMonitor) {
+		networkScheduler.setConnectivityMonitor(connectivityMonitor);
+	}
+
+	public ConnectivityMonitor getConnectivityMonitor() {
+		return networkScheduler.getConnectivityMonitor();
+	}
+
+	//endregion
+
+	//region Coalesced execution
+
+	/**
+	 * Single network call shared by identical requests
+	 */
+	private static class CoalescedExecution {
+		final String key;
+
+		/**
+		 * Request performing the network call
+		 */
+		final HttpRequest primaryRequest;
+
+		/**
+		 * Requests waiting for the primary request response
+		 */
+		final List<HttpRequest> requests = new ArrayList<>();
+
+		/**
+		 * Primary request was cancelled while other requests still needed the response
+		 */
+		boolean primaryCancelled;
+
+		CoalescedExecution(String key, HttpRequest primaryRequest) {
+			this.key = key;
+			this.primaryRequest = primaryRequest;
+		}
+
+		boolean hasSubscribers() {
+			return !primaryCancelled || requests.size() > 0;
+		}
+	}
+
 	//endregion
 
 	//region Listener
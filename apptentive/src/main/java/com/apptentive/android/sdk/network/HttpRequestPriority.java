@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+/**
+ * Order in which parked requests are released when the network becomes available.
+ */
+public enum HttpRequestPriority {
+	LOW,
+	NORMAL,
+	HIGH
+}
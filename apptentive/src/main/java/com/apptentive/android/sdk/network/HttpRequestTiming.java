@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+/**
+ * Timing breakdown and traffic of a finished HTTP request. Durations are in milliseconds and
+ * describe the last attempt (except for the queue wait and the total time).
+ */
+public class HttpRequestTiming {
+	private final String endpoint;
+	private final String method;
+	private final int responseCode;
+	private final boolean successful;
+	private final boolean cancelled;
+	private final boolean coalesced;
+	private final int retryCount;
+	private final long queueWaitMillis;
+	private final long connectMillis;
+	private final long timeToFirstByteMillis;
+	private final long totalMillis;
+	private final long bytesSent;
+	private final long bytesReceived;
+
+	HttpRequestTiming(String endpoint, String method, int responseCode, boolean successful, boolean cancelled, boolean coalesced, int retryCount,
+	                  long queueWaitMillis, long connectMillis, long timeToFirstByteMillis, long totalMillis, long bytesSent, long bytesReceived) {
+		this.endpoint = endpoint;
+		this.method = method;
+		this.responseCode = responseCode;
+		this.successful = successful;
+		this.cancelled = cancelled;
+		this.coalesced = coalesced;
+		this.retryCount = retryCount;
+		this.queueWaitMillis = queueWaitMillis;
+		this.connectMillis = connectMillis;
+		this.timeToFirstByteMillis = timeToFirstByteMillis;
+		this.totalMillis = totalMillis;
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+	}
+
+	//region Getters
+
+	/**
+	 * Endpoint template (like <code>/conversations/%s/messages</code>) or a payload type
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * HTTP status code (-1 for connection errors)
+	 */
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	public boolean isSuccessful() {
+		return successful;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns <code>true</code> if the response came from an identical in-flight request (no network
+	 * traffic of its own)
+	 */
+	public boolean isCoalesced() {
+		return coalesced;
+	}
+
+	public int getRetryCount() {
+		return retryCount;
+	}
+
+	/**
+	 * Time from the request start until the first attempt was sent (includes waiting for the network)
+	 */
+	public long getQueueWaitMillis() {
+		return queueWaitMillis;
+	}
+
+	public long getConnectMillis() {
+		return connectMillis;
+	}
+
+	/**
+	 * Time from the connection until the response status was received
+	 */
+	public long getTimeToFirstByteMillis() {
+		return timeToFirstByteMillis;
+	}
+
+	/**
+	 * Time from the request start until it finished (includes retries)
+	 */
+	public long getTotalMillis() {
+		return totalMillis;
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	//endregion
+
+	@Override
+	public String toString() {
+		return String.format("%s %s: %d total=%d ms queue=%d ms connect=%d ms ttfb=%d ms sent=%d bytes received=%d bytes retries=%d%s",
+			method, endpoint, responseCode, totalMillis, queueWaitMillis, connectMillis, timeToFirstByteMillis, bytesSent, bytesReceived, retryCount,
+			coalesced ? " (coalesced)" : "");
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+/**
+ * Histogram of durations in milliseconds with fixed buckets (so it takes constant memory no matter
+ * how many values are recorded). Not thread-safe.
+ */
+public class LatencyHistogram {
+	/**
+	 * Upper bounds (inclusive) of the buckets: the last bucket holds everything above the last bound
+	 */
+	private static final long[] BUCKET_BOUNDS = { 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+	private final long[] bucketCounts;
+	private long count;
+	private long sum;
+	private long max;
+
+	public LatencyHistogram() {
+		bucketCounts = new long[BUCKET_BOUNDS.length + 1];
+	}
+
+	private LatencyHistogram(LatencyHistogram other) {
+		bucketCounts = other.bucketCounts.clone();
+		count = other.count;
+		sum = other.sum;
+		max = other.max;
+	}
+
+	public void record(long millis) {
+		if (millis < 0) {
+			millis = 0;
+		}
+
+		++bucketCounts[findBucket(millis)];
+		++count;
+		sum += millis;
+		max = Math.max(max, millis);
+	}
+
+	private static int findBucket(long millis) {
+		for (int i = 0; i < BUCKET_BOUNDS.length; ++i) {
+			if (millis <= BUCKET_BOUNDS[i]) {
+				return i;
+			}
+		}
+		return BUCKET_BOUNDS.length;
+	}
+
+	/**
+	 * Returns an upper estimate of the percentile: the bound of the bucket it falls into (or the
+	 * maximum recorded value for the last bucket).
+	 *
+	 * @param percentile - value in range [0..100]
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Invalid percentile: " + percentile);
+		}
+		if (count == 0) {
+			return 0;
+		}
+
+		long threshold = (long) Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_BOUNDS.length; ++i) {
+			seen += bucketCounts[i];
+			if (seen >= threshold && seen > 0) {
+				return Math.min(BUCKET_BOUNDS[i], max);
+			}
+		}
+		return max;
+	}
+
+	public LatencyHistogram copy() {
+		return new LatencyHistogram(this);
+	}
+
+	//region Getters
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMean() {
+		return count > 0 ? sum / count : 0;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns bucket upper bounds in milliseconds (the last bucket is unbounded)
+	 */
+	public static long[] getBucketBounds() {
+		return BUCKET_BOUNDS.clone();
+	}
+
+	/**
+	 * Returns the number of values in each bucket (one more than the number of bounds)
+	 */
+	public long[] getBucketCounts() {
+		return bucketCounts.clone();
+	}
+
+	//endregion
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.util.threading.DispatchQueue;
+import com.apptentive.android.sdk.util.threading.DispatchTask;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.NETWORK;
+import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
+
+/**
+ * Collects the timing breakdown and traffic of every finished request and aggregates them per
+ * endpoint. The host app can either pull a snapshot or receive each request as it finishes.
+ */
+public class NetworkMetrics {
+	private final Map<String, EndpointMetrics> endpoints = new LinkedHashMap<>();
+	private final HttpRequestManager.Listener requestListener = new RequestListener();
+	private Listener listener;
+
+	//region Metrics
+
+	void record(final HttpRequestTiming timing) {
+		final Listener listener;
+		synchronized (this) {
+			EndpointMetrics metrics = endpoints.get(timing.getEndpoint());
+			if (metrics == null) {
+				metrics = new EndpointMetrics(timing.getEndpoint());
+				endpoints.put(timing.getEndpoint(), metrics);
+			}
+			metrics.record(timing);
+			listener = this.listener;
+		}
+
+		ApptentiveLog.v(NETWORK, "Request finished: %s", timing);
+
+		// called while the request manager holds its lock: the host code should not run here
+		if (listener != null) {
+			DispatchQueue.mainQueue().dispatchAsync(new DispatchTask() {
+				@Override
+				protected void execute() {
+					try {
+						listener.onRequestFinish(timing);
+					} catch (Exception e) {
+						ApptentiveLog.e(NETWORK, e, "Exception in network metrics listener");
+						logException(e);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns a copy of the metrics keyed by endpoint.
+	 */
+	public synchronized Map<String, EndpointMetrics> getSnapshot() {
+		Map<String, EndpointMetrics> snapshot = new LinkedHashMap<>();
+		for (Map.Entry<String, EndpointMetrics> entry : endpoints.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().copy());
+		}
+		return snapshot;
+	}
+
+	synchronized void reset() {
+		endpoints.clear();
+	}
+
+	/**
+	 * Returns the metrics snapshot as a json object (for logging or uploading).
+	 */
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		try {
+			for (EndpointMetrics metrics : getSnapshot().values()) {
+				JSONObject responseCodes = new JSONObject();
+				for (Map.Entry<Integer, Long> entry : metrics.getResponseCodeCounts().entrySet()) {
+					responseCodes.put(String.valueOf(entry.getKey()), entry.getValue());
+				}
+
+				JSONObject endpoint = new JSONObject();
+				endpoint.put("requests", metrics.getRequestCount());
+				endpoint.put("failures", metrics.getFailureCount());
+				endpoint.put("cancelled", metrics.getCancelledCount());
+				endpoint.put("coalesced", metrics.getCoalescedCount());
+				endpoint.put("retries", metrics.getRetryCount());
+				endpoint.put("bytes_sent", metrics.getBytesSent());
+				endpoint.put("bytes_received", metrics.getBytesReceived());
+				endpoint.put("response_codes", responseCodes);
+				endpoint.put("total_ms", toJson(metrics.getTotalTime()));
+				endpoint.put("queue_wait_ms", toJson(metrics.getQueueWaitTime()));
+				endpoint.put("connect_ms", toJson(metrics.getConnectTime()));
+				endpoint.put("ttfb_ms", toJson(metrics.getTimeToFirstByte()));
+				json.put(metrics.getEndpoint(), endpoint);
+			}
+		} catch (JSONException e) {
+			ApptentiveLog.e(NETWORK, e, "Unable to create network metrics json");
+			logException(e);
+		}
+		return json;
+	}
+
+	private static JSONObject toJson(LatencyHistogram histogram) throws JSONException {
+		JSONArray bounds = new JSONArray();
+		for (long bound : LatencyHistogram.getBucketBounds()) {
+			bounds.put(bound);
+		}
+		JSONArray counts = new JSONArray();
+		for (long count : histogram.getBucketCounts()) {
+			counts.put(count);
+		}
+
+		JSONObject json = new JSONObject();
+		json.put("count", histogram.getCount());
+		json.put("mean", histogram.getMean());
+		json.put("p50", histogram.getPercentile(50));
+		json.put("p90", histogram.getPercentile(90));
+		json.put("p99", histogram.getPercentile(99));
+		json.put("max", histogram.getMax());
+		json.put("bucket_bounds", bounds);
+		json.put("bucket_counts", counts);
+		return json;
+	}
+
+	//endregion
+
+	//region HttpRequestManager.Listener
+
+	HttpRequestManager.Listener getRequestListener() {
+		return requestListener;
+	}
+
+	private class RequestListener implements HttpRequestManager.Listener {
+		@Override
+		public void onRequestStart(HttpRequestManager manager, HttpRequest request) {
+		}
+
+		@Override
+		public void onRequestFinish(HttpRequestManager manager, HttpRequest request) {
+			record(request.getTiming());
+		}
+
+		@Override
+		public void onRequestsCancel(HttpRequestManager manager) {
+		}
+	}
+
+	//endregion
+
+	//region Getters/Setters
+
+	/**
+	 * Sets a listener which receives the timing of every finished request (on the main queue).
+	 */
+	public synchronized void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	//endregion
+
+	//region Listener
+
+	public interface Listener {
+		void onRequestFinish(HttpRequestTiming timing);
+	}
+
+	//endregion
+}
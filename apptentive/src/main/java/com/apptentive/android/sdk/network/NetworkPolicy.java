@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+/**
+ * Network type a request is allowed to use.
+ */
+public enum NetworkPolicy {
+	/**
+	 * Any connected network
+	 */
+	ANY,
+
+	/**
+	 * Only a network which is not metered (Wi-Fi, etc)
+	 */
+	UNMETERED
+}
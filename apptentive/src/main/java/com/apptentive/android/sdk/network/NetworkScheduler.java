@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Holds back network work until the connection satisfies its {@link NetworkPolicy}. Parked items
+ * don't poll or retry: they are released by a connectivity change, higher priorities first (in the
+ * submission order within the same priority).
+ */
+public class NetworkScheduler<T> implements ConnectivityMonitor.Listener {
+	private final Dispatcher<T> dispatcher;
+	private final List<ParkedItem<T>> parkedItems = new ArrayList<>();
+	private ConnectivityMonitor connectivityMonitor;
+	private long nextSequence;
+
+	public NetworkScheduler(Dispatcher<T> dispatcher) {
+		if (dispatcher == null) {
+			throw new IllegalArgumentException("Dispatcher is null");
+		}
+		this.dispatcher = dispatcher;
+	}
+
+	//region Scheduling
+
+	/**
+	 * Dispatches the item right away if the connection satisfies the policy or parks it until it
+	 * does.
+	 *
+	 * @return <code>true</code> if the item was dispatched
+	 */
+	public boolean schedule(T item, HttpRequestPriority priority, NetworkPolicy policy) {
+		if (item == null) {
+			throw new IllegalArgumentException("Item is null");
+		}
+		if (priority == null) {
+			throw new IllegalArgumentException("Priority is null");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("Policy is null");
+		}
+
+		synchronized (this) {
+			if (!isSatisfied(policy)) {
+				parkedItems.add(new ParkedItem<>(item, priority, policy, nextSequence++));
+				return false;
+			}
+		}
+
+		dispatcher.dispatch(item);
+		return true;
+	}
+
+	/**
+	 * Removes a parked item without dispatching it.
+	 *
+	 * @return <code>true</code> if the item was parked
+	 */
+	public synchronized boolean remove(T item) {
+		Iterator<ParkedItem<T>> iterator = parkedItems.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().item == item) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Dispatches every parked item the current connection allows.
+	 */
+	public void releaseParkedItems() {
+		List<ParkedItem<T>> readyItems = new ArrayList<>();
+		synchronized (this) {
+			Iterator<ParkedItem<T>> iterator = parkedItems.iterator();
+			while (iterator.hasNext()) {
+				ParkedItem<T> parkedItem = iterator.next();
+				if (isSatisfied(parkedItem.policy)) {
+					readyItems.add(parkedItem);
+					iterator.remove();
+				}
+			}
+		}
+
+		Collections.sort(readyItems, RELEASE_ORDER);
+		for (ParkedItem<T> readyItem : readyItems) {
+			dispatcher.dispatch(readyItem.item);
+		}
+	}
+
+	public synchronized int getParkedCount() {
+		return parkedItems.size();
+	}
+
+	private boolean isSatisfied(NetworkPolicy policy) {
+		return connectivityMonitor == null || connectivityMonitor.isSatisfied(policy); // no monitor: assume we're online
+	}
+
+	//endregion
+
+	//region ConnectivityMonitor.Listener
+
+	@Override
+	public void onConnectivityChanged(ConnectivityMonitor monitor) {
+		releaseParkedItems();
+	}
+
+	//endregion
+
+	//region Getters/Setters
+
+	/**
+	 * Sets the source of the connection state (<code>null</code> - consider the device always online)
+	 */
+	public void setConnectivityMonitor(ConnectivityMonitor connectivityMonitor) {
+		synchronized (this) {
+			if (this.connectivityMonitor != null) {
+				this.connectivityMonitor.removeListener(this);
+			}
+			this.connectivityMonitor = connectivityMonitor;
+			if (connectivityMonitor != null) {
+				connectivityMonitor.addListener(this);
+			}
+		}
+		releaseParkedItems();
+	}
+
+	public synchronized ConnectivityMonitor getConnectivityMonitor() {
+		return connectivityMonitor;
+	}
+
+	//endregion
+
+	//region Parked item
+
+	private static final Comparator<ParkedItem<?>> RELEASE_ORDER = new Comparator<ParkedItem<?>>() {
+		@Override
+		public int compare(ParkedItem<?> o1, ParkedItem<?> o2) {
+			int result = o2.priority.compareTo(o1.priority);
+			return result != 0 ? result : (o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1));
+		}
+	};
+
+	private static class ParkedItem<T> {
+		final T item;
+		final HttpRequestPriority priority;
+		final NetworkPolicy policy;
+		final long sequence;
+
+		ParkedItem(T item, HttpRequestPriority priority, NetworkPolicy policy, long sequence) {
+			this.item = item;
+			this.priority = priority;
+			this.policy = policy;
+			this.sequence = sequence;
+		}
+	}
+
+	//endregion
+
+	//region Dispatcher
+
+	public interface Dispatcher<T> {
+		void dispatch(T item);
+	}
+
+	//endregion
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.network;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.NETWORK;
+import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
+
+/**
+ * {@link ConnectivityMonitor} backed by the system connectivity broadcasts. The state is cached so
+ * checking it doesn't need a system call.
+ */
+public class SystemConnectivityMonitor extends ConnectivityMonitor {
+	private final ConnectivityManager connectivityManager;
+
+	private volatile boolean connected;
+	private volatile boolean connectionUnmetered;
+
+	public SystemConnectivityMonitor(Context context) {
+		if (context == null) {
+			throw new IllegalArgumentException("Context is null");
+		}
+
+		connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+		updateState();
+
+		context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				try {
+					if (updateState()) {
+						ApptentiveLog.d(NETWORK, "Network connectivity changed: connected=%b unmetered=%b", connected, connectionUnmetered);
+						notifyConnectivityChanged();
+					}
+				} catch (Exception e) {
+					ApptentiveLog.e(NETWORK, e, "Exception while handling network connectivity change");
+					logException(e);
+				}
+			}
+		}, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+	}
+
+	/**
+	 * Reads the current connection state.
+	 *
+	 * @return <code>true</code> if the state has changed
+	 */
+	private synchronized boolean updateState() {
+		boolean oldConnected = connected;
+		boolean oldConnectionUnmetered = connectionUnmetered;
+
+		connected = false;
+		connectionUnmetered = false;
+		if (connectivityManager != null) {
+			NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+			if (activeNetwork != null && activeNetwork.isConnectedOrConnecting()) {
+				connected = true;
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+					connectionUnmetered = !connectivityManager.isActiveNetworkMetered();
+				} else {
+					connectionUnmetered = activeNetwork.getType() == ConnectivityManager.TYPE_WIFI;
+				}
+			}
+		}
+
+		return connected != oldConnected || connectionUnmetered != oldConnectionUnmetered;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return connected;
+	}
+
+	@Override
+	public boolean isConnectionUnmetered() {
+		return connectionUnmetered;
+	}
+}
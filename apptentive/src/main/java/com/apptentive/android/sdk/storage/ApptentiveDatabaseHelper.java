@@ -31,7 +31,11 @@ import com.apptentive.android.sdk.util.Util;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static com.apptentive.android.sdk.ApptentiveLog.hideIfSanitized;
 import static com.apptentive.android.sdk.ApptentiveLogTag.CONVERSATION;
@@ -47,7 +51,7 @@ import static com.apptentive.android.sdk.util.Constants.PAYLOAD_DATA_FILE_SUFFIX
  */
 public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
-	private static final int DATABASE_VERSION = 4;
+	private static final int DATABASE_VERSION = 5;
 	public static final String DATABASE_NAME = "apptentive";
 	private static final int TRUE = 1;
 	private static final int FALSE = 0;
@@ -55,6 +59,19 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
 	private final File payloadDataDir;
 	private final Encryption encryption;
+	private final PayloadQueueLimits payloadQueueLimits;
+
+	/**
+	 * Estimated size of the payload queue (refreshed on each trim): -1 if unknown
+	 */
+	private int pendingPayloadCount = -1;
+	private long pendingPayloadBytes;
+
+	/**
+	 * Decrypted conversation tokens for each local conversation id (a token is decrypted only once).
+	 * Mirrors the conversation credential table: <code>null</code> values mean there's no token.
+	 */
+	private final Map<String, String> conversationTokenCache = new HashMap<>();
 
 	//region Payload SQL
 
@@ -64,7 +81,7 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 		static final DatabaseColumn COLUMN_PAYLOAD_TYPE = new DatabaseColumn(1, "payloadType");
 		static final DatabaseColumn COLUMN_IDENTIFIER = new DatabaseColumn(2, "identifier");
 		static final DatabaseColumn COLUMN_CONTENT_TYPE = new DatabaseColumn(3, "contentType");
-		static final DatabaseColumn COLUMN_AUTH_TOKEN = new DatabaseColumn(4, "authToken");
+		static final DatabaseColumn COLUMN_AUTH_TOKEN = new DatabaseColumn(4, "authToken"); // no longer used: tokens are stored in the conversation credential table
 		static final DatabaseColumn COLUMN_CONVERSATION_ID = new DatabaseColumn(5, "conversationId");
 		static final DatabaseColumn COLUMN_REQUEST_METHOD = new DatabaseColumn(6, "requestMethod");
 		static final DatabaseColumn COLUMN_PATH = new DatabaseColumn(7, "path");
@@ -89,34 +106,74 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
 	static final String SQL_DELETE_PAYLOAD_TABLE = "DROP TABLE " + PayloadEntry.TABLE_NAME + ";";
 
+	// messages and survey responses go first, then person/device updates, then events (see PayloadPriority)
 	private static final String SQL_SELECT_PAYLOADS_IN_SEND_ORDER =
 		"SELECT * FROM " + PayloadEntry.TABLE_NAME +
+			" ORDER BY " + PayloadPriority.createSendOrderClause(PayloadEntry.COLUMN_PAYLOAD_TYPE.name, PayloadEntry.COLUMN_PRIMARY_KEY.name);
+
+	private static final String SQL_SELECT_PAYLOAD_IDENTIFIERS =
+		"SELECT " + PayloadEntry.COLUMN_IDENTIFIER + ", " + PayloadEntry.COLUMN_PAYLOAD_TYPE +
+			" FROM " + PayloadEntry.TABLE_NAME +
 			" ORDER BY " + PayloadEntry.COLUMN_PRIMARY_KEY +
 			" ASC";
 
 	private static final String SQL_UPDATE_INCOMPLETE_PAYLOADS =
 		"UPDATE " + PayloadEntry.TABLE_NAME + " SET " +
-			PayloadEntry.COLUMN_AUTH_TOKEN + " = ?, " +
 			PayloadEntry.COLUMN_CONVERSATION_ID + " = ? " +
 			"WHERE " +
 			PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID + " = ? AND " +
-			PayloadEntry.COLUMN_AUTH_TOKEN + " IS NULL AND " +
 			PayloadEntry.COLUMN_CONVERSATION_ID + " IS NULL";
 
 	private static final String SQL_UPDATE_LEGACY_PAYLOADS =
 			"UPDATE " + PayloadEntry.TABLE_NAME + " SET " +
-					PayloadEntry.COLUMN_AUTH_TOKEN + " = ?, " +
 					PayloadEntry.COLUMN_CONVERSATION_ID + " = ?, " +
 					PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID + " = ? " +
 					"WHERE " +
-					PayloadEntry.COLUMN_AUTH_TOKEN + " IS NULL AND " +
 					PayloadEntry.COLUMN_CONVERSATION_ID + " IS NULL";
 
+	// authenticated payloads keep their token in the body (none in the credential table), so they count as incomplete here as well
 	private static final String SQL_REMOVE_INCOMPLETE_PAYLOADS =
 		"DELETE FROM " + PayloadEntry.TABLE_NAME + " " +
 			"WHERE " +
-			PayloadEntry.COLUMN_AUTH_TOKEN + " IS NULL OR " +
-			PayloadEntry.COLUMN_CONVERSATION_ID + " IS NULL";
+			PayloadEntry.COLUMN_CONVERSATION_ID + " IS NULL OR " +
+			"NOT EXISTS (SELECT 1 FROM " + ConversationCredentialEntry.TABLE_NAME +
+			" WHERE " + ConversationCredentialEntry.TABLE_NAME + "." + ConversationCredentialEntry.COLUMN_LOCAL_CONVERSATION_ID +
+			" = " + PayloadEntry.TABLE_NAME + "." + PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID +
+			" AND " + ConversationCredentialEntry.TABLE_NAME + "." + ConversationCredentialEntry.COLUMN_AUTH_TOKEN + " IS NOT NULL)";
+
+	//endregion
+
+	//region Conversation Credential SQL
+
+	/**
+	 * Conversation tokens of anonymous conversations (one encrypted token per conversation instead of
+	 * one per payload)
+	 */
+	static final class ConversationCredentialEntry {
+		static final String TABLE_NAME = "conversation_credential";
+		static final DatabaseColumn COLUMN_LOCAL_CONVERSATION_ID = new DatabaseColumn(0, "localConversationId");
+		static final DatabaseColumn COLUMN_AUTH_TOKEN = new DatabaseColumn(1, "authToken");
+	}
+
+	static final String SQL_CREATE_CONVERSATION_CREDENTIAL_TABLE =
+		"CREATE TABLE IF NOT EXISTS " + ConversationCredentialEntry.TABLE_NAME +
+			" (" +
+			ConversationCredentialEntry.COLUMN_LOCAL_CONVERSATION_ID + " TEXT PRIMARY KEY, " +
+			ConversationCredentialEntry.COLUMN_AUTH_TOKEN + " BLOB" +
+			");";
+
+	static final String SQL_DELETE_CONVERSATION_CREDENTIAL_TABLE = "DROP TABLE IF EXISTS " + ConversationCredentialEntry.TABLE_NAME + ";";
+
+	private static final String SQL_SELECT_CONVERSATION_CREDENTIAL =
+		"SELECT " + ConversationCredentialEntry.COLUMN_AUTH_TOKEN +
+			" FROM " + ConversationCredentialEntry.TABLE_NAME +
+			" WHERE " + ConversationCredentialEntry.COLUMN_LOCAL_CONVERSATION_ID + " = ?";
+
+	private static final String SQL_DELETE_UNUSED_CONVERSATION_CREDENTIALS =
+		"DELETE FROM " + ConversationCredentialEntry.TABLE_NAME + " " +
+			"WHERE NOT EXISTS (SELECT 1 FROM " + PayloadEntry.TABLE_NAME +
+			" WHERE " + PayloadEntry.TABLE_NAME + "." + PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID +
+			" = " + ConversationCredentialEntry.TABLE_NAME + "." + ConversationCredentialEntry.COLUMN_LOCAL_CONVERSATION_ID + ")";
 
 	//endregion
 
@@ -195,17 +252,24 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 	// Query all files associated with a given compound message nonce id
 	private static final String QUERY_MESSAGE_FILES_GET_BY_NONCE = "SELECT * FROM " + TABLE_COMPOUND_MESSAGE_FILESTORE + " WHERE " + COMPOUND_FILESTORE_KEY_MESSAGE_NONCE + " = ?";
 
+	// Count file records pointing to a given local file
+	private static final String QUERY_MESSAGE_FILES_COUNT_BY_LOCAL_PATH = "SELECT COUNT(*) FROM " + TABLE_COMPOUND_MESSAGE_FILESTORE + " WHERE " + COMPOUND_FILESTORE_KEY_LOCAL_CACHE_PATH + " = ?";
+
 	// endregion
 
-	ApptentiveDatabaseHelper(Context context, Encryption encryption) {
+	ApptentiveDatabaseHelper(Context context, Encryption encryption, PayloadQueueLimits payloadQueueLimits) {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
 		if (encryption == null) {
 			throw new IllegalArgumentException("Encryption key is null");
 		}
+		if (payloadQueueLimits == null) {
+			throw new IllegalArgumentException("Payload queue limits are null");
+		}
 
 		this.fileDir = context.getFilesDir();
 		this.payloadDataDir = new File(fileDir, Constants.PAYLOAD_DATA_DIR);
 		this.encryption = encryption;
+		this.payloadQueueLimits = payloadQueueLimits;
 	}
 
 	//region Create & Upgrade
@@ -218,6 +282,7 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 	public void onCreate(SQLiteDatabase db) {
 		ApptentiveLog.d(DATABASE, "ApptentiveDatabase.onCreate(db)");
 		db.execSQL(SQL_CREATE_PAYLOAD_TABLE);
+		db.execSQL(SQL_CREATE_CONVERSATION_CREDENTIAL_TABLE);
 
 		// Leave legacy tables in place for now.
 		db.execSQL(TABLE_CREATE_MESSAGE);
@@ -237,12 +302,18 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 			if (migrator != null) {
 				migrator.onUpgrade(db, oldVersion, newVersion);
 			}
+
+			// older migrators produce the version 4 layout (tokens stored in payload rows)
+			if (oldVersion < 4) {
+				new DatabaseMigratorV4(encryption, payloadDataDir).onUpgrade(db, oldVersion, newVersion);
+			}
 		} catch (Exception e) {
 			ApptentiveLog.e(DATABASE, e, "Exception while trying to migrate database from %d to %d", oldVersion, newVersion);
 			logException(e);
 
 			// if migration failed - create new table
 			db.execSQL(SQL_DELETE_PAYLOAD_TABLE);
+			db.execSQL(SQL_DELETE_CONVERSATION_CREDENTIAL_TABLE);
 			onCreate(db);
 		}
 	}
@@ -255,6 +326,8 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 				return new DatabaseMigratorV2(encryption, payloadDataDir);
 			case 3:
 				return new DatabaseMigratorV3(encryption, payloadDataDir);
+			case 4:
+				return new DatabaseMigratorV4(encryption, payloadDataDir);
 		}
 
 		assertFail("Missing database migrator version: %d", oldVersion);
@@ -280,8 +353,8 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 			values.put(PayloadEntry.COLUMN_PAYLOAD_TYPE.name, notNull(payload.getPayloadType().name()));
 			values.put(PayloadEntry.COLUMN_CONTENT_TYPE.name, notNull(payload.getHttpRequestContentType()));
 			// The token is encrypted inside the payload body for authenticated conversations. In that case, don't store it here.
-			if (!payload.isAuthenticated()) {
-				values.put(PayloadEntry.COLUMN_AUTH_TOKEN.name, encrypt(payload.getConversationToken())); // might be null
+			if (!payload.isAuthenticated() && payload.getConversationToken() != null) {
+				saveConversationToken(db, notNull(payload.getLocalConversationIdentifier()), payload.getConversationToken()); // only encrypted when the token changes
 			}
 			values.put(PayloadEntry.COLUMN_CONVERSATION_ID.name, payload.getConversationId()); // might be null
 			values.put(PayloadEntry.COLUMN_REQUEST_METHOD.name, payload.getHttpRequestMethod().name());
@@ -298,12 +371,21 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
 			db.insert(PayloadEntry.TABLE_NAME, null, values);
 			db.setTransactionSuccessful();
+
+			if (pendingPayloadCount != -1) {
+				++pendingPayloadCount;
+				pendingPayloadBytes += dest.length();
+			}
 		} finally {
 			if (db != null) {
 				db.endTransaction();
 			}
 		}
 
+		if (pendingPayloadCount == -1 || payloadQueueLimits.isExceeded(pendingPayloadCount, pendingPayloadBytes)) {
+			trimPayloads();
+		}
+
 		if (ApptentiveLog.canLog(ApptentiveLog.Level.VERBOSE)) {
 			printPayloadTable("Added payload");
 		}
@@ -329,7 +411,14 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
 		// Then delete the data file
 		File dest = getPayloadBodyFile(payloadIdentifier);
-		ApptentiveLog.v(DATABASE, "Deleted payload \"%s\" data file successfully? %b", payloadIdentifier, dest.delete());
+		long size = dest.length();
+		boolean deleted = dest.delete();
+		ApptentiveLog.v(DATABASE, "Deleted payload \"%s\" data file successfully? %b", payloadIdentifier, deleted);
+
+		if (pendingPayloadCount > 0) {
+			--pendingPayloadCount;
+			pendingPayloadBytes = Math.max(0, pendingPayloadBytes - size);
+		}
 
 		if (ApptentiveLog.canLog(ApptentiveLog.Level.VERBOSE)) {
 			printPayloadTable("Deleted payload");
@@ -337,18 +426,126 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 	}
 
 	void deleteAllPayloads() {
-		// TODO: Delete files too.
 		SQLiteDatabase db;
 		try {
 			db = getWritableDatabase();
 			db.delete(PayloadEntry.TABLE_NAME, "", null);
+			db.delete(ConversationCredentialEntry.TABLE_NAME, "", null);
+			clearConversationTokenCache();
 		} catch (SQLException sqe) {
 			ApptentiveLog.e(DATABASE, "deleteAllPayloads EXCEPTION: " + sqe.getMessage());
 			logException(sqe);
+			return;
+		}
+
+		// the table is empty: every body file is an orphan now
+		deleteOrphanedPayloadFiles();
+		pendingPayloadCount = 0;
+		pendingPayloadBytes = 0;
+	}
+
+	/**
+	 * Drops the oldest evictable payloads if the queue exceeds its limits (see {@link PayloadQueueTrimmer}).
+	 */
+	void trimPayloads() {
+		List<PayloadQueueTrimmer.Entry> entries = new ArrayList<>();
+		Cursor cursor = null;
+		try {
+			SQLiteDatabase db = getWritableDatabase();
+			cursor = db.rawQuery(SQL_SELECT_PAYLOAD_IDENTIFIERS, null);
+			while (cursor.moveToNext()) {
+				String nonce = cursor.getString(0);
+				if (nonce == null) {
+					continue;
+				}
+				PayloadType payloadType = PayloadType.parse(cursor.getString(1));
+				File file = getPayloadBodyFile(nonce);
+				entries.add(new PayloadQueueTrimmer.Entry(nonce, PayloadQueueTrimmer.EvictionPolicy.of(payloadType), file.length(), file.lastModified()));
+			}
+		} catch (SQLException e) {
+			ApptentiveLog.e(DATABASE, e, "Exception while reading payload queue");
+			logException(e);
+			return;
+		} finally {
+			ensureClosed(cursor);
+		}
+
+		pendingPayloadCount = entries.size();
+		pendingPayloadBytes = 0;
+		for (PayloadQueueTrimmer.Entry entry : entries) {
+			pendingPayloadBytes += entry.size;
+		}
+
+		List<PayloadQueueTrimmer.Entry> evicted = PayloadQueueTrimmer.findPayloadsToEvict(entries, payloadQueueLimits, System.currentTimeMillis());
+		if (evicted.size() > 0) {
+			ApptentiveLog.w(PAYLOADS, "Payload queue exceeds its limits (%s): dropping %d payload(s)", payloadQueueLimits, evicted.size());
+			for (PayloadQueueTrimmer.Entry entry : evicted) {
+				deletePayload(entry.identifier);
+			}
+		}
+
+		if (payloadQueueLimits.isExceeded(pendingPayloadCount, pendingPayloadBytes)) {
+			ApptentiveLog.w(PAYLOADS, "Payload queue still exceeds its limits: %d payload(s), %d byte(s)", pendingPayloadCount, pendingPayloadBytes);
+		}
+	}
+
+	/**
+	 * Deletes payload body files which don't have a matching payload record.
+	 */
+	void deleteOrphanedPayloadFiles() {
+		File[] files = payloadDataDir.listFiles();
+		if (files == null || files.length == 0) {
+			return;
+		}
+
+		Set<String> identifiers = new HashSet<>();
+		Cursor cursor = null;
+		try {
+			SQLiteDatabase db = getWritableDatabase();
+			cursor = db.rawQuery(SQL_SELECT_PAYLOAD_IDENTIFIERS, null);
+			while (cursor.moveToNext()) {
+				identifiers.add(cursor.getString(0));
+			}
+		} catch (SQLException e) {
+			ApptentiveLog.e(DATABASE, e, "Exception while reading payload identifiers");
+			logException(e);
+			return; // don't delete anything if we're not sure
+		} finally {
+			ensureClosed(cursor);
+		}
+
+		int deletedCount = 0;
+		long deletedBytes = 0;
+		for (File file : files) {
+			String name = file.getName();
+			if (!name.endsWith(PAYLOAD_DATA_FILE_SUFFIX)) {
+				continue;
+			}
+
+			String nonce = name.substring(0, name.length() - PAYLOAD_DATA_FILE_SUFFIX.length());
+			if (!identifiers.contains(nonce)) {
+				long size = file.length();
+				if (file.delete()) {
+					++deletedCount;
+					deletedBytes += size;
+				}
+			}
+		}
+
+		if (deletedCount > 0) {
+			ApptentiveLog.i(PAYLOADS, "Deleted %d orphaned payload file(s) (%d byte(s))", deletedCount, deletedBytes);
 		}
 	}
 
 	PayloadData getOldestUnsentPayload() {
+		return getOldestUnsentPayload(null);
+	}
+
+	/**
+	 * Returns the next payload in the send order which is accepted by the filter (payloads which
+	 * are rejected stay in the queue and don't hold back the ones behind them).
+	 */
+	PayloadData getOldestUnsentPayload(PayloadFilter filter) {
 		if (ApptentiveLog.canLog(ApptentiveLog.Level.VERBOSE)) {
 			printPayloadTable("getOldestUnsentPayload");
 		}
@@ -370,8 +567,10 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
 				final String nonce = notNull(cursor.getString(PayloadEntry.COLUMN_IDENTIFIER.index));
 
+				final boolean authenticated = cursor.getInt(PayloadEntry.COLUMN_AUTHENTICATED.index) == TRUE;
+
 				// if we failed to decrypt auth token - delete it
-				final String authToken = tryDecryptString(cursor.getBlob(PayloadEntry.COLUMN_AUTH_TOKEN.index), "");
+				final String authToken = authenticated ? null : getConversationToken(db, cursor.getString(PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID.index));
 				if (authToken != null && authToken.length() == 0) {
 					ApptentiveLog.w(PAYLOADS, "Oldest unsent payload auth token can't be decrypted. Deleting...");
 					deletePayload(nonce);
@@ -398,7 +597,6 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
 				final String contentType = notNull(cursor.getString(PayloadEntry.COLUMN_CONTENT_TYPE.index));
 				final HttpRequestMethod httpRequestMethod = HttpRequestMethod.valueOf(notNull(cursor.getString(PayloadEntry.COLUMN_REQUEST_METHOD.index)));
-				final boolean authenticated = cursor.getInt(PayloadEntry.COLUMN_AUTHENTICATED.index) == TRUE;
 
 				byte[] data = tryReadFromFile(file, !authenticated); // only anonymous payloads get encrypted upon write (authenticated payloads get encrypted on serialization)
 				if (data == null) {
@@ -407,7 +605,13 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 					continue;
 				}
 
-				return new PayloadData(payloadType, nonce, conversationId, data, authToken, contentType, httpRequestPath, httpRequestMethod, authenticated);
+				PayloadData payload = new PayloadData(payloadType, nonce, conversationId, data, authToken, contentType, httpRequestPath, httpRequestMethod, authenticated);
+				if (filter != null && !filter.canSendPayload(payload)) {
+					ApptentiveLog.v(PAYLOADS, "Payload can't be sent yet. Skipping: %s", payload);
+					continue;
+				}
+
+				return payload;
 			}
 			return null;
 		} catch (Exception e) {
@@ -437,9 +641,16 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 		}
 		try {
 			SQLiteDatabase db = getWritableDatabase();
-			db.execSQL(legacyPayloads ? SQL_UPDATE_LEGACY_PAYLOADS : SQL_UPDATE_INCOMPLETE_PAYLOADS, new Object[] {
-				encrypt(authToken), conversationId, localConversationId
-			});
+			db.beginTransaction();
+			try {
+				saveConversationToken(db, localConversationId, authToken);
+				db.execSQL(legacyPayloads ? SQL_UPDATE_LEGACY_PAYLOADS : SQL_UPDATE_INCOMPLETE_PAYLOADS, new Object[] {
+					conversationId, localConversationId
+				});
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
 			ApptentiveLog.v(DATABASE, "Updated missing conversation ids");
 		} catch (Exception e) {
 			ApptentiveLog.e(e, "Exception while updating missing conversation ids");
@@ -471,20 +682,164 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 
 	//endregion
 
+	//region Conversation Credentials
+
+	/**
+	 * Should be called when a conversation logs in or out: drops tokens which are no longer used by
+	 * any payload and forgets the decrypted tokens.
+	 */
+	void invalidateConversationCredentials() {
+		try {
+			SQLiteDatabase db = getWritableDatabase();
+			db.execSQL(SQL_DELETE_UNUSED_CONVERSATION_CREDENTIALS);
+		} catch (SQLException e) {
+			ApptentiveLog.e(DATABASE, e, "Exception while deleting unused conversation credentials");
+			logException(e);
+		} finally {
+			clearConversationTokenCache();
+		}
+	}
+
+	/**
+	 * Stores the conversation token (a single row update when the token changes).
+	 */
+	private void saveConversationToken(SQLiteDatabase db, String localConversationId, String conversationToken) throws EncryptionException {
+		if (StringUtils.equal(getConversationToken(db, localConversationId), conversationToken)) {
+			return;
+		}
+
+		ContentValues values = new ContentValues();
+		values.put(ConversationCredentialEntry.COLUMN_LOCAL_CONVERSATION_ID.name, localConversationId);
+		values.put(ConversationCredentialEntry.COLUMN_AUTH_TOKEN.name, encrypt(conversationToken));
+		db.insertWithOnConflict(ConversationCredentialEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+		synchronized (conversationTokenCache) {
+			conversationTokenCache.put(localConversationId, conversationToken);
+		}
+		ApptentiveLog.v(DATABASE, "Updated token for conversation: %s", localConversationId);
+	}
+
+	/**
+	 * Returns the decrypted conversation token (each token is decrypted only once).
+	 *
+	 * @return <code>null</code> if there's no token or an empty string if it can't be decrypted
+	 */
+	private @Nullable String getConversationToken(SQLiteDatabase db, @Nullable String localConversationId) {
+		if (localConversationId == null) {
+			return null;
+		}
+
+		synchronized (conversationTokenCache) {
+			if (conversationTokenCache.containsKey(localConversationId)) {
+				return conversationTokenCache.get(localConversationId);
+			}
+		}
+
+		String conversationToken = null;
+		Cursor cursor = null;
+		try {
+			cursor = db.rawQuery(SQL_SELECT_CONVERSATION_CREDENTIAL, new String[] { localConversationId });
+			if (cursor.moveToFirst()) {
+				conversationToken = tryDecryptString(cursor.getBlob(0), "");
+			}
+		} finally {
+			ensureClosed(cursor);
+		}
+
+		synchronized (conversationTokenCache) {
+			conversationTokenCache.put(localConversationId, conversationToken);
+		}
+		return conversationToken;
+	}
+
+	private void clearConversationTokenCache() {
+		synchronized (conversationTokenCache) {
+			conversationTokenCache.clear();
+		}
+	}
+
+	//endregion
+
 	//region Files
 
+	/**
+	 * Deletes file records of the message. Attachment files are shared between messages with the same
+	 * content (see {@link AttachmentStore}) and are only deleted when the last record goes away.
+	 */
 	void deleteAssociatedFiles(String messageNonce) {
 		SQLiteDatabase db = null;
 		try {
+			List<StoredFile> associatedFiles = getAssociatedFiles(messageNonce);
+
 			db = getWritableDatabase();
 			int deleted = db.delete(TABLE_COMPOUND_MESSAGE_FILESTORE, COMPOUND_FILESTORE_KEY_MESSAGE_NONCE + " = ?", new String[]{messageNonce});
 			ApptentiveLog.d(DATABASE, "Deleted %d stored files.", deleted);
+
+			if (associatedFiles != null) {
+				for (StoredFile file : associatedFiles) {
+					deleteFileIfUnreferenced(file.getLocalFilePath());
+				}
+			}
 		} catch (SQLException sqe) {
 			ApptentiveLog.e(DATABASE, "deleteAssociatedFiles EXCEPTION: " + sqe.getMessage());
 			logException(sqe);
 		}
 	}
 
+	/**
+	 * Deletes a local attachment file unless a file record still points to it.
+	 */
+	void deleteFileIfUnreferenced(String localFilePath) {
+		if (StringUtils.isNullOrEmpty(localFilePath)) {
+			return;
+		}
+
+		int references = getFileReferenceCount(localFilePath);
+		if (references == 0) {
+			File file = new File(localFilePath);
+			if (file.delete()) {
+				ApptentiveLog.v(DATABASE, "Deleted unreferenced file: %s", localFilePath);
+			}
+		} else if (references > 0) {
+			ApptentiveLog.v(DATABASE, "File is still referenced %d time(s): %s", references, localFilePath);
+		}
+	}
+
+	/**
+	 * Returns the number of file records pointing to the local file (or <code>-1</code> if the number
+	 * can't be determined)
+	 */
+	int getFileReferenceCount(String localFilePath) {
+		Cursor cursor = null;
+		try {
+			SQLiteDatabase db = getReadableDatabase();
+			cursor = db.rawQuery(QUERY_MESSAGE_FILES_COUNT_BY_LOCAL_PATH, new String[]{localFilePath});
+			return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+		} catch (SQLException sqe) {
+			ApptentiveLog.e(DATABASE, "getFileReferenceCount EXCEPTION: " + sqe.getMessage());
+			logException(sqe);
+			return -1;
+		} finally {
+			ensureClosed(cursor);
+		}
+	}
+
+	/**
+	 * Points file records to a new local file (used when an attachment is moved to the {@link AttachmentStore})
+	 */
+	void updateLocalFilePath(String oldLocalFilePath, String newLocalFilePath) {
+		try {
+			SQLiteDatabase db = getWritableDatabase();
+			ContentValues values = new ContentValues();
+			values.put(COMPOUND_FILESTORE_KEY_LOCAL_CACHE_PATH, newLocalFilePath);
+			int updated = db.update(TABLE_COMPOUND_MESSAGE_FILESTORE, values, COMPOUND_FILESTORE_KEY_LOCAL_CACHE_PATH + " = ?", new String[]{oldLocalFilePath});
+			ApptentiveLog.v(DATABASE, "Updated %d stored file(s): %s", updated, newLocalFilePath);
+		} catch (SQLException sqe) {
+			ApptentiveLog.e(DATABASE, "updateLocalFilePath EXCEPTION: " + sqe.getMessage());
+			logException(sqe);
+		}
+	}
+
 	List<StoredFile> getAssociatedFiles(String nonce) {
 		SQLiteDatabase db = null;
 		Cursor cursor = null;
@@ -575,6 +930,7 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 	 */
 	void reset(Context context) {
 		context.deleteDatabase(DATABASE_NAME);
+		clearConversationTokenCache();
 	}
 
 	private @Nullable byte[] encrypt(@Nullable String value) throws EncryptionException {
@@ -643,6 +999,10 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 		}
 	}
 
+	interface PayloadFilter {
+		boolean canSendPayload(PayloadData payload);
+	}
+
 	//endregion
 
 	//region Debug
@@ -689,7 +1049,7 @@ public class ApptentiveDatabaseHelper extends SQLiteOpenHelper {
 						hideIfSanitized(cursor.getString(PayloadEntry.COLUMN_PATH.index)),
 						cursor.getInt(PayloadEntry.COLUMN_AUTHENTICATED.index),
 						cursor.getString(PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID.index),
-						hideIfSanitized(tryDecryptString(cursor.getBlob(PayloadEntry.COLUMN_AUTH_TOKEN.index), "<CORRUPTED>", false))
+						cursor.getInt(PayloadEntry.COLUMN_AUTHENTICATED.index) == TRUE ? null : hideIfSanitized(getConversationToken(db, cursor.getString(PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID.index)))
 				};
 			}
 			ApptentiveLog.v(PAYLOADS, "%s (%d payload(s)):\n%s", title, payloadCount, StringUtils.table(rows));
@@ -17,11 +17,14 @@ import com.apptentive.android.sdk.encryption.EncryptionKey;
 import com.apptentive.android.sdk.model.Payload;
 import com.apptentive.android.sdk.model.PayloadData;
 import com.apptentive.android.sdk.model.StoredFile;
+import com.apptentive.android.sdk.network.ConnectivityMonitor;
 import com.apptentive.android.sdk.network.HttpRequestRetryPolicyDefault;
+import com.apptentive.android.sdk.network.NetworkPolicy;
 import com.apptentive.android.sdk.notifications.ApptentiveNotification;
 import com.apptentive.android.sdk.notifications.ApptentiveNotificationCenter;
 import com.apptentive.android.sdk.notifications.ApptentiveNotificationObserver;
 import com.apptentive.android.sdk.util.threading.DispatchTask;
+import com.apptentive.android.sdk.util.threading.WorkScheduler;
 
 import org.json.JSONObject;
 
@@ -39,15 +42,21 @@ import static com.apptentive.android.sdk.ApptentiveLogTag.CONVERSATION;
 import static com.apptentive.android.sdk.ApptentiveLogTag.PAYLOADS;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_APP_ENTERED_BACKGROUND;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_APP_ENTERED_FOREGROUND;
+import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_BACKGROUND_FLUSH_DID_FINISH;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_CONVERSATION_STATE_DID_CHANGE;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_CONVERSATION;
+import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_DURATION;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_PAYLOAD;
+import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_PAYLOAD_COUNT;
+import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_REASON;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_RESPONSE_CODE;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_RESPONSE_DATA;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_KEY_SUCCESSFUL;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_PAYLOAD_DID_FINISH_SEND;
 import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_PAYLOAD_WILL_START_SEND;
 import static com.apptentive.android.sdk.conversation.ConversationState.ANONYMOUS;
+import static com.apptentive.android.sdk.conversation.ConversationState.LOGGED_IN;
+import static com.apptentive.android.sdk.conversation.ConversationState.LOGGED_OUT;
 import static com.apptentive.android.sdk.conversation.ConversationState.UNDEFINED;
 import static com.apptentive.android.sdk.debug.Assert.assertNotEquals;
 import static com.apptentive.android.sdk.debug.Assert.assertNotNull;
@@ -58,17 +67,33 @@ import static java.lang.Boolean.TRUE;
 
 public class ApptentiveTaskManager implements PayloadStore, EventStore, ApptentiveNotificationObserver, PayloadSender.Listener {
 
+	private static final String RETRY_SENDING_JOB_TAG = "payload_retry";
+
 	private final ApptentiveDatabaseHelper dbHelper;
 	private final ThreadPoolExecutor singleThreadExecutor; // TODO: replace with a private concurrent dispatch queue
 
 	private final PayloadSender payloadSender;
-	private boolean appInBackground = true;
+	private final ApptentiveDatabaseHelper.PayloadFilter sendablePayloadFilter;
+	private final PayloadDeliveryController deliveryController;
+	private final WorkScheduler workScheduler;
+	private final Runnable retrySendingWork;
+	private final BackgroundFlushWindow backgroundFlushWindow;
+	private volatile boolean appInBackground = true;
+	private boolean networkConnectionPresent;
 
 	/*
 	 * Creates an asynchronous task manager with one worker thread. This constructor must be invoked on the UI thread.
 	 */
-	public ApptentiveTaskManager(Context context, ApptentiveHttpClient apptentiveHttpClient, Encryption encryption) {
-		dbHelper = new ApptentiveDatabaseHelper(context, encryption);
+	public ApptentiveTaskManager(Context context, ApptentiveHttpClient apptentiveHttpClient, ConnectivityMonitor connectivityMonitor, WorkScheduler workScheduler, Encryption encryption, PayloadQueueLimits payloadQueueLimits, BackgroundFlushWindow backgroundFlushWindow) {
+		if (workScheduler == null) {
+			throw new IllegalArgumentException("Work scheduler is null");
+		}
+		if (backgroundFlushWindow == null) {
+			throw new IllegalArgumentException("Background flush window is null");
+		}
+		this.workScheduler = workScheduler;
+		this.backgroundFlushWindow = backgroundFlushWindow;
+		dbHelper = new ApptentiveDatabaseHelper(context, encryption, payloadQueueLimits);
 		/* When a new database task is submitted, the executor has the following behaviors:
 		 * 1. If the thread pool has no thread yet, it creates a single worker thread.
 		 * 2. If the single worker thread is running with tasks, it queues tasks.
@@ -83,16 +108,67 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 		// If no new task arrives in 30 seconds, the worker thread terminates; otherwise it will be reused
 		singleThreadExecutor.allowCoreThreadTimeOut(true);
 
+		// reconcile payload files with the database and enforce the queue limits
+		singleThreadExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					dbHelper.deleteOrphanedPayloadFiles();
+					dbHelper.trimPayloads();
+				} catch (Exception e) {
+					ApptentiveLog.e(PAYLOADS, e, "Exception while trimming payload queue");
+					logException(e);
+				}
+			}
+		});
+
 		// Create payload sender object with a custom 'retry' policy
-		payloadSender = new PayloadSender(apptentiveHttpClient, new HttpRequestRetryPolicyDefault() {
+		HttpRequestRetryPolicyDefault retryPolicy = new HttpRequestRetryPolicyDefault() {
 			@Override
 			public boolean shouldRetryRequest(int responseCode, int retryAttempt) {
 				return false; // don't use built-in retry logic for payloads since payload sender listener
 											// would handle it properly
 			}
-		});
+		};
+		payloadSender = new PayloadSender(apptentiveHttpClient, retryPolicy);
 		payloadSender.setListener(this);
 
+		// large payloads waiting for an unmetered network don't hold back the ones behind them
+		sendablePayloadFilter = new PayloadNetworkFilter(apptentiveHttpClient, connectivityMonitor);
+
+		// the same back-off math is used for re-sending failed payloads
+		deliveryController = new PayloadDeliveryController(retryPolicy);
+		retrySendingWork = new Runnable() {
+			@Override
+			public void run() {
+				singleThreadExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							ApptentiveLog.d(PAYLOADS, "Retrying sending payloads");
+							sendNextPayloadSync();
+						} catch (Exception e) {
+							ApptentiveLog.e(PAYLOADS, e, "Exception while trying to retry sending payloads");
+							logException(e);
+						}
+					}
+				});
+			}
+		};
+
+		networkConnectionPresent = connectivityMonitor.isConnected();
+		connectivityMonitor.addListener(new ConnectivityMonitor.Listener() {
+			@Override
+			public void onConnectivityChanged(final ConnectivityMonitor monitor) {
+				dispatchOnConversationQueue(new DispatchTask() {
+					@Override
+					protected void execute() {
+						onNetworkConnectivityChanged(monitor.isConnected());
+					}
+				});
+			}
+		});
+
 		ApptentiveNotificationCenter.defaultCenter()
 			.addObserver(NOTIFICATION_CONVERSATION_STATE_DID_CHANGE, this)
 			.addObserver(NOTIFICATION_APP_ENTERED_BACKGROUND, this)
@@ -151,7 +227,7 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 	}
 
 	private PayloadData getOldestUnsentPayloadSync() {
-		return dbHelper.getOldestUnsentPayload();
+		return dbHelper.getOldestUnsentPayload(sendablePayloadFilter);
 	}
 
 	public void deleteAssociatedFiles(final String messageNonce) {
@@ -168,6 +244,40 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 		});
 	}
 
+	/**
+	 * Points file records to a new local file.
+	 */
+	public void updateLocalFilePath(final String oldLocalFilePath, final String newLocalFilePath) {
+		singleThreadExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					dbHelper.updateLocalFilePath(oldLocalFilePath, newLocalFilePath);
+				} catch (Exception e) {
+					ApptentiveLog.e(PAYLOADS, e, "Exception while updating local file path: %s", newLocalFilePath);
+					logException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Deletes a local attachment file unless a file record still points to it.
+	 */
+	public void deleteFileIfUnreferenced(final String localFilePath) {
+		singleThreadExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					dbHelper.deleteFileIfUnreferenced(localFilePath);
+				} catch (Exception e) {
+					ApptentiveLog.e(PAYLOADS, e, "Exception while deleting file: %s", localFilePath);
+					logException(e);
+				}
+			}
+		});
+	}
+
 	public Future<List<StoredFile>> getAssociatedFiles(final String nonce) throws Exception {
 		return singleThreadExecutor.submit(new Callable<List<StoredFile>>() {
 			@Override
@@ -193,7 +303,7 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 	//region PayloadSender.Listener
 
 	@Override
-	public void onFinishSending(PayloadSender sender, PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData) {
+	public void onFinishSending(PayloadSender sender, PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData, long retryAfterMillis) {
 		ApptentiveNotificationCenter.defaultCenter()
 			.postNotification(NOTIFICATION_PAYLOAD_DID_FINISH_SEND,
 				NOTIFICATION_KEY_PAYLOAD, payload,
@@ -210,44 +320,58 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 			ApptentiveLog.e(PAYLOADS, "Payload sending failed: %s\n%s", payload, errorMessage);
 			if (appInBackground) {
 				ApptentiveLog.v(PAYLOADS, "The app went to the background so we won't remove the payload from the queue");
-				retrySending(5000);
+				retrySending(deliveryController.onFailure(retryAfterMillis));
 				return;
 			} else if (responseCode == -1) {
 				ApptentiveLog.v(PAYLOADS, "Payload failed to send due to a connection error.");
-				retrySending(5000);
+				retrySending(deliveryController.onFailure(retryAfterMillis));
 				return;
-			} else if (responseCode >= 500) {
+			} else if (responseCode >= 500 || responseCode == 429) {
 				ApptentiveLog.v(PAYLOADS, "Payload failed to send due to a server error.");
-				retrySending(5000);
+				retrySending(deliveryController.onFailure(retryAfterMillis));
 				return;
 			}
 		} else {
 			ApptentiveLog.v(PAYLOADS, "Payload was successfully sent: %s", payload);
 		}
 
+		// the server is reachable (even if the payload was rejected)
+		deliveryController.onSuccess();
+
 		// Only let the payload be deleted if it was successfully sent, or got an unrecoverable client error.
 		deletePayload(payload.getNonce());
 	}
 
 	private void retrySending(long delayMillis) {
-		ApptentiveLog.d(PAYLOADS, "Retry sending payloads in %d ms", delayMillis);
-		conversationQueue().dispatchAsync(new DispatchTask() {
-			@Override
-			protected void execute() {
-				singleThreadExecutor.execute(new Runnable() {
-					@Override
-					public void run() {
-						try {
-							ApptentiveLog.d(PAYLOADS, "Retrying sending payloads");
-							sendNextPayloadSync();
-						} catch (Exception e) {
-							ApptentiveLog.e(PAYLOADS, e, "Exception while trying to retry sending payloads");
-							logException(e);
-						}
-					}
-				});
-			}
-		}, delayMillis);
+		ApptentiveLog.d(PAYLOADS, "Retry sending payloads in %d ms (delivery state: %s)", delayMillis, deliveryController.getState());
+		scheduleRetrySending(delayMillis);
+	}
+
+	/**
+	 * Retries are deferred work: they can share a wake-up with other SDK jobs (up to 10% later) and
+	 * don't wake up the device while it's offline (a restored connection triggers sending anyway).
+	 */
+	private void scheduleRetrySending(long delayMillis) {
+		workScheduler.schedule(new WorkScheduler.Job(RETRY_SENDING_JOB_TAG, retrySendingWork)
+			.setDelay(delayMillis, delayMillis + delayMillis / 10)
+			.setRequiredNetwork(NetworkPolicy.ANY));
+	}
+
+	private void onNetworkConnectivityChanged(boolean connectionPresent) {
+		checkConversationQueue();
+
+		boolean connectionRestored = connectionPresent && !networkConnectionPresent;
+		networkConnectionPresent = connectionPresent;
+
+		if (connectionRestored) {
+			ApptentiveLog.d(PAYLOADS, "Network connection restored: resetting payload delivery back-off");
+			deliveryController.onConnectivityRestored();
+		}
+
+		// the new connection might also allow the payloads which were skipped
+		if (connectionPresent) {
+			sendNextPayload();
+		}
 	}
 
 	//endregion
@@ -268,7 +392,8 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 	}
 
 	private void sendNextPayloadSync() {
-		if (appInBackground) {
+		if (appInBackground && !backgroundFlushWindow.canSendPayload()) {
+			onBackgroundFlushFinished(backgroundFlushWindow.closeIfExhausted());
 			ApptentiveLog.v(PAYLOADS, "Can't send the next payload: the app is in the background");
 			return;
 		}
@@ -278,6 +403,14 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 			return;
 		}
 
+		if (!deliveryController.canSendPayload()) {
+			ApptentiveLog.v(PAYLOADS, "Can't send the next payload: backing off after delivery failures");
+			if (!workScheduler.isScheduled(RETRY_SENDING_JOB_TAG)) { // a retry might be already scheduled
+				scheduleRetrySending(deliveryController.getRemainingDelayMillis());
+			}
+			return;
+		}
+
 		final PayloadData payload;
 		try {
 			payload = getOldestUnsentPayloadSync();
@@ -295,6 +428,10 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 
 		// if payload sending was scheduled - notify the rest of the SDK
 		if (scheduled) {
+			if (appInBackground) {
+				backgroundFlushWindow.onPayloadSent();
+			}
+
 			dispatchOnConversationQueue(new DispatchTask() {
 				@Override
 				protected void execute() {
@@ -307,6 +444,47 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 
 	//endregion
 
+	//region Background Flush
+
+	private void startBackgroundFlush() {
+		if (!backgroundFlushWindow.open()) {
+			return;
+		}
+
+		ApptentiveLog.d(PAYLOADS, "Sending pending payloads in the background for up to %d ms (max %d payload(s))",
+			backgroundFlushWindow.getDurationMillis(), backgroundFlushWindow.getMaxPayloadCount());
+
+		// a new task each time: a timer from a previous window won't close this one (it's not exhausted yet)
+		conversationQueue().dispatchAsync(new DispatchTask() {
+			@Override
+			protected void execute() {
+				onBackgroundFlushFinished(backgroundFlushWindow.closeIfExhausted());
+			}
+		}, backgroundFlushWindow.getDurationMillis());
+
+		sendNextPayload();
+	}
+
+	private void onBackgroundFlushFinished(final BackgroundFlushWindow.Summary summary) {
+		if (summary == null) {
+			return;
+		}
+
+		ApptentiveLog.d(PAYLOADS, "Background flush finished: %s", summary);
+		dispatchOnConversationQueue(new DispatchTask() {
+			@Override
+			protected void execute() {
+				ApptentiveNotificationCenter.defaultCenter()
+					.postNotification(NOTIFICATION_BACKGROUND_FLUSH_DID_FINISH,
+						NOTIFICATION_KEY_REASON, summary.getReason(),
+						NOTIFICATION_KEY_PAYLOAD_COUNT, summary.getPayloadCount(),
+						NOTIFICATION_KEY_DURATION, summary.getDurationMillis());
+			}
+		});
+	}
+
+	//endregion
+
 	@Override
 	public void onReceiveNotification(ApptentiveNotification notification) {
 		checkConversationQueue();
@@ -340,11 +518,28 @@ public class ApptentiveTaskManager implements PayloadStore, EventStore, Apptenti
 					});
 				}
 			}
+
+			// tokens of the previous conversation are no longer needed unless its payloads are still pending
+			if (conversation.hasState(LOGGED_IN, LOGGED_OUT)) {
+				singleThreadExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							dbHelper.invalidateConversationCredentials();
+						} catch (Exception e) {
+							ApptentiveLog.e(CONVERSATION, e, "Exception while trying to invalidate conversation credentials");
+							logException(e);
+						}
+					}
+				});
+			}
 		} else if (notification.hasName(NOTIFICATION_APP_ENTERED_FOREGROUND)) {
 			appInBackground = false;
+			onBackgroundFlushFinished(backgroundFlushWindow.close(BackgroundFlushWindow.CloseReason.APP_ENTERED_FOREGROUND));
 			sendNextPayload(); // when the app comes back from the background - we need to resume sending payloads
 		} else if (notification.hasName(NOTIFICATION_APP_ENTERED_BACKGROUND)) {
 			appInBackground = true;
+			startBackgroundFlush(); // keep sending for a while (events like app exit were just queued)
 		}
 	}
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Content-addressed storage for message attachments: each file is named after the hash of its
+ * content so identical attachments are only stored once. Files are shared between all the
+ * <code>compound_message_file_store</code> rows pointing to them and are deleted when the last row
+ * goes away (see <code>ApptentiveDatabaseHelper.deleteAssociatedFiles</code>).
+ */
+public class AttachmentStore {
+	private static final String HASH_ALGORITHM = "SHA-1";
+
+	private final File storeDir;
+
+	public AttachmentStore(File storeDir) {
+		if (storeDir == null) {
+			throw new IllegalArgumentException("Store dir is null");
+		}
+		this.storeDir = storeDir;
+	}
+
+	/**
+	 * Moves a file into the store. If the store already has the same content, the file is deleted
+	 * and the existing copy is returned.
+	 *
+	 * @return stored file
+	 */
+	public synchronized File put(File file) throws IOException {
+		if (!file.exists()) {
+			throw new IOException("File does not exist: " + file);
+		}
+
+		if (!storeDir.exists() && !storeDir.mkdirs()) {
+			throw new IOException("Unable to create directory: " + storeDir);
+		}
+
+		File storedFile = new File(storeDir, hash(file));
+		if (storedFile.exists() && storedFile.length() == file.length()) {
+			file.delete(); // already stored
+			return storedFile;
+		}
+
+		if (!file.renameTo(storedFile)) {
+			throw new IOException("Unable to move file to the store: " + file);
+		}
+
+		return storedFile;
+	}
+
+	/**
+	 * Calculates a hash of the file content without loading it into memory.
+	 */
+	static String hash(File file) throws IOException {
+		return Util.hashFile(file, HASH_ALGORITHM);
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+/**
+ * Bounded window after the app enters the background during which pending payloads are still sent
+ * (so events like <code>app__exit</code> don't wait until the next foreground session). The window
+ * closes after a fixed time, after a fixed number of payloads or when the app comes back to the
+ * foreground. Nothing is sent in the background while the window is closed.
+ */
+public class BackgroundFlushWindow {
+	public static final long DEFAULT_DURATION_MILLIS = 10000;
+	public static final int DEFAULT_MAX_PAYLOAD_COUNT = 50;
+
+	public enum CloseReason {
+		TIMEOUT,
+		PAYLOAD_LIMIT_REACHED,
+		APP_ENTERED_FOREGROUND
+	}
+
+	private final long durationMillis;
+	private final int maxPayloadCount;
+
+	private long openTime = -1; // -1 if the window is closed
+	private int payloadCount;
+
+	/**
+	 * @param durationMillis - how long payloads are sent after the app enters the background (0 disables the window)
+	 * @param maxPayloadCount - how many payloads can be sent during the window (0 disables the window)
+	 */
+	public BackgroundFlushWindow(long durationMillis, int maxPayloadCount) {
+		if (durationMillis < 0) {
+			throw new IllegalArgumentException("Invalid duration: " + durationMillis);
+		}
+		if (maxPayloadCount < 0) {
+			throw new IllegalArgumentException("Invalid max payload count: " + maxPayloadCount);
+		}
+		this.durationMillis = durationMillis;
+		this.maxPayloadCount = maxPayloadCount;
+	}
+
+	//region Window
+
+	/**
+	 * Opens the window (restarts it if it's already open).
+	 *
+	 * @return <code>false</code> if the window is disabled
+	 */
+	public synchronized boolean open() {
+		if (!isEnabled()) {
+			return false;
+		}
+
+		openTime = currentTimeMillis();
+		payloadCount = 0;
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the window is open and neither the time nor the payload limit is exhausted.
+	 */
+	public synchronized boolean canSendPayload() {
+		return openTime != -1 && currentTimeMillis() - openTime < durationMillis && payloadCount < maxPayloadCount;
+	}
+
+	/**
+	 * Counts a payload sent while the window is open.
+	 */
+	public synchronized void onPayloadSent() {
+		if (openTime != -1) {
+			++payloadCount;
+		}
+	}
+
+	/**
+	 * Closes the window if it's open and one of its limits is exhausted.
+	 *
+	 * @return the summary of the closed window or <code>null</code> if nothing was closed
+	 */
+	public synchronized Summary closeIfExhausted() {
+		if (openTime == -1) {
+			return null;
+		}
+
+		if (payloadCount >= maxPayloadCount) {
+			return close(CloseReason.PAYLOAD_LIMIT_REACHED);
+		}
+		if (currentTimeMillis() - openTime >= durationMillis) {
+			return close(CloseReason.TIMEOUT);
+		}
+		return null;
+	}
+
+	/**
+	 * Closes the window.
+	 *
+	 * @return the summary of the closed window or <code>null</code> if the window was not open
+	 */
+	public synchronized Summary close(CloseReason reason) {
+		if (openTime == -1) {
+			return null;
+		}
+
+		Summary summary = new Summary(reason, payloadCount, currentTimeMillis() - openTime);
+		openTime = -1;
+		payloadCount = 0;
+		return summary;
+	}
+
+	//endregion
+
+	//region Getters
+
+	public boolean isEnabled() {
+		return durationMillis > 0 && maxPayloadCount > 0;
+	}
+
+	public synchronized boolean isOpen() {
+		return openTime != -1;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public int getMaxPayloadCount() {
+		return maxPayloadCount;
+	}
+
+	//endregion
+
+	//region Helpers
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	//endregion
+
+	//region Summary
+
+	/**
+	 * Describes a closed flush window
+	 */
+	public static class Summary {
+		private final CloseReason reason;
+		private final int payloadCount;
+		private final long durationMillis;
+
+		Summary(CloseReason reason, int payloadCount, long durationMillis) {
+			this.reason = reason;
+			this.payloadCount = payloadCount;
+			this.durationMillis = durationMillis;
+		}
+
+		public CloseReason getReason() {
+			return reason;
+		}
+
+		/**
+		 * Number of payloads sent while the window was open
+		 */
+		public int getPayloadCount() {
+			return payloadCount;
+		}
+
+		/**
+		 * How long the window was open
+		 */
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("reason=%s payloads=%d duration=%d ms", reason, payloadCount, durationMillis);
+		}
+	}
+
+	//endregion
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.Encryption;
+import com.apptentive.android.sdk.storage.ApptentiveDatabaseHelper.ConversationCredentialEntry;
+import com.apptentive.android.sdk.storage.ApptentiveDatabaseHelper.PayloadEntry;
+
+import java.io.File;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.DATABASE;
+import static com.apptentive.android.sdk.storage.ApptentiveDatabaseHelper.SQL_CREATE_CONVERSATION_CREDENTIAL_TABLE;
+
+/**
+ * Moves conversation tokens from the payload rows to the conversation credential table. Tokens
+ * are copied as encrypted blobs (nothing gets decrypted).
+ */
+class DatabaseMigratorV4 extends DatabaseMigrator {
+
+	// the latest payload of each conversation has the most recent token
+	private static final String SQL_COPY_CONVERSATION_TOKENS =
+		"INSERT OR REPLACE INTO " + ConversationCredentialEntry.TABLE_NAME +
+			" (" + ConversationCredentialEntry.COLUMN_LOCAL_CONVERSATION_ID + ", " + ConversationCredentialEntry.COLUMN_AUTH_TOKEN + ")" +
+			" SELECT " + PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID + ", " + PayloadEntry.COLUMN_AUTH_TOKEN +
+			" FROM " + PayloadEntry.TABLE_NAME +
+			" WHERE " + PayloadEntry.COLUMN_LOCAL_CONVERSATION_ID + " IS NOT NULL AND " + PayloadEntry.COLUMN_AUTH_TOKEN + " IS NOT NULL" +
+			" ORDER BY " + PayloadEntry.COLUMN_PRIMARY_KEY + " ASC";
+
+	private static final String SQL_CLEAR_PAYLOAD_TOKENS =
+		"UPDATE " + PayloadEntry.TABLE_NAME + " SET " + PayloadEntry.COLUMN_AUTH_TOKEN + " = NULL";
+
+	public DatabaseMigratorV4(Encryption encryption, File payloadDataDir) {
+		super(encryption, payloadDataDir);
+	}
+
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		try {
+			db.beginTransaction();
+
+			// 1. Create conversation credential table
+			ApptentiveLog.v(DATABASE, "\t1. Creating '%s' table...", ConversationCredentialEntry.TABLE_NAME);
+			db.execSQL(SQL_CREATE_CONVERSATION_CREDENTIAL_TABLE);
+
+			// 2. Copy tokens
+			ApptentiveLog.v(DATABASE, "\t2. Copying conversation tokens...");
+			db.execSQL(SQL_COPY_CONVERSATION_TOKENS);
+
+			// 3. Remove tokens from payloads
+			ApptentiveLog.v(DATABASE, "\t3. Removing tokens from '%s' table...", PayloadEntry.TABLE_NAME);
+			db.execSQL(SQL_CLEAR_PAYLOAD_TOKENS);
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+}
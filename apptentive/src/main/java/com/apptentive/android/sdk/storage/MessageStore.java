@@ -20,8 +20,20 @@ public interface MessageStore {
 
 	void updateMessage(ApptentiveMessage apptentiveMessage);
 
+	/**
+	 * Updates existing messages at once (messages missing from the store are ignored).
+	 */
+	void updateMessages(ApptentiveMessage... apptentiveMessages);
+
 	List<ApptentiveMessage> getAllMessages() throws Exception;
 
+	/**
+	 * Returns up to <code>limit</code> messages stored right before the message with the specified
+	 * nonce (or the latest messages if <code>nonce</code> is <code>null</code>) in the stored order.
+	 * Returns an empty list if the message is not found.
+	 */
+	List<ApptentiveMessage> getMessagesBefore(String nonce, int limit) throws Exception;
+
 	String getLastReceivedMessageId() throws Exception;
 
 	int getUnreadMessageCount() throws Exception;
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.network.HttpRequestRetryPolicy;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Decides when the next payload can be sent after delivery failures. Every consecutive failure
+ * doubles the retry delay (with jitter, see {@link HttpRequestRetryPolicy#getRetryTimeoutMillis(int)})
+ * and a server-provided <code>Retry-After</code> is never undercut. After too many consecutive
+ * failures the circuit "opens": nothing is sent until the delay elapses and then a single payload
+ * is sent as a probe - its result either closes the circuit or opens it again.
+ */
+public class PayloadDeliveryController {
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+	public enum State {
+		/**
+		 * Payloads are sent normally (a failure only delays the next attempt)
+		 */
+		CLOSED,
+
+		/**
+		 * Too many consecutive failures: nothing is sent until the retry delay elapses
+		 */
+		OPEN,
+
+		/**
+		 * The retry delay elapsed: the next payload is sent as a probe
+		 */
+		HALF_OPEN
+	}
+
+	private final HttpRequestRetryPolicy retryPolicy;
+	private final int failureThreshold;
+
+	private State state = State.CLOSED;
+	private int failureCount;
+	private long nextAttemptMillis;
+
+	public PayloadDeliveryController(HttpRequestRetryPolicy retryPolicy) {
+		this(retryPolicy, DEFAULT_FAILURE_THRESHOLD);
+	}
+
+	public PayloadDeliveryController(HttpRequestRetryPolicy retryPolicy, int failureThreshold) {
+		if (retryPolicy == null) {
+			throw new IllegalArgumentException("Retry policy is null");
+		}
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("Invalid failure threshold: " + failureThreshold);
+		}
+		this.retryPolicy = retryPolicy;
+		this.failureThreshold = failureThreshold;
+	}
+
+	//region Delivery
+
+	/**
+	 * Returns <code>true</code> if a payload can be sent right now. Moves an open circuit into the
+	 * half-open state once the retry delay elapses.
+	 */
+	public synchronized boolean canSendPayload() {
+		if (currentTimeMillis() < nextAttemptMillis) {
+			return false;
+		}
+
+		if (state == State.OPEN) {
+			state = State.HALF_OPEN;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the time in millis left until the next payload can be sent (0 if it can be sent now).
+	 */
+	public synchronized long getRemainingDelayMillis() {
+		return Math.max(0L, nextAttemptMillis - currentTimeMillis());
+	}
+
+	/**
+	 * Call when the server has received a payload (even if it rejected it permanently).
+	 */
+	public synchronized void onSuccess() {
+		state = State.CLOSED;
+		failureCount = 0;
+		nextAttemptMillis = 0L;
+	}
+
+	/**
+	 * Call when a payload could not be delivered and should be retried.
+	 *
+	 * @param retryAfterMillis - delay requested by the server (0 if not specified)
+	 * @return delay in millis before the next payload can be sent
+	 */
+	public synchronized long onFailure(long retryAfterMillis) {
+		++failureCount;
+
+		long delayMillis = Math.max(retryPolicy.getRetryTimeoutMillis(failureCount), retryAfterMillis);
+		nextAttemptMillis = currentTimeMillis() + delayMillis;
+
+		// a failed probe re-opens the circuit right away
+		if (state == State.HALF_OPEN || failureCount >= failureThreshold) {
+			state = State.OPEN;
+		}
+
+		return delayMillis;
+	}
+
+	/**
+	 * Call when the device goes back online: the failures were most likely caused by the missing
+	 * connection so the backoff is dropped. An open circuit still has to be closed by a probe.
+	 */
+	public synchronized void onConnectivityRestored() {
+		failureCount = 0;
+		nextAttemptMillis = 0L;
+		if (state == State.OPEN) {
+			state = State.HALF_OPEN;
+		}
+	}
+
+	//endregion
+
+	//region Retry-After
+
+	/**
+	 * Parses the value of the <code>Retry-After</code> response header which is either a number of
+	 * seconds or an HTTP-date.
+	 *
+	 * @return delay in millis or 0 if the value is missing or malformed
+	 */
+	public static long parseRetryAfterMillis(String value, long currentTimeMillis) {
+		if (value == null) {
+			return 0L;
+		}
+
+		// multi-value headers are stored as a list string: "[value]"
+		value = value.trim();
+		if (value.startsWith("[") && value.endsWith("]")) {
+			value = value.substring(1, value.length() - 1).trim();
+		}
+		if (value.length() == 0) {
+			return 0L;
+		}
+
+		try {
+			return Math.max(0L, Long.parseLong(value) * 1000L);
+		} catch (NumberFormatException e) {
+			// not a number - try a date
+		}
+
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		try {
+			Date date = format.parse(value);
+			return Math.max(0L, date.getTime() - currentTimeMillis);
+		} catch (ParseException e) {
+			return 0L;
+		}
+	}
+
+	//endregion
+
+	//region Getters
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized int getFailureCount() {
+		return failureCount;
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	//endregion
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.model.PayloadData;
+import com.apptentive.android.sdk.network.ConnectivityMonitor;
+import com.apptentive.android.sdk.network.NetworkPolicy;
+
+/**
+ * Skips the payloads which require a different network type than the current connection (a
+ * request for such payload would be parked and hold the payload sender until the network changes).
+ * Payloads which can use any network are always accepted: they're parked while the device is offline.
+ */
+class PayloadNetworkFilter implements ApptentiveDatabaseHelper.PayloadFilter {
+	private final PayloadRequestSender requestSender;
+	private final ConnectivityMonitor connectivityMonitor;
+
+	PayloadNetworkFilter(PayloadRequestSender requestSender, ConnectivityMonitor connectivityMonitor) {
+		if (requestSender == null) {
+			throw new IllegalArgumentException("Payload request sender is null");
+		}
+		if (connectivityMonitor == null) {
+			throw new IllegalArgumentException("Connectivity monitor is null");
+		}
+		this.requestSender = requestSender;
+		this.connectivityMonitor = connectivityMonitor;
+	}
+
+	@Override
+	public boolean canSendPayload(PayloadData payload) {
+		NetworkPolicy policy = requestSender.getNetworkPolicy(payload);
+		return policy == NetworkPolicy.ANY || connectivityMonitor.isSatisfied(policy);
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.model.PayloadType;
+
+/**
+ * Delivery lanes of the payload queue. Payloads are sent lane by lane (FIFO within a lane) so the
+ * user's messages don't wait behind hundreds of analytics events queued while offline.
+ */
+enum PayloadPriority {
+	HIGH,   // messages and survey responses
+	NORMAL, // person, device, sdk and app release updates
+	LOW;    // events and logout
+
+	/**
+	 * Aging rule: a payload can be overtaken by at most this many newer payloads of each higher lane
+	 * (so lower lanes never starve).
+	 */
+	static final int AGING_PAYLOAD_COUNT = 500;
+
+	static PayloadPriority of(PayloadType type) {
+		switch (type) {
+			case message:
+			case survey:
+				return HIGH;
+			case person:
+			case device:
+			case sdk:
+			case app_release:
+			case sdk_and_app_release:
+				return NORMAL;
+			default:
+				return LOW;
+		}
+	}
+
+	/**
+	 * Creates an SQL <code>ORDER BY</code> clause for the send order: lanes first, ties are broken by
+	 * the row id (insertion order).
+	 */
+	static String createSendOrderClause(String typeColumn, String idColumn) {
+		return createSendOrderExpression(typeColumn, idColumn) + " ASC, " + idColumn + " ASC";
+	}
+
+	/**
+	 * Creates an SQL expression which sorts payloads in the send order: row id (insertion order)
+	 * shifted by {@link #AGING_PAYLOAD_COUNT} for each lane below {@link #HIGH}.
+	 */
+	static String createSendOrderExpression(String typeColumn, String idColumn) {
+		StringBuilder expression = new StringBuilder();
+		expression.append("(").append(idColumn).append(" + CASE ").append(typeColumn);
+		for (PayloadType type : PayloadType.values()) {
+			PayloadPriority priority = of(type);
+			if (priority != LOW) {
+				expression.append(" WHEN '").append(type.name()).append("' THEN ").append(priority.getOrderOffset());
+			}
+		}
+		expression.append(" ELSE ").append(LOW.getOrderOffset()).append(" END)");
+		return expression.toString();
+	}
+
+	private int getOrderOffset() {
+		return ordinal() * AGING_PAYLOAD_COUNT;
+	}
+}
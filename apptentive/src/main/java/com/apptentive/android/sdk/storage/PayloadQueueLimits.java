@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of the pending payload queue. When a limit is exceeded the oldest evictable payloads are
+ * dropped (see {@link PayloadQueueTrimmer}): messages and survey responses are never dropped.
+ */
+public class PayloadQueueLimits {
+	public static final int DEFAULT_MAX_PAYLOAD_COUNT = 2000;
+	public static final long DEFAULT_MAX_PAYLOAD_BYTES = 20 * 1024 * 1024;
+	public static final long DEFAULT_MAX_PAYLOAD_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+	public static final PayloadQueueLimits DEFAULT = new PayloadQueueLimits(DEFAULT_MAX_PAYLOAD_COUNT, DEFAULT_MAX_PAYLOAD_BYTES, DEFAULT_MAX_PAYLOAD_AGE_MILLIS);
+
+	private final int maxPayloadCount;
+	private final long maxPayloadBytes;
+	private final long maxPayloadAgeMillis;
+
+	public PayloadQueueLimits(int maxPayloadCount, long maxPayloadBytes, long maxPayloadAgeMillis) {
+		if (maxPayloadCount <= 0) {
+			throw new IllegalArgumentException("Invalid max payload count: " + maxPayloadCount);
+		}
+		if (maxPayloadBytes <= 0) {
+			throw new IllegalArgumentException("Invalid max payload bytes: " + maxPayloadBytes);
+		}
+		if (maxPayloadAgeMillis <= 0) {
+			throw new IllegalArgumentException("Invalid max payload age: " + maxPayloadAgeMillis);
+		}
+		this.maxPayloadCount = maxPayloadCount;
+		this.maxPayloadBytes = maxPayloadBytes;
+		this.maxPayloadAgeMillis = maxPayloadAgeMillis;
+	}
+
+	boolean isExceeded(int payloadCount, long payloadBytes) {
+		return payloadCount > maxPayloadCount || payloadBytes > maxPayloadBytes;
+	}
+
+	//region Getters
+
+	public int getMaxPayloadCount() {
+		return maxPayloadCount;
+	}
+
+	public long getMaxPayloadBytes() {
+		return maxPayloadBytes;
+	}
+
+	public long getMaxPayloadAgeMillis() {
+		return maxPayloadAgeMillis;
+	}
+
+	//endregion
+
+	@Override
+	public String toString() {
+		return String.format("count=%d bytes=%d age=%d ms", maxPayloadCount, maxPayloadBytes, maxPayloadAgeMillis);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.model.PayloadType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which pending payloads should be dropped to keep the queue within its
+ * {@link PayloadQueueLimits}.
+ */
+final class PayloadQueueTrimmer {
+
+	/**
+	 * Eviction policy of a payload type (in the order payloads are dropped)
+	 */
+	enum EvictionPolicy {
+		DROP_FIRST, // events: dropped first (oldest first)
+		DROP_LAST,  // person/device/sdk/app release updates: dropped only if events are not enough
+		NEVER_DROP; // messages, survey responses and logouts
+
+		static EvictionPolicy of(PayloadType type) {
+			switch (type) {
+				case message:
+				case survey:
+				case logout:
+					return NEVER_DROP;
+				case person:
+				case device:
+				case sdk:
+				case app_release:
+				case sdk_and_app_release:
+					return DROP_LAST;
+				default:
+					return DROP_FIRST;
+			}
+		}
+	}
+
+	/**
+	 * Returns the payloads which should be dropped: evictable payloads older than the max age, then
+	 * the oldest evictable payloads (by policy) until the count and size are within the limits.
+	 *
+	 * @param entries - pending payloads in insertion order
+	 */
+	static List<Entry> findPayloadsToEvict(List<Entry> entries, PayloadQueueLimits limits, long now) {
+		Set<Entry> evicted = new LinkedHashSet<>();
+
+		int payloadCount = entries.size();
+		long payloadBytes = 0;
+		for (Entry entry : entries) {
+			payloadBytes += entry.size;
+		}
+
+		// expired payloads
+		long minCreationTime = now - limits.getMaxPayloadAgeMillis();
+		for (Entry entry : entries) {
+			if (entry.policy != EvictionPolicy.NEVER_DROP && entry.creationTime < minCreationTime) {
+				evicted.add(entry);
+				--payloadCount;
+				payloadBytes -= entry.size;
+			}
+		}
+
+		// count and size quotas
+		EvictionPolicy[] policies = { EvictionPolicy.DROP_FIRST, EvictionPolicy.DROP_LAST };
+		for (EvictionPolicy policy : policies) {
+			for (Entry entry : entries) {
+				if (!limits.isExceeded(payloadCount, payloadBytes)) {
+					break;
+				}
+				if (entry.policy == policy && evicted.add(entry)) {
+					--payloadCount;
+					payloadBytes -= entry.size;
+				}
+			}
+		}
+
+		return new ArrayList<>(evicted);
+	}
+
+	/**
+	 * Pending payload description
+	 */
+	static final class Entry {
+		final String identifier;
+		final EvictionPolicy policy;
+		final long size;
+		final long creationTime;
+
+		Entry(String identifier, EvictionPolicy policy, long size, long creationTime) {
+			this.identifier = identifier;
+			this.policy = policy;
+			this.size = size;
+			this.creationTime = creationTime;
+		}
+
+		@Override
+		public String toString() {
+			return identifier;
+		}
+	}
+}
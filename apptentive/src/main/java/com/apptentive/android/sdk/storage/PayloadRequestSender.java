@@ -8,6 +8,7 @@ package com.apptentive.android.sdk.storage;
 
 import com.apptentive.android.sdk.model.PayloadData;
 import com.apptentive.android.sdk.network.HttpRequest;
+import com.apptentive.android.sdk.network.NetworkPolicy;
 
 /**
  * Class responsible for creating a {@link HttpRequest} for a given payload
@@ -21,4 +22,9 @@ public interface PayloadRequestSender {
 	 * @param listener Http-request listener for the payload request
 	 */
 	HttpRequest createPayloadSendRequest(PayloadData payload, HttpRequest.Listener<HttpRequest> listener);
+
+	/**
+	 * Returns the network type the request for a given payload is allowed to use
+	 */
+	NetworkPolicy getNetworkPolicy(PayloadData payload);
 }
@@ -91,7 +91,7 @@ class PayloadSender {
 			}
 
 			// if an exception was thrown - mark payload as failed
-			handleFinishSendingPayload(payload, false, message, -1, null); // TODO: a better approach
+			handleFinishSendingPayload(payload, false, message, -1, null, 0L); // TODO: a better approach
 		}
 
 		return true;
@@ -111,19 +111,19 @@ class PayloadSender {
 				try {
 					String json = StringUtils.isNullOrEmpty(request.getResponseData()) ? "{}" : request.getResponseData();
 					final JSONObject responseData = new JSONObject(json);
-					handleFinishSendingPayload(payload, false, null, request.getResponseCode(), responseData);
+					handleFinishSendingPayload(payload, false, null, request.getResponseCode(), responseData, 0L);
 				} catch (Exception e) {
 					// TODO: Stop assuming the response is JSON. In fact, just send bytes back, and whatever part of the SDK needs it can try to convert it to the desired format.
 					ApptentiveLog.e(PAYLOADS, e, "Exception while handling payload send response");
 					logException(e);
 
-					handleFinishSendingPayload(payload, false, null, -1, null);
+					handleFinishSendingPayload(payload, false, null, -1, null, 0L);
 				}
 			}
 
 			@Override
 			public void onCancel(HttpRequest request) {
-				handleFinishSendingPayload(payload, true, null, request.getResponseCode(), null);
+				handleFinishSendingPayload(payload, true, null, request.getResponseCode(), null, 0L);
 			}
 
 			@Override
@@ -131,7 +131,8 @@ class PayloadSender {
 				if (request.isAuthenticationFailure()) {
 					ApptentiveNotificationCenter.defaultCenter().postNotification(NOTIFICATION_AUTHENTICATION_FAILED, NOTIFICATION_KEY_CONVERSATION_ID, payload.getConversationId(), NOTIFICATION_KEY_AUTHENTICATION_FAILED_REASON, request.getAuthenticationFailedReason());
 				}
-				handleFinishSendingPayload(payload, false, reason, request.getResponseCode(), null);
+				long retryAfterMillis = PayloadDeliveryController.parseRetryAfterMillis(request.getResponseHeader("Retry-After"), System.currentTimeMillis());
+				handleFinishSendingPayload(payload, false, reason, request.getResponseCode(), null, retryAfterMillis);
 			}
 		});
 
@@ -152,13 +153,14 @@ class PayloadSender {
 	 * @param errorMessage - if not <code>null</code> - payload request failed
 	 * @param responseCode - http-request response code
 	 * @param responseData - http-reqeust response json (or null if failed)
+	 * @param retryAfterMillis - retry delay requested by the server (or 0 if not specified)
 	 */
-	private synchronized void handleFinishSendingPayload(PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData) {
+	private synchronized void handleFinishSendingPayload(PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData, long retryAfterMillis) {
 		sendingFlag = false; // mark sender as 'not busy'
 
 		try {
 			if (listener != null) {
-				listener.onFinishSending(this, payload, cancelled, errorMessage, responseCode, responseData);
+				listener.onFinishSending(this, payload, cancelled, errorMessage, responseCode, responseData, retryAfterMillis);
 			}
 		} catch (Exception e) {
 			ApptentiveLog.e(e, "Exception while notifying payload listener");
@@ -186,7 +188,7 @@ class PayloadSender {
 	//region Listener
 
 	public interface Listener {
-		void onFinishSending(PayloadSender sender, PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData);
+		void onFinishSending(PayloadSender sender, PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData, long retryAfterMillis);
 	}
 
 	//endregion
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the number of bytes read from the wrapped InputStream.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private long bytesRead;
+
+	public CountingInputStream(InputStream is) {
+		super(is);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if (result != -1) {
+			bytesRead++;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int count) throws IOException {
+		int result = super.read(buffer, offset, count);
+		if (result > 0) {
+			bytesRead += result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long count) throws IOException {
+		long result = super.skip(count);
+		bytesRead += result;
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false; // re-reading would count the same bytes twice
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+}
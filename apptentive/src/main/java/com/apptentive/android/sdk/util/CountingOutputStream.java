@@ -31,8 +31,7 @@ public class CountingOutputStream extends BufferedOutputStream {
 
 	@Override
 	public void write(byte[] buffer) throws IOException {
-		bytesWritten += buffer.length;
-		super.write(buffer);
+		write(buffer, 0, buffer.length); // counted there (the super class would call it anyway)
 	}
 
 	@Override
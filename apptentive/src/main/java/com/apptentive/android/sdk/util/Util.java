@@ -164,6 +164,29 @@ public class Util {
 		return false;
 	}
 
+	/**
+	 * Returns <code>true</code> if there's an active network connection which is not metered (so it's
+	 * fine to use it for optional downloads).
+	 */
+	public static boolean isNetworkConnectionUnmetered() {
+		Context context = ApptentiveInternal.getInstance().getApplicationContext();
+		if (context == null) {
+			return false;
+		}
+
+		ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+		if (cm != null) {
+			NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+			if (activeNetwork != null && activeNetwork.isConnected()) {
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+					return !cm.isActiveNetworkMetered();
+				}
+				return activeNetwork.getType() == ConnectivityManager.TYPE_WIFI;
+			}
+		}
+		return false;
+	}
+
 	public static void ensureClosed(Closeable stream) {
 		if (stream != null) {
 			try {
@@ -174,6 +197,38 @@ public class Util {
 		}
 	}
 
+	/**
+	 * Calculates a hex-encoded digest of the file content without loading it into memory.
+	 *
+	 * @param algorithm - digest algorithm name (e.g. "SHA-1" or "MD5")
+	 */
+	public static String hashFile(File file, String algorithm) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage());
+		}
+
+		InputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, count);
+			}
+		} finally {
+			ensureClosed(input);
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (byte b : digest.digest()) {
+			result.append(String.format("%02x", b & 0xff));
+		}
+		return result.toString();
+	}
+
 	public static Point getScreenSize(Context context) {
 		Point ret = new Point();
 		WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
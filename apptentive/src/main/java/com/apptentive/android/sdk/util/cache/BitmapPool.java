@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.cache;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * A size-bounded pool of bitmaps which are no longer displayed and can be reused as
+ * <code>BitmapFactory.Options.inBitmap</code> while decoding new images. Reusing bitmap memory
+ * avoids allocation and GC pressure when images are scrolled in and out of the screen.
+ */
+public class BitmapPool {
+	/**
+	 * Pooled bitmaps (the oldest first)
+	 */
+	private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+
+	/**
+	 * Max total size of the pooled bitmaps in bytes
+	 */
+	private final int maxSize;
+
+	/**
+	 * Current total size of the pooled bitmaps in bytes
+	 */
+	private int size;
+
+	public BitmapPool(int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Invalid max size: " + maxSize);
+		}
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Puts a bitmap which is no longer in use into the pool. Bitmaps which can't be reused are
+	 * recycled right away.
+	 */
+	public synchronized void put(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled()) {
+			return;
+		}
+
+		int byteCount = getByteCount(bitmap);
+		if (!canReuse(bitmap) || byteCount > maxSize) {
+			bitmap.recycle();
+			return;
+		}
+
+		bitmaps.addLast(bitmap);
+		size += byteCount;
+		trimToSize(maxSize);
+	}
+
+	/**
+	 * Returns a pooled bitmap which can be used to decode an image of the specified dimensions or
+	 * <code>null</code> if there's none. The bitmap is removed from the pool.
+	 */
+	public synchronized @Nullable Bitmap get(int width, int height, Bitmap.Config config) {
+		Iterator<Bitmap> iterator = bitmaps.iterator();
+		while (iterator.hasNext()) {
+			Bitmap candidate = iterator.next();
+			if (canUseForInBitmap(candidate, width, height, config)) {
+				iterator.remove();
+				size -= getByteCount(candidate);
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Recycles all the pooled bitmaps.
+	 */
+	public synchronized void clear() {
+		trimToSize(0);
+	}
+
+	public synchronized int getSize() {
+		return size;
+	}
+
+	private void trimToSize(int maxSize) {
+		while (size > maxSize && !bitmaps.isEmpty()) {
+			Bitmap bitmap = bitmaps.removeFirst();
+			size -= getByteCount(bitmap);
+			bitmap.recycle();
+		}
+	}
+
+	//region Helpers
+
+	static int getByteCount(Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	private static boolean canReuse(Bitmap bitmap) {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && bitmap.isMutable();
+	}
+
+	private static boolean canUseForInBitmap(Bitmap candidate, int width, int height, Bitmap.Config config) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			// any bitmap with a large enough allocation can be reused
+			return width * height * getBytesPerPixel(config) <= candidate.getAllocationByteCount();
+		}
+
+		// before KitKat the dimensions must match exactly
+		return candidate.getWidth() == width && candidate.getHeight() == height && candidate.getConfig() == config;
+	}
+
+	private static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == Bitmap.Config.ALPHA_8) {
+			return 1;
+		}
+		if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+			return 2;
+		}
+		return 4;
+	}
+
+	//endregion
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.cache;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Helpers shared by the disk caches (cached files are ordered by their last modified time).
+ */
+final class DiskCacheUtils {
+
+	/**
+	 * Deletes the least recently used files until the directory fits into the size limit.
+	 */
+	static void trimToSize(File dir, long maxSize) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		long totalSize = 0;
+		for (File file : files) {
+			totalSize += file.length();
+		}
+
+		if (totalSize <= maxSize) {
+			return;
+		}
+
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				long t1 = f1.lastModified();
+				long t2 = f2.lastModified();
+				return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+			}
+		});
+
+		for (File file : files) {
+			if (totalSize <= maxSize) {
+				break;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				totalSize -= length;
+			}
+		}
+	}
+
+	/**
+	 * Marks the file as recently used so it's kept longer.
+	 */
+	static void touch(File file) {
+		file.setLastModified(System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.cache;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.util.StringUtils;
+import com.apptentive.android.sdk.util.Util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.UTIL;
+import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
+
+/**
+ * Two-tier image cache: a size-aware memory tier of decoded bitmaps backed by a bounded disk tier
+ * of pre-scaled thumbnails. Bitmaps explicitly released by the caller go into a {@link BitmapPool}
+ * and are reused while decoding thumbnails from the disk tier. Bitmaps evicted from the memory tier
+ * are not pooled: they might still be displayed.
+ */
+public class ImageCache {
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final int THUMBNAIL_JPEG_QUALITY = 90;
+
+	private final LruCache<Key, Bitmap> memoryCache;
+
+	/**
+	 * Memory cache keys for each image URI
+	 */
+	private final Map<String, Set<Key>> uriIndex = new HashMap<>();
+
+	private final BitmapPool bitmapPool;
+
+	/**
+	 * Directory for the disk tier (<code>null</code> if the disk tier is disabled)
+	 */
+	private final File diskCacheDir;
+
+	/**
+	 * Max total size of the disk tier in bytes
+	 */
+	private final long maxDiskSize;
+
+	public ImageCache(int maxMemorySize, int maxPoolSize, @Nullable File diskCacheDir, long maxDiskSize) {
+		this.bitmapPool = new BitmapPool(maxPoolSize);
+		this.diskCacheDir = diskCacheDir;
+		this.maxDiskSize = maxDiskSize;
+		this.memoryCache = new LruCache<Key, Bitmap>(maxMemorySize) {
+			@Override
+			protected void entryRemoved(boolean evicted, Key key, Bitmap oldValue, Bitmap newValue) {
+				removeFromIndex(key);
+			}
+
+			@Override
+			protected int sizeOf(Key key, Bitmap bitmap) {
+				return BitmapPool.getByteCount(bitmap);
+			}
+		};
+	}
+
+	//region Memory Tier
+
+	public @Nullable Bitmap getFromMemory(Key key) {
+		return memoryCache.get(key);
+	}
+
+	public void putToMemory(Key key, Bitmap bitmap) {
+		if (bitmap == null || memoryCache.get(key) != null) {
+			return;
+		}
+
+		memoryCache.put(key, bitmap);
+		synchronized (uriIndex) {
+			Set<Key> keys = uriIndex.get(key.uri);
+			if (keys == null) {
+				keys = new HashSet<>();
+				uriIndex.put(key.uri, keys);
+			}
+			keys.add(key);
+		}
+	}
+
+	/**
+	 * Returns all the bitmaps in the memory tier associated with the given image URI.
+	 */
+	public List<Bitmap> getAllFromMemory(String uri) {
+		List<Bitmap> bitmaps = new ArrayList<>();
+		for (Key key : getKeys(uri)) {
+			Bitmap bitmap = memoryCache.get(key);
+			if (bitmap != null) {
+				bitmaps.add(bitmap);
+			}
+		}
+		return bitmaps;
+	}
+
+	/**
+	 * Removes all sizes of the given image URI from both tiers.
+	 */
+	public void remove(String uri) {
+		for (Key key : getKeys(uri)) {
+			memoryCache.remove(key);
+		}
+		removeFromDisk(uri);
+	}
+
+	/**
+	 * Evicts the memory tier (bitmaps are left to GC: they might still be displayed).
+	 */
+	public void evictMemory() {
+		memoryCache.evictAll();
+	}
+
+	/**
+	 * Evicts the memory tier and recycles pooled bitmaps.
+	 */
+	public void clearMemory() {
+		evictMemory();
+		bitmapPool.clear();
+	}
+
+	/**
+	 * Puts a bitmap into the pool so its memory can be reused for decoding. The caller must guarantee
+	 * the bitmap is not displayed and is not stored in the memory tier.
+	 */
+	public void release(@Nullable Bitmap bitmap) {
+		bitmapPool.put(bitmap);
+	}
+
+	private List<Key> getKeys(String uri) {
+		synchronized (uriIndex) {
+			Set<Key> keys = uriIndex.get(uri);
+			return keys != null ? new ArrayList<>(keys) : new ArrayList<Key>();
+		}
+	}
+
+	private void removeFromIndex(Key key) {
+		synchronized (uriIndex) {
+			Set<Key> keys = uriIndex.get(key.uri);
+			if (keys != null) {
+				keys.remove(key);
+				if (keys.isEmpty()) {
+					uriIndex.remove(key.uri);
+				}
+			}
+		}
+	}
+
+	//endregion
+
+	//region Disk Tier
+
+	/**
+	 * Decodes a pre-scaled thumbnail from the disk tier (should not be called on the main thread).
+	 */
+	public @Nullable Bitmap getFromDisk(Key key) {
+		File file = getDiskFile(key);
+		if (file == null || !file.exists()) {
+			return null;
+		}
+
+		BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
+		boundsOptions.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(file.getPath(), boundsOptions);
+		if (boundsOptions.outWidth <= 0 || boundsOptions.outHeight <= 0) {
+			ApptentiveLog.w(UTIL, "Corrupted thumbnail file: %s", file);
+			file.delete();
+			return null;
+		}
+
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inScaled = false;
+		Bitmap reusableBitmap = null;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			options.inMutable = true;
+			reusableBitmap = bitmapPool.get(boundsOptions.outWidth, boundsOptions.outHeight, Bitmap.Config.ARGB_8888);
+			options.inBitmap = reusableBitmap;
+		}
+
+		Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+		if (bitmap == null && reusableBitmap != null) {
+			// decodeFile returns null if the pooled bitmap can't be reused for this image: decode without it
+			bitmapPool.put(reusableBitmap);
+			options.inBitmap = null;
+			bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+		}
+
+		if (bitmap != null) {
+			DiskCacheUtils.touch(file); // keep recently used thumbnails longer
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Stores a pre-scaled thumbnail into the disk tier (should not be called on the main thread).
+	 */
+	public void putToDisk(Key key, Bitmap bitmap) {
+		File file = getDiskFile(key);
+		if (file == null || bitmap == null || file.exists()) {
+			return;
+		}
+
+		if (!diskCacheDir.exists() && !diskCacheDir.mkdirs()) {
+			ApptentiveLog.w(UTIL, "Unable to create thumbnail cache directory: %s", diskCacheDir);
+			return;
+		}
+
+		// write into a temporary file so a partial thumbnail never ends up in the cache
+		File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+		OutputStream output = null;
+		boolean succeed = false;
+		try {
+			output = new BufferedOutputStream(new FileOutputStream(tempFile));
+			Bitmap.CompressFormat format = bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+			succeed = bitmap.compress(format, THUMBNAIL_JPEG_QUALITY, output);
+		} catch (Exception e) {
+			ApptentiveLog.w(UTIL, e, "Unable to store thumbnail: %s", key);
+			logException(e);
+		} finally {
+			Util.ensureClosed(output);
+		}
+
+		if (succeed && tempFile.renameTo(file)) {
+			trimDiskCache();
+		} else {
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Deletes all the thumbnails of the given image URI (including the sizes which are no longer in
+	 * the memory tier or were stored by an earlier process).
+	 */
+	private synchronized void removeFromDisk(String uri) {
+		if (diskCacheDir == null) {
+			return;
+		}
+
+		File[] files = diskCacheDir.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		String prefix = getDiskFilePrefix(uri);
+		for (File file : files) {
+			if (file.getName().startsWith(prefix)) {
+				file.delete();
+			}
+		}
+	}
+
+	private @Nullable File getDiskFile(Key key) {
+		return diskCacheDir != null ? new File(diskCacheDir, getDiskFilePrefix(key.uri) + key.width + "x" + key.height) : null;
+	}
+
+	/**
+	 * Thumbnail file names start with the URI hash so all the sizes of an image can be found on disk.
+	 */
+	private String getDiskFilePrefix(String uri) {
+		return new File(Util.generateCacheFileFullPath(uri, diskCacheDir)).getName() + "_";
+	}
+
+	/**
+	 * Deletes the least recently used thumbnails until the disk tier fits into its size limit.
+	 */
+	private synchronized void trimDiskCache() {
+		DiskCacheUtils.trimToSize(diskCacheDir, maxDiskSize);
+	}
+
+	//endregion
+
+	//region Key
+
+	/**
+	 * Cache key: an image URI scaled to specific dimensions.
+	 */
+	public static final class Key {
+		private final String uri;
+		private final int width;
+		private final int height;
+
+		public Key(@NonNull String uri, int width, int height) {
+			if (uri == null) {
+				throw new IllegalArgumentException("Uri is null");
+			}
+			this.uri = uri;
+			this.width = width;
+			this.height = height;
+		}
+
+		public String getUri() {
+			return uri;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+
+			Key key = (Key) o;
+			return width == key.width && height == key.height && uri.equals(key.uri);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = uri.hashCode();
+			result = 31 * result + width;
+			result = 31 * result + height;
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return StringUtils.format("%s_%d:%d", uri, width, height);
+		}
+	}
+
+	//endregion
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.UTIL;
+
+/**
+ * Bounded disk cache of downloaded remote images. Each file is named after the URL hash and the
+ * download time: copies older than the max age are treated as missing so a changed image gets
+ * downloaded again. The least recently used files are deleted once the cache exceeds its size limit.
+ */
+public class RemoteImageCache {
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final char TIMESTAMP_SEPARATOR = '_';
+
+	private final File cacheDir;
+
+	/**
+	 * Max total size of the cache in bytes
+	 */
+	private final long maxSize;
+
+	/**
+	 * Max time a downloaded image is considered up-to-date
+	 */
+	private final long maxAgeMillis;
+
+	public RemoteImageCache(@NonNull File cacheDir, long maxSize, long maxAgeMillis) {
+		if (cacheDir == null) {
+			throw new IllegalArgumentException("Cache dir is null");
+		}
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * Returns the cached copy of a remote image (<code>null</code> if it's missing or expired).
+	 */
+	public synchronized @Nullable File get(String url) {
+		File latestFile = null;
+		long latestTime = 0;
+		for (File file : listFiles(url)) {
+			long downloadTime = getDownloadTime(file);
+			if (isExpired(downloadTime)) {
+				ApptentiveLog.v(UTIL, "Cached remote image expired: %s", url);
+				file.delete();
+			} else if (latestFile == null || downloadTime > latestTime) {
+				latestFile = file;
+				latestTime = downloadTime;
+			}
+		}
+
+		if (latestFile != null) {
+			DiskCacheUtils.touch(latestFile);
+		}
+		return latestFile;
+	}
+
+	/**
+	 * Creates a temporary file to download a remote image into (see {@link #put(String, File)}).
+	 */
+	public File createTempFile(String url) throws IOException {
+		if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+			throw new IOException("Unable to create remote image cache directory: " + cacheDir);
+		}
+		return File.createTempFile(getFilePrefix(url), TEMP_FILE_SUFFIX, cacheDir);
+	}
+
+	/**
+	 * Moves a downloaded image into the cache replacing the previous copy.
+	 *
+	 * @return the cached file or <code>null</code> if the file can't be moved
+	 */
+	public synchronized @Nullable File put(String url, File downloadedFile) {
+		File cacheFile = new File(cacheDir, getFilePrefix(url) + currentTimeMillis());
+		if (!downloadedFile.renameTo(cacheFile)) {
+			downloadedFile.delete();
+			return null;
+		}
+
+		for (File file : listFiles(url)) {
+			if (!file.equals(cacheFile)) {
+				file.delete();
+			}
+		}
+
+		DiskCacheUtils.trimToSize(cacheDir, maxSize);
+		return cacheFile.exists() ? cacheFile : null;
+	}
+
+	//region Helpers
+
+	private File[] listFiles(String url) {
+		final String prefix = getFilePrefix(url);
+		File[] files = cacheDir.listFiles();
+		if (files == null) {
+			return new File[0];
+		}
+
+		int count = 0;
+		for (File file : files) {
+			String name = file.getName();
+			if (name.startsWith(prefix) && !name.endsWith(TEMP_FILE_SUFFIX)) {
+				files[count++] = file;
+			}
+		}
+
+		File[] result = new File[count];
+		System.arraycopy(files, 0, result, 0, count);
+		return result;
+	}
+
+	private boolean isExpired(long downloadTime) {
+		return downloadTime <= 0 || currentTimeMillis() - downloadTime > maxAgeMillis;
+	}
+
+	private static long getDownloadTime(File file) {
+		String name = file.getName();
+		try {
+			return Long.parseLong(name.substring(name.lastIndexOf(TIMESTAMP_SEPARATOR) + 1));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private String getFilePrefix(String url) {
+		return new File(Util.generateCacheFileFullPath(url, cacheDir)).getName() + TIMESTAMP_SEPARATOR;
+	}
+
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	//endregion
+}
@@ -7,24 +7,40 @@
 package com.apptentive.android.sdk.util.image;
 
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.graphics.Bitmap;
 import android.os.AsyncTask;
 import android.os.Build;
 import android.text.TextUtils;
+import android.view.View;
+import android.view.ViewGroup;
 import android.webkit.URLUtil;
 import android.widget.ImageView;
 
+import com.apptentive.android.sdk.ApptentiveInternal;
 import com.apptentive.android.sdk.ApptentiveLog;
 import com.apptentive.android.sdk.R;
-import com.apptentive.android.sdk.util.cache.ImageMemoryCache;
+import com.apptentive.android.sdk.util.Util;
+import com.apptentive.android.sdk.util.cache.ImageCache;
 import com.apptentive.android.sdk.util.task.ApptentiveDownloaderTask;
 import com.apptentive.android.sdk.util.task.ApptentiveDrawableLoaderTask;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.apptentive.android.sdk.ApptentiveLogTag.UTIL;
 
@@ -32,13 +48,52 @@ public class ApptentiveAttachmentLoader {
 
 	public static final int DRAWABLE_DOWNLOAD_TAG = R.id.apptentive_drawable_downloader;
 
-	private ImageMemoryCache bitmapMemoryCache;
-	private ArrayList<LoaderRequest> queuedDownLoaderRequests;
-	private ArrayList<LoaderRequest> runningDownLoaderRequests;
+	/**
+	 * List position of a load request which is not shown in a list
+	 */
+	public static final int NO_POSITION = -1;
+
+	private static final int DEFAULT_MAX_DOWNLOADS = 3;
+	/**
+	 * Thumbnail decodes can run in parallel (memory is bounded by the decode budget in {@link ImageUtil})
+	 */
+	private static final int MAX_BITMAP_LOADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private static final int MAX_MEMORY_CACHE_SIZE = 30 * 1024 * 1024;
+	private static final int MAX_BITMAP_POOL_SIZE = 8 * 1024 * 1024;
+	private static final long MAX_DISK_CACHE_SIZE = 20 * 1024 * 1024;
+	private static final String THUMBNAILS_DIR = "apptentive-thumbnails";
+
+	private ImageCache imageCache;
+
+	/**
+	 * Active (queued or running) downloads keyed by the source URL. Requests for the same URL are
+	 * coalesced into a single download.
+	 */
+	private Map<String, Download> downloads;
+
+	/**
+	 * Downloads waiting for a free slot (the closest to the visible list range first, then the most
+	 * recently requested). A download's priority is only updated while it's out of the queue.
+	 */
+	private PriorityQueue<Download> queuedDownloads;
+
+	/**
+	 * Range of the list positions currently on the screen
+	 */
+	private int firstVisiblePosition = NO_POSITION;
+	private int lastVisiblePosition = NO_POSITION;
+
 	private HashSet<String> filesBeingDownloaded;
-	private HashMap<String, ArrayList<LoaderRequest>> duplicateDownloads;
+	private int runningDownloadsCount;
 	private int maxDownloads;
+	private long nextDownloadSequence;
 
+	/**
+	 * Dedicated executors so attachment loading never competes with the host app's AsyncTasks
+	 */
+	private Executor downloadExecutor;
+	private Executor bitmapLoadExecutor;
 
 	public static interface LoaderCallback {
 		void onLoaded(ImageView view, int pos, Bitmap d);
@@ -68,7 +123,7 @@ public class ApptentiveAttachmentLoader {
 	}
 
 	protected ApptentiveAttachmentLoader() {
-		setup(10);
+		setup(DEFAULT_MAX_DOWNLOADS);
 	}
 
 	protected ApptentiveAttachmentLoader(int maxDownloads) {
@@ -76,12 +131,58 @@ public class ApptentiveAttachmentLoader {
 	}
 
 	private void setup(int maxDownloads) {
-		queuedDownLoaderRequests = new ArrayList<LoaderRequest>();
-		runningDownLoaderRequests = new ArrayList<LoaderRequest>();
+		downloads = new HashMap<>();
+		queuedDownloads = new PriorityQueue<>(11, new Comparator<Download>() {
+			@Override
+			public int compare(Download d1, Download d2) {
+				if (d1.priority != d2.priority) {
+					return d1.priority < d2.priority ? -1 : 1;
+				}
+				return d1.sequence > d2.sequence ? -1 : (d1.sequence == d2.sequence ? 0 : 1);
+			}
+		});
 		filesBeingDownloaded = new HashSet<String>();
 		this.maxDownloads = maxDownloads;
-		duplicateDownloads = new HashMap<String, ArrayList<LoaderRequest>>();
-		bitmapMemoryCache = new ImageMemoryCache(30);
+		downloadExecutor = createExecutor("Apptentive Attachment Download", maxDownloads);
+		bitmapLoadExecutor = createExecutor("Apptentive Attachment Load", MAX_BITMAP_LOADS);
+		imageCache = createImageCache();
+	}
+
+	/**
+	 * Creates a bounded executor for background attachment work (idle threads time out).
+	 */
+	public static Executor createExecutor(final String name, int maxThreads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+			30L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			new ThreadFactory() {
+				private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+				@Override
+				public Thread newThread(Runnable r) {
+					return new Thread(r, name + " (thread-" + threadNumber.getAndIncrement() + ")");
+				}
+			});
+
+		// idle threads terminate so the loader doesn't hold any threads while Message Center is closed
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static ImageCache createImageCache() {
+		// don't let the memory tier take more than 1/8 of the available heap
+		int maxMemorySize = (int) Math.min(MAX_MEMORY_CACHE_SIZE, Runtime.getRuntime().maxMemory() / 8);
+
+		File diskCacheDir = null;
+		Context context = ApptentiveInternal.getInstance().getApplicationContext();
+		if (context != null) {
+			File cacheDir = Util.getDiskCacheDir(context);
+			if (cacheDir != null) {
+				diskCacheDir = new File(cacheDir, THUMBNAILS_DIR);
+			}
+		}
+
+		return new ImageCache(maxMemorySize, MAX_BITMAP_POOL_SIZE, diskCacheDir, MAX_DISK_CACHE_SIZE);
 	}
 
 	/* Check if a file is being downloaded. If true, the file is not completely written by download task yet.
@@ -92,38 +193,280 @@ public class ApptentiveAttachmentLoader {
 	}
 
 	public void load(String conversationToken, String uri, String diskFilePath, int pos, ImageView imageView, int width, int height, boolean bLoadImage, LoaderCallback callback) {
-		LoaderRequest d = new LoaderRequest(conversationToken, uri, diskFilePath, pos, imageView, width, height, bLoadImage, callback);
+		load(conversationToken, uri, diskFilePath, pos, NO_POSITION, imageView, width, height, bLoadImage, callback);
+	}
+
+	/**
+	 * @param listPosition adapter position of the list item showing the image (downloads for the
+	 *                     items closest to the visible range go first)
+	 */
+	public void load(String conversationToken, String uri, String diskFilePath, int pos, int listPosition, ImageView imageView, int width, int height, boolean bLoadImage, LoaderCallback callback) {
+		LoaderRequest d = new LoaderRequest(conversationToken, uri, diskFilePath, pos, listPosition, imageView, width, height, bLoadImage, callback);
 		d.load();
 	}
 
+	/**
+	 * Updates the range of the list positions on the screen and re-orders queued downloads.
+	 */
+	public void setVisibleRange(int firstPosition, int lastPosition) {
+		if (firstVisiblePosition == firstPosition && lastVisiblePosition == lastPosition) {
+			return;
+		}
+
+		firstVisiblePosition = firstPosition;
+		lastVisiblePosition = lastPosition;
+
+		List<Download> pendingDownloads = new ArrayList<>(queuedDownloads);
+		queuedDownloads.clear();
+		for (Download download : pendingDownloads) {
+			download.priority = download.calculatePriority();
+			queuedDownloads.add(download);
+		}
+	}
+
+	/**
+	 * Cancels pending loads for all the image views in the hierarchy (should be called when a view is
+	 * recycled so off-screen items don't hold download slots).
+	 */
+	public void cancelLoads(View view) {
+		if (view instanceof ImageView) {
+			LoaderRequest request = (LoaderRequest) view.getTag(DRAWABLE_DOWNLOAD_TAG);
+			if (request != null) {
+				request.cancel();
+				view.setTag(DRAWABLE_DOWNLOAD_TAG, null);
+			}
+		} else if (view instanceof ViewGroup) {
+			ViewGroup viewGroup = (ViewGroup) view;
+			for (int i = 0; i < viewGroup.getChildCount(); ++i) {
+				cancelLoads(viewGroup.getChildAt(i));
+			}
+		}
+	}
+
 	public void cancelAllDownloads() {
-		queuedDownLoaderRequests.clear();
-		for (LoaderRequest loaderRequest : runningDownLoaderRequests) {
-			ApptentiveDownloaderTask task = loaderRequest.getDrawableDownloaderTask();
-			if (task != null) {
-				task.cancel(true);
+		queuedDownloads.clear();
+		for (Download download : new ArrayList<>(downloads.values())) {
+			download.requests.clear();
+			if (download.task != null) {
+				download.task.cancel(true);
 			}
 		}
-		runningDownLoaderRequests.clear();
+		downloads.clear();
 		filesBeingDownloaded.clear();
 	}
 
+	//region Download Scheduling
+
+	private void requestDownload(LoaderRequest request) {
+		Download download = downloads.get(request.uri);
+		if (download != null) {
+			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader coalescing download: " + request.uri);
+			download.addRequest(request);
+			updateQueuedPriority(download);
+			return;
+		}
+
+		download = new Download(request.uri, request.diskCacheFilePath, request.conversationToken, nextDownloadSequence++);
+		download.addRequest(request);
+		download.priority = download.calculatePriority();
+		downloads.put(download.url, download);
+		queuedDownloads.add(download);
+		startQueuedDownloads();
+	}
+
+	private void cancelDownload(LoaderRequest request) {
+		Download download = downloads.get(request.uri);
+		if (download == null || !download.removeRequest(request)) {
+			return;
+		}
+
+		// only cancel the download if nobody else is waiting for it
+		if (download.requests.isEmpty()) {
+			if (download.task == null) {
+				queuedDownloads.remove(download);
+				downloads.remove(download.url);
+			} else {
+				download.task.cancel(true);
+			}
+		} else {
+			updateQueuedPriority(download);
+		}
+	}
+
+	/**
+	 * Re-inserts a queued download so the queue picks up its new priority.
+	 */
+	private void updateQueuedPriority(Download download) {
+		if (download.task == null && queuedDownloads.remove(download)) {
+			download.priority = download.calculatePriority();
+			queuedDownloads.add(download);
+		}
+	}
+
+	private void onRequestPositionChanged(LoaderRequest request) {
+		Download download = downloads.get(request.uri);
+		if (download != null && download.requests.contains(request)) {
+			updateQueuedPriority(download);
+		}
+	}
+
+	/**
+	 * Returns the distance between a list position and the visible range (0 if it's visible or the
+	 * position is unknown).
+	 */
+	private int getDistanceToVisibleRange(int listPosition) {
+		if (listPosition == NO_POSITION || firstVisiblePosition == NO_POSITION) {
+			return 0;
+		}
+		if (listPosition < firstVisiblePosition) {
+			return firstVisiblePosition - listPosition;
+		}
+		if (listPosition > lastVisiblePosition) {
+			return listPosition - lastVisiblePosition;
+		}
+		return 0;
+	}
+
+	private void startQueuedDownloads() {
+		while (runningDownloadsCount < maxDownloads && !queuedDownloads.isEmpty()) {
+			Download download = queuedDownloads.poll();
+			download.start();
+		}
+	}
+
+	private void onDownloadFinished(Download download) {
+		if (downloads.get(download.url) == download) {
+			downloads.remove(download.url);
+		}
+		filesBeingDownloaded.remove(download.diskFilePath);
+		runningDownloadsCount--;
+		startQueuedDownloads();
+	}
+
+	/**
+	 * A single file download shared by all the load requests for the same URL.
+	 */
+	private class Download implements ApptentiveDownloaderTask.FileDownloadListener {
+		final String url;
+		final String diskFilePath;
+		final String conversationToken;
+		final long sequence;
+		final List<LoaderRequest> requests = new ArrayList<>();
+		ApptentiveDownloaderTask task;
+
+		/**
+		 * Priority used by the download queue (lower goes first)
+		 */
+		int priority;
+
+		Download(String url, String diskFilePath, String conversationToken, long sequence) {
+			this.url = url;
+			this.diskFilePath = diskFilePath;
+			this.conversationToken = conversationToken;
+			this.sequence = sequence;
+		}
+
+		void addRequest(LoaderRequest request) {
+			requests.add(request);
+		}
+
+		/**
+		 * The download is as urgent as the closest of the list items waiting for it.
+		 */
+		int calculatePriority() {
+			int result = Integer.MAX_VALUE;
+			for (LoaderRequest request : requests) {
+				result = Math.min(result, getDistanceToVisibleRange(request.listPosition));
+			}
+			return result;
+		}
+
+		boolean removeRequest(LoaderRequest request) {
+			return requests.remove(request);
+		}
+
+		void start() {
+			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader doDownload: " + url);
+			task = new ApptentiveDownloaderTask(null, this);
+			runningDownloadsCount++;
+			filesBeingDownloaded.add(diskFilePath);
+			try {
+				// Conversation token is needed if the download url is a redirect link from an Apptentive endpoint
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+					task.executeOnExecutor(downloadExecutor, url, diskFilePath, conversationToken);
+				} else {
+					task.execute(url, diskFilePath, conversationToken);
+				}
+			} catch (RejectedExecutionException e) {
+				ApptentiveLog.w(UTIL, e, "ApptentiveAttachmentLoader download rejected: " + url);
+				onDownloadError();
+			}
+		}
+
+		@Override
+		public void onDownloadStart() {
+			for (LoaderRequest request : new ArrayList<>(requests)) {
+				request.onDownloadStart();
+			}
+		}
+
+		@Override
+		public void onProgress(int progress) {
+			for (LoaderRequest request : new ArrayList<>(requests)) {
+				request.onProgress(progress);
+			}
+		}
+
+		@Override
+		public void onDownloadComplete() {
+			onDownloadFinished(this);
+			for (LoaderRequest request : new ArrayList<>(requests)) {
+				request.onDownloadComplete();
+			}
+		}
+
+		@Override
+		public void onDownloadError() {
+			onDownloadFinished(this);
+			for (LoaderRequest request : new ArrayList<>(requests)) {
+				request.onDownloadError();
+			}
+		}
+
+		@Override
+		public void onDownloadCancel() {
+			onDownloadFinished(this);
+
+			// requests which joined after the cancellation still need the file
+			List<LoaderRequest> pendingRequests = new ArrayList<>(requests);
+			requests.clear();
+			for (LoaderRequest request : pendingRequests) {
+				if (request.isPending()) {
+					requestDownload(request);
+				} else {
+					request.onDownloadCancel();
+				}
+			}
+		}
+	}
+
+	//endregion
+
 	public class LoaderRequest implements ApptentiveDownloaderTask.FileDownloadListener, ApptentiveDrawableLoaderTask.BitmapLoadListener {
 		private final String conversationToken;
 		private String uri;
 		private String diskCacheFilePath;
 		private WeakReference<ImageView> mImageViewRef;
-		private ApptentiveDownloaderTask mDrawableDownloaderTask;
 		private ApptentiveDrawableLoaderTask mDrawableLoaderTask;
 		private boolean mIsCancelled;
-		private boolean mWasDownloaded = false;
 		private int imageViewWidth;
 		private int imageViewHeight;
 		private boolean bLoadImage;
 		private LoaderCallback loadingTaskCallback;
 		private int pos;
+		private int listPosition;
 
-		public LoaderRequest(String conversationToken, String url, String diskPath, int position, ImageView imageView, int width, int height, boolean bLoadImage, LoaderCallback loadingTaskCallback) {
+		public LoaderRequest(String conversationToken, String url, String diskPath, int position, int listPosition, ImageView imageView, int width, int height, boolean bLoadImage, LoaderCallback loadingTaskCallback) {
 			if (conversationToken == null) {
 				throw new IllegalArgumentException("Conversation token is null");
 			}
@@ -137,10 +480,7 @@ public class ApptentiveAttachmentLoader {
 			this.bLoadImage = bLoadImage;
 			this.loadingTaskCallback = loadingTaskCallback;
 			this.pos = position;
-		}
-
-		public ApptentiveDownloaderTask getDrawableDownloaderTask() {
-			return mDrawableDownloaderTask;
+			this.listPosition = listPosition;
 		}
 
 		public ImageView getImageView() {
@@ -163,6 +503,18 @@ public class ApptentiveAttachmentLoader {
 			return loadingTaskCallback;
 		}
 
+		private ImageCache.Key getCacheKey() {
+			return new ImageCache.Key(uri, imageViewWidth, imageViewHeight);
+		}
+
+		/**
+		 * Returns <code>true</code> if the request is not cancelled and still bound to its view
+		 */
+		private boolean isPending() {
+			ImageView imageView = getImageView();
+			return !mIsCancelled && imageView != null && imageView.getTag(DRAWABLE_DOWNLOAD_TAG) == this;
+		}
+
 		public void load() {
 			ImageView imageView = mImageViewRef.get();
 			if (imageView != null) {
@@ -175,6 +527,11 @@ public class ApptentiveAttachmentLoader {
 					// If old request on the same view also loads from the same source, cancel the current one
 					if (oldLoaderRequest.getUrl().equals(uri)) {
 						ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader load new request denied:" + uri );
+						// the view might have been bound to another list position
+						if (oldLoaderRequest.listPosition != listPosition) {
+							oldLoaderRequest.listPosition = listPosition;
+							onRequestPositionChanged(oldLoaderRequest);
+						}
 						return;
 					}
 					// If old request on the same view loads from different source, cancel the old one
@@ -188,11 +545,8 @@ public class ApptentiveAttachmentLoader {
 					return;
 				}
 
-				Bitmap cachedBitmap = (bLoadImage) ? (Bitmap) bitmapMemoryCache.getObjectFromCache(ImageMemoryCache.generateMemoryCacheEntryKey(uri, imageViewWidth, imageViewHeight)) :
-						null;
+				Bitmap cachedBitmap = (bLoadImage) ? imageCache.getFromMemory(getCacheKey()) : null;
 				if (cachedBitmap != null) {
-					mWasDownloaded = false;
-
 					ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader loadDrawable(found in cache)");
 					loadDrawable(cachedBitmap);
 					imageView.setTag(DRAWABLE_DOWNLOAD_TAG, null);
@@ -207,60 +561,14 @@ public class ApptentiveAttachmentLoader {
 			}
 		}
 
-		public void doDownload() {
-			if (mIsCancelled) {
-				// if the download has been cancelled, do not download
-				// this image, but start the next one
-				if (!queuedDownLoaderRequests.isEmpty() && runningDownLoaderRequests.size() < maxDownloads) {
-					LoaderRequest d = queuedDownLoaderRequests.remove(0);
-					d.doDownload();
-				}
-				return;
-			}
-			ImageView imageView = mImageViewRef.get();
-			if (imageView != null && imageView.getTag(DRAWABLE_DOWNLOAD_TAG) == this && URLUtil.isNetworkUrl(uri)) {
-				mDrawableDownloaderTask = new ApptentiveDownloaderTask(imageView, this);
-				try {
-					ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader doDownload: " + uri);
-					// Conversation token is needed if the download url is a redirect link from an Apptentive endpoint
-					if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-						mDrawableDownloaderTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, uri, diskCacheFilePath, conversationToken);
-					} else {
-						mDrawableDownloaderTask.execute(uri, diskCacheFilePath, conversationToken);
-					}
-				} catch (RejectedExecutionException e) {
-				}
-				runningDownLoaderRequests.add(this);
-				filesBeingDownloaded.add(diskCacheFilePath);
-			}
-		}
-
-		private boolean isBeingDownloaded() {
-			for (LoaderRequest loaderRequest : runningDownLoaderRequests) {
-				if (loaderRequest == null) {
-					continue;
-				}
-				ImageView otherImageView = loaderRequest.getImageView();
-				ImageView thisImageView = getImageView();
-				if (thisImageView == null || otherImageView == null) {
-					continue;
-				}
-				if ((otherImageView.equals(thisImageView) || loaderRequest.getPosition() == getPosition())
-						&& loaderRequest.getUrl().equals(uri)) {
-					return true;
-				}
-			}
-			return false;
-		}
-
 		@SuppressLint("NewApi")
 		private void loadImageFromDisk(ImageView imageView) {
 			if (imageView != null && !mIsCancelled) {
 				ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader loadImageFromDisk: " + uri);
-				mDrawableLoaderTask = new ApptentiveDrawableLoaderTask(imageView, this);
+				mDrawableLoaderTask = new ApptentiveDrawableLoaderTask(imageView, this, imageCache);
 				try {
 					if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-						mDrawableLoaderTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, uri, diskCacheFilePath, String.valueOf(imageViewWidth), String.valueOf(imageViewHeight));
+						mDrawableLoaderTask.executeOnExecutor(bitmapLoadExecutor, uri, diskCacheFilePath, String.valueOf(imageViewWidth), String.valueOf(imageViewHeight));
 					} else {
 						mDrawableLoaderTask.execute(uri, diskCacheFilePath, String.valueOf(imageViewWidth), String.valueOf(imageViewHeight));
 					}
@@ -279,105 +587,13 @@ public class ApptentiveAttachmentLoader {
 		private void cancel() {
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader cancel requested for: " + uri);
 			mIsCancelled = true;
-
-			ArrayList<LoaderRequest> duplicates = duplicateDownloads.get(uri);
-			if (duplicates != null) {
-				duplicates.remove(this);
-				if (duplicates.size() > 0) {
-					duplicateDownloads.put(uri, duplicates);
-				} else {
-					duplicateDownloads.remove(uri);
-				}
-			}
-
-
-			if (queuedDownLoaderRequests.contains(this)) {
-				queuedDownLoaderRequests.remove(this);
-			}
-			if (mDrawableDownloaderTask != null) {
-				mDrawableDownloaderTask.cancel(true);
-			}
+			cancelDownload(this);
 			if (mDrawableLoaderTask != null) {
 				mDrawableLoaderTask.cancel(true);
 			}
 		}
 
-		private int indexOfDownloadWithDifferentURL() {
-			for (LoaderRequest loaderRequest : runningDownLoaderRequests) {
-				if (loaderRequest == null) {
-					continue;
-				}
-				ImageView otherImageView = loaderRequest.getImageView();
-				ImageView thisImageView = getImageView();
-				if (thisImageView == null || otherImageView == null) {
-					continue;
-				}
-				if (otherImageView.equals(thisImageView) && !loaderRequest.getUrl().equals(uri)) {
-					return runningDownLoaderRequests.indexOf(loaderRequest);
-				}
-			}
-			return -1;
-		}
-
-		private boolean isQueuedForDownload() {
-			for (LoaderRequest loaderRequest : queuedDownLoaderRequests) {
-				if (loaderRequest == null) {
-					continue;
-				}
-				ImageView otherImageView = loaderRequest.getImageView();
-				ImageView thisImageView = getImageView();
-				if (thisImageView == null || otherImageView == null) {
-					continue;
-				}
-				if (otherImageView.equals(thisImageView) && loaderRequest.getUrl().equals(uri)) {
-					return true;
-				}
-			}
-			return false;
-		}
-
-		private int indexOfQueuedDownloadWithDifferentURL() {
-			for (LoaderRequest loaderRequest : queuedDownLoaderRequests) {
-				if (loaderRequest == null) {
-					continue;
-				}
-				ImageView otherImageView = loaderRequest.getImageView();
-				ImageView thisImageView = getImageView();
-				if (thisImageView == null || otherImageView == null) {
-					continue;
-				}
-				if (otherImageView.equals(thisImageView) && !loaderRequest.getUrl().equals(uri)) {
-					return queuedDownLoaderRequests.indexOf(loaderRequest);
-				}
-			}
-			return -1;
-		}
-
-		private LoaderRequest isAnotherQueuedOrRunningWithSameUrl() {
-			for (LoaderRequest loaderRequest : queuedDownLoaderRequests) {
-				if (loaderRequest == null) {
-					continue;
-				}
-				if (loaderRequest.getUrl().equals(uri)) {
-					return loaderRequest;
-				}
-			}
-			for (LoaderRequest loaderRequest : runningDownLoaderRequests) {
-				if (loaderRequest == null) {
-					continue;
-				}
-				if (loaderRequest.getUrl().equals(uri)) {
-					return loaderRequest;
-				}
-			}
-			return null;
-		}
-
 		private void loadDrawable(Bitmap d) {
-			loadDrawable(d, true);
-		}
-
-		private void loadDrawable(Bitmap d, boolean animate) {
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader loadDrawable");
 			ImageView imageView = getImageView();
 			if (imageView != null) {
@@ -391,11 +607,8 @@ public class ApptentiveAttachmentLoader {
 		@Override
 		public void onDownloadStart() {
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onDownloadStarted");
-			ImageView imageView = getImageView();
-			if (imageView != null) {
-				if (loadingTaskCallback != null) {
-					loadingTaskCallback.onDownloadStart();
-				}
+			if (isPending() && loadingTaskCallback != null) {
+				loadingTaskCallback.onDownloadStart();
 			}
 		}
 
@@ -403,23 +616,8 @@ public class ApptentiveAttachmentLoader {
 		@Override
 		public void onProgress(int progress) {
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onProgress: " + progress);
-			ImageView imageView = getImageView();
-			if (imageView != null) {
-				if (loadingTaskCallback != null) {
-					loadingTaskCallback.onDownloadProgress(progress);
-				}
-			}
-
-			ArrayList<LoaderRequest> duplicates = duplicateDownloads.get(uri);
-			if (duplicates != null) {
-				for (LoaderRequest dup : duplicates) {
-					ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onProgress (dup): " + progress);
-					// update the progress on the duplicate downloads
-					if (dup != null && dup.getImageView() != null &&
-							dup.getImageView().getTag(DRAWABLE_DOWNLOAD_TAG) == dup) {
-						dup.getLoaderCallback().onDownloadProgress(progress);
-					}
-				}
+			if (isPending() && loadingTaskCallback != null) {
+				loadingTaskCallback.onDownloadProgress(progress);
 			}
 		}
 
@@ -427,46 +625,16 @@ public class ApptentiveAttachmentLoader {
 		@Override
 		public void onDownloadComplete() {
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onDownloadComplete: " + uri);
-
-			runningDownLoaderRequests.remove(this);
-			filesBeingDownloaded.remove(diskCacheFilePath);
-			mWasDownloaded = true;
-
-			ImageView imageView = mImageViewRef.get();
-			if (imageView != null && this == imageView.getTag(DRAWABLE_DOWNLOAD_TAG)) {
+			if (isPending()) {
+				ImageView imageView = getImageView();
 				if (!bLoadImage) {
 					imageView.setTag(DRAWABLE_DOWNLOAD_TAG, null);
 					if (loadingTaskCallback != null) {
 						loadingTaskCallback.onLoaded(imageView, pos, null);
 					}
 				} else {
-					loadImageFromDisk(getImageView());
-				}
-			}
-
-			ArrayList<LoaderRequest> duplicates = duplicateDownloads.get(uri);
-			if (duplicates != null) {
-				for (LoaderRequest dup : duplicates) {
-					ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onDownloadComplete (dup): " + dup.uri);
-					// load the image.
-					if (dup != null && dup.getImageView() != null &&
-							dup.getImageView().getTag(DRAWABLE_DOWNLOAD_TAG) == dup) {
-						if (!dup.isLoadingImage()) {
-							dup.getImageView().setTag(DRAWABLE_DOWNLOAD_TAG, null);
-							if (dup.getLoaderCallback() != null) {
-								dup.getLoaderCallback().onLoaded(dup.getImageView(), dup.pos, null);
-							}
-						} else {
-							dup.loadImageFromDisk(dup.getImageView());
-						}
-					}
+					loadImageFromDisk(imageView);
 				}
-				duplicateDownloads.remove(uri);
-			}
-
-			if (!queuedDownLoaderRequests.isEmpty()) {
-				LoaderRequest d = queuedDownLoaderRequests.remove(0);
-				d.doDownload();
 			}
 		}
 
@@ -474,160 +642,47 @@ public class ApptentiveAttachmentLoader {
 		@Override
 		public void onDownloadError() {
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onDownloadError: " + uri);
-			runningDownLoaderRequests.remove(this);
-			filesBeingDownloaded.remove(diskCacheFilePath);
-			ImageView imageView = getImageView();
-			mWasDownloaded = true;
-			if (imageView != null) {
+			if (isPending()) {
 				if (loadingTaskCallback != null) {
 					loadingTaskCallback.onDownloadProgress(-1);
 				}
-			}
-
-			if (imageView != null && this == imageView.getTag(DRAWABLE_DOWNLOAD_TAG)) {
-				imageView.setTag(DRAWABLE_DOWNLOAD_TAG, null);
-			}
-
-			ArrayList<LoaderRequest> duplicates = duplicateDownloads.get(uri);
-			if (duplicates != null) {
-				duplicates.remove(this);
-				if (duplicates.size() > 0) {
-					duplicateDownloads.put(uri, duplicates);
-				} else {
-					duplicateDownloads.remove(uri);
-				}
-				for (LoaderRequest dup : duplicates) {
-					ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onDownloadError (dup): " + dup.uri);
-					// load the image.
-					if (dup != null && dup.getImageView() != null &&
-							dup.getImageView().getTag(DRAWABLE_DOWNLOAD_TAG) == dup) {
-						duplicates.remove(0);
-						if (duplicates.size() > 0) {
-							duplicateDownloads.put(uri, duplicates);
-						} else {
-							duplicateDownloads.remove(uri);
-						}
-						dup.doDownload();
-						return;
-					}
-				}
-			}
-
-			if (!queuedDownLoaderRequests.isEmpty()) {
-				LoaderRequest d = queuedDownLoaderRequests.remove(0);
-				d.doDownload();
+				getImageView().setTag(DRAWABLE_DOWNLOAD_TAG, null);
 			}
 		}
 
 		// called if the download is cancelled
 		@Override
 		public void onDownloadCancel() {
-			mIsCancelled = true;
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader onDownloadCancel: " + uri);
-			runningDownLoaderRequests.remove(this);
-			filesBeingDownloaded.remove(diskCacheFilePath);
-
-			ImageView imageView = mImageViewRef.get();
+			ImageView imageView = getImageView();
 			if (imageView != null && this == imageView.getTag(DRAWABLE_DOWNLOAD_TAG)) {
 				imageView.setTag(DRAWABLE_DOWNLOAD_TAG, null);
 			}
-
-			ArrayList<LoaderRequest> duplicates = duplicateDownloads.get(uri);
-			if (duplicates != null) {
-				duplicates.remove(this);
-				if (duplicates.size() > 0) {
-					duplicateDownloads.put(uri, duplicates);
-				} else {
-					duplicateDownloads.remove(uri);
-				}
-				for (LoaderRequest dup : duplicates) {
-					// start next download task in the duplicate queue
-					if (dup != null && dup.getImageView() != null &&
-							dup.getImageView().getTag(DRAWABLE_DOWNLOAD_TAG) == dup) {
-						duplicates.remove(0);
-						if (duplicates.size() > 0) {
-							duplicateDownloads.put(uri, duplicates);
-						} else {
-							duplicateDownloads.remove(uri);
-						}
-						dup.doDownload();
-						return;
-					}
-				}
-			}
-
-			if (!queuedDownLoaderRequests.isEmpty()) {
-				LoaderRequest d = queuedDownLoaderRequests.remove(0);
-				ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader starting DL of: " + d.getUrl());
-				d.doDownload();
-			}
+			mIsCancelled = true;
 		}
 
 		// called if the file is not found on the file system
 		@Override
 		public void notFound() {
 			ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader notFound: " + uri);
-			if (mIsCancelled) {
-				return;
-			}
-			ImageView imageView = getImageView();
-
-			if (imageView == null || this != imageView.getTag(DRAWABLE_DOWNLOAD_TAG)) {
+			if (!isPending()) {
 				return;
 			}
 
-
-			if (isAnotherQueuedOrRunningWithSameUrl() != null) {
-				if (duplicateDownloads.containsKey(uri)) {
-					ArrayList<LoaderRequest> arr = duplicateDownloads.get(uri);
-					arr.add(this);
-					duplicateDownloads.put(uri, arr);
-				} else {
-					ArrayList<LoaderRequest> arr = new ArrayList<LoaderRequest>();
-					arr.add(this);
-					duplicateDownloads.put(uri, arr);
-				}
-			} else {
-				// check if this imageView is being used with a different URL, if so
-				// cancel the other one.
-				int queuedIndex = indexOfQueuedDownloadWithDifferentURL();
-				int downloadIndex = indexOfDownloadWithDifferentURL();
-				while (queuedIndex != -1) {
-					queuedDownLoaderRequests.remove(queuedIndex);
-					ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader notFound(Removing): " + uri);
-					queuedIndex = indexOfQueuedDownloadWithDifferentURL();
-				}
-				if (downloadIndex != -1) {
-					LoaderRequest runningLoaderRequest = runningDownLoaderRequests.get(downloadIndex);
-					ApptentiveDownloaderTask downloadTask = runningLoaderRequest.getDrawableDownloaderTask();
-					if (downloadTask != null) {
-						downloadTask.cancel(true);
-						ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader notFound(Cancelling): " + uri);
-					}
-				}
-
-				if (!(isBeingDownloaded() || isQueuedForDownload())) {
-					if (runningDownLoaderRequests.size() >= maxDownloads) {
-						ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader notFound(Queuing): " + uri);
-						queuedDownLoaderRequests.add(this);
-					} else {
-						ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader notFound(Downloading): " + uri);
-						doDownload();
-					}
-				}
+			if (URLUtil.isNetworkUrl(uri)) {
+				requestDownload(this);
 			}
 		}
 
 		@Override
 		public void loadBitmap(Bitmap b) {
-			bitmapMemoryCache.addObjectToCache(ImageMemoryCache.generateMemoryCacheEntryKey(uri, imageViewWidth, imageViewHeight), b);
+			imageCache.putToMemory(getCacheKey(), b);
 			ImageView imageView = getImageView();
 			if (imageView != null && this == imageView.getTag(DRAWABLE_DOWNLOAD_TAG)) {
 				ApptentiveLog.v(UTIL, "ApptentiveAttachmentLoader loadDrawable(add to cache)");
 				loadDrawable(b);
 				imageView.setTag(DRAWABLE_DOWNLOAD_TAG, null);
 			}
-			mWasDownloaded = false;
 		}
 
 		@Override
@@ -659,16 +714,15 @@ public class ApptentiveAttachmentLoader {
 		}
 	}
 
-	public boolean isBitmapLoaded(String memoryKey) {
-		Bitmap cachedBitmap = (Bitmap) bitmapMemoryCache.getObjectFromCache(memoryKey);
-		return cachedBitmap != null;
+	public boolean isBitmapLoaded(String uri, int width, int height) {
+		return imageCache.getFromMemory(new ImageCache.Key(uri, width, height)) != null;
 	}
 
 	/**
-	 * Clears memory cache
+	 * Clears memory cache (thumbnails stay in the disk cache)
 	 */
 	public void clearMemoryCache() {
-		bitmapMemoryCache.evictAll();
+		imageCache.clearMemory();
 	}
 
 }
@@ -114,6 +114,13 @@ public class ApptentiveImageGridView extends GridView implements AdapterView.OnI
 		imageBandAdapter.setIndicatorCallback(callback);
 	}
 
+	/**
+	 * Sets the adapter position of the list item showing this grid.
+	 */
+	public void setListPosition(int listPosition) {
+		imageBandAdapter.setListPosition(listPosition);
+	}
+
 	public void setData(List<ImageItem> images) {
 		imageBandAdapter.setData(images);
 	}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.image;
+
+/**
+ * Limits the number of bitmap decodes running at the same time and the total amount of memory they
+ * may allocate. Decodes which don't fit into the budget wait until other decodes release their share.
+ * A single decode larger than the whole budget is still allowed when nothing else is running.
+ */
+public class BitmapDecodeBudget {
+	private final int maxDecodes;
+	private final long maxBytes;
+
+	private int activeDecodes;
+	private long activeBytes;
+
+	public BitmapDecodeBudget(int maxDecodes, long maxBytes) {
+		if (maxDecodes < 1) {
+			throw new IllegalArgumentException("Invalid max decodes: " + maxDecodes);
+		}
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("Invalid max bytes: " + maxBytes);
+		}
+		this.maxDecodes = maxDecodes;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Blocks until a decode of the specified size fits into the budget.
+	 *
+	 * @return <code>false</code> if the calling thread was interrupted while waiting
+	 */
+	public synchronized boolean acquire(long bytes) {
+		while (!canAcquire(bytes)) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		activeDecodes++;
+		activeBytes += bytes;
+		return true;
+	}
+
+	/**
+	 * Returns the share previously taken with {@link #acquire(long)}.
+	 */
+	public synchronized void release(long bytes) {
+		if (activeDecodes == 0) {
+			throw new IllegalStateException("No active decodes");
+		}
+		activeDecodes--;
+		activeBytes -= bytes;
+		notifyAll();
+	}
+
+	private boolean canAcquire(long bytes) {
+		if (activeDecodes == 0) {
+			return true;
+		}
+		return activeDecodes < maxDecodes && activeBytes + bytes <= maxBytes;
+	}
+
+	public synchronized int getActiveDecodes() {
+		return activeDecodes;
+	}
+
+	public synchronized long getActiveBytes() {
+		return activeBytes;
+	}
+}
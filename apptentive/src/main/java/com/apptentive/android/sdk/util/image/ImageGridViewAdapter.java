@@ -57,6 +57,9 @@ public class ImageGridViewAdapter extends BaseAdapter {
 	private int itemWidth;
 	private int itemHeight;
 
+	// adapter position of the list item showing the grid (used to prioritize downloads)
+	private int listPosition = ApptentiveAttachmentLoader.NO_POSITION;
+
 	private GridView.LayoutParams itemLayoutParams;
 
 	private boolean bHasWritePermission;
@@ -208,6 +211,10 @@ public class ImageGridViewAdapter extends BaseAdapter {
 		notifyDataSetChanged();
 	}
 
+	public void setListPosition(int listPosition) {
+		this.listPosition = listPosition;
+	}
+
 	/**
 	 * Reset colum size
 	 *
@@ -413,7 +420,7 @@ public class ImageGridViewAdapter extends BaseAdapter {
 
 			if (itemWidth > 0) {
 				if (bLoadThumbnail) {
-					ApptentiveAttachmentLoader.getInstance().load(conversationToken, data.originalPath, data.localCachePath, pos, image, itemWidth, itemHeight, true,
+					ApptentiveAttachmentLoader.getInstance().load(conversationToken, data.originalPath, data.localCachePath, pos, listPosition, image, itemWidth, itemHeight, true,
 							new ApptentiveAttachmentLoader.LoaderCallback() {
 								@Override
 								public void onLoaded(ImageView view, int i, Bitmap d) {
@@ -477,7 +484,7 @@ public class ImageGridViewAdapter extends BaseAdapter {
 								}
 							});
 				} else if (!TextUtils.isEmpty(data.originalPath) && downloadItems.contains(data.originalPath)) {
-					ApptentiveAttachmentLoader.getInstance().load(conversationToken, data.originalPath, data.localCachePath, index, image, 0, 0, false,
+					ApptentiveAttachmentLoader.getInstance().load(conversationToken, data.originalPath, data.localCachePath, index, listPosition, image, 0, 0, false,
 							new ApptentiveAttachmentLoader.LoaderCallback() {
 								@Override
 								public void onLoaded(ImageView view, int pos, Bitmap d) {
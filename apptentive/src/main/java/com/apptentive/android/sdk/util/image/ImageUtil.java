@@ -16,12 +16,15 @@ import android.os.AsyncTask;
 import android.os.Build;
 import android.text.TextUtils;
 import android.webkit.URLUtil;
+import androidx.annotation.Nullable;
 
 import com.apptentive.android.sdk.ApptentiveInternal;
 import com.apptentive.android.sdk.ApptentiveLog;
 import com.apptentive.android.sdk.module.messagecenter.view.ApptentiveAvatarView;
+import com.apptentive.android.sdk.util.Constants;
 import com.apptentive.android.sdk.util.CountingOutputStream;
 import com.apptentive.android.sdk.util.Util;
+import com.apptentive.android.sdk.util.cache.RemoteImageCache;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -31,6 +34,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
 import java.net.URL;
 
 import static com.apptentive.android.sdk.ApptentiveLogTag.UTIL;
@@ -40,6 +44,18 @@ public class ImageUtil {
 
 	private static final int MAX_SENT_IMAGE_EDGE = 1024;
 
+	private static final String REMOTE_IMAGE_CACHE_DIR = "apptentive-remote-images";
+	private static final long MAX_REMOTE_IMAGE_CACHE_SIZE = 5 * 1024 * 1024;
+	private static final long MAX_REMOTE_IMAGE_AGE_MILLIS = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * Bounds concurrent decodes so several images can be decoded in parallel without running out of
+	 * memory
+	 */
+	private static final BitmapDecodeBudget decodeBudget = new BitmapDecodeBudget(
+		Math.max(2, Runtime.getRuntime().availableProcessors()),
+		Runtime.getRuntime().maxMemory() / 8);
+
 	/**
 	 * From <a href="http://developer.android.com/training/displaying-bitmaps/load-bitmap.html">Loading Large Bitmaps Efficiently</a>
 	 */
@@ -49,11 +65,19 @@ public class ImageUtil {
 		final int width = options.outWidth;
 		int inSampleSize = 1;
 
-		if (height > reqHeight || width > reqWidth) {
+		// zero means "don't constrain this dimension"
+		if (reqWidth <= 0) {
+			reqWidth = width;
+		}
+		if (reqHeight <= 0) {
+			reqHeight = height;
+		}
+
+		if (reqWidth > 0 && reqHeight > 0 && (height > reqHeight || width > reqWidth)) {
 
 			// Calculate ratios of height and width to requested height and width
-			final int heightRatio = Math.round((float) height / (float) reqHeight);
-			final int widthRatio = Math.round((float) width / (float) reqWidth);
+			final int heightRatio = height / reqHeight;
+			final int widthRatio = width / reqWidth;
 
 			// Choose the smallest ratio as inSampleSize value, this will guarantee
 			// a final image with both dimensions larger than or equal to the
@@ -61,7 +85,29 @@ public class ImageUtil {
 			inSampleSize = heightRatio < widthRatio ? heightRatio : widthRatio;
 		}
 
-		return inSampleSize;
+		return Math.max(1, inSampleSize);
+	}
+
+	/**
+	 * Returns the number of bytes the decoder would allocate for an image sampled down by
+	 * <code>inSampleSize</code>.
+	 */
+	private static long estimateDecodeBytes(BitmapFactory.Options boundsOptions, int inSampleSize, Bitmap.Config config) {
+		// some decoders only honor powers of two: assume the worst case
+		int sampleSize = Integer.highestOneBit(Math.max(1, inSampleSize));
+		long width = (boundsOptions.outWidth + sampleSize - 1) / sampleSize;
+		long height = (boundsOptions.outHeight + sampleSize - 1) / sampleSize;
+		return width * height * getBytesPerPixel(config);
+	}
+
+	private static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == Bitmap.Config.ALPHA_8) {
+			return 1;
+		}
+		if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+			return 2;
+		}
+		return 4;
 	}
 
 	/**
@@ -113,64 +159,77 @@ public class ImageUtil {
 		}
 
 
-		int width, height;
+		int reqWidth, reqHeight;
 
-		if (orientation == 90 || orientation == 270) {
+		// requested dimensions are for the rotated image: match them against the raw one
+		boolean rotated = orientation == ExifInterface.ORIENTATION_ROTATE_90 || orientation == ExifInterface.ORIENTATION_ROTATE_270;
+		if (rotated) {
 			//noinspection SuspiciousNameCombination
-			width = decodeBoundsOptions.outHeight;
+			reqWidth = minShrunkHeight;
 			//noinspection SuspiciousNameCombination
-			height = decodeBoundsOptions.outWidth;
+			reqHeight = minShrunkWidth;
 		} else {
-			width = decodeBoundsOptions.outWidth;
-			height = decodeBoundsOptions.outHeight;
+			reqWidth = minShrunkWidth;
+			reqHeight = minShrunkHeight;
 		}
 
-		ApptentiveLog.v(UTIL, "Original bitmap dimensions: %d x %d", width, height);
-		int sampleRatio = Math.min(width / minShrunkWidth, height / minShrunkHeight);
-		if (sampleRatio >= 2) {
-			options.inSampleSize = sampleRatio;
-		}
+		ApptentiveLog.v(UTIL, "Original bitmap dimensions: %d x %d", decodeBoundsOptions.outWidth, decodeBoundsOptions.outHeight);
+		options.inSampleSize = calculateInSampleSize(decodeBoundsOptions, reqWidth, reqHeight);
 		options.inScaled = false;
 		options.inJustDecodeBounds = false;
 		ApptentiveLog.v(UTIL, "Bitmap sample size = %d", options.inSampleSize);
 
-		Bitmap retImg = null;
-		if (bCreateFromUri && context != null) {
-			InputStream is = null;
-			try {
-				is = context.getContentResolver().openInputStream(fileUri);
-				retImg = BitmapFactory.decodeStream(is, null, options);
-			} catch (FileNotFoundException e) {
-				throw new NullPointerException("Failed to decode image");
-			} finally {
-				Util.ensureClosed(is);
-			}
-		} else if (!bCreateFromUri){
-			retImg = BitmapFactory.decodeFile(fileAbsolutePath, options);
+		// rotation needs a second copy of the sampled bitmap
+		long decodeBytes = estimateDecodeBytes(decodeBoundsOptions, options.inSampleSize, options.inPreferredConfig);
+		if (orientation != 0 && orientation != -1) {
+			decodeBytes *= 2;
 		}
 
+		if (!decodeBudget.acquire(decodeBytes)) {
+			throw new NullPointerException("Failed to decode image"); // interrupted
+		}
 
-		ApptentiveLog.v(UTIL, "Sampled bitmap size = %d X %d", options.outWidth, options.outHeight);
-
-		if ((orientation != 0 && orientation != -1) && retImg != null) {
-			Matrix matrix = new Matrix();
-			switch (orientation) {
-				case ExifInterface.ORIENTATION_ROTATE_90:
-					matrix.postRotate(90);
-					break;
-				case ExifInterface.ORIENTATION_ROTATE_180:
-					matrix.postRotate(180);
-					break;
-				case ExifInterface.ORIENTATION_ROTATE_270:
-					matrix.postRotate(270);
-					break;
+		Bitmap retImg = null;
+		try {
+			if (bCreateFromUri && context != null) {
+				InputStream is = null;
+				try {
+					is = context.getContentResolver().openInputStream(fileUri);
+					retImg = BitmapFactory.decodeStream(is, null, options);
+				} catch (FileNotFoundException e) {
+					throw new NullPointerException("Failed to decode image");
+				} finally {
+					Util.ensureClosed(is);
+				}
+			} else if (!bCreateFromUri){
+				retImg = BitmapFactory.decodeFile(fileAbsolutePath, options);
 			}
-            try {
-				retImg = Bitmap.createBitmap(retImg, 0, 0, retImg.getWidth(),
-						retImg.getHeight(), matrix, true);
-			} catch (IllegalArgumentException e) {
-				throw new NullPointerException("Failed to decode image");
+
+
+			ApptentiveLog.v(UTIL, "Sampled bitmap size = %d X %d", options.outWidth, options.outHeight);
+
+			if ((orientation != 0 && orientation != -1) && retImg != null) {
+				Matrix matrix = new Matrix();
+				switch (orientation) {
+					case ExifInterface.ORIENTATION_ROTATE_90:
+						matrix.postRotate(90);
+						break;
+					case ExifInterface.ORIENTATION_ROTATE_180:
+						matrix.postRotate(180);
+						break;
+					case ExifInterface.ORIENTATION_ROTATE_270:
+						matrix.postRotate(270);
+						break;
+				}
+				try {
+					retImg = Bitmap.createBitmap(retImg, 0, 0, retImg.getWidth(),
+							retImg.getHeight(), matrix, true);
+				} catch (IllegalArgumentException e) {
+					throw new NullPointerException("Failed to decode image");
+				}
 			}
+		} finally {
+			decodeBudget.release(decodeBytes);
 		}
 
 		if (retImg == null) {
@@ -192,7 +251,7 @@ public class ImageUtil {
 	 * @param orientation The orientation for the image expressed as degrees
 	 * @return A Bitmap scaled by maxWidth, maxHeight, and config.
 	 */
-	public synchronized static Bitmap createScaledBitmapFromLocalImageSource(String fileUrl, int maxWidth, int maxHeight, Bitmap.Config config, int orientation)
+	public static Bitmap createScaledBitmapFromLocalImageSource(String fileUrl, int maxWidth, int maxHeight, Bitmap.Config config, int orientation)
 			throws FileNotFoundException {
 		Bitmap tempBitmap = null;
 
@@ -259,6 +318,92 @@ public class ImageUtil {
 		}
 	}
 
+	//region Remote Images
+
+	private static @Nullable RemoteImageCache remoteImageCache;
+
+	private static synchronized @Nullable RemoteImageCache getRemoteImageCache() {
+		if (remoteImageCache == null) {
+			Context context = ApptentiveInternal.getInstance().getApplicationContext();
+			File cacheDir = context != null ? Util.getDiskCacheDir(context) : null;
+			if (cacheDir != null) {
+				remoteImageCache = new RemoteImageCache(new File(cacheDir, REMOTE_IMAGE_CACHE_DIR), MAX_REMOTE_IMAGE_CACHE_SIZE, MAX_REMOTE_IMAGE_AGE_MILLIS);
+			}
+		}
+		return remoteImageCache;
+	}
+
+	/**
+	 * Returns a downloaded copy of a remote image if it's cached and not expired.
+	 */
+	private static @Nullable File getCachedRemoteImage(String imageUrl) {
+		RemoteImageCache cache = getRemoteImageCache();
+		return cache != null ? cache.get(imageUrl) : null;
+	}
+
+	/**
+	 * Downloads a remote image into the disk cache (blocks the calling thread). Images are only
+	 * downloaded on unmetered networks: the caller is expected to show them on demand otherwise.
+	 *
+	 * @return true if the image is available in the disk cache
+	 */
+	public static boolean prefetchRemoteImage(String imageUrl) throws IOException {
+		if (!URLUtil.isNetworkUrl(imageUrl)) {
+			return false;
+		}
+
+		RemoteImageCache cache = getRemoteImageCache();
+		if (cache == null) {
+			return false;
+		}
+
+		if (cache.get(imageUrl) != null) {
+			return true;
+		}
+
+		// remote images are optional: don't waste user's data plan
+		if (!Util.isNetworkConnectionUnmetered()) {
+			ApptentiveLog.v(UTIL, "Skipping remote image prefetch: network is metered or unavailable");
+			return false;
+		}
+
+		// download into a unique temporary file so a partial download never ends up in the cache
+		File tempFile = cache.createTempFile(imageUrl);
+		HttpURLConnection connection = null;
+		InputStream input = null;
+		OutputStream output = null;
+		try {
+			connection = (HttpURLConnection) new URL(imageUrl).openConnection();
+			connection.setConnectTimeout(Constants.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+			connection.setReadTimeout(Constants.DEFAULT_READ_TIMEOUT_MILLIS);
+			input = connection.getInputStream();
+			output = new BufferedOutputStream(new FileOutputStream(tempFile));
+			byte[] buffer = new byte[8192];
+			int bytesRead;
+			while ((bytesRead = input.read(buffer)) != -1) {
+				output.write(buffer, 0, bytesRead);
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			throw e;
+		} finally {
+			Util.ensureClosed(input);
+			Util.ensureClosed(output);
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+
+		if (cache.put(imageUrl, tempFile) == null) {
+			return false;
+		}
+
+		ApptentiveLog.v(UTIL, "Remote image cached: %s", imageUrl);
+		return true;
+	}
+
+	//endregion
+
 	/**
 	 * This method creates a cached version of the original image, and compresses it in the process so it doesn't fill up the disk. Therefore, do not use
 	 * it to store an exact copy of the file in question.
@@ -283,14 +428,12 @@ public class ImageUtil {
 		CountingOutputStream cos = null;
 		try {
 			cos = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(localFile)));
-			System.gc();
 			Bitmap smaller = ImageUtil.createScaledBitmapFromLocalImageSource(sourcePath, MAX_SENT_IMAGE_EDGE, MAX_SENT_IMAGE_EDGE, null, imageOrientation);
 			// TODO: Is JPEG what we want here?
 			smaller.compress(Bitmap.CompressFormat.JPEG, 95, cos);
 			cos.flush();
 			ApptentiveLog.v(UTIL, "Bitmap saved, size = " + (cos.getBytesWritten() / 1024) + "k");
 			smaller.recycle();
-			System.gc();
 		} catch (FileNotFoundException e) {
 			ApptentiveLog.e(UTIL, e, "File not found while storing image.");
 			logException(e);
@@ -320,7 +463,6 @@ public class ImageUtil {
 		CountingOutputStream cos = null;
 		try {
 			cos = new CountingOutputStream(new BufferedOutputStream(outputStream));
-			System.gc();
 			Bitmap smaller = ImageUtil.createScaledBitmapFromLocalImageSource(sourcePath, MAX_SENT_IMAGE_EDGE, MAX_SENT_IMAGE_EDGE, null, imageOrientation);
 			smaller.compress(Bitmap.CompressFormat.JPEG, 95, cos);
 			cos.flush();
@@ -368,8 +510,22 @@ public class ImageUtil {
 		}
 
 		private Bitmap loadImageFromNetwork(String imageUrl) throws IOException {
+			// the image might be already pre-fetched (images shown on demand are not stored in the cache)
+			File cacheFile = getCachedRemoteImage(imageUrl);
+			if (cacheFile != null) {
+				Bitmap bitmap = BitmapFactory.decodeFile(cacheFile.getPath());
+				if (bitmap != null) {
+					return bitmap;
+				}
+			}
+
 			URL url = new URL(imageUrl);
-			return BitmapFactory.decodeStream(url.openStream());
+			InputStream input = url.openStream();
+			try {
+				return BitmapFactory.decodeStream(input);
+			} finally {
+				Util.ensureClosed(input);
+			}
 		}
 	}
 }
@@ -21,6 +21,7 @@ import java.util.Map;
 
 
 import android.os.AsyncTask;
+import android.util.Base64;
 import android.widget.ImageView;
 
 import com.apptentive.android.sdk.ApptentiveLog;
@@ -36,10 +37,20 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 
 	private static boolean FILE_DOWNLOAD_REDIRECTION_ENABLED = false;
 
+	private static final int MAX_DOWNLOAD_ATTEMPTS = 3;
+	private static final long DOWNLOAD_RETRY_DELAY_MILLIS = 1000;
+
+	private static final int HTTP_REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
 	private final FileDownloadListener listener;
 
 	boolean download = false;
 
+	/**
+	 * <code>true</code> if the last download attempt failed with a transient error
+	 */
+	private boolean retryable;
+
 	public interface FileDownloadListener {
 		void onDownloadStart();
 
@@ -114,9 +125,39 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 	}
 
 	/**
-	 * This function download the large file from the server
+	 * Downloads the file with a limited number of attempts. Interrupted attempts are resumed from the
+	 * last received byte.
 	 */
 	private ApptentiveHttpResponse downloadBitmap(String urlString, String destFilePath, String conversationToken) {
+		PartialDownload partialDownload = new PartialDownload(new File(destFilePath));
+		ApptentiveHttpResponse ret = null;
+		for (int attempt = 1; attempt <= MAX_DOWNLOAD_ATTEMPTS; ++attempt) {
+			ret = downloadBitmap(urlString, partialDownload, conversationToken);
+			if (ret == null || ret.isSuccessful() || !shouldRetry(ret)) {
+				break;
+			}
+
+			ApptentiveLog.v(UTIL, "Download attempt %d failed: %s", attempt, urlString);
+			if (attempt < MAX_DOWNLOAD_ATTEMPTS) {
+				try {
+					Thread.sleep(DOWNLOAD_RETRY_DELAY_MILLIS * attempt);
+				} catch (InterruptedException e) {
+					break; // task was cancelled
+				}
+			}
+		}
+		return ret;
+	}
+
+	private boolean shouldRetry(ApptentiveHttpResponse response) {
+		// only retry network failures and server errors
+		return !isCancelled() && (retryable || response.getCode() >= 500);
+	}
+
+	/**
+	 * This function download the large file from the server
+	 */
+	private ApptentiveHttpResponse downloadBitmap(String urlString, PartialDownload partialDownload, String conversationToken) {
 		if (isCancelled()) {
 			return null;
 		}
@@ -129,6 +170,13 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 		ApptentiveHttpResponse ret = new ApptentiveHttpResponse();
 		String cookies = null;
 		URL httpUrl;
+
+		retryable = false;
+
+		// pick up where the previous attempt left off
+		long offset = partialDownload.restore(urlString);
+		String validator = partialDownload.getValidator();
+
 		try {
 			while (true) {
 				httpUrl = new URL(urlString);
@@ -143,8 +191,13 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 
 				connection.setConnectTimeout(Constants.DEFAULT_CONNECT_TIMEOUT_MILLIS);
 				connection.setReadTimeout(Constants.DEFAULT_READ_TIMEOUT_MILLIS);
-				connection.setRequestProperty("Accept-Encoding", "gzip");
+				// byte ranges only make sense for the raw content
+				connection.setRequestProperty("Accept-Encoding", "identity");
 				connection.setRequestProperty("Accept", "application/json");
+				if (offset > 0) {
+					connection.setRequestProperty("Range", "bytes=" + offset + "-");
+					connection.setRequestProperty("If-Range", validator);
+				}
 
 				connection.setRequestMethod("GET");
 				connection.setInstanceFollowRedirects(false);
@@ -183,20 +236,50 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 
 			ret.setHeaders(headers);
 
-			if (ret.isSuccessful()) {
+			if (responseCode == HTTP_REQUESTED_RANGE_NOT_SATISFIABLE) {
+				// we might already have all the bytes
+				if (offset > 0 && offset == partialDownload.getTotalLength() && partialDownload.complete()) {
+					ret.setCode(HttpURLConnection.HTTP_OK);
+					publishProgress(100);
+				} else {
+					partialDownload.discard();
+					ret.setCode(-1);
+					retryable = true; // retry from scratch
+				}
+			} else if (ret.isSuccessful()) {
+				boolean append = false;
+				long contentLength = parseLong(connection.getHeaderField("Content-Length"));
+				long totalLength = contentLength;
+
+				if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+					String contentRange = connection.getHeaderField("Content-Range");
+					if (PartialDownload.parseContentRangeStart(contentRange) != offset) {
+						partialDownload.discard(); // the next attempt starts from scratch
+						throw new IOException("Unexpected content range: " + contentRange);
+					}
+					totalLength = PartialDownload.parseContentRangeTotal(contentRange);
+					append = true;
+					ApptentiveLog.v(UTIL, "Resuming download from byte %d: %s", offset, urlString);
+				} else {
+					// the resource has changed (or server doesn't support ranges): start over
+					offset = 0;
+				}
+
+				// Content-MD5 of a partial response only covers the range: keep the digest of the complete resource
+				String contentMd5 = append ? partialDownload.getContentMd5() : parseContentMd5(connection.getHeaderField("Content-MD5"));
+				partialDownload.save(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), totalLength, contentMd5);
+
 				// Read the normal content response
 				InputStream input = null;
 				FileOutputStream output = null;
 				try {
-					int fileLength = connection.getContentLength();
-
 					// input stream to read file - with 8k buffer
-					input = new BufferedInputStream(httpUrl.openStream(), 8192);
-					output = new FileOutputStream(destFilePath);
+					input = new BufferedInputStream(connection.getInputStream(), 8192);
+					output = new FileOutputStream(partialDownload.getPartialFile(), append);
 
 					byte data[] = new byte[8192];
 
-					long total = 0;
+					long total = offset;
 
 					while ((count = input.read(data)) != -1) {
 						// allow canceling
@@ -206,26 +289,30 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 						} else if (this.download) {
 							total += count;
 							// publishing the progress only if fileLength is known
-							if (fileLength > 0) {
-								publishProgress((int) ((total * 100) / fileLength));
+							if (totalLength > 0) {
+								publishProgress((int) ((total * 100) / totalLength));
 							}
 							output.write(data, 0, count);
 						}
 					}
 					// flushing output
 					output.flush();
-					if (!this.download) {
-						File fileToDelete = new File(destFilePath);
-						fileToDelete.delete();
-						publishProgress(-1);
-					} else {
-						publishProgress(100);
-					}
 				} finally {
 					// closing streams
 					Util.ensureClosed(output);
 					Util.ensureClosed(input);
 				}
+
+				if (!this.download) {
+					// keep the partial file: the download would be resumed next time
+					publishProgress(-1);
+				} else if (partialDownload.complete()) {
+					publishProgress(100);
+				} else {
+					ApptentiveLog.w(UTIL, "Downloaded file failed integrity check: %s", urlString);
+					ret.setCode(-1);
+					retryable = true;
+				}
 			}
 		} catch (IllegalArgumentException e) {
 			ApptentiveLog.w(UTIL, e, "Error communicating with server.");
@@ -233,12 +320,16 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 		} catch (SocketTimeoutException e) {
 			ApptentiveLog.w(UTIL, e, "Timeout communicating with server.");
 			logException(e);
+			ret.setCode(-1);
+			retryable = true;
 		} catch (final MalformedURLException e) {
 			ApptentiveLog.w(UTIL, e, "ClientProtocolException");
 			logException(e);
 		} catch (final IOException e) {
 			ApptentiveLog.w(UTIL, e, "ClientProtocolException");
 			logException(e);
+			ret.setCode(-1);
+			retryable = true;
 			try {
 				ret.setContent(ApptentiveClient.getErrorResponse(connection, ret.isZipped()));
 			} catch (IOException ex) {
@@ -250,4 +341,27 @@ public class ApptentiveDownloaderTask extends AsyncTask<Object, Integer, Apptent
 		return ret;
 	}
 
+	private static long parseLong(String value) {
+		try {
+			return value != null ? Long.parseLong(value.trim()) : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns a hex MD5 digest from a base64 <code>Content-MD5</code> header value (<code>null</code>
+	 * if the header is missing or malformed)
+	 */
+	private static String parseContentMd5(String value) {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return PartialDownload.toMd5String(Base64.decode(value.trim(), Base64.DEFAULT));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
 }
\ No newline at end of file
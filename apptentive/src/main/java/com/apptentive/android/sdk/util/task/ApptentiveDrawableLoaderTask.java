@@ -17,8 +17,10 @@ import android.os.AsyncTask;
 import android.text.TextUtils;
 import android.webkit.URLUtil;
 import android.widget.ImageView;
+import androidx.annotation.Nullable;
 
 import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.util.cache.ImageCache;
 import com.apptentive.android.sdk.util.image.ImageUtil;
 
 import static com.apptentive.android.sdk.ApptentiveLogTag.UTIL;
@@ -26,6 +28,7 @@ import static com.apptentive.android.sdk.ApptentiveLogTag.UTIL;
 public class ApptentiveDrawableLoaderTask extends AsyncTask<String, Void, Bitmap> {
 	private WeakReference<ImageView> imageViewReference;
 	private BitmapLoadListener mListener;
+	private final ImageCache imageCache;
 	protected BitmapFactory.Options options;
 	private boolean decoderError;
 	private Exception e = null;
@@ -42,8 +45,13 @@ public class ApptentiveDrawableLoaderTask extends AsyncTask<String, Void, Bitmap
 	}
 
 	public ApptentiveDrawableLoaderTask(ImageView imageView, BitmapLoadListener listener) {
+		this(imageView, listener, null);
+	}
+
+	public ApptentiveDrawableLoaderTask(ImageView imageView, BitmapLoadListener listener, @Nullable ImageCache imageCache) {
 		imageViewReference = new WeakReference<ImageView>(imageView);
 		mListener = listener;
+		this.imageCache = imageCache;
 	}
 
 
@@ -60,9 +68,18 @@ public class ApptentiveDrawableLoaderTask extends AsyncTask<String, Void, Bitmap
 			}
 
 
+			// Pre-scaled thumbnail is the cheapest to decode
+			ImageCache.Key cacheKey = imageCache != null && !TextUtils.isEmpty(uri) ? new ImageCache.Key(uri, width, height) : null;
+			if (cacheKey != null) {
+				bitmap = imageCache.getFromDisk(cacheKey);
+				if (bitmap != null) {
+					return bitmap;
+				}
+			}
+
 			File imageFile;
 
-			// Always try to load image from apptentive cached copy first
+			// Try to load image from apptentive cached copy
 			if (!TextUtils.isEmpty(cachedFilePath)) {
 				imageFile = new File(cachedFilePath);
 				if (imageFile.exists()) {
@@ -73,6 +90,10 @@ public class ApptentiveDrawableLoaderTask extends AsyncTask<String, Void, Bitmap
 			if (bitmap == null) {
 				bitmap = loadFromLocalImageSource(uri, width, height, false);
 			}
+
+			if (bitmap != null && cacheKey != null && !isCancelled()) {
+				imageCache.putToDisk(cacheKey, bitmap);
+			}
 		} catch (Exception unhandled) {
 			this.e = unhandled;
 		}
@@ -92,6 +113,7 @@ public class ApptentiveDrawableLoaderTask extends AsyncTask<String, Void, Bitmap
 			mListener.notFound();
 		} else {
 			if (isCancelled()) {
+				releaseBitmap(bitmap); // never displayed
 				bitmap = null;
 			}
 			ImageView imageView = imageViewReference.get();
@@ -105,6 +127,7 @@ public class ApptentiveDrawableLoaderTask extends AsyncTask<String, Void, Bitmap
 					mListener.onLoadCancelled();
 				}
 			} else {
+				releaseBitmap(bitmap); // never displayed
 				if (mListener != null) {
 					mListener.onLoadError();
 				}
@@ -113,6 +136,12 @@ public class ApptentiveDrawableLoaderTask extends AsyncTask<String, Void, Bitmap
 
 	}
 
+	private void releaseBitmap(Bitmap bitmap) {
+		if (imageCache != null) {
+			imageCache.release(bitmap);
+		}
+	}
+
 	private Bitmap loadFromLocalImageSource(final String fileLocation, final int width, final int height, final boolean bDeleteSourceIfCorrupted) {
 		Bitmap bitmap = null;
 
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.task;
+
+import com.apptentive.android.sdk.util.StringUtils;
+import com.apptentive.android.sdk.util.Util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * State of an interrupted file download: the bytes received so far are kept in a
+ * <code>.partial</code> file next to the destination and the validators the server returned for
+ * them are kept in a sidecar file. A download can only be resumed if the server still has the same
+ * version of the resource (see <code>If-Range</code>).
+ */
+class PartialDownload {
+	private static final String PARTIAL_FILE_SUFFIX = ".partial";
+	private static final String STATE_FILE_SUFFIX = ".partial.meta";
+
+	private static final String KEY_URL = "url";
+	private static final String KEY_ETAG = "etag";
+	private static final String KEY_LAST_MODIFIED = "lastModified";
+	private static final String KEY_TOTAL_LENGTH = "totalLength";
+	private static final String KEY_CONTENT_MD5 = "contentMd5";
+
+	private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+
+	private final File destFile;
+	private final File partialFile;
+	private final File stateFile;
+
+	private String url;
+	private String etag;
+	private String lastModified;
+	private long totalLength = -1;
+
+	/**
+	 * Hex MD5 digest of the complete resource if the server provided one (<code>null</code> otherwise)
+	 */
+	private String contentMd5;
+
+	PartialDownload(File destFile) {
+		if (destFile == null) {
+			throw new IllegalArgumentException("Destination file is null");
+		}
+		this.destFile = destFile;
+		this.partialFile = new File(destFile.getPath() + PARTIAL_FILE_SUFFIX);
+		this.stateFile = new File(destFile.getPath() + STATE_FILE_SUFFIX);
+	}
+
+	//region State
+
+	/**
+	 * Restores the state of a previous attempt to download <code>url</code>. Returns the number of
+	 * bytes which can be resumed (<code>0</code> if the download should start from scratch).
+	 */
+	long restore(String url) {
+		this.url = url;
+
+		if (partialFile.exists() && stateFile.exists()) {
+			Properties properties = new Properties();
+			InputStream input = null;
+			try {
+				input = new FileInputStream(stateFile);
+				properties.load(input);
+
+				if (StringUtils.equal(url, properties.getProperty(KEY_URL))) {
+					etag = properties.getProperty(KEY_ETAG);
+					lastModified = properties.getProperty(KEY_LAST_MODIFIED);
+					totalLength = Long.parseLong(properties.getProperty(KEY_TOTAL_LENGTH, "-1"));
+					contentMd5 = properties.getProperty(KEY_CONTENT_MD5);
+
+					long length = partialFile.length();
+					if (getValidator() != null && (totalLength == -1 || length <= totalLength)) {
+						return length;
+					}
+				}
+			} catch (Exception ignored) {
+				// corrupted state: start over
+			} finally {
+				Util.ensureClosed(input);
+			}
+		}
+
+		discard();
+		return 0;
+	}
+
+	/**
+	 * Saves resource validators returned by the server so the download can be resumed later.
+	 *
+	 * @param contentMd5 hex MD5 digest of the complete resource guaranteed by the server (see
+	 *                   <code>Content-MD5</code>) or <code>null</code> if it's unknown
+	 */
+	void save(String etag, String lastModified, long totalLength, String contentMd5) throws IOException {
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.totalLength = totalLength;
+		this.contentMd5 = contentMd5;
+
+		Properties properties = new Properties();
+		properties.setProperty(KEY_URL, url);
+		if (etag != null) {
+			properties.setProperty(KEY_ETAG, etag);
+		}
+		if (lastModified != null) {
+			properties.setProperty(KEY_LAST_MODIFIED, lastModified);
+		}
+		properties.setProperty(KEY_TOTAL_LENGTH, String.valueOf(totalLength));
+		if (contentMd5 != null) {
+			properties.setProperty(KEY_CONTENT_MD5, contentMd5);
+		}
+
+		OutputStream output = null;
+		try {
+			output = new FileOutputStream(stateFile);
+			properties.store(output, null);
+		} finally {
+			Util.ensureClosed(output);
+		}
+	}
+
+	/**
+	 * Deletes all the downloaded bytes and the saved state.
+	 */
+	void discard() {
+		partialFile.delete();
+		stateFile.delete();
+		etag = null;
+		lastModified = null;
+		totalLength = -1;
+		contentMd5 = null;
+	}
+
+	/**
+	 * Verifies the downloaded bytes and moves them to the destination file.
+	 *
+	 * @return <code>false</code> if the integrity check failed (the partial download is discarded)
+	 */
+	boolean complete() throws IOException {
+		if (!verify()) {
+			discard();
+			return false;
+		}
+
+		if (destFile.exists() && !destFile.delete()) {
+			throw new IOException("Unable to delete file: " + destFile);
+		}
+		if (!partialFile.renameTo(destFile)) {
+			throw new IOException("Unable to rename file: " + partialFile);
+		}
+		stateFile.delete();
+		return true;
+	}
+
+	private boolean verify() throws IOException {
+		long length = partialFile.length();
+		if (totalLength != -1 && length != totalLength) {
+			return false;
+		}
+
+		// ETags are opaque: the content is only checked if the server provided its digest
+		if (contentMd5 != null) {
+			return contentMd5.equalsIgnoreCase(md5(partialFile));
+		}
+
+		return true;
+	}
+
+	//endregion
+
+	//region Getters
+
+	File getPartialFile() {
+		return partialFile;
+	}
+
+	File getStateFile() {
+		return stateFile;
+	}
+
+	long getTotalLength() {
+		return totalLength;
+	}
+
+	String getContentMd5() {
+		return contentMd5;
+	}
+
+	/**
+	 * Returns a value for the <code>If-Range</code> header (a strong ETag is preferred)
+	 */
+	String getValidator() {
+		if (etag != null && !etag.startsWith("W/")) {
+			return etag;
+		}
+		return lastModified;
+	}
+
+	//endregion
+
+	//region Helpers
+
+	/**
+	 * Returns the first byte position of the <code>Content-Range</code> header or <code>-1</code> if
+	 * the header can't be parsed.
+	 */
+	static long parseContentRangeStart(String contentRange) {
+		Matcher matcher = contentRange != null ? CONTENT_RANGE_PATTERN.matcher(contentRange.trim()) : null;
+		return matcher != null && matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+	}
+
+	/**
+	 * Returns the complete length of the <code>Content-Range</code> header or <code>-1</code> if it's
+	 * unknown.
+	 */
+	static long parseContentRangeTotal(String contentRange) {
+		Matcher matcher = contentRange != null ? CONTENT_RANGE_PATTERN.matcher(contentRange.trim()) : null;
+		return matcher != null && matcher.matches() && !"*".equals(matcher.group(3)) ? Long.parseLong(matcher.group(3)) : -1;
+	}
+
+	/**
+	 * Returns a hex string for an MD5 digest or <code>null</code> if the digest has a wrong length.
+	 */
+	static String toMd5String(byte[] digest) {
+		if (digest == null || digest.length != 16) {
+			return null;
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (byte b : digest) {
+			result.append(String.format("%02x", b & 0xff));
+		}
+		return result.toString();
+	}
+
+	private static String md5(File file) throws IOException {
+		return Util.hashFile(file, "MD5");
+	}
+
+	//endregion
+}
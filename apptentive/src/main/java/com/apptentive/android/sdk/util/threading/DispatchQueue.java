@@ -23,6 +23,8 @@ package com.apptentive.android.sdk.util.threading;
 
 import android.os.Looper;
 
+import java.util.concurrent.Executor;
+
 /**
  * A class representing dispatch queue where <code>{@link DispatchTask}</code> tasks can be executed
  * serially
@@ -88,6 +90,23 @@ public abstract class DispatchQueue {
 		return false;
 	}
 
+	/**
+	 * Returns an <code>{@link Executor}</code> which dispatches runnables on this queue
+	 */
+	public Executor asExecutor() {
+		return new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				dispatchAsync(new DispatchTask() {
+					@Override
+					protected void execute() {
+						command.run();
+					}
+				});
+			}
+		};
+	}
+
 	/**
 	 * Stops queue execution and cancels all scheduled tasks
 	 */
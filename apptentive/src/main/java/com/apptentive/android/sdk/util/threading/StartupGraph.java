@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.threading;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs SDK initialization as a graph of named stages: a stage starts on its executor as soon as
+ * all of its dependencies are finished so independent stages run concurrently. Every stage is timed
+ * and the timings can be inspected once the startup is done.
+ */
+public class StartupGraph {
+	private final Map<String, Stage> stages = new LinkedHashMap<>();
+	private final long originNanos;
+	private boolean started;
+
+	public StartupGraph() {
+		originNanos = System.nanoTime();
+	}
+
+	//region Stages
+
+	/**
+	 * Adds a stage which runs on the executor once all of its dependencies are finished. Dependencies
+	 * must be added before the stage.
+	 */
+	public synchronized StartupGraph addStage(String name, Executor executor, Runnable task, String... dependencies) {
+		if (name == null) {
+			throw new IllegalArgumentException("Name is null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor is null");
+		}
+		if (task == null) {
+			throw new IllegalArgumentException("Task is null");
+		}
+		if (stages.containsKey(name)) {
+			throw new IllegalArgumentException("Duplicate stage: " + name);
+		}
+
+		Stage stage = new Stage(name, executor, task);
+		for (String dependency : dependencies) {
+			Stage dependencyStage = stages.get(dependency);
+			if (dependencyStage == null) {
+				throw new IllegalArgumentException("Unknown dependency '" + dependency + "' of stage '" + name + "'");
+			}
+			if (!dependencyStage.isFinished()) {
+				stage.pendingDependencies++;
+				dependencyStage.dependents.add(stage);
+			}
+		}
+		stages.put(name, stage);
+
+		if (started && stage.pendingDependencies == 0) {
+			schedule(stage);
+		}
+		return this;
+	}
+
+	/**
+	 * Starts all the stages without pending dependencies. Stages added afterwards are scheduled right
+	 * away.
+	 */
+	public void start() {
+		List<Stage> readyStages = new ArrayList<>();
+		synchronized (this) {
+			if (started) {
+				return;
+			}
+			started = true;
+
+			for (Stage stage : stages.values()) {
+				if (stage.pendingDependencies == 0) {
+					readyStages.add(stage);
+				}
+			}
+		}
+
+		for (Stage stage : readyStages) {
+			schedule(stage);
+		}
+	}
+
+	/**
+	 * Starts timing a stage which runs on the calling thread (for the work which has to stay on a
+	 * specific thread). Must be followed by {@link #end(String)}.
+	 */
+	public synchronized void begin(String name) {
+		if (stages.containsKey(name)) {
+			throw new IllegalArgumentException("Duplicate stage: " + name);
+		}
+		Stage stage = new Stage(name, null, null);
+		stage.begin();
+		stages.put(name, stage);
+	}
+
+	/**
+	 * Finishes a stage started with {@link #begin(String)}.
+	 */
+	public void end(String name) {
+		Stage stage;
+		synchronized (this) {
+			stage = stages.get(name);
+		}
+		if (stage == null || stage.executor != null) {
+			throw new IllegalArgumentException("Stage was not started: " + name);
+		}
+		stage.end(null);
+	}
+
+	/**
+	 * Blocks until the stage is finished.
+	 *
+	 * @return <code>false</code> if the stage is unknown, the timeout elapsed or the thread was interrupted
+	 */
+	public boolean await(String name, long timeoutMillis) {
+		Stage stage;
+		synchronized (this) {
+			stage = stages.get(name);
+		}
+		if (stage == null) {
+			return false;
+		}
+
+		try {
+			return stage.finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void schedule(final Stage stage) {
+		stage.executor.execute(stage);
+	}
+
+	private void onStageFinished(Stage stage) {
+		List<Stage> readyStages = new ArrayList<>();
+		synchronized (this) {
+			for (Stage dependent : stage.dependents) {
+				if (--dependent.pendingDependencies == 0 && started) {
+					readyStages.add(dependent);
+				}
+			}
+			stage.dependents.clear();
+		}
+
+		for (Stage readyStage : readyStages) {
+			schedule(readyStage);
+		}
+	}
+
+	//endregion
+
+	//region Timings
+
+	/**
+	 * Returns durations of the finished stages in milliseconds (in the order stages were added).
+	 */
+	public synchronized Map<String, Long> getTimings() {
+		Map<String, Long> timings = new LinkedHashMap<>();
+		for (Stage stage : stages.values()) {
+			if (stage.isFinished()) {
+				timings.put(stage.name, TimeUnit.NANOSECONDS.toMillis(stage.endNanos - stage.startNanos));
+			}
+		}
+		return timings;
+	}
+
+	/**
+	 * Returns the time from the graph creation to the end of the last finished stage in milliseconds.
+	 */
+	public synchronized long getElapsedMillis() {
+		long endNanos = originNanos;
+		for (Stage stage : stages.values()) {
+			if (stage.isFinished()) {
+				endNanos = Math.max(endNanos, stage.endNanos);
+			}
+		}
+		return TimeUnit.NANOSECONDS.toMillis(endNanos - originNanos);
+	}
+
+	/**
+	 * Human readable timeline: stage name, start offset, duration and the thread it ran on.
+	 */
+	public synchronized String describe() {
+		StringBuilder result = new StringBuilder();
+		for (Stage stage : stages.values()) {
+			if (result.length() > 0) {
+				result.append('\n');
+			}
+			result.append('\t').append(stage.name).append(": ");
+			if (stage.isFinished()) {
+				result.append("+").append(TimeUnit.NANOSECONDS.toMillis(stage.startNanos - originNanos)).append(" ms, ")
+					.append(TimeUnit.NANOSECONDS.toMillis(stage.endNanos - stage.startNanos)).append(" ms")
+					.append(" (").append(stage.threadName).append(")");
+				if (stage.failure != null) {
+					result.append(" failed: ").append(stage.failure);
+				}
+			} else {
+				result.append("pending");
+			}
+		}
+		return result.toString();
+	}
+
+	//endregion
+
+	//region Stage
+
+	private class Stage implements Runnable {
+		private final String name;
+		private final Executor executor;
+		private final Runnable task;
+		private final List<Stage> dependents = new ArrayList<>();
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private int pendingDependencies;
+
+		// guarded by the graph
+		private long startNanos;
+		private long endNanos;
+		private String threadName;
+		private Throwable failure;
+
+		Stage(String name, Executor executor, Runnable task) {
+			this.name = name;
+			this.executor = executor;
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			begin();
+			Throwable failure = null;
+			try {
+				task.run();
+			} catch (Throwable e) {
+				failure = e; // dependents and waiting threads should still proceed
+			} finally {
+				end(failure);
+			}
+		}
+
+		void begin() {
+			synchronized (StartupGraph.this) {
+				startNanos = System.nanoTime();
+			}
+		}
+
+		void end(Throwable failure) {
+			synchronized (StartupGraph.this) {
+				if (isFinished()) {
+					return;
+				}
+				this.endNanos = System.nanoTime();
+				this.threadName = Thread.currentThread().getName();
+				this.failure = failure;
+			}
+			finished.countDown();
+			onStageFinished(this);
+		}
+
+		boolean isFinished() {
+			return finished.getCount() == 0;
+		}
+	}
+
+	//endregion
+}
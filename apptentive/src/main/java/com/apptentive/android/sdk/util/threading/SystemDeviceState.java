@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.threading;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.network.ConnectivityMonitor;
+import com.apptentive.android.sdk.network.NetworkPolicy;
+import com.apptentive.android.sdk.notifications.ApptentiveNotification;
+import com.apptentive.android.sdk.notifications.ApptentiveNotificationCenter;
+import com.apptentive.android.sdk.notifications.ApptentiveNotificationObserver;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.SCHEDULER;
+import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_APP_ENTERED_BACKGROUND;
+import static com.apptentive.android.sdk.ApptentiveNotifications.NOTIFICATION_APP_ENTERED_FOREGROUND;
+import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
+
+/**
+ * {@link WorkScheduler.DeviceState} backed by the system broadcasts and the app lifecycle
+ * notifications. The state is cached so checking job constraints doesn't need a system call.
+ */
+public class SystemDeviceState implements WorkScheduler.DeviceState, ConnectivityMonitor.Listener, ApptentiveNotificationObserver {
+	private final ConnectivityMonitor connectivityMonitor;
+
+	private volatile boolean charging;
+	private volatile boolean appInForeground;
+	private volatile Listener listener;
+
+	public SystemDeviceState(Context context, ConnectivityMonitor connectivityMonitor) {
+		if (context == null) {
+			throw new IllegalArgumentException("Context is null");
+		}
+		if (connectivityMonitor == null) {
+			throw new IllegalArgumentException("Connectivity monitor is null");
+		}
+
+		this.connectivityMonitor = connectivityMonitor;
+		connectivityMonitor.addListener(this);
+
+		// the battery broadcast is sticky: registering without a receiver returns the current state
+		Intent batteryStatus = context.getApplicationContext().registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+		charging = batteryStatus != null && batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+
+		IntentFilter powerFilter = new IntentFilter();
+		powerFilter.addAction(Intent.ACTION_POWER_CONNECTED);
+		powerFilter.addAction(Intent.ACTION_POWER_DISCONNECTED);
+		context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				try {
+					charging = Intent.ACTION_POWER_CONNECTED.equals(intent.getAction());
+					ApptentiveLog.v(SCHEDULER, "Charging state changed: charging=%b", charging);
+					notifyStateChanged();
+				} catch (Exception e) {
+					ApptentiveLog.e(SCHEDULER, e, "Exception while handling charging state change");
+					logException(e);
+				}
+			}
+		}, powerFilter);
+
+		ApptentiveNotificationCenter.defaultCenter()
+			.addObserver(NOTIFICATION_APP_ENTERED_FOREGROUND, this)
+			.addObserver(NOTIFICATION_APP_ENTERED_BACKGROUND, this);
+	}
+
+	//region DeviceState
+
+	@Override
+	public boolean isNetworkSatisfied(NetworkPolicy policy) {
+		return connectivityMonitor.isSatisfied(policy);
+	}
+
+	@Override
+	public boolean isCharging() {
+		return charging;
+	}
+
+	@Override
+	public boolean isAppInForeground() {
+		return appInForeground;
+	}
+
+	//endregion
+
+	//region State Changes
+
+	@Override
+	public void onConnectivityChanged(ConnectivityMonitor monitor) {
+		notifyStateChanged();
+	}
+
+	@Override
+	public void onReceiveNotification(ApptentiveNotification notification) {
+		if (notification.hasName(NOTIFICATION_APP_ENTERED_FOREGROUND)) {
+			appInForeground = true;
+			notifyStateChanged();
+		} else if (notification.hasName(NOTIFICATION_APP_ENTERED_BACKGROUND)) {
+			appInForeground = false;
+			notifyStateChanged();
+		}
+	}
+
+	private void notifyStateChanged() {
+		Listener listener = this.listener;
+		if (listener != null) {
+			listener.onDeviceStateChanged(this);
+		}
+	}
+
+	//endregion
+
+	//region Listener
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public interface Listener {
+		void onDeviceStateChanged(SystemDeviceState deviceState);
+	}
+
+	//endregion
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.threading;
+
+import com.apptentive.android.sdk.ApptentiveLog;
+import com.apptentive.android.sdk.network.NetworkPolicy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.apptentive.android.sdk.ApptentiveLogTag.SCHEDULER;
+import static com.apptentive.android.sdk.debug.ErrorMetrics.logException;
+
+/**
+ * Runs deferred SDK work (polling, retries) with constraints. Each job has a time window: it
+ * runs at the end of the window unless an earlier wake-up or a device state change lets it run
+ * sooner. This way jobs with overlapping windows share a single wake-up. A job whose constraints
+ * are not satisfied waits for the device state to change (even past its window).
+ * <p/>
+ * Jobs are identified by tags: scheduling a job replaces the pending job with the same tag. Jobs
+ * always run on the executor.
+ */
+public class WorkScheduler {
+	private final DeviceState deviceState;
+	private final Executor executor;
+	private final Clock clock;
+
+	private final Map<String, ScheduledJob> jobs = new LinkedHashMap<>();
+
+	/**
+	 * Time of the next wake-up (<code>-1</code> if none is scheduled)
+	 */
+	private long wakeUpTime = -1;
+
+	/**
+	 * Incremented for every wake-up so the outdated ones can be ignored
+	 */
+	private int wakeUpGeneration;
+
+	public WorkScheduler(DeviceState deviceState, Executor executor, Clock clock) {
+		if (deviceState == null) {
+			throw new IllegalArgumentException("Device state is null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor is null");
+		}
+		if (clock == null) {
+			throw new IllegalArgumentException("Clock is null");
+		}
+		this.deviceState = deviceState;
+		this.executor = executor;
+		this.clock = clock;
+	}
+
+	//region Jobs
+
+	/**
+	 * Schedules a job (replaces the pending job with the same tag).
+	 */
+	public void schedule(Job job) {
+		if (job == null) {
+			throw new IllegalArgumentException("Job is null");
+		}
+
+		synchronized (this) {
+			long now = clock.currentTimeMillis();
+			jobs.remove(job.tag); // re-insert so the jobs stay in scheduling order
+			jobs.put(job.tag, new ScheduledJob(job, now + job.minDelayMillis, now + job.maxDelayMillis));
+			ApptentiveLog.v(SCHEDULER, "Scheduled job '%s' in %d..%d ms", job.tag, job.minDelayMillis, job.maxDelayMillis);
+
+			scheduleWakeUp(now);
+		}
+	}
+
+	/**
+	 * Cancels the pending job with a given tag.
+	 *
+	 * @return <code>true</code> if the job was pending
+	 */
+	public synchronized boolean cancel(String tag) {
+		return jobs.remove(tag) != null;
+	}
+
+	public synchronized boolean isScheduled(String tag) {
+		return jobs.containsKey(tag);
+	}
+
+	public synchronized int getJobCount() {
+		return jobs.size();
+	}
+
+	/**
+	 * Should be called when the network, charging or foreground state changes (jobs waiting for
+	 * their constraints might be ready).
+	 */
+	public synchronized void onDeviceStateChanged() {
+		scheduleWakeUp(clock.currentTimeMillis());
+	}
+
+	/**
+	 * Runs all the jobs which can run now and schedules the next wake-up.
+	 */
+	private void runReadyJobs() {
+		List<Job> readyJobs = new ArrayList<>();
+		synchronized (this) {
+			long now = clock.currentTimeMillis();
+			Iterator<ScheduledJob> iterator = jobs.values().iterator();
+			while (iterator.hasNext()) {
+				ScheduledJob scheduledJob = iterator.next();
+				if (scheduledJob.earliestTime <= now && isSatisfied(scheduledJob.job)) {
+					iterator.remove();
+					readyJobs.add(scheduledJob.job);
+				}
+			}
+
+			scheduleWakeUp(now);
+		}
+
+		if (readyJobs.size() > 1) {
+			ApptentiveLog.v(SCHEDULER, "Running %d jobs in a single wake-up", readyJobs.size());
+		}
+
+		for (Job job : readyJobs) {
+			try {
+				ApptentiveLog.v(SCHEDULER, "Running job '%s'", job.tag);
+				job.work.run();
+			} catch (Exception e) {
+				ApptentiveLog.e(SCHEDULER, e, "Exception while running job '%s'", job.tag);
+				logException(e);
+			}
+		}
+	}
+
+	private boolean isSatisfied(Job job) {
+		if (job.requiredNetwork != null && !deviceState.isNetworkSatisfied(job.requiredNetwork)) {
+			return false;
+		}
+		if (job.requiresCharging && !deviceState.isCharging()) {
+			return false;
+		}
+		return !job.foregroundOnly || deviceState.isAppInForeground();
+	}
+
+	/**
+	 * Schedules an immediate wake-up if any job can run now. Otherwise schedules a wake-up at the end
+	 * of the earliest window of the jobs which can't run yet (the rest of the jobs are waiting for
+	 * the device state to change).
+	 */
+	private void scheduleWakeUp(long now) {
+		long nextWakeUpTime = -1;
+		for (ScheduledJob scheduledJob : jobs.values()) {
+			long jobWakeUpTime;
+			if (scheduledJob.earliestTime > now) {
+				jobWakeUpTime = scheduledJob.latestTime;
+			} else if (isSatisfied(scheduledJob.job)) {
+				jobWakeUpTime = now;
+			} else {
+				continue;
+			}
+
+			if (nextWakeUpTime == -1 || jobWakeUpTime < nextWakeUpTime) {
+				nextWakeUpTime = jobWakeUpTime;
+			}
+		}
+
+		if (nextWakeUpTime == -1) {
+			return; // nothing to wait for
+		}
+
+		if (wakeUpTime != -1 && wakeUpTime <= nextWakeUpTime) {
+			return; // an earlier wake-up would re-schedule the next one
+		}
+
+		wakeUpTime = nextWakeUpTime;
+		final int generation = ++wakeUpGeneration;
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (WorkScheduler.this) {
+					if (generation != wakeUpGeneration) {
+						return; // replaced with another wake-up
+					}
+					wakeUpTime = -1;
+				}
+				runReadyJobs();
+			}
+		}, nextWakeUpTime - now);
+	}
+
+	//endregion
+
+	//region Job
+
+	/**
+	 * Deferred work with constraints
+	 */
+	public static class Job {
+		private final String tag;
+		private final Runnable work;
+		private long minDelayMillis;
+		private long maxDelayMillis;
+		private NetworkPolicy requiredNetwork;
+		private boolean requiresCharging;
+		private boolean foregroundOnly;
+
+		public Job(String tag, Runnable work) {
+			if (tag == null) {
+				throw new IllegalArgumentException("Tag is null");
+			}
+			if (work == null) {
+				throw new IllegalArgumentException("Work is null");
+			}
+			this.tag = tag;
+			this.work = work;
+		}
+
+		/**
+		 * Sets the time window (relative to the scheduling time) when the job should run.
+		 */
+		public Job setDelay(long minDelayMillis, long maxDelayMillis) {
+			if (minDelayMillis < 0 || maxDelayMillis < minDelayMillis) {
+				throw new IllegalArgumentException("Invalid delay: " + minDelayMillis + ".." + maxDelayMillis);
+			}
+			this.minDelayMillis = minDelayMillis;
+			this.maxDelayMillis = maxDelayMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the network type the job needs (<code>null</code> if it doesn't need the network).
+		 */
+		public Job setRequiredNetwork(NetworkPolicy requiredNetwork) {
+			this.requiredNetwork = requiredNetwork;
+			return this;
+		}
+
+		public Job setRequiresCharging(boolean requiresCharging) {
+			this.requiresCharging = requiresCharging;
+			return this;
+		}
+
+		public Job setForegroundOnly(boolean foregroundOnly) {
+			this.foregroundOnly = foregroundOnly;
+			return this;
+		}
+
+		public String getTag() {
+			return tag;
+		}
+	}
+
+	private static class ScheduledJob {
+		final Job job;
+		final long earliestTime;
+		final long latestTime;
+
+		ScheduledJob(Job job, long earliestTime, long latestTime) {
+			this.job = job;
+			this.earliestTime = earliestTime;
+			this.latestTime = latestTime;
+		}
+	}
+
+	//endregion
+
+	//region Dependencies
+
+	/**
+	 * Device conditions the job constraints are checked against
+	 */
+	public interface DeviceState {
+		boolean isNetworkSatisfied(NetworkPolicy policy);
+		boolean isCharging();
+		boolean isAppInForeground();
+
+	}
+
+	public interface Clock {
+		long currentTimeMillis();
+	}
+
+	public interface Executor {
+		void execute(Runnable task, long delayMillis);
+	}
+
+	public static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	/**
+	 * Creates an executor which runs the jobs on a given queue.
+	 */
+	public static Executor createExecutor(final DispatchQueue queue) {
+		if (queue == null) {
+			throw new IllegalArgumentException("Queue is null");
+		}
+
+		return new Executor() {
+			@Override
+			public void execute(final Runnable task, long delayMillis) {
+				queue.dispatchAsync(new DispatchTask() {
+					@Override
+					protected void execute() {
+						task.run();
+					}
+				}, delayMillis);
+			}
+		};
+	}
+
+	//endregion
+}
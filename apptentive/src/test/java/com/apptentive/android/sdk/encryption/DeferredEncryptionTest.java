@@ -0,0 +1,62 @@
+package com.apptentive.android.sdk.encryption;
+
+import com.apptentive.android.sdk.Encryption;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DeferredEncryptionTest {
+
+	@Test
+	public void testWaitsForKeyOnFirstUse() throws Exception {
+		final AtomicInteger resolveCount = new AtomicInteger();
+		FutureTask<Encryption> task = new FutureTask<>(new Callable<Encryption>() {
+			@Override
+			public Encryption call() {
+				resolveCount.incrementAndGet();
+				return new ReverseEncryption();
+			}
+		});
+
+		Encryption encryption = new DeferredEncryption(task);
+		new Thread(task).start();
+
+		assertArrayEquals(new byte[] { 3, 2, 1 }, encryption.encrypt(new byte[] { 1, 2, 3 }));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, encryption.decrypt(new byte[] { 3, 2, 1 }));
+		assertEquals(1, resolveCount.get());
+	}
+
+	@Test(expected = EncryptionException.class)
+	public void testKeyResolutionFailure() throws Exception {
+		FutureTask<Encryption> task = new FutureTask<>(new Callable<Encryption>() {
+			@Override
+			public Encryption call() throws Exception {
+				throw new EncryptionInitializationException("Unable to resolve key", null);
+			}
+		});
+		task.run();
+
+		new DeferredEncryption(task).encrypt(new byte[] { 1 });
+	}
+
+	private static class ReverseEncryption implements Encryption {
+		@Override
+		public byte[] encrypt(byte[] data) {
+			byte[] result = new byte[data.length];
+			for (int i = 0; i < data.length; ++i) {
+				result[i] = data[data.length - 1 - i];
+			}
+			return result;
+		}
+
+		@Override
+		public byte[] decrypt(byte[] data) {
+			return encrypt(data);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.logic;
+
+import com.apptentive.android.sdk.Apptentive;
+import com.apptentive.android.sdk.storage.AppRelease;
+import com.apptentive.android.sdk.storage.Device;
+import com.apptentive.android.sdk.storage.EventData;
+import com.apptentive.android.sdk.storage.Person;
+import com.apptentive.android.sdk.storage.VersionHistory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConditionalClauseTest {
+	private FieldManager fieldManager;
+	private Person person;
+
+	@Before
+	public void setUp() {
+		person = new Person();
+		person.setName("Jane");
+		fieldManager = new FieldManager(null, new VersionHistory(), new EventData(), person, new Device(), new AppRelease());
+	}
+
+	//region Shared results
+
+	@Test
+	public void testSharedResult() {
+		fieldManager.setClauseResultSharingEnabled(true);
+		assertTrue(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+
+		// identical clauses of other criteria reuse the result instead of reading the field again
+		person.setName("John");
+		assertTrue(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+		assertTrue(new ConditionalClause(" person/name ", " Jane ").evaluate(fieldManager, ClauseTracer.NULL));
+
+		// different clauses are evaluated on their own
+		assertTrue(new ConditionalClause("person/name", "John").evaluate(fieldManager, ClauseTracer.NULL));
+		assertFalse(new ConditionalClause("person/email", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+	}
+
+	@Test
+	public void testSharedResultDependencies() {
+		fieldManager.setClauseResultSharingEnabled(true);
+		new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL);
+		fieldManager.resetDependencies();
+
+		// a shared result still reports the inputs it depends on
+		new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL);
+		assertEquals(FieldManager.DEPENDENCY_PERSON, fieldManager.getDependencies());
+	}
+
+	@Test
+	public void testSharingDisabled() {
+		assertTrue(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+
+		person.setName("John");
+		assertFalse(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+	}
+
+	@Test
+	public void testSharingDisabledAgain() {
+		fieldManager.setClauseResultSharingEnabled(true);
+		assertTrue(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+		fieldManager.setClauseResultSharingEnabled(false);
+
+		person.setName("John");
+		assertFalse(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+	}
+
+	@Test
+	public void testTracedClausesNotShared() {
+		fieldManager.setClauseResultSharingEnabled(true);
+		assertTrue(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, ClauseTracer.NULL));
+
+		// traced evaluation must record every test so it can't use a shared result
+		CountingTracer tracer = new CountingTracer();
+		person.setName("John");
+		assertFalse(new ConditionalClause("person/name", "Jane").evaluate(fieldManager, tracer));
+		assertEquals(1, tracer.conditionalTestCount);
+	}
+
+	@Test
+	public void testTimeBasedClausesNotShared() {
+		double timeBoundary = System.currentTimeMillis() / 1000.0 + 3600;
+		Apptentive.DateTime dateTime = new Apptentive.DateTime(timeBoundary);
+
+		fieldManager.setClauseResultSharingEnabled(true);
+		new ConditionalClause("current_time", dateTime).evaluate(fieldManager, ClauseTracer.NULL);
+		assertEquals(timeBoundary, fieldManager.getNextTimeBoundary(), 0.0);
+		fieldManager.resetDependencies();
+
+		// time boundaries are only recorded while the tests are actually evaluated
+		new ConditionalClause("current_time", dateTime).evaluate(fieldManager, ClauseTracer.NULL);
+		assertEquals(timeBoundary, fieldManager.getNextTimeBoundary(), 0.0);
+	}
+
+	//endregion
+
+	//region Helpers
+
+	private static class CountingTracer extends ClauseTracer {
+		int conditionalTestCount;
+
+		@Override
+		public void startLogicalClause(LogicalOperator operator, int childCount) {
+		}
+
+		@Override
+		public void endLogicalClause(LogicalOperator operator, int childCount) {
+		}
+
+		@Override
+		public void traceConditionalTest(FieldManager fieldManager, FieldAccessor field, ConditionalOperator operator, Comparable fieldValue, Comparable parameter, boolean result) {
+			conditionalTestCount++;
+		}
+	}
+
+	//endregion
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.logic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EligibilityCacheTest {
+
+	@Test
+	public void testGet() {
+		EligibilityCache cache = new EligibilityCache();
+		cache.put("event", "interaction", FieldManager.DEPENDENCY_EVENT_DATA, Double.MAX_VALUE);
+
+		EligibilityCache.Entry entry = cache.get("event", 0);
+		assertNotNull(entry);
+		assertEquals("interaction", entry.getInteractionId());
+		assertNull(cache.get("another event", 0));
+	}
+
+	@Test
+	public void testInvalidateDependencies() {
+		EligibilityCache cache = new EligibilityCache();
+		cache.put("event1", "interaction1", FieldManager.DEPENDENCY_EVENT_DATA, Double.MAX_VALUE);
+		cache.put("event2", "interaction2", FieldManager.DEPENDENCY_PERSON | FieldManager.DEPENDENCY_DEVICE, Double.MAX_VALUE);
+		cache.put("event3", null, 0, Double.MAX_VALUE);
+
+		cache.invalidate(FieldManager.DEPENDENCY_DEVICE);
+		assertNotNull(cache.get("event1", 0));
+		assertNull(cache.get("event2", 0));
+		assertNotNull(cache.get("event3", 0));
+
+		cache.invalidate(FieldManager.DEPENDENCY_ALL);
+		assertNull(cache.get("event1", 0));
+		assertNotNull(cache.get("event3", 0));
+	}
+
+	@Test
+	public void testTimeBoundary() {
+		EligibilityCache cache = new EligibilityCache();
+		cache.put("event", "interaction", FieldManager.DEPENDENCY_TIME, 100);
+
+		assertNotNull(cache.get("event", 99.9));
+		assertNull(cache.get("event", 100));
+		assertNull(cache.get("event", 99.9)); // entry was evicted
+	}
+}
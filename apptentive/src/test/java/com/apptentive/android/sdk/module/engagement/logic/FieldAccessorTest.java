@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.module.engagement.logic;
+
+import com.apptentive.android.sdk.Apptentive;
+import com.apptentive.android.sdk.storage.AppRelease;
+import com.apptentive.android.sdk.storage.CustomData;
+import com.apptentive.android.sdk.storage.Device;
+import com.apptentive.android.sdk.storage.EventData;
+import com.apptentive.android.sdk.storage.Person;
+import com.apptentive.android.sdk.storage.VersionHistory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class FieldAccessorTest {
+	private FieldManager fieldManager;
+
+	@Before
+	public void setUp() {
+		EventData eventData = new EventData();
+		eventData.storeEventForCurrentAppVersion(10, 1, "1.0", "app#launch");
+		eventData.storeEventForCurrentAppVersion(20, 1, "1.0", "app#launch");
+		eventData.storeInteractionForCurrentAppVersion(30, 1, "1.0", "interaction");
+
+		Person person = new Person();
+		person.setName("Jane");
+		CustomData personData = new CustomData();
+		personData.put(" key ", "person value "); // keys were not trimmed when added
+		person.setCustomData(personData);
+
+		Device device = new Device();
+		device.setModel("Pixel");
+		device.setOsVersion("9.0");
+		CustomData deviceData = new CustomData();
+		deviceData.put("key", 5);
+		device.setCustomData(deviceData);
+
+		AppRelease appRelease = new AppRelease();
+		appRelease.setVersionCode(1);
+		appRelease.setVersionName("1.0");
+		appRelease.setDebug(true);
+
+		fieldManager = new FieldManager(null, new VersionHistory(), eventData, person, device, appRelease);
+	}
+
+	//region Field families
+
+	@Test
+	public void testApplication() {
+		assertEquals(new BigDecimal(1), getValue("application/version_code"));
+		assertEquals(true, getValue("application/debug"));
+		assertEquals(version("1.0"), getValue("application/version_name"));
+		assertDependencies(FieldManager.DEPENDENCY_APP_RELEASE, "application/version_code");
+		assertNull(getValue("application/unknown"));
+	}
+
+	@Test
+	public void testSdk() {
+		assertTrue(getValue("sdk/version") instanceof Apptentive.Version);
+		assertDependencies(0, "sdk/version");
+		assertTrue(getValue("sdk/unknown") instanceof Apptentive.DateTime); // unknown queries resolve to the current time
+	}
+
+	@Test
+	public void testCurrentTime() {
+		assertTrue(getValue("current_time") instanceof Apptentive.DateTime);
+		assertDependencies(FieldManager.DEPENDENCY_TIME, "current_time");
+	}
+
+	@Test
+	public void testVersionHistory() {
+		assertEquals(false, getValue("is_update/version_code"));
+		assertEquals(false, getValue("is_update/version_name"));
+		assertDependencies(FieldManager.DEPENDENCY_VERSION_HISTORY, "is_update/version_code");
+		assertDependencies(FieldManager.DEPENDENCY_VERSION_HISTORY, "time_at_install/total");
+		assertDependencies(FieldManager.DEPENDENCY_TIME, "time_at_install/unknown");
+	}
+
+	@Test
+	public void testCodePoint() {
+		assertEquals(new BigDecimal(2), getValue("code_point/app#launch/invokes/total"));
+		assertEquals(new BigDecimal(0), getValue("code_point/app#exit/invokes/total"));
+		assertEquals(20, getDateTime("code_point/app#launch/last_invoked_at/total"), 0.0);
+		assertNull(getValue("code_point/app#exit/last_invoked_at/total"));
+		assertTrue(FieldAccessor.compile("code_point/app#launch/invokes/version_code") instanceof FieldAccessor.EventCountAccessor);
+		assertDependencies(FieldManager.DEPENDENCY_EVENT_DATA, "code_point/app#launch/invokes/total");
+	}
+
+	@Test
+	public void testInteractions() {
+		assertEquals(new BigDecimal(1), getValue("interactions/interaction/invokes/total"));
+		assertEquals(30, getDateTime("interactions/interaction/last_invoked_at/total"), 0.0);
+		assertTrue(FieldAccessor.compile("interactions/interaction/invokes/version_name") instanceof FieldAccessor.EventCountAccessor);
+	}
+
+	@Test
+	public void testPerson() {
+		assertEquals("Jane", getValue("person/name"));
+		assertNull(getValue("person/email"));
+		assertEquals("person value", getValue("person/custom_data/key"));
+		assertNull(getValue("person/custom_data/missing"));
+		assertDependencies(FieldManager.DEPENDENCY_PERSON, "person/custom_data/key");
+	}
+
+	@Test
+	public void testDevice() {
+		assertEquals("Pixel", getValue("device/model"));
+		assertEquals(version("9.0"), getValue("device/os_version"));
+		assertEquals(new BigDecimal(5), getValue("device/custom_data/key"));
+		assertNull(getValue("device/hardware"));
+		assertDependencies(FieldManager.DEPENDENCY_DEVICE, "device/custom_data/key");
+		assertDependencies(FieldManager.DEPENDENCY_DEVICE, "device/os_version");
+	}
+
+	//endregion
+
+	//region Missing data
+
+	@Test
+	public void testMissingPersonAndDevice() {
+		fieldManager.person = null;
+		fieldManager.device = null;
+
+		assertNull(getValue("person/name"));
+		assertNull(getValue("person/custom_data/key"));
+		assertNull(getValue("device/model"));
+		assertNull(getValue("device/os_version"));
+		assertNull(getValue("device/custom_data/key"));
+	}
+
+	//endregion
+
+	//region Malformed queries
+
+	@Test
+	public void testMalformedQueries() {
+		String[] queries = {
+			"",
+			"unknown",
+			"application",
+			"code_point",
+			"code_point/app#launch",
+			"code_point/app#launch/invokes",
+			"code_point/app#launch/last_invoked_at",
+			"code_point/app#launch/unknown",
+			"interactions/interaction",
+			"person",
+			"person/custom_data",
+			"device/custom_data",
+			"device/unknown"
+		};
+		for (String query : queries) {
+			FieldAccessor accessor = FieldAccessor.compile(query);
+			assertNull(query, accessor.getValue(fieldManager));
+			assertEquals(query, 0, accessor.getDependencies());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullQuery() {
+		FieldAccessor.compile(null);
+	}
+
+	//endregion
+
+	//region Helpers
+
+	private Comparable getValue(String query) {
+		return FieldAccessor.compile(query).getValue(fieldManager);
+	}
+
+	private double getDateTime(String query) {
+		return ((Apptentive.DateTime) getValue(query)).getDateTime();
+	}
+
+	private static void assertDependencies(int expected, String query) {
+		assertEquals(query, expected, FieldAccessor.compile(query).getDependencies());
+	}
+
+	private static Apptentive.Version version(String value) {
+		Apptentive.Version version = new Apptentive.Version();
+		version.setVersion(value);
+		return version;
+	}
+
+	//endregion
+}
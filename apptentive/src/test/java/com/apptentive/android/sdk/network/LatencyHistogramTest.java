@@ -0,0 +1,74 @@
+package com.apptentive.android.sdk.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 90; ++i) {
+			histogram.record(40);
+		}
+		for (int i = 0; i < 9; ++i) {
+			histogram.record(700);
+		}
+		histogram.record(45000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(50, histogram.getPercentile(50));
+		assertEquals(50, histogram.getPercentile(90));
+		assertEquals(1000, histogram.getPercentile(99));
+		assertEquals(45000, histogram.getPercentile(100));
+		assertEquals(45000, histogram.getMax());
+		assertEquals((90 * 40 + 9 * 700 + 45000) / 100, histogram.getMean());
+	}
+
+	@Test
+	public void testPercentileNeverExceedsMax() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(120);
+		assertEquals(120, histogram.getPercentile(50));
+	}
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(99));
+		assertEquals(0, histogram.getMean());
+	}
+
+	@Test
+	public void testCopy() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		LatencyHistogram copy = histogram.copy();
+		histogram.record(20);
+
+		assertEquals(1, copy.getCount());
+		assertEquals(2, histogram.getCount());
+	}
+
+	@Test
+	public void testEndpointMetrics() {
+		EndpointMetrics metrics = new EndpointMetrics("/conversations/%s/interactions");
+		metrics.record(new HttpRequestTiming("/conversations/%s/interactions", "GET", 200, true, false, false, 0, 5, 80, 300, 400, 0, 2048));
+		metrics.record(new HttpRequestTiming("/conversations/%s/interactions", "GET", 200, true, false, true, 0, 0, 0, 0, 150, 0, 0));
+		metrics.record(new HttpRequestTiming("/conversations/%s/interactions", "GET", 500, false, false, false, 2, 10, 90, 600, 7000, 0, 64));
+
+		assertEquals(3, metrics.getRequestCount());
+		assertEquals(1, metrics.getFailureCount());
+		assertEquals(1, metrics.getCoalescedCount());
+		assertEquals(2, metrics.getRetryCount());
+		assertEquals(2112, metrics.getBytesReceived());
+		assertEquals(Long.valueOf(2), metrics.getResponseCodeCounts().get(200));
+		assertEquals(Long.valueOf(1), metrics.getResponseCodeCounts().get(500));
+
+		// coalesced requests are not counted in the network histograms
+		assertEquals(3, metrics.getTotalTime().getCount());
+		assertEquals(2, metrics.getConnectTime().getCount());
+		assertEquals(2, metrics.getTimeToFirstByte().getCount());
+	}
+}
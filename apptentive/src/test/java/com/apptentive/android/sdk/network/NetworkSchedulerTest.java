@@ -0,0 +1,112 @@
+package com.apptentive.android.sdk.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.apptentive.android.sdk.network.HttpRequestPriority.HIGH;
+import static com.apptentive.android.sdk.network.HttpRequestPriority.LOW;
+import static com.apptentive.android.sdk.network.HttpRequestPriority.NORMAL;
+import static com.apptentive.android.sdk.network.NetworkPolicy.ANY;
+import static com.apptentive.android.sdk.network.NetworkPolicy.UNMETERED;
+import static org.junit.Assert.*;
+
+public class NetworkSchedulerTest {
+	private List<String> result;
+	private MockConnectivityMonitor monitor;
+	private NetworkScheduler<String> scheduler;
+
+	@Before
+	public void setUp() {
+		result = new ArrayList<>();
+		monitor = new MockConnectivityMonitor();
+		scheduler = new NetworkScheduler<>(new NetworkScheduler.Dispatcher<String>() {
+			@Override
+			public void dispatch(String item) {
+				result.add(item);
+			}
+		});
+		scheduler.setConnectivityMonitor(monitor);
+	}
+
+	@Test
+	public void testDispatchWhenOnline() {
+		monitor.setState(true, false);
+		assertTrue(scheduler.schedule("a", NORMAL, ANY));
+		assertEquals("[a]", result.toString());
+	}
+
+	@Test
+	public void testReleaseInPriorityOrder() {
+		monitor.setState(false, false);
+		assertFalse(scheduler.schedule("low", LOW, ANY));
+		assertFalse(scheduler.schedule("normal-1", NORMAL, ANY));
+		assertFalse(scheduler.schedule("high", HIGH, ANY));
+		assertFalse(scheduler.schedule("normal-2", NORMAL, ANY));
+		assertEquals(0, result.size());
+		assertEquals(4, scheduler.getParkedCount());
+
+		monitor.setState(true, false);
+		assertEquals("[high, normal-1, normal-2, low]", result.toString());
+		assertEquals(0, scheduler.getParkedCount());
+	}
+
+	@Test
+	public void testUnmeteredPolicy() {
+		monitor.setState(true, false);
+		assertFalse(scheduler.schedule("upload", LOW, UNMETERED));
+		assertTrue(scheduler.schedule("event", NORMAL, ANY));
+		assertEquals("[event]", result.toString());
+
+		monitor.setState(false, false);
+		monitor.setState(true, true);
+		assertEquals("[event, upload]", result.toString());
+	}
+
+	@Test
+	public void testRemove() {
+		monitor.setState(false, false);
+		scheduler.schedule("a", NORMAL, ANY);
+		scheduler.schedule("b", NORMAL, ANY);
+		assertTrue(scheduler.remove("a"));
+		assertFalse(scheduler.remove("a"));
+
+		monitor.setState(true, false);
+		assertEquals("[b]", result.toString());
+	}
+
+	@Test
+	public void testNoMonitor() {
+		monitor.setState(false, false);
+		scheduler.schedule("a", NORMAL, ANY);
+
+		// without a monitor the device is considered online
+		scheduler.setConnectivityMonitor(null);
+		assertEquals("[a]", result.toString());
+		assertTrue(scheduler.schedule("b", NORMAL, UNMETERED));
+		assertEquals("[a, b]", result.toString());
+	}
+
+	private static class MockConnectivityMonitor extends ConnectivityMonitor {
+		private boolean connected;
+		private boolean connectionUnmetered;
+
+		void setState(boolean connected, boolean connectionUnmetered) {
+			this.connected = connected;
+			this.connectionUnmetered = connectionUnmetered;
+			notifyConnectivityChanged();
+		}
+
+		@Override
+		public boolean isConnected() {
+			return connected;
+		}
+
+		@Override
+		public boolean isConnectionUnmetered() {
+			return connectionUnmetered;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.apptentive.android.sdk.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class AttachmentStoreTest {
+	private File tempDir;
+	private File storeDir;
+	private AttachmentStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		tempDir = File.createTempFile("attachments", "");
+		tempDir.delete();
+		tempDir.mkdirs();
+		storeDir = new File(tempDir, "store");
+		store = new AttachmentStore(storeDir);
+	}
+
+	@After
+	public void tearDown() {
+		deleteRecursively(tempDir);
+	}
+
+	@Test
+	public void testPut() throws IOException {
+		File file = createFile("a.jpg", "content");
+		File storedFile = store.put(file);
+
+		assertFalse(file.exists());
+		assertTrue(storedFile.exists());
+		assertEquals(storeDir, storedFile.getParentFile());
+		assertEquals("040f06fd774092478d450774f5ba30c5da78acc8", storedFile.getName()); // sha1("content")
+	}
+
+	@Test
+	public void testPutDuplicate() throws IOException {
+		File first = store.put(createFile("a.jpg", "content"));
+		File duplicate = createFile("b.jpg", "content");
+		File second = store.put(duplicate);
+
+		assertEquals(first, second);
+		assertFalse(duplicate.exists());
+		assertEquals(1, storeDir.listFiles().length);
+	}
+
+	@Test
+	public void testPutDifferentContent() throws IOException {
+		File first = store.put(createFile("a.jpg", "content"));
+		File second = store.put(createFile("b.jpg", "other content"));
+
+		assertFalse(first.equals(second));
+		assertEquals(2, storeDir.listFiles().length);
+	}
+
+	@Test(expected = IOException.class)
+	public void testPutMissingFile() throws IOException {
+		store.put(new File(tempDir, "missing.jpg"));
+	}
+
+	private File createFile(String name, String content) throws IOException {
+		File file = new File(tempDir, name);
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+
+	private static void deleteRecursively(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				deleteRecursively(child);
+			}
+		}
+		file.delete();
+	}
+}
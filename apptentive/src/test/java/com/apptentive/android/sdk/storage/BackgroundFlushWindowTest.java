@@ -0,0 +1,103 @@
+package com.apptentive.android.sdk.storage;
+
+import org.junit.Test;
+
+import static com.apptentive.android.sdk.storage.BackgroundFlushWindow.CloseReason.APP_ENTERED_FOREGROUND;
+import static com.apptentive.android.sdk.storage.BackgroundFlushWindow.CloseReason.PAYLOAD_LIMIT_REACHED;
+import static com.apptentive.android.sdk.storage.BackgroundFlushWindow.CloseReason.TIMEOUT;
+import static org.junit.Assert.*;
+
+public class BackgroundFlushWindowTest {
+
+	@Test
+	public void testTimeout() {
+		MockBackgroundFlushWindow window = new MockBackgroundFlushWindow(1000, 10);
+		assertFalse(window.canSendPayload());
+		assertTrue(window.open());
+		assertTrue(window.canSendPayload());
+
+		window.time = 999;
+		assertTrue(window.canSendPayload());
+		assertNull(window.closeIfExhausted());
+
+		window.time = 1000;
+		assertFalse(window.canSendPayload());
+
+		BackgroundFlushWindow.Summary summary = window.closeIfExhausted();
+		assertNotNull(summary);
+		assertEquals(TIMEOUT, summary.getReason());
+		assertEquals(1000, summary.getDurationMillis());
+		assertFalse(window.isOpen());
+		assertNull(window.closeIfExhausted());
+	}
+
+	@Test
+	public void testPayloadLimit() {
+		MockBackgroundFlushWindow window = new MockBackgroundFlushWindow(1000, 2);
+		window.open();
+		window.onPayloadSent();
+		assertTrue(window.canSendPayload());
+		window.onPayloadSent();
+		assertFalse(window.canSendPayload());
+
+		BackgroundFlushWindow.Summary summary = window.closeIfExhausted();
+		assertEquals(PAYLOAD_LIMIT_REACHED, summary.getReason());
+		assertEquals(2, summary.getPayloadCount());
+	}
+
+	@Test
+	public void testForeground() {
+		MockBackgroundFlushWindow window = new MockBackgroundFlushWindow(1000, 2);
+		assertNull(window.close(APP_ENTERED_FOREGROUND));
+
+		window.open();
+		window.onPayloadSent();
+		window.time = 300;
+
+		BackgroundFlushWindow.Summary summary = window.close(APP_ENTERED_FOREGROUND);
+		assertEquals(APP_ENTERED_FOREGROUND, summary.getReason());
+		assertEquals(1, summary.getPayloadCount());
+		assertEquals(300, summary.getDurationMillis());
+		assertFalse(window.canSendPayload());
+	}
+
+	@Test
+	public void testReopen() {
+		MockBackgroundFlushWindow window = new MockBackgroundFlushWindow(1000, 2);
+		window.open();
+		window.onPayloadSent();
+		window.onPayloadSent();
+
+		window.time = 500;
+		window.open();
+		assertTrue(window.canSendPayload());
+
+		// a timer from the first window doesn't close the second one
+		window.time = 1000;
+		assertNull(window.closeIfExhausted());
+		assertTrue(window.isOpen());
+	}
+
+	@Test
+	public void testDisabled() {
+		BackgroundFlushWindow window = new MockBackgroundFlushWindow(0, 10);
+		assertFalse(window.isEnabled());
+		assertFalse(window.open());
+		assertFalse(window.canSendPayload());
+		window.onPayloadSent();
+		assertNull(window.close(APP_ENTERED_FOREGROUND));
+	}
+
+	private static class MockBackgroundFlushWindow extends BackgroundFlushWindow {
+		long time;
+
+		MockBackgroundFlushWindow(long durationMillis, int maxPayloadCount) {
+			super(durationMillis, maxPayloadCount);
+		}
+
+		@Override
+		protected long currentTimeMillis() {
+			return time;
+		}
+	}
+}
@@ -39,6 +39,7 @@ public class ConversationDataTest {
 		expected.setTargets("MNCIUFIENVBFKDV");
 		expected.setInteractions("nkjvdfikjbffasldnbnfldfmfd");
 		expected.setInteractionExpiration(1234567894567890345L);
+		expected.setManifestVersion("LKJHGFDSAQWERTY");
 
 		/*
 		 // TODO: Test nested objects as well
@@ -70,6 +71,7 @@ public class ConversationDataTest {
 			assertEquals(expected.getTargets(), actual.getTargets());
 			assertEquals(expected.getInteractions(), actual.getInteractions());
 			assertEquals(expected.getInteractionExpiration(), actual.getInteractionExpiration(), 0.000001);
+			assertEquals(expected.getManifestVersion(), actual.getManifestVersion());
 
 		} catch (Exception e) {
 			fail(e.getMessage());
@@ -149,6 +151,10 @@ public class ConversationDataTest {
 		assertTrue(listenerFired);
 		listenerFired = false;
 
+		data.setManifestVersion("foo");
+		assertTrue(listenerFired);
+		listenerFired = false;
+
 
 		data.getDevice().getCustomData().put("foo", "bar");
 		assertTrue(listenerFired);
@@ -16,6 +16,7 @@ import com.apptentive.android.sdk.network.HttpRequestRetryPolicyDefault;
 import com.apptentive.android.sdk.network.MockHttpRequest;
 import com.apptentive.android.sdk.network.MockHttpURLConnection.DefaultResponseHandler;
 import com.apptentive.android.sdk.network.MockHttpURLConnection.ResponseHandler;
+import com.apptentive.android.sdk.network.NetworkPolicy;
 import com.apptentive.android.sdk.util.StringUtils;
 import com.apptentive.android.sdk.util.threading.MockDispatchQueue;
 
@@ -43,7 +44,7 @@ public class JsonPayloadSenderTest extends LogicTestCaseBase {
 		PayloadSender sender = new PayloadSender(requestSender, new HttpRequestRetryPolicyDefault());
 		sender.setListener(new PayloadSender.Listener() {
 			@Override
-			public void onFinishSending(PayloadSender sender, PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData) {
+			public void onFinishSending(PayloadSender sender, PayloadData payload, boolean cancelled, String errorMessage, int responseCode, JSONObject responseData, long retryAfterMillis) {
 				if (cancelled) {
 					addResult("cancelled: " + payload);
 				} else if (errorMessage != null) {
@@ -136,5 +137,10 @@ public class JsonPayloadSenderTest extends LogicTestCaseBase {
 			request.setRequestManager(requestManager);
 			return request;
 		}
+
+		@Override
+		public NetworkPolicy getNetworkPolicy(PayloadData payload) {
+			return NetworkPolicy.ANY;
+		}
 	}
 }
\ No newline at end of file
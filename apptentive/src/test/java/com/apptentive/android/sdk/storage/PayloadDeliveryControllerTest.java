@@ -0,0 +1,124 @@
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.network.HttpRequestRetryPolicy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.apptentive.android.sdk.storage.PayloadDeliveryController.State.CLOSED;
+import static com.apptentive.android.sdk.storage.PayloadDeliveryController.State.HALF_OPEN;
+import static com.apptentive.android.sdk.storage.PayloadDeliveryController.State.OPEN;
+import static org.junit.Assert.*;
+
+public class PayloadDeliveryControllerTest {
+	private MockDeliveryController controller;
+
+	@Before
+	public void setUp() {
+		controller = new MockDeliveryController(3);
+	}
+
+	@Test
+	public void testExponentialBackoff() {
+		assertTrue(controller.canSendPayload());
+
+		assertEquals(1000, controller.onFailure(0));
+		assertFalse(controller.canSendPayload());
+		assertEquals(1000, controller.getRemainingDelayMillis());
+
+		controller.time += 1000;
+		assertTrue(controller.canSendPayload());
+		assertEquals(2000, controller.onFailure(0));
+
+		controller.time += 2000;
+		assertTrue(controller.canSendPayload());
+		controller.onSuccess();
+		assertEquals(0, controller.getFailureCount());
+		assertEquals(1000, controller.onFailure(0));
+	}
+
+	@Test
+	public void testRetryAfter() {
+		assertEquals(60000, controller.onFailure(60000));
+		assertEquals(2000, controller.onFailure(1000)); // back-off is longer
+	}
+
+	@Test
+	public void testCircuitBreaker() {
+		controller.onFailure(0);
+		controller.onFailure(0);
+		assertEquals(CLOSED, controller.getState());
+
+		long delay = controller.onFailure(0);
+		assertEquals(OPEN, controller.getState());
+		assertFalse(controller.canSendPayload());
+
+		// probe
+		controller.time += delay;
+		assertTrue(controller.canSendPayload());
+		assertEquals(HALF_OPEN, controller.getState());
+
+		// failed probe re-opens the circuit
+		controller.onFailure(0);
+		assertEquals(OPEN, controller.getState());
+
+		controller.time += controller.getRemainingDelayMillis();
+		assertTrue(controller.canSendPayload());
+		controller.onSuccess();
+		assertEquals(CLOSED, controller.getState());
+	}
+
+	@Test
+	public void testConnectivityRestored() {
+		controller.onFailure(0);
+		controller.onFailure(0);
+		controller.onFailure(0);
+		assertFalse(controller.canSendPayload());
+
+		controller.onConnectivityRestored();
+		assertEquals(HALF_OPEN, controller.getState());
+		assertTrue(controller.canSendPayload());
+		assertEquals(0, controller.getFailureCount());
+
+		// failed probe still re-opens the circuit
+		assertEquals(1000, controller.onFailure(0));
+		assertEquals(OPEN, controller.getState());
+	}
+
+	@Test
+	public void testParseRetryAfter() {
+		long now = 1445412480000L; // Wed, 21 Oct 2015 07:28:00 GMT
+		assertEquals(120000, PayloadDeliveryController.parseRetryAfterMillis("120", now));
+		assertEquals(120000, PayloadDeliveryController.parseRetryAfterMillis("[120]", now));
+		assertEquals(30000, PayloadDeliveryController.parseRetryAfterMillis("Wed, 21 Oct 2015 07:28:30 GMT", now));
+		assertEquals(0, PayloadDeliveryController.parseRetryAfterMillis("Wed, 21 Oct 2015 07:27:00 GMT", now));
+		assertEquals(0, PayloadDeliveryController.parseRetryAfterMillis(null, now));
+		assertEquals(0, PayloadDeliveryController.parseRetryAfterMillis("", now));
+		assertEquals(0, PayloadDeliveryController.parseRetryAfterMillis("soon", now));
+		assertEquals(0, PayloadDeliveryController.parseRetryAfterMillis("-5", now));
+	}
+
+	private static class MockDeliveryController extends PayloadDeliveryController {
+		long time;
+
+		MockDeliveryController(int failureThreshold) {
+			// no jitter: 1s, 2s, 4s...
+			super(new HttpRequestRetryPolicy() {
+				@Override
+				public boolean shouldRetryRequest(int responseCode, int retryAttempt) {
+					return false;
+				}
+
+				@Override
+				public long getRetryTimeoutMillis(int retryAttempt) {
+					return 1000L << (retryAttempt - 1);
+				}
+			}, failureThreshold);
+		}
+
+		@Override
+		protected long currentTimeMillis() {
+			return time;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.model.PayloadType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.apptentive.android.sdk.storage.PayloadPriority.AGING_PAYLOAD_COUNT;
+import static org.junit.Assert.*;
+
+public class PayloadPriorityTest {
+	private static final Pattern CLAUSE_PATTERN = Pattern.compile("^\\(_id \\+ CASE payloadType((?: WHEN '\\w+' THEN \\d+)*) ELSE (\\d+) END\\) ASC, _id ASC$");
+	private static final Pattern WHEN_PATTERN = Pattern.compile(" WHEN '(\\w+)' THEN (\\d+)");
+
+	@Test
+	public void testLanes() {
+		assertEquals(PayloadPriority.HIGH, PayloadPriority.of(PayloadType.message));
+		assertEquals(PayloadPriority.HIGH, PayloadPriority.of(PayloadType.survey));
+		assertEquals(PayloadPriority.NORMAL, PayloadPriority.of(PayloadType.person));
+		assertEquals(PayloadPriority.NORMAL, PayloadPriority.of(PayloadType.device));
+		assertEquals(PayloadPriority.NORMAL, PayloadPriority.of(PayloadType.sdk_and_app_release));
+		assertEquals(PayloadPriority.LOW, PayloadPriority.of(PayloadType.event));
+		assertEquals(PayloadPriority.LOW, PayloadPriority.of(PayloadType.logout));
+		assertEquals(PayloadPriority.LOW, PayloadPriority.of(PayloadType.unknown));
+	}
+
+	@Test
+	public void testLanesBeforeFifo() {
+		List<Row> rows = new ArrayList<>();
+		rows.add(new Row(1, PayloadType.event));
+		rows.add(new Row(2, PayloadType.device));
+		rows.add(new Row(3, PayloadType.message));
+		rows.add(new Row(4, PayloadType.event));
+		rows.add(new Row(5, PayloadType.survey));
+		rows.add(new Row(6, PayloadType.person));
+
+		assertEquals("[3, 5, 2, 6, 1, 4]", sendOrder(rows));
+	}
+
+	@Test
+	public void testAging() {
+		List<Row> rows = new ArrayList<>();
+		rows.add(new Row(1, PayloadType.event));
+		rows.add(new Row(2 + 2 * AGING_PAYLOAD_COUNT, PayloadType.message));
+		rows.add(new Row(2 + AGING_PAYLOAD_COUNT, PayloadType.device));
+
+		// an old event is not overtaken by payloads queued much later
+		assertEquals("[1, 502, 1002]", sendOrder(rows));
+	}
+
+	@Test
+	public void testTiesBrokenByPrimaryKey() {
+		List<Row> rows = new ArrayList<>();
+		rows.add(new Row(1 + 2 * AGING_PAYLOAD_COUNT, PayloadType.message));
+		rows.add(new Row(1 + AGING_PAYLOAD_COUNT, PayloadType.device));
+		rows.add(new Row(1, PayloadType.event));
+
+		// all three rows have the same sort key
+		assertEquals("[1, 501, 1001]", sendOrder(rows));
+	}
+
+	//region Helpers
+
+	/**
+	 * Sorts rows the way SQLite evaluates the generated ORDER BY clause.
+	 */
+	private static String sendOrder(List<Row> rows) {
+		Matcher matcher = CLAUSE_PATTERN.matcher(PayloadPriority.createSendOrderClause("payloadType", "_id"));
+		assertTrue(matcher.matches());
+
+		final Map<String, Long> offsets = new HashMap<>();
+		Matcher whenMatcher = WHEN_PATTERN.matcher(matcher.group(1));
+		while (whenMatcher.find()) {
+			offsets.put(whenMatcher.group(1), Long.parseLong(whenMatcher.group(2)));
+		}
+		final long defaultOffset = Long.parseLong(matcher.group(2));
+
+		List<Row> sorted = new ArrayList<>(rows);
+		Collections.sort(sorted, new Comparator<Row>() {
+			@Override
+			public int compare(Row r1, Row r2) {
+				long key1 = r1.id + (offsets.containsKey(r1.type.name()) ? offsets.get(r1.type.name()) : defaultOffset);
+				long key2 = r2.id + (offsets.containsKey(r2.type.name()) ? offsets.get(r2.type.name()) : defaultOffset);
+				if (key1 != key2) {
+					return key1 < key2 ? -1 : 1;
+				}
+				return r1.id < r2.id ? -1 : (r1.id == r2.id ? 0 : 1);
+			}
+		});
+
+		List<Long> ids = new ArrayList<>();
+		for (Row row : sorted) {
+			ids.add(row.id);
+		}
+		return ids.toString();
+	}
+
+	private static class Row {
+		final long id;
+		final PayloadType type;
+
+		Row(long id, PayloadType type) {
+			this.id = id;
+			this.type = type;
+		}
+	}
+
+	//endregion
+}
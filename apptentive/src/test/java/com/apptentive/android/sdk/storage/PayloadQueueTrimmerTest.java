@@ -0,0 +1,91 @@
+package com.apptentive.android.sdk.storage;
+
+import com.apptentive.android.sdk.model.PayloadType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.apptentive.android.sdk.storage.PayloadQueueTrimmer.EvictionPolicy.DROP_FIRST;
+import static com.apptentive.android.sdk.storage.PayloadQueueTrimmer.EvictionPolicy.DROP_LAST;
+import static com.apptentive.android.sdk.storage.PayloadQueueTrimmer.EvictionPolicy.NEVER_DROP;
+import static org.junit.Assert.*;
+
+public class PayloadQueueTrimmerTest {
+	private static final long NOW = 1000000;
+	private static final long MAX_AGE = 10000;
+
+	@Test
+	public void testWithinLimits() {
+		List<PayloadQueueTrimmer.Entry> entries = new ArrayList<>();
+		entries.add(entry("event-1", DROP_FIRST, 10, NOW));
+		entries.add(entry("message-1", NEVER_DROP, 10, NOW));
+		assertEquals("[]", evict(entries, 2, 100));
+	}
+
+	@Test
+	public void testDropOldestEventsFirst() {
+		List<PayloadQueueTrimmer.Entry> entries = new ArrayList<>();
+		entries.add(entry("device-1", DROP_LAST, 10, NOW));
+		entries.add(entry("message-1", NEVER_DROP, 10, NOW));
+		entries.add(entry("event-1", DROP_FIRST, 10, NOW));
+		entries.add(entry("event-2", DROP_FIRST, 10, NOW));
+		entries.add(entry("event-3", DROP_FIRST, 10, NOW));
+		assertEquals("[event-1, event-2]", evict(entries, 3, 1000));
+	}
+
+	@Test
+	public void testDropUpdatesWhenEventsAreNotEnough() {
+		List<PayloadQueueTrimmer.Entry> entries = new ArrayList<>();
+		entries.add(entry("person-1", DROP_LAST, 10, NOW));
+		entries.add(entry("event-1", DROP_FIRST, 10, NOW));
+		entries.add(entry("message-1", NEVER_DROP, 10, NOW));
+		entries.add(entry("device-1", DROP_LAST, 10, NOW));
+		assertEquals("[event-1, person-1]", evict(entries, 2, 1000));
+	}
+
+	@Test
+	public void testNeverDropMessages() {
+		List<PayloadQueueTrimmer.Entry> entries = new ArrayList<>();
+		entries.add(entry("message-1", NEVER_DROP, 500, NOW - 2 * MAX_AGE));
+		entries.add(entry("event-1", DROP_FIRST, 10, NOW));
+		entries.add(entry("message-2", NEVER_DROP, 500, NOW));
+		assertEquals("[event-1]", evict(entries, 1, 100));
+	}
+
+	@Test
+	public void testByteQuota() {
+		List<PayloadQueueTrimmer.Entry> entries = new ArrayList<>();
+		entries.add(entry("event-1", DROP_FIRST, 60, NOW));
+		entries.add(entry("event-2", DROP_FIRST, 30, NOW));
+		entries.add(entry("event-3", DROP_FIRST, 30, NOW));
+		assertEquals("[event-1]", evict(entries, 100, 100));
+	}
+
+	@Test
+	public void testMaxAge() {
+		List<PayloadQueueTrimmer.Entry> entries = new ArrayList<>();
+		entries.add(entry("event-1", DROP_FIRST, 10, NOW - MAX_AGE - 1));
+		entries.add(entry("device-1", DROP_LAST, 10, NOW - MAX_AGE - 1));
+		entries.add(entry("event-2", DROP_FIRST, 10, NOW - MAX_AGE));
+		assertEquals("[event-1, device-1]", evict(entries, 100, 1000));
+	}
+
+	@Test
+	public void testEvictionPolicy() {
+		assertEquals(NEVER_DROP, PayloadQueueTrimmer.EvictionPolicy.of(PayloadType.message));
+		assertEquals(NEVER_DROP, PayloadQueueTrimmer.EvictionPolicy.of(PayloadType.survey));
+		assertEquals(NEVER_DROP, PayloadQueueTrimmer.EvictionPolicy.of(PayloadType.logout));
+		assertEquals(DROP_LAST, PayloadQueueTrimmer.EvictionPolicy.of(PayloadType.person));
+		assertEquals(DROP_FIRST, PayloadQueueTrimmer.EvictionPolicy.of(PayloadType.event));
+	}
+
+	private static String evict(List<PayloadQueueTrimmer.Entry> entries, int maxCount, long maxBytes) {
+		return PayloadQueueTrimmer.findPayloadsToEvict(entries, new PayloadQueueLimits(maxCount, maxBytes, MAX_AGE), NOW).toString();
+	}
+
+	private static PayloadQueueTrimmer.Entry entry(String identifier, PayloadQueueTrimmer.EvictionPolicy policy, long size, long creationTime) {
+		return new PayloadQueueTrimmer.Entry(identifier, policy, size, creationTime);
+	}
+}
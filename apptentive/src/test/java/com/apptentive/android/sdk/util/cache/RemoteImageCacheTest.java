@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018, Apptentive, Inc. All Rights Reserved.
+ * Please refer to the LICENSE file for the terms and conditions
+ * under which redistribution and use of this file is permitted.
+ */
+
+package com.apptentive.android.sdk.util.cache;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RemoteImageCacheTest {
+	private static final String URL = "https://example.com/avatar.png";
+	private static final String OTHER_URL = "https://example.com/other.png";
+	private static final long MAX_AGE = 60 * 1000L;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File cacheDir;
+	private MockRemoteImageCache cache;
+
+	@Before
+	public void setUp() {
+		cacheDir = new File(tempFolder.getRoot(), "images");
+		cache = new MockRemoteImageCache(cacheDir, 1024, MAX_AGE);
+	}
+
+	@Test
+	public void testPutAndGet() throws IOException {
+		assertNull(cache.get(URL));
+
+		File file = download(URL, 10);
+		assertNotNull(file);
+		assertEquals(file, cache.get(URL));
+		assertNull(cache.get(OTHER_URL));
+	}
+
+	@Test
+	public void testExpiredImage() throws IOException {
+		download(URL, 10);
+
+		cache.time += MAX_AGE;
+		assertNotNull(cache.get(URL));
+
+		// an expired copy is deleted so the image gets downloaded again
+		cache.time += 1;
+		assertNull(cache.get(URL));
+		assertEquals(0, cacheDir.listFiles().length);
+	}
+
+	@Test
+	public void testReplaceImage() throws IOException {
+		File oldFile = download(URL, 10);
+		cache.time += 1;
+		File newFile = download(URL, 20);
+
+		assertEquals(newFile, cache.get(URL));
+		assertFalse(oldFile.exists());
+	}
+
+	@Test
+	public void testTrimLeastRecentlyUsed() throws IOException {
+		File file1 = download(URL, 500);
+		File file2 = download(OTHER_URL, 500);
+		file1.setLastModified(1000);
+		file2.setLastModified(2000);
+
+		// reading an image makes it the most recently used one
+		cache.get(URL);
+
+		download("https://example.com/third.png", 500);
+		assertTrue(file1.exists());
+		assertFalse(file2.exists());
+	}
+
+	@Test
+	public void testTempFilesIgnored() throws IOException {
+		File tempFile = cache.createTempFile(URL);
+		assertTrue(tempFile.exists());
+		assertNull(cache.get(URL));
+	}
+
+	//region Helpers
+
+	private File download(String url, int size) throws IOException {
+		File tempFile = cache.createTempFile(url);
+		FileOutputStream output = new FileOutputStream(tempFile);
+		try {
+			output.write(new byte[size]);
+		} finally {
+			output.close();
+		}
+		return cache.put(url, tempFile);
+	}
+
+	private static class MockRemoteImageCache extends RemoteImageCache {
+		long time = 1000000;
+
+		MockRemoteImageCache(File cacheDir, long maxSize, long maxAgeMillis) {
+			super(cacheDir, maxSize, maxAgeMillis);
+		}
+
+		@Override
+		long currentTimeMillis() {
+			return time;
+		}
+	}
+
+	//endregion
+}
@@ -0,0 +1,101 @@
+package com.apptentive.android.sdk.util.image;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BitmapDecodeBudgetTest {
+
+	@Test
+	public void testParallelDecodesWithinBudget() {
+		BitmapDecodeBudget budget = new BitmapDecodeBudget(3, 100);
+		assertTrue(budget.acquire(40));
+		assertTrue(budget.acquire(40));
+		assertEquals(2, budget.getActiveDecodes());
+		assertEquals(80, budget.getActiveBytes());
+
+		budget.release(40);
+		budget.release(40);
+		assertEquals(0, budget.getActiveDecodes());
+		assertEquals(0, budget.getActiveBytes());
+	}
+
+	@Test
+	public void testOversizedDecodeRunsAlone() {
+		BitmapDecodeBudget budget = new BitmapDecodeBudget(3, 100);
+		assertTrue(budget.acquire(500));
+		assertEquals(500, budget.getActiveBytes());
+		budget.release(500);
+	}
+
+	@Test
+	public void testWaitsForBytes() throws InterruptedException {
+		final BitmapDecodeBudget budget = new BitmapDecodeBudget(3, 100);
+		assertTrue(budget.acquire(80));
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				if (budget.acquire(40)) {
+					acquired.countDown();
+				}
+			}
+		});
+		thread.start();
+
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		budget.release(80);
+		assertTrue(acquired.await(1, TimeUnit.SECONDS));
+		assertEquals(40, budget.getActiveBytes());
+	}
+
+	@Test
+	public void testWaitsForDecodeSlot() throws InterruptedException {
+		final BitmapDecodeBudget budget = new BitmapDecodeBudget(1, 100);
+		assertTrue(budget.acquire(10));
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				if (budget.acquire(10)) {
+					acquired.countDown();
+				}
+			}
+		});
+		thread.start();
+
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		budget.release(10);
+		assertTrue(acquired.await(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testInterrupted() throws InterruptedException {
+		final BitmapDecodeBudget budget = new BitmapDecodeBudget(1, 100);
+		assertTrue(budget.acquire(10));
+
+		final boolean[] result = { true };
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				result[0] = budget.acquire(10);
+			}
+		});
+		thread.start();
+		thread.interrupt();
+		thread.join(1000);
+
+		assertFalse(result[0]);
+		assertEquals(1, budget.getActiveDecodes());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReleaseWithoutAcquire() {
+		new BitmapDecodeBudget(1, 100).release(10);
+	}
+}
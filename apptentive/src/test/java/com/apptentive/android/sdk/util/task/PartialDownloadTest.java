@@ -0,0 +1,163 @@
+package com.apptentive.android.sdk.util.task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class PartialDownloadTest {
+	private static final String URL = "https://example.com/file.pdf";
+
+	private File destFile;
+
+	@Before
+	public void setUp() throws IOException {
+		destFile = File.createTempFile("download", ".bin");
+		destFile.delete();
+	}
+
+	@After
+	public void tearDown() {
+		new PartialDownload(destFile).discard();
+		destFile.delete();
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		assertEquals(0, download.restore(URL));
+		download.save("\"etag\"", null, 10, null);
+		writePartialFile(download, "01234");
+
+		PartialDownload resumed = new PartialDownload(destFile);
+		assertEquals(5, resumed.restore(URL));
+		assertEquals("\"etag\"", resumed.getValidator());
+		assertEquals(10, resumed.getTotalLength());
+	}
+
+	@Test
+	public void testResumeDifferentUrl() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		download.save("\"etag\"", null, 10, null);
+		writePartialFile(download, "01234");
+
+		PartialDownload resumed = new PartialDownload(destFile);
+		assertEquals(0, resumed.restore(URL + "?v=2"));
+		assertFalse(resumed.getPartialFile().exists());
+		assertFalse(resumed.getStateFile().exists());
+	}
+
+	@Test
+	public void testResumeWithoutValidators() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		download.save(null, null, 10, null);
+		writePartialFile(download, "01234");
+
+		assertEquals(0, new PartialDownload(destFile).restore(URL));
+	}
+
+	@Test
+	public void testWeakEtag() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		download.save("W/\"etag\"", "Wed, 21 Oct 2015 07:28:00 GMT", -1, null);
+		assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", download.getValidator());
+	}
+
+	@Test
+	public void testComplete() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		download.save("\"etag\"", null, 6, "e80b5017098950fc58aad83c8c14978e"); // md5("abcdef")
+		writePartialFile(download, "abcdef");
+
+		assertTrue(download.complete());
+		assertTrue(destFile.exists());
+		assertEquals(6, destFile.length());
+		assertFalse(download.getPartialFile().exists());
+		assertFalse(download.getStateFile().exists());
+	}
+
+	@Test
+	public void testCompleteOpaqueEtag() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		// ETags are opaque even if they look like a digest: only the length is checked
+		download.save("\"0123456789abcdef0123456789abcdef\"", null, 6, null);
+		writePartialFile(download, "abcdef");
+
+		assertTrue(download.complete());
+		assertTrue(destFile.exists());
+	}
+
+	@Test
+	public void testResumeKeepsContentMd5() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		download.save("\"etag\"", null, 6, "e80b5017098950fc58aad83c8c14978e");
+		writePartialFile(download, "abc");
+
+		PartialDownload resumed = new PartialDownload(destFile);
+		assertEquals(3, resumed.restore(URL));
+		assertEquals("e80b5017098950fc58aad83c8c14978e", resumed.getContentMd5());
+	}
+
+	@Test
+	public void testCompleteLengthMismatch() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		download.save("\"etag\"", null, 10, null);
+		writePartialFile(download, "01234");
+
+		assertFalse(download.complete());
+		assertFalse(destFile.exists());
+		assertFalse(download.getPartialFile().exists());
+	}
+
+	@Test
+	public void testCompleteDigestMismatch() throws IOException {
+		PartialDownload download = new PartialDownload(destFile);
+		download.restore(URL);
+		download.save("\"etag\"", null, 6, "e80b5017098950fc58aad83c8c14978e");
+		writePartialFile(download, "abcdeX");
+
+		assertFalse(download.complete());
+		assertFalse(destFile.exists());
+	}
+
+	@Test
+	public void testParseContentRange() {
+		assertEquals(100, PartialDownload.parseContentRangeStart("bytes 100-199/200"));
+		assertEquals(200, PartialDownload.parseContentRangeTotal("bytes 100-199/200"));
+		assertEquals(100, PartialDownload.parseContentRangeStart("bytes 100-199/*"));
+		assertEquals(-1, PartialDownload.parseContentRangeTotal("bytes 100-199/*"));
+		assertEquals(-1, PartialDownload.parseContentRangeStart("bytes */200"));
+		assertEquals(-1, PartialDownload.parseContentRangeStart(null));
+	}
+
+	@Test
+	public void testToMd5String() {
+		byte[] digest = new byte[16];
+		digest[0] = (byte) 0xe8;
+		digest[15] = (byte) 0x0f;
+		assertEquals("e800000000000000000000000000000f", PartialDownload.toMd5String(digest));
+		assertNull(PartialDownload.toMd5String(new byte[15]));
+		assertNull(PartialDownload.toMd5String(null));
+	}
+
+	private static void writePartialFile(PartialDownload download, String content) throws IOException {
+		FileOutputStream output = new FileOutputStream(download.getPartialFile());
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.apptentive.android.sdk.util.threading;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class StartupGraphTest {
+	private ExecutorService executor;
+	private List<String> result;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		result = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testDependencies() {
+		StartupGraph graph = new StartupGraph();
+		graph.addStage("a", executor, record("a"));
+		graph.addStage("b", executor, record("b"), "a");
+		graph.addStage("c", executor, record("c"), "a", "b");
+		graph.start();
+
+		assertTrue(graph.await("c", 1000));
+		assertEquals("[a, b, c]", result.toString());
+	}
+
+	@Test
+	public void testIndependentStagesRunConcurrently() {
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				bothStarted.countDown();
+				try {
+					// would time out if stages ran one after another
+					assertTrue(bothStarted.await(1, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				result.add("done");
+			}
+		};
+
+		StartupGraph graph = new StartupGraph();
+		graph.addStage("a", executor, task);
+		graph.addStage("b", executor, task);
+		graph.addStage("c", executor, record("c"), "a", "b");
+		graph.start();
+
+		assertTrue(graph.await("c", 2000));
+		assertEquals("[done, done, c]", result.toString());
+	}
+
+	@Test
+	public void testStageAddedAfterStart() {
+		StartupGraph graph = new StartupGraph();
+		graph.start();
+
+		graph.begin("inline");
+		graph.addStage("a", executor, record("a"), "inline");
+		assertFalse(graph.await("a", 100));
+
+		graph.end("inline");
+		assertTrue(graph.await("a", 1000));
+		assertEquals("[a]", result.toString());
+	}
+
+	@Test
+	public void testFailedStageDoesNotBlockDependents() {
+		StartupGraph graph = new StartupGraph();
+		graph.addStage("a", executor, new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("failed");
+			}
+		});
+		graph.addStage("b", executor, record("b"), "a");
+		graph.start();
+
+		assertTrue(graph.await("b", 1000));
+		assertEquals("[b]", result.toString());
+		assertTrue(graph.describe().contains("failed"));
+	}
+
+	@Test
+	public void testStageErrorDoesNotBlockAwait() {
+		StartupGraph graph = new StartupGraph();
+		graph.addStage("a", executor, new Runnable() {
+			@Override
+			public void run() {
+				throw new AssertionError("failed");
+			}
+		});
+		graph.start();
+
+		assertTrue(graph.await("a", 1000));
+		assertTrue(graph.describe().contains("failed"));
+	}
+
+	@Test
+	public void testTimings() throws InterruptedException {
+		StartupGraph graph = new StartupGraph();
+		graph.begin("a");
+		Thread.sleep(20);
+		graph.end("a");
+		graph.begin("b");
+
+		Map<String, Long> timings = graph.getTimings();
+		assertEquals(1, timings.size());
+		assertTrue(timings.get("a") >= 20);
+		assertTrue(graph.getElapsedMillis() >= 20);
+		assertTrue(graph.describe().contains("b: pending"));
+	}
+
+	@Test
+	public void testAwaitUnknownStage() {
+		assertFalse(new StartupGraph().await("unknown", 10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownDependency() {
+		new StartupGraph().addStage("a", executor, record("a"), "unknown");
+	}
+
+	private Runnable record(final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				result.add(name);
+			}
+		};
+	}
+}
@@ -0,0 +1,243 @@
+package com.apptentive.android.sdk.util.threading;
+
+import com.apptentive.android.sdk.network.NetworkPolicy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WorkSchedulerTest {
+	private MockDeviceState deviceState;
+	private MockExecutor executor;
+	private WorkScheduler scheduler;
+	private List<String> result;
+
+	@Before
+	public void setUp() {
+		deviceState = new MockDeviceState();
+		executor = new MockExecutor();
+		scheduler = new WorkScheduler(deviceState, executor, executor);
+		result = new ArrayList<>();
+	}
+
+	@Test
+	public void testImmediateJob() {
+		scheduler.schedule(createJob("a").setDelay(0, 0));
+		assertEquals("[]", result.toString()); // jobs always run on the executor
+
+		executor.advanceTime(0);
+		assertEquals("[a]", result.toString());
+		assertEquals(0, scheduler.getJobCount());
+	}
+
+	@Test
+	public void testRunAtTheEndOfWindow() {
+		scheduler.schedule(createJob("a").setDelay(100, 500));
+
+		executor.advanceTime(499);
+		assertEquals("[]", result.toString());
+
+		executor.advanceTime(1);
+		assertEquals("[a]", result.toString());
+	}
+
+	@Test
+	public void testOverlappingWindowsShareWakeUp() {
+		scheduler.schedule(createJob("a").setDelay(100, 1000));
+		scheduler.schedule(createJob("b").setDelay(200, 300));
+		scheduler.schedule(createJob("c").setDelay(400, 600));
+
+		executor.advanceTime(300);
+		assertEquals("[a, b]", result.toString());
+		assertEquals(1, executor.getWakeUpCount());
+
+		executor.advanceTime(300);
+		assertEquals("[a, b, c]", result.toString());
+		assertEquals(2, executor.getWakeUpCount());
+	}
+
+	@Test
+	public void testReplaceJob() {
+		scheduler.schedule(createJob("a").setDelay(100, 100));
+		scheduler.schedule(createJob("a").setDelay(200, 200));
+
+		executor.advanceTime(100);
+		assertEquals("[]", result.toString());
+
+		executor.advanceTime(100);
+		assertEquals("[a]", result.toString());
+	}
+
+	@Test
+	public void testCancel() {
+		scheduler.schedule(createJob("a").setDelay(100, 100));
+		assertTrue(scheduler.isScheduled("a"));
+		assertTrue(scheduler.cancel("a"));
+		assertFalse(scheduler.cancel("a"));
+
+		executor.advanceTime(100);
+		assertEquals("[]", result.toString());
+	}
+
+	@Test
+	public void testNetworkConstraint() {
+		deviceState.connected = false;
+		scheduler.schedule(createJob("a").setDelay(100, 100).setRequiredNetwork(NetworkPolicy.ANY));
+		scheduler.schedule(createJob("b").setDelay(100, 100));
+
+		executor.advanceTime(1000);
+		assertEquals("[b]", result.toString());
+
+		deviceState.connected = true;
+		scheduler.onDeviceStateChanged();
+		executor.advanceTime(0);
+		assertEquals("[b, a]", result.toString());
+	}
+
+	@Test
+	public void testUnmeteredNetworkConstraint() {
+		deviceState.connected = true;
+		scheduler.schedule(createJob("a").setRequiredNetwork(NetworkPolicy.UNMETERED));
+		executor.advanceTime(0);
+		assertEquals("[]", result.toString());
+
+		deviceState.unmetered = true;
+		scheduler.onDeviceStateChanged();
+		executor.advanceTime(0);
+		assertEquals("[a]", result.toString());
+	}
+
+	@Test
+	public void testChargingAndForegroundConstraints() {
+		scheduler.schedule(createJob("charging").setRequiresCharging(true));
+		scheduler.schedule(createJob("foreground").setForegroundOnly(true));
+		executor.advanceTime(0);
+		assertEquals("[]", result.toString());
+
+		deviceState.foreground = true;
+		scheduler.onDeviceStateChanged();
+		executor.advanceTime(0);
+		assertEquals("[foreground]", result.toString());
+
+		deviceState.charging = true;
+		scheduler.onDeviceStateChanged();
+		executor.advanceTime(0);
+		assertEquals("[foreground, charging]", result.toString());
+	}
+
+	@Test
+	public void testStateChangeRunsJobsEarly() {
+		deviceState.connected = false;
+		scheduler.schedule(createJob("a").setDelay(100, 1000));
+
+		executor.advanceTime(200);
+		scheduler.onDeviceStateChanged();
+		executor.advanceTime(0);
+		assertEquals("[a]", result.toString());
+	}
+
+	@Test
+	public void testJobReschedulesItself() {
+		scheduler.schedule(new WorkScheduler.Job("poll", new Runnable() {
+			@Override
+			public void run() {
+				result.add("poll");
+				if (result.size() < 3) {
+					scheduler.schedule(new WorkScheduler.Job("poll", this).setDelay(100, 100));
+				}
+			}
+		}));
+
+		executor.advanceTime(1000);
+		assertEquals("[poll, poll, poll]", result.toString());
+	}
+
+	private WorkScheduler.Job createJob(final String name) {
+		return new WorkScheduler.Job(name, new Runnable() {
+			@Override
+			public void run() {
+				result.add(name);
+			}
+		});
+	}
+
+	private static class MockDeviceState implements WorkScheduler.DeviceState {
+		boolean connected = true;
+		boolean unmetered;
+		boolean charging;
+		boolean foreground;
+
+		@Override
+		public boolean isNetworkSatisfied(NetworkPolicy policy) {
+			return connected && (policy == NetworkPolicy.ANY || unmetered);
+		}
+
+		@Override
+		public boolean isCharging() {
+			return charging;
+		}
+
+		@Override
+		public boolean isAppInForeground() {
+			return foreground;
+		}
+	}
+
+	/**
+	 * Deterministic clock and executor: tasks run when the time is advanced to their due time
+	 */
+	private static class MockExecutor implements WorkScheduler.Executor, WorkScheduler.Clock {
+		private final List<Task> tasks = new ArrayList<>();
+		private long time;
+		private int wakeUpCount;
+
+		@Override
+		public void execute(Runnable runnable, long delayMillis) {
+			tasks.add(new Task(runnable, time + delayMillis));
+		}
+
+		@Override
+		public long currentTimeMillis() {
+			return time;
+		}
+
+		void advanceTime(long millis) {
+			long targetTime = time + millis;
+			while (true) {
+				Task next = null;
+				for (Task task : tasks) {
+					if (task.dueTime <= targetTime && (next == null || task.dueTime < next.dueTime)) {
+						next = task;
+					}
+				}
+				if (next == null) {
+					break;
+				}
+
+				tasks.remove(next);
+				time = Math.max(time, next.dueTime);
+				++wakeUpCount;
+				next.runnable.run();
+			}
+			time = targetTime;
+		}
+
+		int getWakeUpCount() {
+			return wakeUpCount;
+		}
+
+		private static class Task {
+			final Runnable runnable;
+			final long dueTime;
+
+			Task(Runnable runnable, long dueTime) {
+				this.runnable = runnable;
+				this.dueTime = dueTime;
+			}
+		}
+	}
+}
@@ -42,9 +42,4 @@ public class MockHttpJsonRequest extends HttpJsonRequest {
 		connection.setMockResponseData(responseData);
 		return this;
 	}
-
-	@Override
-	protected boolean isNetworkConnectionPresent() {
-		return true;
-	}
 }
@@ -59,9 +59,9 @@ public class MockHttpRequest extends HttpRequest {
 		return this;
 	}
 
-	@Override
-	protected boolean isNetworkConnectionPresent() {
-		return true;
+	public MockHttpRequest allowCoalescing() {
+		setCoalescingAllowed(true);
+		return this;
 	}
 
 	@Override